@@ -31,4 +31,14 @@ public class WritableComparatorTestHarness {
 
 		return comparator.compare(bytes1, 0, bytes1.length, bytes2, 0, bytes2.length);
 	}
+
+	/**
+	 * Returns <code>true</code> if the raw comparator orders two objects the
+	 * same way as their <code>compareTo</code> method does.
+	 */
+	public static <T extends WritableComparable<T>> boolean agrees(WritableComparator comparator,
+			T obj1, T obj2) {
+		return Integer.signum(compare(comparator, obj1, obj2)) == Integer.signum(obj1
+				.compareTo(obj2));
+	}
 }
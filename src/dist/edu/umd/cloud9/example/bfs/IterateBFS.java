@@ -36,12 +36,16 @@ import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
 import edu.umd.cloud9.util.array.ArrayListOfInts;
-import edu.umd.cloud9.util.map.HMapII;
-import edu.umd.cloud9.util.map.MapII;
+import edu.umd.cloud9.mapreduce.CombiningBufferCounters;
+import edu.umd.cloud9.util.map.CombiningBuffer;
+import edu.umd.cloud9.util.map.CombiningBufferII;
 
 /**
  * <p>
- * Tool for running one iteration of parallel breadth-first search.
+ * Tool for running one iteration of parallel breadth-first search. Distances
+ * are combined in the mapper, in a buffer that is flushed early once it
+ * reaches the budgets given by <code>-DCombiningBuffer.MaxEntries</code> and
+ * <code>-DCombiningBuffer.MaxBytes</code> (see {@link CombiningBuffer}).
  * </p>
  *
  * @author Jimmy Lin
@@ -60,11 +64,37 @@ public class IterateBFS extends Configured implements Tool {
 			Mapper<IntWritable, BFSNode, IntWritable, BFSNode> {
 
 		// For buffering distances keyed by destination node.
-		private static final HMapII map = new HMapII();
+		private CombiningBufferII buffer;
 
 		// For passing along node structure.
 		private static final BFSNode intermediateStructure = new BFSNode();
 
+		@Override
+		public void setup(final Context context) {
+			CombiningBufferII.Sink sink = new CombiningBufferII.Sink() {
+				private final IntWritable k = new IntWritable();
+				private final BFSNode dist = new BFSNode();
+
+				public void emit(int key, int value) throws IOException, InterruptedException {
+					k.set(key);
+
+					dist.setNodeId(key);
+					dist.setType(BFSNode.TYPE_DISTANCE);
+					dist.setDistance(value);
+
+					context.write(k, dist);
+				}
+			};
+
+			buffer = new CombiningBufferII(context.getConfiguration(), sink) {
+				// Keep track of the shortest distance encountered.
+				protected int combine(int oldValue, int value) {
+					return Math.min(oldValue, value);
+				}
+			};
+			buffer.setListener(new CombiningBufferCounters(context));
+		}
+
 		@Override
 		public void map(IntWritable nid, BFSNode node, Context context) throws IOException,
 				InterruptedException {
@@ -82,39 +112,21 @@ public class IterateBFS extends Configured implements Tool {
 
 			context.getCounter(ReachableNodes.Map).increment(1);
 			// Retain distance to self.
-			map.put(nid.get(), node.getDistance());
+			buffer.add(nid.get(), node.getDistance());
 
 			ArrayListOfInts adj = node.getAdjacenyList();
 			int dist = node.getDistance() + 1;
 			// Keep track of shortest distance to neighbors.
 			for (int i = 0; i < adj.size(); i++) {
-				int neighbor = adj.get(i);
-
-				// Keep track of distance if it's shorter than previously
-				// encountered, or if we haven't encountered this node.
-				if ((map.containsKey(neighbor) && dist < map.get(neighbor)) ||
-						!map.containsKey(neighbor)) {
-					map.put(neighbor, dist);
-				}
+				buffer.add(adj.get(i), dist);
 			}
 		}
 
 		@Override
 		public void cleanup(Mapper<IntWritable, BFSNode, IntWritable, BFSNode>.Context context)
 				throws IOException, InterruptedException {
-			// Now emit the messages all at once.
-			IntWritable k = new IntWritable();
-			BFSNode dist = new BFSNode();
-
-			for (MapII.Entry e : map.entrySet()) {
-				k.set(e.getKey());
-
-				dist.setNodeId(e.getKey());
-				dist.setType(BFSNode.TYPE_DISTANCE);
-				dist.setDistance(e.getValue());
-
-				context.write(k, dist);
-			}
+			// Now emit the remaining messages all at once.
+			buffer.close();
 		}
 	}
 
@@ -0,0 +1,283 @@
+// Generated by edu.umd.cloud9.io.SchemaCodeGenerator. Do not edit.
+
+package edu.umd.cloud9.example.bigram;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+import edu.umd.cloud9.io.TupleException;
+import edu.umd.cloud9.io.WritableComparatorUtils;
+
+/**
+ * Record with the fields of the following schema, serialized in the same
+ * form as a Tuple bound to it:
+ * <code>Schema[(Left, java.lang.String, ) (Right, java.lang.String, )]</code>
+ */
+public class Bigram implements WritableComparable<Bigram> {
+	private String left = "";
+	private String leftSymbol;
+	private String right = "";
+	private String rightSymbol;
+
+	private final byte[] mSymbolBits = new byte[1];
+
+	/**
+	 * Creates a record with the default values of the fields.
+	 */
+	public Bigram() {
+	}
+
+	/**
+	 * Creates a record with the given values of the fields.
+	 */
+	public Bigram(String left, String right) {
+		setLeft(left);
+		setRight(right);
+	}
+
+	/**
+	 * Returns the value of field <code>Left</code>.
+	 */
+	public String getLeft() {
+		return left;
+	}
+
+	/**
+	 * Sets the value of field <code>Left</code>, clearing its special symbol.
+	 */
+	public void setLeft(String left) {
+		if (left == null) {
+			throw new TupleException("Null values are not allowed for tuple fields!");
+		}
+		this.left = left;
+		leftSymbol = null;
+	}
+
+	/**
+	 * Returns the special symbol of field <code>Left</code>,
+	 * or <code>null</code> if it holds a value.
+	 */
+	public String getLeftSymbol() {
+		return leftSymbol;
+	}
+
+	/**
+	 * Sets a special symbol at field <code>Left</code>.
+	 */
+	public void setLeftSymbol(String symbol) {
+		if (symbol == null) {
+			throw new TupleException("Null is not a valid symbol!");
+		}
+		leftSymbol = symbol;
+	}
+
+	/**
+	 * Determines if field <code>Left</code> contains a special symbol.
+	 */
+	public boolean containsLeftSymbol() {
+		return leftSymbol != null;
+	}
+
+	/**
+	 * Returns the value of field <code>Right</code>.
+	 */
+	public String getRight() {
+		return right;
+	}
+
+	/**
+	 * Sets the value of field <code>Right</code>, clearing its special symbol.
+	 */
+	public void setRight(String right) {
+		if (right == null) {
+			throw new TupleException("Null values are not allowed for tuple fields!");
+		}
+		this.right = right;
+		rightSymbol = null;
+	}
+
+	/**
+	 * Returns the special symbol of field <code>Right</code>,
+	 * or <code>null</code> if it holds a value.
+	 */
+	public String getRightSymbol() {
+		return rightSymbol;
+	}
+
+	/**
+	 * Sets a special symbol at field <code>Right</code>.
+	 */
+	public void setRightSymbol(String symbol) {
+		if (symbol == null) {
+			throw new TupleException("Null is not a valid symbol!");
+		}
+		rightSymbol = symbol;
+	}
+
+	/**
+	 * Determines if field <code>Right</code> contains a special symbol.
+	 */
+	public boolean containsRightSymbol() {
+		return rightSymbol != null;
+	}
+
+	/**
+	 * Deserializes this record.
+	 */
+	public void readFields(DataInput in) throws IOException {
+		in.readFully(mSymbolBits);
+
+		if ((mSymbolBits[0] & 1) != 0) {
+			this.leftSymbol = in.readUTF();
+		} else {
+			this.leftSymbol = null;
+			this.left = in.readUTF();
+		}
+
+		if ((mSymbolBits[0] & 2) != 0) {
+			this.rightSymbol = in.readUTF();
+		} else {
+			this.rightSymbol = null;
+			this.right = in.readUTF();
+		}
+	}
+
+	/**
+	 * Serializes this record.
+	 */
+	public void write(DataOutput out) throws IOException {
+		mSymbolBits[0] = (byte) ((this.leftSymbol != null ? 1 : 0)
+				| (this.rightSymbol != null ? 2 : 0));
+		out.write(mSymbolBits);
+
+		if (this.leftSymbol != null) {
+			out.writeUTF(this.leftSymbol);
+		} else {
+			out.writeUTF(this.left);
+		}
+
+		if (this.rightSymbol != null) {
+			out.writeUTF(this.rightSymbol);
+		} else {
+			out.writeUTF(this.right);
+		}
+	}
+
+	/**
+	 * Compares field by field, with special symbols sorted before values,
+	 * in the same order as Tuples.
+	 */
+	public int compareTo(Bigram that) {
+		int cmp;
+
+		if (this.leftSymbol != null || that.leftSymbol != null) {
+			if (this.leftSymbol == null)
+				return 1;
+			if (that.leftSymbol == null)
+				return -1;
+			cmp = this.leftSymbol.compareTo(that.leftSymbol);
+		} else {
+			cmp = this.left.compareTo(that.left);
+		}
+		if (cmp != 0)
+			return cmp;
+
+		if (this.rightSymbol != null || that.rightSymbol != null) {
+			if (this.rightSymbol == null)
+				return 1;
+			if (that.rightSymbol == null)
+				return -1;
+			cmp = this.rightSymbol.compareTo(that.rightSymbol);
+		} else {
+			cmp = this.right.compareTo(that.right);
+		}
+		if (cmp != 0)
+			return cmp;
+
+		return 0;
+	}
+
+	public boolean equals(Object obj) {
+		return obj instanceof Bigram && compareTo((Bigram) obj) == 0;
+	}
+
+	/**
+	 * Returns the same hash code as a Tuple with the same fields.
+	 */
+	public int hashCode() {
+		int hash = 0;
+		hash += this.leftSymbol != null ? this.leftSymbol.hashCode() : this.left.hashCode();
+		hash += this.rightSymbol != null ? this.rightSymbol.hashCode() : this.right.hashCode();
+		return hash;
+	}
+
+	public String toString() {
+		return "("
+				+ (leftSymbol != null ? leftSymbol : left) + ", "
+				+ (rightSymbol != null ? rightSymbol : right) + ")";
+	}
+
+	/** Comparator optimized for <code>Bigram</code>. */
+	public static class Comparator extends WritableComparator {
+
+		public Comparator() {
+			super(Bigram.class);
+		}
+
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			int p1 = s1 + 1;
+			int p2 = s2 + 1;
+			boolean symbol1;
+			boolean symbol2;
+			int cmp;
+
+			// Left
+			symbol1 = (b1[s1] & 1) != 0;
+			symbol2 = (b2[s2] & 1) != 0;
+			if (symbol1 || symbol2) {
+				if (!symbol1)
+					return 1;
+				if (!symbol2)
+					return -1;
+				cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+				p1 += WritableComparatorUtils.utfLength(b1, p1);
+				p2 += WritableComparatorUtils.utfLength(b2, p2);
+			} else {
+				cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+				p1 += WritableComparatorUtils.utfLength(b1, p1);
+				p2 += WritableComparatorUtils.utfLength(b2, p2);
+			}
+			if (cmp != 0)
+				return cmp;
+
+			// Right
+			symbol1 = (b1[s1] & 2) != 0;
+			symbol2 = (b2[s2] & 2) != 0;
+			if (symbol1 || symbol2) {
+				if (!symbol1)
+					return 1;
+				if (!symbol2)
+					return -1;
+				cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+				p1 += WritableComparatorUtils.utfLength(b1, p1);
+				p2 += WritableComparatorUtils.utfLength(b2, p2);
+			} else {
+				cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+				p1 += WritableComparatorUtils.utfLength(b1, p1);
+				p2 += WritableComparatorUtils.utfLength(b2, p2);
+			}
+			if (cmp != 0)
+				return cmp;
+
+			return 0;
+		}
+	}
+
+	static { // register this comparator
+		WritableComparator.define(Bigram.class, new Comparator());
+	}
+}
@@ -17,6 +17,7 @@
 package edu.umd.cloud9.example.cooccur;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.apache.hadoop.conf.Configured;
@@ -33,7 +34,8 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
-import edu.umd.cloud9.io.fastuil.String2IntOpenHashMapWritable;
+import edu.umd.cloud9.io.map.HMapSIWView;
+import edu.umd.cloud9.util.map.HMapKI;
 
 /**
  * <p>
@@ -50,6 +52,12 @@ import edu.umd.cloud9.io.fastuil.String2IntOpenHashMapWritable;
  * Language Processing (EMNLP 2008)</i>, pages 419-428.</blockquote>
  * 
  * <p>
+ * Stripes are {@link HMapSIWView}s, which the combiner and the reducer sum
+ * with a single merge over the serialized entries, without building a hash
+ * table per stripe.
+ * </p>
+ * 
+ * <p>
  * This program takes the following command-line arguments:
  * </p>
  * 
@@ -65,11 +73,11 @@ import edu.umd.cloud9.io.fastuil.String2IntOpenHashMapWritable;
 public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool {
 	private static final Logger sLogger = Logger.getLogger(ComputeCooccurrenceMatrixStripes.class);
 
-	private static class MyMapper extends
-			Mapper<LongWritable, Text, Text, String2IntOpenHashMapWritable> {
+	private static class MyMapper extends Mapper<LongWritable, Text, Text, HMapSIWView> {
 
 		private int window = 2;
-		private String2IntOpenHashMapWritable map = new String2IntOpenHashMapWritable();
+		private HMapKI<String> map = new HMapKI<String>();
+		private HMapSIWView stripe = new HMapSIWView();
 		private Text textKey = new Text();
 
 		@Override
@@ -104,35 +112,41 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 					if (terms[j].length() == 0)
 						continue;
 
-					if (map.containsKey(terms[j])) {
-						map.increment(terms[j]);
-					} else {
-						map.put(terms[j], 1);
-					}
+					map.increment(terms[j]);
 				}
 
+				// stripes are written sorted, so that views read them without sorting
+				stripe.set(map);
 				textKey.set(term);
-				context.write(textKey, map);
+				context.write(textKey, stripe);
 			}
 		}
 	}
 
-	private static class MyReducer extends
-			Reducer<Text, String2IntOpenHashMapWritable, Text, String2IntOpenHashMapWritable> {
+	private static class MyReducer extends Reducer<Text, HMapSIWView, Text, HMapSIWView> {
 
-		@Override
-		public void reduce(Text key, Iterable<String2IntOpenHashMapWritable> values, Context context)
-				throws IOException,
-				InterruptedException {
-			Iterator<String2IntOpenHashMapWritable> iter = values.iterator();
+		private HMapSIWView[] stripes = new HMapSIWView[0];
+		private HMapSIWView sum = new HMapSIWView();
 
-			String2IntOpenHashMapWritable map = new String2IntOpenHashMapWritable();
+		@Override
+		public void reduce(Text key, Iterable<HMapSIWView> values, Context context)
+				throws IOException, InterruptedException {
+			Iterator<HMapSIWView> iter = values.iterator();
 
+			// the values are the same object, so each stripe is copied before merging
+			int n = 0;
 			while (iter.hasNext()) {
-				map.plus(iter.next());
+				if (n == stripes.length) {
+					stripes = Arrays.copyOf(stripes, Math.max(16, 2 * n));
+				}
+				if (stripes[n] == null) {
+					stripes[n] = new HMapSIWView();
+				}
+				stripes[n++].set(iter.next());
 			}
 
-			context.write(key, map);
+			HMapSIWView.merge(stripes, n, sum);
+			context.write(key, sum);
 		}
 	}
 
@@ -185,7 +199,7 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 		FileOutputFormat.setOutputPath(job, new Path(outputPath));
 
 		job.setOutputKeyClass(Text.class);
-		job.setOutputValueClass(String2IntOpenHashMapWritable.class);
+		job.setOutputValueClass(HMapSIWView.class);
 
 		job.setMapperClass(MyMapper.class);
 		job.setCombinerClass(MyReducer.class);
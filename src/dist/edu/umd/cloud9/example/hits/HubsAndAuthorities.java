@@ -249,20 +249,22 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		public void close() throws IOException {
 			IntWritable n = new IntWritable();
 			HITSNode mass = new HITSNode();
-			for (MapIF.Entry e : rankmapH.entrySet()) {
-				n.set(e.getKey());
+			MapIF.Cursor hubs = rankmapH.cursor();
+			while (hubs.advance()) {
+				n.set(hubs.key());
 				mass.setType(HITSNode.TYPE_HUB_MASS);
-				mass.setHARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
+				mass.setHARank(hubs.value());
+				mass.setNodeId(hubs.key());
+				// System.out.println(hubs.key() + " " + hubs.value());
 				mOutput.collect(n, mass);
 			}
-			for (MapIF.Entry e : rankmapA.entrySet()) {
-				n.set(e.getKey());
+			MapIF.Cursor auths = rankmapA.cursor();
+			while (auths.advance()) {
+				n.set(auths.key());
 				mass.setType(HITSNode.TYPE_AUTH_MASS);
-				mass.setHARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
+				mass.setHARank(auths.value());
+				mass.setNodeId(auths.key());
+				// System.out.println(auths.key() + " " + auths.value());
 				mOutput.collect(n, mass);
 			}
 		}
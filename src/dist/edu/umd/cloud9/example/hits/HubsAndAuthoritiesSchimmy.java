@@ -3,6 +3,7 @@
  */
 package edu.umd.cloud9.example.hits;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -43,8 +44,10 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
-import edu.umd.cloud9.util.map.HMapIF;
-import edu.umd.cloud9.util.map.MapIF;
+import edu.umd.cloud9.mapred.CombiningBufferCounters;
+import edu.umd.cloud9.util.map.CombiningBuffer;
+import edu.umd.cloud9.util.map.CombiningBufferIF;
+import edu.umd.cloud9.util.map.OffHeapMapIF;
 
 /**
  * <p>
@@ -66,6 +69,19 @@ import edu.umd.cloud9.util.map.MapIF;
  * </ul>
  * 
  * <p>
+ * When in-mapper combining is enabled, setting
+ * <code>-DHITS.UseOffHeapMap=true</code> keeps the buffered hub and authority
+ * ranks in off-heap maps (see {@link OffHeapMapIF}), so that the buffers are
+ * limited by local disk rather than by the task heap. Either way, the buffers
+ * are flushed early once they reach the budgets given by
+ * <code>-DCombiningBuffer.MaxEntries</code> and
+ * <code>-DCombiningBuffer.MaxBytes</code> (see {@link CombiningBuffer}). For
+ * off-heap buffers, the byte budget counts the memory-mapped tables, so it
+ * should be raised for the buffers to grow past its default of a quarter of
+ * the heap.
+ * </p>
+ * 
+ * <p>
  * The starting and ending iterations will correspond to paths
  * <code>/base/path/iterXXXX</code> and <code>/base/path/iterYYYY</code>. As a
  * example, if you specify 0 and 10 as the starting and ending iterations, the
@@ -84,6 +100,11 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 	private static final Logger sLogger = Logger
 			.getLogger(HubsAndAuthoritiesSchimmy.class);
 
+	/**
+	 * Job property that selects off-heap maps for in-mapper combining.
+	 */
+	public static final String OFF_HEAP_MAP_PROPERTY = "HITS.UseOffHeapMap";
+
 	/**
 	 * @param args
 	 */
@@ -149,20 +170,61 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 			Mapper<IntWritable, HITSNode, IntWritable, HITSNode> {
 
 		// for buffering rank values
-		private static HMapIF rankmapA = new HMapIF();
-		private static HMapIF rankmapH = new HMapIF();
+		private static CombiningBufferIF rankmapA;
+		private static CombiningBufferIF rankmapH;
 
 		// save a reference to the output collector
 		private static OutputCollector<IntWritable, HITSNode> mOutput;
 
-		private static HITSNode valOut = new HITSNode();
+		private static final CombiningBufferCounters counters = new CombiningBufferCounters();
 
 		// private static ArrayListOfIntsWritable empty = new
 		// ArrayListOfIntsWritable();
 
 		public void configure(JobConf job) {
-			rankmapA.clear();
-			rankmapH.clear();
+			boolean offHeap = job.getBoolean(OFF_HEAP_MAP_PROPERTY, false);
+			String dir = job.getJobLocalDir();
+			File scratch = new File(dir != null ? dir : System.getProperty("java.io.tmpdir"));
+
+			rankmapA = createBuffer(job, offHeap, scratch, HITSNode.TYPE_AUTH_MASS);
+			rankmapH = createBuffer(job, offHeap, scratch, HITSNode.TYPE_HUB_MASS);
+		}
+
+		private static CombiningBufferIF createBuffer(Configuration job, boolean offHeap,
+				File scratch, final int type) {
+			CombiningBufferIF.Sink sink = new CombiningBufferIF.Sink() {
+				private final IntWritable n = new IntWritable();
+				private final HITSNode mass = new HITSNode();
+
+				public void emit(int key, float value) throws IOException {
+					n.set(key);
+					mass.setType(type);
+					mass.setHARank(value);
+					mass.setNodeId(key);
+					mOutput.collect(n, mass);
+				}
+			};
+
+			CombiningBufferIF buffer;
+			if (offHeap) {
+				// keep the buffer in a memory-mapped scratch file, so that it
+				// isn't bounded by the task heap; the byte budget then bounds the file
+				buffer = new CombiningBufferIF(job, new OffHeapMapIF(scratch),
+						CombiningBuffer.OFF_HEAP_ENTRY_BYTES, sink) {
+					protected float combine(float oldValue, float value) {
+						return sumLogProbs(oldValue, value);
+					}
+				};
+			} else {
+				buffer = new CombiningBufferIF(job, sink) {
+					protected float combine(float oldValue, float value) {
+						return sumLogProbs(oldValue, value);
+					}
+				};
+			}
+			buffer.setListener(counters);
+
+			return buffer;
 		}
 
 		public void map(IntWritable key, HITSNode value,
@@ -170,32 +232,18 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 				throws IOException {
 
 			mOutput = output;
+			counters.setReporter(reporter);
 
-			int type = value.getType();
 			int typeOut = 0;
 			ArrayListOfIntsWritable adjList = value.getAdjacencyList();
 
 			// check type using new types
 			if (value.getType() == HITSNode.TYPE_AUTH_COMPLETE) {
-				if (rankmapA.containsKey(key.get())) {
-					rankmapA.put(key.get(), sumLogProbs(
-							rankmapA.get(key.get()), value.getHARank()));
-				} else {
-					rankmapA.put(key.get(), value.getHARank());
-					// rankmapA.put(key.get(),
-					// sumLogProbs(rankmapA.get(key.get()), 0));
-				}
+				rankmapA.add(key.get(), value.getHARank());
 			}
 
 			else if (value.getType() == HITSNode.TYPE_HUB_COMPLETE) {
-				if (rankmapH.containsKey(key.get())) {
-					rankmapH.put(key.get(), sumLogProbs(
-							rankmapH.get(key.get()), value.getHARank()));
-				} else {
-					rankmapH.put(key.get(), value.getHARank());
-					// rankmapH.put(key.get(),
-					// sumLogProbs(rankmapH.get(key.get()), 0));
-				}
+				rankmapH.add(key.get(), value.getHARank());
 			} else {
 				System.err.print("Unknown node type: " + typeOut);
 			}
@@ -208,19 +256,9 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 				// System.out.println("[key: " + key.toString() + "] [curr: " +
 				// curr + "]");
 				if (value.getType() == HITSNode.TYPE_AUTH_COMPLETE) {
-					if (rankmapH.containsKey(curr)) {
-						rankmapH.put(curr, sumLogProbs(rankmapH.get(curr),
-								value.getHARank()));
-					} else {
-						rankmapH.put(curr, value.getHARank());
-					}
+					rankmapH.add(curr, value.getHARank());
 				} else if (value.getType() == HITSNode.TYPE_HUB_COMPLETE) {
-					if (rankmapA.containsKey(curr)) {
-						rankmapA.put(curr, sumLogProbs(rankmapA.get(curr),
-								value.getHARank()));
-					} else {
-						rankmapA.put(curr, value.getHARank());
-					}
+					rankmapA.add(curr, value.getHARank());
 				} else {
 					System.err.println("Unknown node type: " + value.getType());
 				}
@@ -228,24 +266,9 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		}
 
 		public void close() throws IOException {
-			IntWritable n = new IntWritable();
-			HITSNode mass = new HITSNode();
-			for (MapIF.Entry e : rankmapH.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_HUB_MASS);
-				mass.setHARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
-				mOutput.collect(n, mass);
-			}
-			for (MapIF.Entry e : rankmapA.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_AUTH_MASS);
-				mass.setHARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
-				mOutput.collect(n, mass);
-			}
+			// emit whatever the budgets haven't flushed already
+			rankmapH.close();
+			rankmapA.close();
 		}
 
 	}
@@ -723,6 +746,8 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 				numPartitions++;
 		}
 		conf.setInt("NodeCount", nodeCount);
+		conf.setBoolean(OFF_HEAP_MAP_PROPERTY, getConf().getBoolean(OFF_HEAP_MAP_PROPERTY, false));
+		CombiningBuffer.copyBudgets(getConf(), conf);
 
 		Partitioner p = null;
 
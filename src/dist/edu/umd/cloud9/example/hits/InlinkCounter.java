@@ -110,12 +110,13 @@ public class InlinkCounter extends Configured implements Tool {
 		}
 
 		public void close() throws IOException {
-			for (MapIV.Entry<ArrayListOfIntsWritable> e : adjLists.entrySet()) {
-				keyOut.set(e.getKey());
-				valOut.setNodeId(e.getKey());
+			MapIV.Cursor<ArrayListOfIntsWritable> c = adjLists.cursor();
+			while (c.advance()) {
+				keyOut.set(c.key());
+				valOut.setNodeId(c.key());
 				valOut.setHARank((float) 0.0);
 				valOut.setType(HITSNode.TYPE_AUTH_COMPLETE);
-				valOut.setAdjacencyList(e.getValue());
+				valOut.setAdjacencyList(c.value());
 				mOutput.collect(keyOut, valOut);
 			}
 		}
@@ -19,9 +19,8 @@ package edu.umd.cloud9.example.ir;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.Stack;
-import java.util.TreeSet;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -34,18 +33,21 @@ import org.apache.hadoop.io.Text;
 import edu.umd.cloud9.io.array.ArrayListWritable;
 import edu.umd.cloud9.io.pair.PairOfInts;
 import edu.umd.cloud9.io.pair.PairOfWritables;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.array.SortedIntSets;
 
 public class BooleanRetrieval {
 
 	MapFile.Reader index;
 	FSDataInputStream collection;
-	Stack<Set<Integer>> stack;
+	// sets of docnos, as sorted lists
+	Stack<ArrayListOfInts> stack;
 
 	public BooleanRetrieval(String indexPath, String collectionPath, FileSystem fs)	throws IOException {
 		index = new MapFile.Reader(fs, indexPath + "/part-00000", fs.getConf());
 
 		collection = fs.open(new Path(collectionPath));
-		stack = new Stack<Set<Integer>>();
+		stack = new Stack<ArrayListOfInts>();
 	}
 
 	public void runQuery(String q) throws IOException {
@@ -62,11 +64,11 @@ public class BooleanRetrieval {
 			}
 		}
 
-		Set<Integer> set = stack.pop();
+		ArrayListOfInts set = stack.pop();
 
-		for (Integer i : set) {
-			String line = fetchLine(i);
-			System.out.println(i + "\t" + line);
+		for (int i = 0; i < set.size(); i++) {
+			String line = fetchLine(set.get(i));
+			System.out.println(set.get(i) + "\t" + line);
 		}
 	}
 
@@ -75,44 +77,31 @@ public class BooleanRetrieval {
 	}
 
 	public void performAND() {
-		Set<Integer> s1 = stack.pop();
-		Set<Integer> s2 = stack.pop();
+		ArrayListOfInts s1 = stack.pop();
+		ArrayListOfInts s2 = stack.pop();
 
-		Set<Integer> sn = new TreeSet<Integer>();
-
-		for (int n : s1) {
-			if (s2.contains(n)) {
-				sn.add(n);
-			}
-		}
-
-		stack.push(sn);
+		// in place
+		stack.push(SortedIntSets.intersect(s1, s2, s1));
 	}
 
 	public void performOR() {
-		Set<Integer> s1 = stack.pop();
-		Set<Integer> s2 = stack.pop();
-
-		Set<Integer> sn = new TreeSet<Integer>();
+		ArrayListOfInts s1 = stack.pop();
+		ArrayListOfInts s2 = stack.pop();
 
-		for (int n : s1) {
-			sn.add(n);
-		}
-
-		for (int n : s2) {
-			sn.add(n);
-		}
-
-		stack.push(sn);
+		stack.push(SortedIntSets.union(s1, s2, new ArrayListOfInts(s1.size() + s2.size())));
 	}
 
-	public Set<Integer> fetchDocumentSet(String term) throws IOException {
-		Set<Integer> set = new TreeSet<Integer>();
+	public ArrayListOfInts fetchDocumentSet(String term) throws IOException {
+		ArrayListWritable<PairOfInts> postings = fetchPostings(term);
+		ArrayListOfInts set = new ArrayListOfInts(postings.size());
 
-		for (PairOfInts pair : fetchPostings(term)) {
+		for (PairOfInts pair : postings) {
 			set.add(pair.getLeftElement());
 		}
 
+		// postings are in no particular order
+		Arrays.sort(set.getArray(), 0, set.size());
+
 		return set;
 	}
 
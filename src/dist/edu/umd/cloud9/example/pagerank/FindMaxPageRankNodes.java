@@ -18,7 +18,6 @@ package edu.umd.cloud9.example.pagerank;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.PriorityQueue;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
@@ -41,58 +40,23 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.util.TopKIF;
+
 public class FindMaxPageRankNodes extends Configured implements Tool {
 
 	private static final Logger sLogger = Logger.getLogger(FindMaxPageRankNodes.class);
 
-	private static class NodeRanking implements Comparable<NodeRanking> {
-
-		private int nid;
-		private float score;
-
-		public NodeRanking(int n, float s) {
-			nid = n;
-			score = s;
-		}
-
-		public int getNodeId() {
-			return nid;
-		}
-
-		public float getPageRank() {
-			return score;
-		}
-
-		public int compareTo(NodeRanking that) {
-			if (this.getPageRank() < that.getPageRank()) {
-				return -1;
-			}
-
-			if (this.getPageRank() > that.getPageRank())
-				return 1;
-
-			if (this.getNodeId() < that.getNodeId()) {
-				return -1;
-			}
-
-			if (this.getNodeId() > that.getNodeId()) {
-				return 1;
-			}
-
-			return 0;
-		}
-	}
-
 	private static class MyMapper extends MapReduceBase implements
 			Mapper<IntWritable, PageRankNode, IntWritable, FloatWritable> {
 
 		private static OutputCollector<IntWritable, FloatWritable> output;
-		private static PriorityQueue<NodeRanking> q = new PriorityQueue<NodeRanking>();
+		private static TopKIF q;
 
 		private int n;
 		
 		public void configure(JobConf job) {
 			n = job.getInt("n", 100);
+			q = new TopKIF(n);
 		}
 
 		public void map(IntWritable nid, PageRankNode node,
@@ -101,26 +65,23 @@ public class FindMaxPageRankNodes extends Configured implements Tool {
 
 			this.output = output;
 
-			if (q.size() < n) {
-				q.add(new NodeRanking(node.getNodeId(), node.getPageRank()));
-			} else {
-				if (q.peek().getPageRank() < node.getPageRank()) {
-					q.poll();
-					q.add(new NodeRanking(node.getNodeId(), node.getPageRank()));
-				}
-			}
+			q.offer(node.getNodeId(), node.getPageRank());
 		}
 
 		public void close() throws IOException {
 			IntWritable k = new IntWritable();
 			FloatWritable v = new FloatWritable();
 
-			NodeRanking n;
-			while ((n = q.poll()) != null) {
-				sLogger.info(n.getPageRank() + "\t" + n.getNodeId());
+			int[] ids = new int[q.size()];
+			float[] scores = new float[q.size()];
+			int cnt = q.drain(ids, scores);
+
+			// lowest first
+			for (int i = cnt - 1; i >= 0; i--) {
+				sLogger.info(scores[i] + "\t" + ids[i]);
 
-				k.set(n.getNodeId());
-				v.set(n.getPageRank());
+				k.set(ids[i]);
+				v.set(scores[i]);
 				output.collect(k, v);
 			}
 		}
@@ -130,12 +91,13 @@ public class FindMaxPageRankNodes extends Configured implements Tool {
 			Reducer<IntWritable, FloatWritable, IntWritable, FloatWritable> {
 
 		private static OutputCollector<IntWritable, FloatWritable> output;
-		private static PriorityQueue<NodeRanking> q = new PriorityQueue<NodeRanking>();
+		private static TopKIF q;
 
 		private int n = 100;
 		
 		public void configure(JobConf job) {
 			n = job.getInt("n", 100);
+			q = new TopKIF(n);
 		}
 
 		public void reduce(IntWritable nid, Iterator<FloatWritable> iter,
@@ -145,26 +107,23 @@ public class FindMaxPageRankNodes extends Configured implements Tool {
 			this.output = output;
 
 			FloatWritable p = iter.next();
-			if (q.size() < n) {
-				q.add(new NodeRanking(nid.get(), p.get()));
-			} else {
-				if (q.peek().getPageRank() < p.get()) {
-					q.poll();
-					q.add(new NodeRanking(nid.get(), p.get()));
-				}
-			}
+			q.offer(nid.get(), p.get());
 		}
 
 		public void close() throws IOException {
 			IntWritable k = new IntWritable();
 			FloatWritable v = new FloatWritable();
 
-			NodeRanking n;
-			while ((n = q.poll()) != null) {
-				sLogger.info(n.getPageRank() + "\t" + n.getNodeId());
+			int[] ids = new int[q.size()];
+			float[] scores = new float[q.size()];
+			int cnt = q.drain(ids, scores);
+
+			// lowest first
+			for (int i = cnt - 1; i >= 0; i--) {
+				sLogger.info(scores[i] + "\t" + ids[i]);
 
-				k.set(n.getNodeId());
-				v.set(n.getPageRank());
+				k.set(ids[i]);
+				v.set(scores[i]);
 				output.collect(k, v);
 			}
 		}
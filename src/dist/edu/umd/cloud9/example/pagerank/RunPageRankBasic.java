@@ -196,12 +196,13 @@ public class RunPageRankBasic extends Configured implements Tool {
 			IntWritable k = new IntWritable();
 			PageRankNode mass = new PageRankNode();
 
-			for (MapIF.Entry e : map.entrySet()) {
-				k.set(e.getKey());
+			MapIF.Cursor c = map.cursor();
+			while (c.advance()) {
+				k.set(c.key());
 
-				mass.setNodeId(e.getKey());
+				mass.setNodeId(c.key());
 				mass.setType(PageRankNode.TYPE_MASS);
-				mass.setPageRank(e.getValue());
+				mass.setPageRank(c.value());
 
 				mOutput.collect(k, mass);
 			}
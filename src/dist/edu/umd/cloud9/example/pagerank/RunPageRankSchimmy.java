@@ -16,6 +16,7 @@
 
 package edu.umd.cloud9.example.pagerank;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -55,8 +56,10 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
-import edu.umd.cloud9.util.map.HMapIF;
-import edu.umd.cloud9.util.map.MapIF;
+import edu.umd.cloud9.mapred.CombiningBufferCounters;
+import edu.umd.cloud9.util.map.CombiningBuffer;
+import edu.umd.cloud9.util.map.CombiningBufferIF;
+import edu.umd.cloud9.util.map.OffHeapMapIF;
 
 /**
  * <p>
@@ -75,6 +78,19 @@ import edu.umd.cloud9.util.map.MapIF;
  * </ul>
  * 
  * <p>
+ * When in-mapper combining is enabled, setting
+ * <code>-DPageRank.UseOffHeapMap=true</code> keeps the buffered PageRank mass
+ * in an off-heap map (see {@link OffHeapMapIF}), so that the buffer is limited
+ * by local disk rather than by the task heap. Either way, the buffer is
+ * flushed early once it reaches the budgets given by
+ * <code>-DCombiningBuffer.MaxEntries</code> and
+ * <code>-DCombiningBuffer.MaxBytes</code> (see {@link CombiningBuffer}). For
+ * an off-heap buffer, the byte budget counts the memory-mapped table, so it
+ * should be raised for the buffer to grow past its default of a quarter of
+ * the heap.
+ * </p>
+ * 
+ * <p>
  * The starting and ending iterations will correspond to paths
  * <code>/base/path/iterXXXX</code> and <code>/base/path/iterYYYY</code>. As a
  * example, if you specify 0 and 10 as the starting and ending iterations, the
@@ -92,6 +108,11 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
 	private static final Logger sLogger = Logger.getLogger(RunPageRankSchimmy.class);
 
+	/**
+	 * Job property that selects an off-heap map for in-mapper combining.
+	 */
+	public static final String OFF_HEAP_MAP_PROPERTY = "PageRank.UseOffHeapMap";
+
 	// mapper, no in-mapper combining
 	private static class MapClass extends MapReduceBase implements
 			Mapper<IntWritable, PageRankNode, IntWritable, FloatWritable> {
@@ -139,12 +160,50 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 		private static OutputCollector<IntWritable, FloatWritable> mOutput;
 
 		// for buffering PageRank mass contributes keyed by destination node
-		private static HMapIF map = new HMapIF();
+		private static CombiningBufferIF buffer;
+
+		private static final CombiningBufferCounters counters = new CombiningBufferCounters();
+
+		@SuppressWarnings("deprecation")
+		public void configure(JobConf job) {
+			CombiningBufferIF.Sink sink = new CombiningBufferIF.Sink() {
+				private final IntWritable k = new IntWritable();
+				private final FloatWritable v = new FloatWritable();
+
+				public void emit(int key, float value) throws IOException {
+					k.set(key);
+					v.set(value);
+
+					mOutput.collect(k, v);
+				}
+			};
+
+			if (job.getBoolean(OFF_HEAP_MAP_PROPERTY, false)) {
+				// keep the buffer in a memory-mapped scratch file, so that it
+				// isn't bounded by the task heap; the byte budget then bounds the file
+				String dir = job.getJobLocalDir();
+				File scratch = new File(dir != null ? dir : System.getProperty("java.io.tmpdir"));
+				buffer = new CombiningBufferIF(job, new OffHeapMapIF(scratch),
+						CombiningBuffer.OFF_HEAP_ENTRY_BYTES, sink) {
+					protected float combine(float oldValue, float value) {
+						return sumLogProbs(oldValue, value);
+					}
+				};
+			} else {
+				buffer = new CombiningBufferIF(job, sink) {
+					protected float combine(float oldValue, float value) {
+						return sumLogProbs(oldValue, value);
+					}
+				};
+			}
+			buffer.setListener(counters);
+		}
 
 		public void map(IntWritable nid, PageRankNode node,
 				OutputCollector<IntWritable, FloatWritable> output, Reporter reporter)
 				throws IOException {
 			mOutput = output;
+			counters.setReporter(reporter);
 
 			int massMessages = 0;
 			int massMessagesSaved = 0;
@@ -157,17 +216,13 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
 				// iterate over neighbors
 				for (int i = 0; i < list.size(); i++) {
-					int neighbor = list.get(i);
-
-					if (map.containsKey(neighbor)) {
-						// already message destined for that node; add PageRank
-						// mass contribution
+					if (buffer.add(list.get(i), mass)) {
+						// already message destined for that node; PageRank
+						// mass contribution added
 						massMessagesSaved++;
-						map.put(neighbor, sumLogProbs(map.get(neighbor), mass));
 					} else {
 						// new destination node
 						massMessages++;
-						map.put(neighbor, mass);
 					}
 				}
 			}
@@ -179,16 +234,8 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 		}
 
 		public void close() throws IOException {
-			// now emit the messages all at once
-			IntWritable k = new IntWritable();
-			FloatWritable v = new FloatWritable();
-
-			for (MapIF.Entry e : map.entrySet()) {
-				k.set(e.getKey());
-				v.set(e.getValue());
-
-				mOutput.collect(k, v);
-			}
+			// now emit the remaining messages all at once
+			buffer.close();
 		}
 	}
 
@@ -475,6 +522,8 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 		}
 		
 		conf.setInt("NodeCount", n);
+		conf.setBoolean(OFF_HEAP_MAP_PROPERTY, getConf().getBoolean(OFF_HEAP_MAP_PROPERTY, false));
+		CombiningBuffer.copyBudgets(getConf(), conf);
 
 		Partitioner p = null;
 
@@ -0,0 +1,118 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+
+import edu.umd.cloud9.util.RoaringBitmap;
+
+/**
+ * Writable extension of the {@link RoaringBitmap} class, for sets of docnos or
+ * node ids that are shuffled, stored in SequenceFiles, or shipped to tasks
+ * through the DistributedCache. The serialized form is the one
+ * {@link RoaringBitmap#map(java.nio.ByteBuffer)} reads in place, so a set
+ * written to a file of its own can be memory-mapped rather than read.
+ */
+public class RoaringBitmapWritable extends RoaringBitmap implements Writable {
+
+	/**
+	 * Creates an empty set.
+	 */
+	public RoaringBitmapWritable() {
+		super();
+	}
+
+	/**
+	 * Creates a copy of a set, e.g., of the result of an operation.
+	 */
+	public RoaringBitmapWritable(RoaringBitmap that) {
+		super(that);
+	}
+
+	/**
+	 * Deserializes this object.
+	 *
+	 * @param in
+	 *            source for raw byte representation
+	 */
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		super.readFields(in);
+	}
+
+	/**
+	 * Serializes this object.
+	 *
+	 * @param out
+	 *            where to write the raw byte representation
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this
+	 *         object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(serializedSize());
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>RoaringBitmapWritable</code> object from a
+	 * <code>DataInput</code>.
+	 *
+	 * @param in
+	 *            source for reading the serialized representation
+	 * @return a newly-created <code>RoaringBitmapWritable</code> object
+	 * @throws IOException
+	 */
+	public static RoaringBitmapWritable create(DataInput in) throws IOException {
+		RoaringBitmapWritable b = new RoaringBitmapWritable();
+		b.readFields(in);
+
+		return b;
+	}
+
+	/**
+	 * Creates a <code>RoaringBitmapWritable</code> object from a byte array.
+	 *
+	 * @param bytes
+	 *            raw serialized representation
+	 * @return a newly-created <code>RoaringBitmapWritable</code> object
+	 * @throws IOException
+	 */
+	public static RoaringBitmapWritable create(byte[] bytes) throws IOException {
+		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+}
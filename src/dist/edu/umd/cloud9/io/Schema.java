@@ -16,10 +16,16 @@
 
 package edu.umd.cloud9.io;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.StringUtils;
 
 /**
  * <p>
@@ -59,13 +65,20 @@ import org.apache.hadoop.io.Writable;
  * </p>
  * 
  * <p>
+ * A Schema is itself Writable, so it can be stored once alongside the data,
+ * e.g., in the metadata of a SequenceFile or in the job configuration (see
+ * {@link #encode()}), and Tuples bound to it (see {@link Tuple#bind(Schema)})
+ * can then be serialized without their field names and types.
+ * </p>
+ * 
+ * <p>
  * <b>Acknowledgments:</b> much of this code was adapted from the <a
  * href="http://prefuse.org/">Prefuse Visualization Toolkit</a>.
  * </p>
  * 
  * @author Jimmy Lin
  */
-public class Schema implements Cloneable {
+public class Schema implements Cloneable, Writable {
 
 	private String[] mFieldNames;
 	private Class<?>[] mFieldTypes;
@@ -455,9 +468,12 @@ public class Schema implements Cloneable {
 			return false;
 
 		for (int i = 0; i < mFieldCount; ++i) {
-			if (!(mFieldNames[i].equals(s.getFieldName(i))
-					&& mFieldTypes[i].equals(s.getFieldType(i)) && mDefaultValues[i].equals(s
-					.getDefault(i)))) {
+			if (!(mFieldNames[i].equals(s.getFieldName(i)) && mFieldTypes[i].equals(s
+					.getFieldType(i)))) {
+				return false;
+			}
+			if (mDefaultValues[i] == null ? s.getDefault(i) != null : !mDefaultValues[i].equals(s
+					.getDefault(i))) {
 				return false;
 			}
 		}
@@ -497,6 +513,116 @@ public class Schema implements Cloneable {
 		return sbuf.toString();
 	}
 
+	// ------------------------------------------------------------------------
+	// Serialization
+
+	/**
+	 * Deserializes this Schema. Locked Schemas cannot be deserialized into.
+	 * 
+	 * @param in
+	 *            source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		if (mLocked) {
+			throw new IllegalStateException("Can not read into a locked Schema.");
+		}
+
+		int n = in.readInt();
+		mFieldNames = new String[n];
+		mFieldTypes = new Class<?>[n];
+		mDefaultValues = new Object[n];
+		mFieldLookup = null;
+		mFieldCount = 0;
+
+		for (int i = 0; i < n; i++) {
+			String name = in.readUTF();
+			String className = in.readUTF();
+
+			Class<?> type;
+			try {
+				type = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unable to load field type " + className + ": " + e);
+			}
+
+			Object defaultValue = null;
+			if (in.readBoolean()) {
+				byte code = Tuple.typeCode(type);
+				Writable w = code == Tuple.WRITABLE ? Tuple.newWritable(type, null) : null;
+				defaultValue = Tuple.readValue(in, code, w);
+			}
+
+			addField(name, type, defaultValue);
+		}
+	}
+
+	/**
+	 * Serializes this Schema: the name and type of each field, and its default
+	 * value, if any.
+	 * 
+	 * @param out
+	 *            where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		DataOutputBuffer buffer = null;
+
+		out.writeInt(mFieldCount);
+		for (int i = 0; i < mFieldCount; i++) {
+			out.writeUTF(mFieldNames[i]);
+			out.writeUTF(mFieldTypes[i].getName());
+
+			out.writeBoolean(mDefaultValues[i] != null);
+			if (mDefaultValues[i] != null) {
+				byte code = Tuple.typeCode(mFieldTypes[i]);
+				if (code == Tuple.WRITABLE && buffer == null) {
+					buffer = new DataOutputBuffer();
+				}
+				Tuple.writeValue(out, code, mDefaultValues[i], buffer);
+			}
+		}
+	}
+
+	/**
+	 * Encodes this Schema as a String, e.g., for storing it in a job
+	 * configuration or in the metadata of a SequenceFile.
+	 * 
+	 * @return this Schema, encoded as a String
+	 * @see #decode(String)
+	 */
+	public String encode() {
+		DataOutputBuffer out = new DataOutputBuffer();
+		try {
+			write(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		return StringUtils.byteToHexString(out.getData(), 0, out.getLength());
+	}
+
+	/**
+	 * Decodes a Schema encoded by {@link #encode()}.
+	 * 
+	 * @param s
+	 *            the encoded Schema
+	 * @return the decoded Schema, which is not locked
+	 */
+	public static Schema decode(String s) {
+		byte[] bytes = StringUtils.hexStringToByte(s);
+
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(bytes, bytes.length);
+
+		Schema schema = new Schema();
+		try {
+			schema.readFields(in);
+		} catch (IOException e) {
+			throw new SchemaException("Unable to decode schema: " + e.getMessage());
+		}
+
+		return schema;
+	}
+
 	// ------------------------------------------------------------------------
 	// Tuple Operations
 
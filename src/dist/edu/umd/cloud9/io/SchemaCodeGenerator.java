@@ -0,0 +1,610 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>
+ * Generates the Java source of a Writable class specialized for a
+ * {@link Schema}: a record with a primitive (or String, or Writable) member
+ * per field of the Schema, with typed accessors, <code>readFields</code> and
+ * <code>write</code> methods, and a raw comparator. Records avoid the boxing,
+ * the name lookups, and the type dispatch of {@link Tuple}, and are about as
+ * fast as the {@link edu.umd.cloud9.io.pair.PairOfInts Pair*} classes.
+ * </p>
+ *
+ * <p>
+ * Like a Tuple, each field of a record can hold a special symbol instead of a
+ * value, and records sort and hash the same way as Tuples. A record is
+ * serialized in the same form as a Tuple bound to the Schema (see
+ * {@link Tuple#bind(Schema)}), so the two can read each other's data. Default
+ * values of fields of the basic types are carried over; Writable fields start
+ * out as new instances of their classes.
+ * </p>
+ *
+ * <p>
+ * Usage: <code>SchemaCodeGenerator [schema] [class name] [output dir]</code>,
+ * where <code>[schema]</code> is a static Schema field, e.g.,
+ * <code>edu.umd.cloud9.example.bigram.BigramRelativeFrequencyTuple.SCHEMA</code>
+ * , and <code>[class name]</code> is the fully-qualified name of the class to
+ * generate. The source is written under the output directory, in the
+ * directory of the class's package.
+ * </p>
+ */
+public class SchemaCodeGenerator {
+
+	private static final String[] KEYWORDS = { "abstract", "assert", "boolean", "break", "byte",
+			"case", "catch", "char", "class", "const", "continue", "default", "do", "double",
+			"else", "enum", "extends", "false", "final", "finally", "float", "for", "goto", "if",
+			"implements", "import", "instanceof", "int", "interface", "long", "native", "new",
+			"null", "package", "private", "protected", "public", "return", "short", "static",
+			"strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient",
+			"true", "try", "void", "volatile", "while" };
+
+	// members of the generated class, and locals of the methods that access fields
+	private static final String[] RESERVED = { "mSymbolBits", "mBuffer", "in", "out", "that",
+			"cmp", "hash" };
+
+	private SchemaCodeGenerator() {
+	}
+
+	/**
+	 * Generates the source of a class specialized for a Schema. Locks the
+	 * Schema, as {@link Schema#instantiate()} does.
+	 *
+	 * @param schema
+	 *            the Schema
+	 * @param className
+	 *            fully-qualified name of the class to generate
+	 * @return Java source of the class
+	 */
+	public static String generate(Schema schema, String className) {
+		schema.lockSchema();
+
+		int n = schema.getFieldCount();
+		int dot = className.lastIndexOf('.');
+		String packageName = dot < 0 ? null : className.substring(0, dot);
+		String simpleName = className.substring(dot + 1);
+
+		// names of the members and accessors of the fields
+		String[] vars = new String[n];
+		String[] accessors = new String[n];
+		byte[] codes = new byte[n];
+		String[] types = new String[n];
+		boolean hasWritables = false;
+
+		// members and locals of the generated class, which fields must not clash with
+		Set<String> used = new HashSet<String>();
+		for (String name : RESERVED) {
+			used.add(name);
+		}
+		for (int i = 0; i < n; i++) {
+			vars[i] = identifier(schema.getFieldName(i));
+			if (!used.add(vars[i]) || !used.add(vars[i] + "Symbol")
+					|| !used.add(vars[i] + "Comparator")) {
+				throw new SchemaException("Field name " + schema.getFieldName(i)
+						+ " clashes with a generated identifier");
+			}
+			accessors[i] = Character.toUpperCase(vars[i].charAt(0)) + vars[i].substring(1);
+			codes[i] = Tuple.typeCode(schema.getFieldType(i));
+			types[i] = javaType(schema.getFieldType(i));
+			hasWritables |= codes[i] == Tuple.WRITABLE;
+		}
+		int bitmapBytes = (n + 7) / 8;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("// Generated by edu.umd.cloud9.io.SchemaCodeGenerator. Do not edit.\n\n");
+		if (packageName != null) {
+			sb.append("package ").append(packageName).append(";\n\n");
+		}
+
+		sb.append("import java.io.DataInput;\n");
+		sb.append("import java.io.DataOutput;\n");
+		sb.append("import java.io.IOException;\n\n");
+		if (hasWritables) {
+			sb.append("import org.apache.hadoop.io.DataOutputBuffer;\n");
+		}
+		sb.append("import org.apache.hadoop.io.WritableComparable;\n");
+		sb.append("import org.apache.hadoop.io.WritableComparator;\n");
+		if (hasWritables) {
+			sb.append("import org.apache.hadoop.io.WritableUtils;\n");
+		}
+		sb.append("\n");
+		sb.append("import edu.umd.cloud9.io.TupleException;\n");
+		sb.append("import edu.umd.cloud9.io.WritableComparatorUtils;\n\n");
+
+		sb.append("/**\n");
+		sb.append(" * Record with the fields of the following schema, serialized in the same\n");
+		sb.append(" * form as a Tuple bound to it:\n");
+		sb.append(" * <code>").append(escapeHtml(schema.toString())).append("</code>\n");
+		sb.append(" */\n");
+		sb.append("public class ").append(simpleName).append(" implements WritableComparable<")
+				.append(simpleName).append("> {\n");
+
+		// members
+		for (int i = 0; i < n; i++) {
+			sb.append("\tprivate ").append(types[i]).append(' ').append(vars[i]);
+			String init = initializer(schema.getDefault(i), schema.getFieldType(i), codes[i]);
+			if (init != null) {
+				sb.append(" = ").append(init);
+			}
+			sb.append(";\n");
+			sb.append("\tprivate String ").append(vars[i]).append("Symbol;\n");
+		}
+		sb.append("\n\tprivate final byte[] mSymbolBits = new byte[").append(bitmapBytes).append(
+				"];\n");
+		if (hasWritables) {
+			sb.append("\tprivate DataOutputBuffer mBuffer;\n");
+		}
+
+		// constructors
+		sb.append("\n\t/**\n\t * Creates a record with the default values of the fields.\n\t */\n");
+		sb.append("\tpublic ").append(simpleName).append("() {\n\t}\n");
+
+		if (n > 0) {
+			sb.append("\n\t/**\n\t * Creates a record with the given values of the fields.\n\t */\n");
+			sb.append("\tpublic ").append(simpleName).append('(');
+			for (int i = 0; i < n; i++) {
+				sb.append(i > 0 ? ", " : "").append(types[i]).append(' ').append(vars[i]);
+			}
+			sb.append(") {\n");
+			for (int i = 0; i < n; i++) {
+				sb.append("\t\tset").append(accessors[i]).append('(').append(vars[i]).append(");\n");
+			}
+			sb.append("\t}\n");
+		}
+
+		// accessors
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			String a = accessors[i];
+			String field = "<code>" + escapeHtml(schema.getFieldName(i)) + "</code>";
+
+			sb.append("\n\t/**\n\t * Returns the value of field ").append(field).append(
+					".\n\t */\n");
+			sb.append("\tpublic ").append(types[i]).append(" get").append(a).append("() {\n");
+			sb.append("\t\treturn ").append(v).append(";\n\t}\n");
+
+			sb.append("\n\t/**\n\t * Sets the value of field ").append(field).append(
+					", clearing its special symbol.\n\t */\n");
+			sb.append("\tpublic void set").append(a).append('(').append(types[i]).append(' ')
+					.append(v).append(") {\n");
+			if (codes[i] == Tuple.STRING || codes[i] == Tuple.WRITABLE) {
+				sb.append("\t\tif (").append(v).append(" == null) {\n");
+				sb.append("\t\t\tthrow new TupleException(\"Null values are not allowed for tuple fields!\");\n");
+				sb.append("\t\t}\n");
+			}
+			sb.append("\t\tthis.").append(v).append(" = ").append(v).append(";\n");
+			sb.append("\t\t").append(v).append("Symbol = null;\n\t}\n");
+
+			sb.append("\n\t/**\n\t * Returns the special symbol of field ").append(field).append(
+					",\n\t * or <code>null</code> if it holds a value.\n\t */\n");
+			sb.append("\tpublic String get").append(a).append("Symbol() {\n");
+			sb.append("\t\treturn ").append(v).append("Symbol;\n\t}\n");
+
+			sb.append("\n\t/**\n\t * Sets a special symbol at field ").append(field).append(
+					".\n\t */\n");
+			sb.append("\tpublic void set").append(a).append("Symbol(String symbol) {\n");
+			sb.append("\t\tif (symbol == null) {\n");
+			sb.append("\t\t\tthrow new TupleException(\"Null is not a valid symbol!\");\n");
+			sb.append("\t\t}\n");
+			sb.append("\t\t").append(v).append("Symbol = symbol;\n\t}\n");
+
+			sb.append("\n\t/**\n\t * Determines if field ").append(field).append(
+					" contains a special symbol.\n\t */\n");
+			sb.append("\tpublic boolean contains").append(a).append("Symbol() {\n");
+			sb.append("\t\treturn ").append(v).append("Symbol != null;\n\t}\n");
+		}
+
+		// readFields
+		sb.append("\n\t/**\n\t * Deserializes this record.\n\t */\n");
+		sb.append("\tpublic void readFields(DataInput in) throws IOException {\n");
+		sb.append("\t\tin.readFully(mSymbolBits);\n");
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			sb.append("\n\t\tif (").append(symbolBit("mSymbolBits", "", i)).append(") {\n");
+			sb.append("\t\t\tthis.").append(v).append("Symbol = in.readUTF();\n");
+			sb.append("\t\t} else {\n");
+			sb.append("\t\t\tthis.").append(v).append("Symbol = null;\n");
+			switch (codes[i]) {
+			case Tuple.WRITABLE:
+				sb.append("\t\t\tWritableUtils.readVInt(in);\n");
+				sb.append("\t\t\tthis.").append(v).append(".readFields(in);\n");
+				break;
+			default:
+				sb.append("\t\t\tthis.").append(v).append(" = in.").append(readMethod(codes[i])).append(
+						"();\n");
+			}
+			sb.append("\t\t}\n");
+		}
+		sb.append("\t}\n");
+
+		// write
+		sb.append("\n\t/**\n\t * Serializes this record.\n\t */\n");
+		sb.append("\tpublic void write(DataOutput out) throws IOException {\n");
+		for (int b = 0; b < bitmapBytes; b++) {
+			sb.append("\t\tmSymbolBits[").append(b).append("] = (byte) (");
+			for (int i = 8 * b; i < Math.min(n, 8 * b + 8); i++) {
+				sb.append(i > 8 * b ? "\n\t\t\t\t| " : "").append("(this.").append(vars[i]).append(
+						"Symbol != null ? ").append(1 << (i & 7)).append(" : 0)");
+			}
+			sb.append(");\n");
+		}
+		sb.append("\t\tout.write(mSymbolBits);\n");
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			sb.append("\n\t\tif (this.").append(v).append("Symbol != null) {\n");
+			sb.append("\t\t\tout.writeUTF(this.").append(v).append("Symbol);\n");
+			sb.append("\t\t} else {\n");
+			switch (codes[i]) {
+			case Tuple.WRITABLE:
+				sb.append("\t\t\tif (mBuffer == null) {\n");
+				sb.append("\t\t\t\tmBuffer = new DataOutputBuffer();\n");
+				sb.append("\t\t\t}\n");
+				sb.append("\t\t\tmBuffer.reset();\n");
+				sb.append("\t\t\tthis.").append(v).append(".write(mBuffer);\n");
+				sb.append("\t\t\tWritableUtils.writeVInt(out, mBuffer.getLength());\n");
+				sb.append("\t\t\tout.write(mBuffer.getData(), 0, mBuffer.getLength());\n");
+				break;
+			default:
+				sb.append("\t\t\tout.").append(writeMethod(codes[i])).append("(this.").append(v)
+						.append(");\n");
+			}
+			sb.append("\t\t}\n");
+		}
+		sb.append("\t}\n");
+
+		// compareTo
+		sb.append("\n\t/**\n\t * Compares field by field, with special symbols sorted before values,\n");
+		sb.append("\t * in the same order as Tuples.\n\t */\n");
+		if (hasWritables) {
+			sb.append("\t@SuppressWarnings(\"unchecked\")\n");
+		}
+		sb.append("\tpublic int compareTo(").append(simpleName).append(" that) {\n");
+		sb.append("\t\tint cmp;\n");
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			sb.append("\n\t\tif (this.").append(v).append("Symbol != null || that.").append(v)
+					.append("Symbol != null) {\n");
+			sb.append("\t\t\tif (this.").append(v).append("Symbol == null)\n\t\t\t\treturn 1;\n");
+			sb.append("\t\t\tif (that.").append(v).append("Symbol == null)\n\t\t\t\treturn -1;\n");
+			sb.append("\t\t\tcmp = this.").append(v).append("Symbol.compareTo(that.").append(v)
+					.append("Symbol);\n");
+			sb.append("\t\t} else {\n");
+			sb.append("\t\t\tcmp = ").append(compareExpression(codes[i], "this." + v, "that." + v))
+					.append(";\n");
+			sb.append("\t\t}\n");
+			sb.append("\t\tif (cmp != 0)\n\t\t\treturn cmp;\n");
+		}
+		sb.append("\n\t\treturn 0;\n\t}\n");
+
+		// equals, hashCode, toString
+		sb.append("\n\tpublic boolean equals(Object obj) {\n");
+		sb.append("\t\treturn obj instanceof ").append(simpleName).append(" && compareTo((")
+				.append(simpleName).append(") obj) == 0;\n\t}\n");
+
+		sb.append("\n\t/**\n\t * Returns the same hash code as a Tuple with the same fields.\n\t */\n");
+		sb.append("\tpublic int hashCode() {\n\t\tint hash = 0;\n");
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			sb.append("\t\thash += this.").append(v).append("Symbol != null ? this.").append(v)
+					.append("Symbol.hashCode() : ").append(hashExpression(codes[i], "this." + v))
+					.append(";\n");
+		}
+		sb.append("\t\treturn hash;\n\t}\n");
+
+		sb.append("\n\tpublic String toString() {\n\t\treturn \"(\"");
+		for (int i = 0; i < n; i++) {
+			String v = vars[i];
+			sb.append(i > 0 ? " + \", \"" : "").append("\n\t\t\t\t+ (").append(v).append(
+					"Symbol != null ? ").append(v).append("Symbol : ").append(
+					codes[i] == Tuple.STRING ? "" : "\"\" + ").append(v).append(")");
+		}
+		sb.append(" + \")\";\n\t}\n");
+
+		// raw comparator
+		sb.append("\n\t/** Comparator optimized for <code>").append(simpleName).append(
+				"</code>. */\n");
+		sb.append("\tpublic static class Comparator extends WritableComparator {\n");
+		for (int i = 0; i < n; i++) {
+			if (codes[i] == Tuple.WRITABLE) {
+				sb.append("\t\tprivate final WritableComparator ").append(vars[i]).append(
+						"Comparator = WritableComparator.get(").append(types[i]).append(
+						".class);\n");
+			}
+		}
+		sb.append("\n\t\tpublic Comparator() {\n\t\t\tsuper(").append(simpleName).append(
+				".class);\n\t\t}\n");
+		sb.append("\n\t\tpublic int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {\n");
+		sb.append("\t\t\tint p1 = s1 + ").append(bitmapBytes).append(";\n");
+		sb.append("\t\t\tint p2 = s2 + ").append(bitmapBytes).append(";\n");
+		sb.append("\t\t\tboolean symbol1;\n\t\t\tboolean symbol2;\n\t\t\tint cmp;\n");
+		for (int i = 0; i < n; i++) {
+			sb.append("\n\t\t\t// ").append(schema.getFieldName(i).replace('\n', ' ')).append('\n');
+			sb.append("\t\t\tsymbol1 = ").append(symbolBit("b1", "s1 + ", i)).append(";\n");
+			sb.append("\t\t\tsymbol2 = ").append(symbolBit("b2", "s2 + ", i)).append(";\n");
+			sb.append("\t\t\tif (symbol1 || symbol2) {\n");
+			sb.append("\t\t\t\tif (!symbol1)\n\t\t\t\t\treturn 1;\n");
+			sb.append("\t\t\t\tif (!symbol2)\n\t\t\t\t\treturn -1;\n");
+			sb.append("\t\t\t\tcmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);\n");
+			sb.append("\t\t\t\tp1 += WritableComparatorUtils.utfLength(b1, p1);\n");
+			sb.append("\t\t\t\tp2 += WritableComparatorUtils.utfLength(b2, p2);\n");
+			sb.append("\t\t\t} else {\n");
+			appendRawCompare(sb, codes[i], vars[i]);
+			sb.append("\t\t\t}\n");
+			sb.append("\t\t\tif (cmp != 0)\n\t\t\t\treturn cmp;\n");
+		}
+		sb.append("\n\t\t\treturn 0;\n\t\t}\n");
+		if (hasWritables) {
+			sb.append("\n\t\tprivate static int readLength(byte[] b, int p) {\n");
+			sb.append("\t\t\ttry {\n\t\t\t\treturn readVInt(b, p);\n");
+			sb.append("\t\t\t} catch (IOException e) {\n");
+			sb.append("\t\t\t\tthrow new RuntimeException(e);\n\t\t\t}\n\t\t}\n");
+		}
+		sb.append("\t}\n");
+
+		sb.append("\n\tstatic { // register this comparator\n");
+		sb.append("\t\tWritableComparator.define(").append(simpleName).append(
+				".class, new Comparator());\n");
+		sb.append("\t}\n}\n");
+
+		return sb.toString();
+	}
+
+	private static void appendRawCompare(StringBuilder sb, byte code, String var) {
+		switch (code) {
+		case Tuple.INT:
+		case Tuple.LONG: {
+			String type = code == Tuple.INT ? "int" : "long";
+			String read = code == Tuple.INT ? "readInt" : "readLong";
+			int length = code == Tuple.INT ? 4 : 8;
+			sb.append("\t\t\t\t").append(type).append(" v1 = ").append(read).append("(b1, p1);\n");
+			sb.append("\t\t\t\t").append(type).append(" v2 = ").append(read).append("(b2, p2);\n");
+			sb.append("\t\t\t\tcmp = v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);\n");
+			sb.append("\t\t\t\tp1 += ").append(length).append(";\n");
+			sb.append("\t\t\t\tp2 += ").append(length).append(";\n");
+			break;
+		}
+		case Tuple.BOOLEAN:
+			sb.append("\t\t\t\tcmp = b1[p1++] - b2[p2++];\n");
+			break;
+		case Tuple.FLOAT:
+			sb.append("\t\t\t\tcmp = Float.compare(readFloat(b1, p1), readFloat(b2, p2));\n");
+			sb.append("\t\t\t\tp1 += 4;\n\t\t\t\tp2 += 4;\n");
+			break;
+		case Tuple.DOUBLE:
+			sb.append("\t\t\t\tcmp = Double.compare(readDouble(b1, p1), readDouble(b2, p2));\n");
+			sb.append("\t\t\t\tp1 += 8;\n\t\t\t\tp2 += 8;\n");
+			break;
+		case Tuple.STRING:
+			sb.append("\t\t\t\tcmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);\n");
+			sb.append("\t\t\t\tp1 += WritableComparatorUtils.utfLength(b1, p1);\n");
+			sb.append("\t\t\t\tp2 += WritableComparatorUtils.utfLength(b2, p2);\n");
+			break;
+		default:
+			sb.append("\t\t\t\tint len1 = readLength(b1, p1);\n");
+			sb.append("\t\t\t\tint len2 = readLength(b2, p2);\n");
+			sb.append("\t\t\t\tp1 += WritableUtils.decodeVIntSize(b1[p1]);\n");
+			sb.append("\t\t\t\tp2 += WritableUtils.decodeVIntSize(b2[p2]);\n");
+			sb.append("\t\t\t\tcmp = ").append(var).append(
+					"Comparator.compare(b1, p1, len1, b2, p2, len2);\n");
+			sb.append("\t\t\t\tp1 += len1;\n\t\t\t\tp2 += len2;\n");
+		}
+	}
+
+	private static String symbolBit(String bytes, String offset, int i) {
+		String index = offset.length() > 0 && i < 8 ? offset.substring(0, offset.indexOf(' '))
+				: offset + (i >> 3);
+		return "(" + bytes + "[" + index + "] & " + (1 << (i & 7)) + ") != 0";
+	}
+
+	private static String compareExpression(byte code, String a, String b) {
+		switch (code) {
+		case Tuple.INT:
+		case Tuple.LONG:
+			return a + " < " + b + " ? -1 : (" + a + " == " + b + " ? 0 : 1)";
+		case Tuple.BOOLEAN:
+			return a + " == " + b + " ? 0 : (" + a + " ? 1 : -1)";
+		case Tuple.FLOAT:
+			return "Float.compare(" + a + ", " + b + ")";
+		case Tuple.DOUBLE:
+			return "Double.compare(" + a + ", " + b + ")";
+		case Tuple.STRING:
+			return a + ".compareTo(" + b + ")";
+		default:
+			return "((Comparable<Object>) (Object) " + a + ").compareTo(" + b + ")";
+		}
+	}
+
+	private static String hashExpression(byte code, String v) {
+		switch (code) {
+		case Tuple.INT:
+			return v;
+		case Tuple.LONG:
+			return "(int) (" + v + " ^ (" + v + " >>> 32))";
+		case Tuple.BOOLEAN:
+			return "(" + v + " ? 1231 : 1237)";
+		case Tuple.FLOAT:
+			return "Float.floatToIntBits(" + v + ")";
+		case Tuple.DOUBLE:
+			return "(int) (Double.doubleToLongBits(" + v + ") ^ (Double.doubleToLongBits(" + v
+					+ ") >>> 32))";
+		default:
+			return v + ".hashCode()";
+		}
+	}
+
+	private static String readMethod(byte code) {
+		switch (code) {
+		case Tuple.INT:
+			return "readInt";
+		case Tuple.BOOLEAN:
+			return "readBoolean";
+		case Tuple.LONG:
+			return "readLong";
+		case Tuple.FLOAT:
+			return "readFloat";
+		case Tuple.DOUBLE:
+			return "readDouble";
+		default:
+			return "readUTF";
+		}
+	}
+
+	private static String writeMethod(byte code) {
+		return "write" + readMethod(code).substring(4);
+	}
+
+	private static String javaType(Class<?> type) {
+		if (type == Integer.class) {
+			return "int";
+		} else if (type == Boolean.class) {
+			return "boolean";
+		} else if (type == Long.class) {
+			return "long";
+		} else if (type == Float.class) {
+			return "float";
+		} else if (type == Double.class) {
+			return "double";
+		} else if (type == String.class) {
+			return "String";
+		}
+		return type.getName().replace('$', '.');
+	}
+
+	// Java expression for the default value of a field, or null for none
+	private static String initializer(Object value, Class<?> type, byte code) {
+		if (code == Tuple.WRITABLE) {
+			return "new " + javaType(type) + "()";
+		}
+		if (value == null) {
+			return null;
+		}
+
+		switch (code) {
+		case Tuple.LONG:
+			return value + "L";
+		case Tuple.FLOAT: {
+			float f = (Float) value;
+			if (Float.isNaN(f)) {
+				return "Float.NaN";
+			} else if (Float.isInfinite(f)) {
+				return f > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+			}
+			return value + "f";
+		}
+		case Tuple.DOUBLE: {
+			double d = (Double) value;
+			if (Double.isNaN(d)) {
+				return "Double.NaN";
+			} else if (Double.isInfinite(d)) {
+				return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+			}
+			return value.toString();
+		}
+		case Tuple.STRING:
+			return quote((String) value);
+		default:
+			return value.toString();
+		}
+	}
+
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c >= 0x20 && c < 0x7f) {
+				sb.append(c);
+			} else {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String escapeHtml(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("*/",
+				"*&#47;");
+	}
+
+	// Java identifier for a field name, in camel case
+	private static String identifier(String name) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			sb.append(Character.isJavaIdentifierPart(c) && c != '$' ? c : '_');
+		}
+		if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+			sb.insert(0, '_');
+		}
+		sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
+
+		String s = sb.toString();
+		for (String keyword : KEYWORDS) {
+			if (keyword.equals(s)) {
+				return s + "_";
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Generates the source of a class specialized for a static Schema field.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out.println("usage: [schema] [class name] [output dir]");
+			System.exit(-1);
+		}
+
+		int dot = args[0].lastIndexOf('.');
+		if (dot < 0) {
+			System.out.println("schema must be a static field, e.g., my.package.MyClass.SCHEMA");
+			System.exit(-1);
+		}
+
+		Field field = Class.forName(args[0].substring(0, dot)).getDeclaredField(
+				args[0].substring(dot + 1));
+		field.setAccessible(true);
+		Schema schema = (Schema) field.get(null);
+
+		String className = args[1];
+		File file = new File(args[2], className.replace('.', File.separatorChar) + ".java");
+		file.getParentFile().mkdirs();
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(generate(schema, className));
+		} catch (IOException e) {
+			throw e;
+		} finally {
+			writer.close();
+		}
+
+		System.out.println("Wrote " + file);
+	}
+}
@@ -16,18 +16,30 @@
 
 package edu.umd.cloud9.io;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.ReflectionUtils;
 
 import edu.umd.cloud9.io.array.ArrayListWritable;
 import edu.umd.cloud9.io.map.HashMapWritable;
@@ -69,13 +81,73 @@ import edu.umd.cloud9.io.map.HashMapWritable;
  * within each field.
  * </p>
  * 
+ * <p>
+ * Fields of the basic types can also be accessed without boxing, through
+ * typed accessors such as {@link #getInt(int)} and {@link #setInt(int, int)},
+ * which keep the values in primitive slots; field positions can be looked up
+ * once with {@link Schema#getFieldIndex(String)}. A bound Tuple deserializes
+ * fields of the basic types into these slots, and {@link #get(int)} boxes
+ * their values only when asked for.
+ * </p>
+ * 
+ * <p>
+ * By default, a serialized Tuple describes itself: it carries the name and
+ * type of every field, and the class name of every Writable field. A Tuple
+ * that is bound to a {@link Schema} (see {@link #bind(Schema)}) is instead
+ * serialized in a compact form, as a bitmap of the fields that contain special
+ * symbols followed by the values of the fields, and is deserialized into the
+ * same objects over and over; the Schema must then be stored once alongside
+ * the data, since a bound Tuple can only be read by a Tuple bound to the same
+ * Schema. In a MapReduce job, store the Schema in the job configuration with
+ * {@link #setSchema(Configuration, Schema)}: Tuples created by the framework
+ * are then bound to it (so all Tuples in the job share the Schema). If bound
+ * Tuples are map output keys, also set {@link Tuple.Comparator} as the output
+ * key comparator. For SequenceFiles, store the Schema in the metadata of the
+ * file with {@link #setSchema(SequenceFile.Metadata, Schema)}.
+ * </p>
+ * 
+ * <p>
+ * A bound Tuple reuses the Writable objects of its fields when deserializing,
+ * so the objects returned by {@link #get(int)} are overwritten by the next
+ * call to {@link #readFields(DataInput)}.
+ * </p>
+ * 
+ * <p>
+ * Readers that only need a few fields of wide Tuples can avoid decoding the
+ * rest. A lazy Tuple (see {@link #setLazy(boolean)}) keeps the serialized
+ * Strings and Writables of its fields, and decodes each one only when it is
+ * first accessed. A Tuple with a projection (see
+ * {@link #setProjection(String...)}) skips over the fields outside of the
+ * projection without decoding them. In a MapReduce job or when reading a
+ * SequenceFile, both can be set in the configuration with
+ * {@link #setLazy(Configuration, boolean)} and
+ * {@link #setProjection(Configuration, String...)}.
+ * </p>
+ * 
  * @see ArrayListWritable
  * @see HashMapWritable
  * @see Schema
  * 
  * @author Jimmy Lin
  */
-public class Tuple implements WritableComparable<Tuple> {
+public class Tuple implements WritableComparable<Tuple>, Configurable {
+
+	/**
+	 * Name of the property that holds the Schema of bound Tuples, in a job
+	 * configuration or in the metadata of a SequenceFile.
+	 */
+	public static final String SCHEMA_PROPERTY = "Cloud9.TupleSchema";
+
+	/**
+	 * Name of the property that makes Tuples created by Hadoop lazy.
+	 */
+	public static final String LAZY_PROPERTY = "Cloud9.TupleLazy";
+
+	/**
+	 * Name of the property that holds the projection of Tuples created by
+	 * Hadoop, as a comma-separated list of field names.
+	 */
+	public static final String PROJECTION_PROPERTY = "Cloud9.TupleProjection";
 
 	protected static final byte SYMBOL = 0;
 	protected static final byte INT = 1;
@@ -93,6 +165,48 @@ public class Tuple implements WritableComparable<Tuple> {
 
 	private Map<String, Integer> mFieldLookup = null;
 
+	// values of fields of the basic types set without boxing: the field holds
+	// UNBOXED in mObjects, and its value (as raw bits for floats and doubles) in
+	// mValues
+	private static final Object UNBOXED = new Object();
+	private long[] mValues;
+
+	// Strings and Writables read lazily hold PENDING in mObjects, and their
+	// serialized values at mOffsets in mRaw; fields outside of the projection
+	// hold SKIPPED
+	private static final Object PENDING = new Object();
+	private static final Object SKIPPED = new Object();
+	private boolean mLazy = false;
+	private Set<String> mProjection = null;
+	private boolean[] mProjected;
+	private byte[] mRaw;
+	private int mRawLength;
+	private int[] mOffsets;
+	private DataInputBuffer mRawIn;
+
+	// serialized field names of the last tuple read, and a buffer for tuples
+	// read from streams
+	private byte[] mNames;
+	private int mNamesLength;
+	private DataOutputBuffer mRecord;
+
+	// field types of serialized tuples, by class name
+	private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<String, Class<?>>();
+
+	// classes and sizes of the basic types, by type code
+	private static final Class<?>[] BASIC_TYPES = { null, Integer.class, Boolean.class,
+			Long.class, Float.class, Double.class };
+	private static final int[] BASIC_SIZES = { 0, 4, 1, 8, 4, 8 };
+
+	// schema this tuple is bound to, if any, and state for the compact form
+	private Schema mSchema = null;
+	private byte[] mTypeCodes;
+	private byte[] mSymbolBits;
+	private Writable[] mWritables;
+	private DataOutputBuffer mBuffer;
+
+	private Configuration mConf;
+
 	protected Tuple(Object[] objects, String[] symbols, String[] fields, Class<?>[] types) {
 		mObjects = objects;
 		mSymbols = symbols;
@@ -123,6 +237,236 @@ public class Tuple implements WritableComparable<Tuple> {
 		return tuple;
 	}
 
+	/**
+	 * Factory method for deserializing a Tuple object that was serialized while
+	 * bound to a Schema.
+	 * 
+	 * @param in
+	 *            raw byte source of the Tuple
+	 * @param schema
+	 *            Schema of the Tuple
+	 * @return a new Tuple, bound to the Schema
+	 * @throws IOException
+	 */
+	public static Tuple createFrom(DataInput in, Schema schema) throws IOException {
+		Tuple tuple = new Tuple();
+		tuple.bind(schema);
+		tuple.readFields(in);
+
+		return tuple;
+	}
+
+	/**
+	 * Binds this Tuple to a Schema, so that it is serialized in the compact
+	 * form. The Schema must have the same fields as this Tuple, if it has any;
+	 * an empty Tuple takes its fields from the Schema. Binding locks the
+	 * Schema.
+	 * 
+	 * @param schema
+	 *            the Schema
+	 */
+	public void bind(Schema schema) {
+		int n = schema.getFieldCount();
+
+		if (mFields == null) {
+			mObjects = new Object[n];
+			mSymbols = new String[n];
+			mFields = new String[n];
+			mTypes = new Class<?>[n];
+			for (int i = 0; i < n; i++) {
+				mObjects[i] = schema.getDefault(i);
+				mFields[i] = schema.getFieldName(i);
+				mTypes[i] = schema.getFieldType(i);
+			}
+		} else {
+			boolean matches = n == mFields.length;
+			for (int i = 0; matches && i < n; i++) {
+				matches = mFields[i].equals(schema.getFieldName(i))
+						&& mTypes[i] == schema.getFieldType(i);
+			}
+			if (!matches) {
+				throw new TupleException("Tuple does not match " + schema);
+			}
+		}
+
+		schema.lockSchema();
+		mSchema = schema;
+		mTypeCodes = new byte[n];
+		for (int i = 0; i < n; i++) {
+			mTypeCodes[i] = typeCode(mTypes[i]);
+		}
+		mSymbolBits = new byte[(n + 7) / 8];
+		mWritables = new Writable[n];
+		if (mValues == null) {
+			mValues = new long[n];
+		}
+		if (mOffsets == null || mOffsets.length != n) {
+			mOffsets = new int[n];
+		}
+		initProjected();
+	}
+
+	/**
+	 * Returns the Schema this Tuple is bound to.
+	 * 
+	 * @return the Schema, or <code>null</code> if this Tuple is not bound
+	 */
+	public Schema getSchema() {
+		return mSchema;
+	}
+
+	/**
+	 * Binds this Tuple to the Schema in a job configuration, if there is one,
+	 * and sets up lazy deserialization and projection as configured. Called by
+	 * Hadoop when it creates Tuples.
+	 */
+	public void setConf(Configuration conf) {
+		mConf = conf;
+
+		Schema schema = getSchema(conf);
+		if (schema != null) {
+			bind(schema);
+		}
+
+		if (conf.get(LAZY_PROPERTY) != null) {
+			setLazy(conf.getBoolean(LAZY_PROPERTY, false));
+		}
+		String[] projection = conf.getStrings(PROJECTION_PROPERTY);
+		if (projection != null) {
+			setProjection(projection);
+		}
+	}
+
+	public Configuration getConf() {
+		return mConf;
+	}
+
+	/**
+	 * Stores the Schema of bound Tuples in a job configuration.
+	 * 
+	 * @param conf
+	 *            the job configuration
+	 * @param schema
+	 *            the Schema
+	 */
+	public static void setSchema(Configuration conf, Schema schema) {
+		conf.set(SCHEMA_PROPERTY, schema.encode());
+	}
+
+	/**
+	 * Returns the Schema of bound Tuples stored in a job configuration.
+	 * 
+	 * @param conf
+	 *            the job configuration
+	 * @return the Schema, or <code>null</code> if there is none
+	 */
+	public static Schema getSchema(Configuration conf) {
+		String s = conf.get(SCHEMA_PROPERTY);
+		return s == null ? null : Schema.decode(s);
+	}
+
+	/**
+	 * Stores the Schema of bound Tuples in the metadata of a SequenceFile.
+	 * 
+	 * @param metadata
+	 *            the metadata, to be passed to the SequenceFile writer
+	 * @param schema
+	 *            the Schema
+	 */
+	public static void setSchema(SequenceFile.Metadata metadata, Schema schema) {
+		metadata.set(new Text(SCHEMA_PROPERTY), new Text(schema.encode()));
+	}
+
+	/**
+	 * Returns the Schema of bound Tuples stored in the metadata of a
+	 * SequenceFile.
+	 * 
+	 * @param metadata
+	 *            the metadata, from the SequenceFile reader
+	 * @return the Schema, or <code>null</code> if there is none
+	 */
+	public static Schema getSchema(SequenceFile.Metadata metadata) {
+		Text s = metadata.get(new Text(SCHEMA_PROPERTY));
+		return s == null ? null : Schema.decode(s.toString());
+	}
+
+	/**
+	 * Sets whether this Tuple is deserialized lazily. A lazy Tuple keeps the
+	 * serialized Strings and Writables of its fields, and decodes each of them
+	 * when it is first accessed. Fields of the basic types are always decoded
+	 * right away, which costs no more than keeping their bytes.
+	 * 
+	 * @param lazy
+	 *            whether to deserialize lazily
+	 */
+	public void setLazy(boolean lazy) {
+		mLazy = lazy;
+	}
+
+	/**
+	 * Determines if this Tuple is deserialized lazily.
+	 * 
+	 * @return <code>true</code> if this Tuple is deserialized lazily
+	 */
+	public boolean isLazy() {
+		return mLazy;
+	}
+
+	/**
+	 * Restricts deserialization to some fields of this Tuple. The fields
+	 * outside of the projection are skipped without being decoded, and
+	 * accessing them throws a TupleException; so does serializing, comparing
+	 * or hashing a Tuple that was read with fields skipped.
+	 * 
+	 * @param fields
+	 *            names of the fields to read, or <code>null</code> to read all
+	 *            fields
+	 */
+	public void setProjection(String... fields) {
+		mProjection = fields == null ? null : new HashSet<String>(Arrays.asList(fields));
+		initProjected();
+	}
+
+	// projection of a bound tuple, by field position
+	private void initProjected() {
+		if (mProjection == null || mSchema == null) {
+			mProjected = null;
+			return;
+		}
+
+		mProjected = new boolean[mFields.length];
+		for (int i = 0; i < mFields.length; i++) {
+			mProjected[i] = mProjection.contains(mFields[i]);
+		}
+	}
+
+	/**
+	 * Makes Tuples created by Hadoop from a job configuration lazy, or not.
+	 * 
+	 * @param conf
+	 *            the job configuration
+	 * @param lazy
+	 *            whether to deserialize lazily
+	 * @see #setLazy(boolean)
+	 */
+	public static void setLazy(Configuration conf, boolean lazy) {
+		conf.setBoolean(LAZY_PROPERTY, lazy);
+	}
+
+	/**
+	 * Stores the projection of Tuples created by Hadoop in a job
+	 * configuration. Field names must not contain commas.
+	 * 
+	 * @param conf
+	 *            the job configuration
+	 * @param fields
+	 *            names of the fields to read
+	 * @see #setProjection(String...)
+	 */
+	public static void setProjection(Configuration conf, String... fields) {
+		conf.setStrings(PROJECTION_PROPERTY, fields);
+	}
+
 	/**
 	 * Sets the object at a particular field (by position) in this Tuple.
 	 * 
@@ -208,7 +552,11 @@ public class Tuple implements WritableComparable<Tuple> {
 	 *         special symbol
 	 */
 	public Object get(int i) {
-		return mObjects[i];
+		Object o = object(i);
+		if (o == UNBOXED) {
+			o = mObjects[i] = box(i);
+		}
+		return o;
 	}
 
 	/**
@@ -231,6 +579,197 @@ public class Tuple implements WritableComparable<Tuple> {
 		return get(mFieldLookup.get(field));
 	}
 
+	/**
+	 * Returns the value of an <code>int</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @return value of the field
+	 * @throws TupleException
+	 *             if the field is not of type Integer or contains a special
+	 *             symbol
+	 */
+	public int getInt(int i) {
+		if (mObjects[i] == UNBOXED && mTypes[i] == Integer.class) {
+			long v = mValues[i];
+			return (int) v;
+		}
+
+		return (Integer) value(i, Integer.class);
+	}
+
+	/**
+	 * Sets the value of an <code>int</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @param v
+	 *            value to set at the specified field
+	 */
+	public void setInt(int i, int v) {
+		slots(i, Integer.class)[i] = v;
+	}
+
+	/**
+	 * Returns the value of a <code>long</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @return value of the field
+	 * @throws TupleException
+	 *             if the field is not of type Long or contains a special
+	 *             symbol
+	 */
+	public long getLong(int i) {
+		if (mObjects[i] == UNBOXED && mTypes[i] == Long.class) {
+			long v = mValues[i];
+			return v;
+		}
+
+		return (Long) value(i, Long.class);
+	}
+
+	/**
+	 * Sets the value of a <code>long</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @param v
+	 *            value to set at the specified field
+	 */
+	public void setLong(int i, long v) {
+		slots(i, Long.class)[i] = v;
+	}
+
+	/**
+	 * Returns the value of a <code>float</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @return value of the field
+	 * @throws TupleException
+	 *             if the field is not of type Float or contains a special
+	 *             symbol
+	 */
+	public float getFloat(int i) {
+		if (mObjects[i] == UNBOXED && mTypes[i] == Float.class) {
+			long v = mValues[i];
+			return Float.intBitsToFloat((int) v);
+		}
+
+		return (Float) value(i, Float.class);
+	}
+
+	/**
+	 * Sets the value of a <code>float</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @param v
+	 *            value to set at the specified field
+	 */
+	public void setFloat(int i, float v) {
+		slots(i, Float.class)[i] = Float.floatToRawIntBits(v);
+	}
+
+	/**
+	 * Returns the value of a <code>double</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @return value of the field
+	 * @throws TupleException
+	 *             if the field is not of type Double or contains a special
+	 *             symbol
+	 */
+	public double getDouble(int i) {
+		if (mObjects[i] == UNBOXED && mTypes[i] == Double.class) {
+			long v = mValues[i];
+			return Double.longBitsToDouble(v);
+		}
+
+		return (Double) value(i, Double.class);
+	}
+
+	/**
+	 * Sets the value of a <code>double</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @param v
+	 *            value to set at the specified field
+	 */
+	public void setDouble(int i, double v) {
+		slots(i, Double.class)[i] = Double.doubleToRawLongBits(v);
+	}
+
+	/**
+	 * Returns the value of a <code>boolean</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @return value of the field
+	 * @throws TupleException
+	 *             if the field is not of type Boolean or contains a special
+	 *             symbol
+	 */
+	public boolean getBoolean(int i) {
+		if (mObjects[i] == UNBOXED && mTypes[i] == Boolean.class) {
+			long v = mValues[i];
+			return v != 0;
+		}
+
+		return (Boolean) value(i, Boolean.class);
+	}
+
+	/**
+	 * Sets the value of a <code>boolean</code> field (by position) in this
+	 * Tuple, without boxing it.
+	 * 
+	 * @param i
+	 *            field position
+	 * @param v
+	 *            value to set at the specified field
+	 */
+	public void setBoolean(int i, boolean v) {
+		slots(i, Boolean.class)[i] = v ? 1 : 0;
+	}
+
+	// boxed value of a field, checked to be of a type
+	private Object value(int i, Class<?> type) {
+		if (mTypes[i] != type) {
+			throw new TupleException("Field " + i + " is of type " + mTypes[i] + ", not " + type
+					+ "!");
+		}
+		if (containsSymbol(i)) {
+			throw new TupleException("Field " + i + " contains a special symbol!");
+		}
+
+		return get(i);
+	}
+
+	// slots of fields of the basic types, for a field checked to be of a type
+	private long[] slots(int i, Class<?> type) {
+		if (mTypes[i] != type) {
+			throw new TupleException("Field value of wrong type, expected " + mTypes[i] + "!");
+		}
+		if (mValues == null) {
+			mValues = new long[mObjects.length];
+		}
+
+		mObjects[i] = UNBOXED;
+		return mValues;
+	}
+
 	/**
 	 * Returns special symbol at a particular field (by position). Returns
 	 * <code>null</code> if the field does not contain a special symbol.
@@ -241,7 +780,7 @@ public class Tuple implements WritableComparable<Tuple> {
 	 *         not contain a special symbol.
 	 */
 	public String getSymbol(int i) {
-		if (mObjects[i] != null)
+		if (!containsSymbol(i))
 			return null;
 
 		return mSymbols[i];
@@ -276,6 +815,9 @@ public class Tuple implements WritableComparable<Tuple> {
 	 *         <code>false</code> otherwise
 	 */
 	public boolean containsSymbol(int i) {
+		if (mObjects[i] == SKIPPED) {
+			decode(i);
+		}
 		return mObjects[i] == null;
 	}
 
@@ -349,64 +891,157 @@ public class Tuple implements WritableComparable<Tuple> {
 	 *            source for raw byte representation
 	 */
 	public void readFields(DataInput in) throws IOException {
-		int numFields = in.readInt();
+		// Tuples are parsed straight from the bytes of a buffer, which is what
+		// Hadoop reads them from; from other sources, they are copied first.
+		DataInputBuffer buffer = null;
+		byte[] b;
+		int s;
+		int end;
+		if (in instanceof DataInputBuffer) {
+			buffer = (DataInputBuffer) in;
+			b = buffer.getData();
+			s = buffer.getPosition();
+			end = buffer.getLength();
+		} else {
+			if (mRecord == null) {
+				mRecord = new DataOutputBuffer();
+			}
+			copyRecord(in, mRecord);
+			b = mRecord.getData();
+			s = 0;
+			end = mRecord.getLength();
+		}
 
-		mObjects = new Object[numFields];
-		mSymbols = new String[numFields];
-		mFields = new String[numFields];
-		mTypes = new Class[numFields];
+		int length;
+		try {
+			length = mSchema != null ? parseBound(b, s) : parse(b, s, end);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new EOFException("Truncated tuple");
+		}
+		if (s + length > end) {
+			throw new EOFException("Truncated tuple");
+		}
 
-		for (int i = 0; i < numFields; i++) {
-			mFields[i] = in.readUTF();
+		// a lazy tuple keeps its bytes, which the buffer does not hold on to
+		if (buffer != null) {
+			if (mLazy) {
+				if (mRaw == null || mRaw.length < length) {
+					mRaw = new byte[Math.max(length, 256)];
+				}
+				System.arraycopy(b, s, mRaw, 0, length);
+			}
+			WritableUtils.skipFully(buffer, length);
+		} else {
+			mRaw = b;
+		}
+		mRawLength = length;
+	}
+
+	// The self-describing form: the number of fields, their names, then each
+	// field, as a type code followed by a symbol or a value. Writables are
+	// prefixed by the name of their class and their length.
+	private int parse(byte[] b, int s, int end) throws IOException {
+		int numFields = WritableComparator.readInt(b, s);
+		if (numFields < 0 || numFields > end - s) {
+			throw new EOFException("Truncated tuple");
+		}
+
+		if (mObjects == null || mObjects.length != numFields) {
+			mObjects = new Object[numFields];
+			mSymbols = new String[numFields];
+			mTypes = new Class[numFields];
+		}
+		if (mValues == null || mValues.length != numFields) {
+			mValues = new long[numFields];
 		}
+		if (mOffsets == null || mOffsets.length != numFields) {
+			mOffsets = new int[numFields];
+		}
+
+		int p = parseFieldNames(b, s + 4, numFields);
 
 		for (int i = 0; i < numFields; i++) {
-			byte type = in.readByte();
+			byte type = b[p++];
+			boolean projected = mProjection == null || mProjection.contains(mFields[i]);
+			mSymbols[i] = null;
 
 			if (type == SYMBOL) {
-				String className = in.readUTF();
-				try {
-					mTypes[i] = Class.forName(className);
-				} catch (Exception e) {
-					e.printStackTrace();
+				mTypes[i] = readType(b, p);
+				p += WritableComparatorUtils.utfLength(b, p);
+				if (projected) {
+					mObjects[i] = null;
+					mSymbols[i] = WritableComparatorUtils.readUTF(b, p);
+				} else {
+					mObjects[i] = SKIPPED;
 				}
-				mObjects[i] = null;
-				mSymbols[i] = in.readUTF();
-			} else if (type == INT) {
-				mTypes[i] = Integer.class;
-				mObjects[i] = in.readInt();
-			} else if (type == BOOLEAN) {
-				mTypes[i] = Boolean.class;
-				mObjects[i] = in.readBoolean();
-			} else if (type == LONG) {
-				mTypes[i] = Long.class;
-				mObjects[i] = in.readLong();
-			} else if (type == FLOAT) {
-				mTypes[i] = Float.class;
-				mObjects[i] = in.readFloat();
-			} else if (type == DOUBLE) {
-				mTypes[i] = Double.class;
-				mObjects[i] = in.readDouble();
-			} else if (type == STRING) {
-				mTypes[i] = String.class;
-				mObjects[i] = in.readUTF();
+				p += WritableComparatorUtils.utfLength(b, p);
+			} else if (type < STRING) {
+				mTypes[i] = BASIC_TYPES[type];
+				if (projected) {
+					mValues[i] = readBits(b, p, type);
+					mObjects[i] = UNBOXED;
+				} else {
+					mObjects[i] = SKIPPED;
+				}
+				p += BASIC_SIZES[type];
 			} else {
-				try {
-					String className = in.readUTF();
-					mTypes[i] = Class.forName(className);
-
-					int sz = in.readInt();
-					byte[] bytes = new byte[sz];
-					in.readFully(bytes);
-
-					Writable obj = (Writable) mTypes[i].newInstance();
-					obj.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
-					mObjects[i] = obj;
-				} catch (Exception e) {
-					e.printStackTrace();
+				int length;
+				if (type == STRING) {
+					mTypes[i] = String.class;
+					length = WritableComparatorUtils.utfLength(b, p);
+				} else {
+					mTypes[i] = readType(b, p);
+					p += WritableComparatorUtils.utfLength(b, p);
+					length = WritableComparator.readInt(b, p);
+					p += 4;
 				}
+
+				mOffsets[i] = p - s;
+				mObjects[i] = !projected ? SKIPPED : mLazy ? PENDING : decodeValue(b, p, length, i);
+				p += length;
 			}
 		}
+
+		return p - s;
+	}
+
+	// Tuples read from the same source mostly have the same fields, so the
+	// names of the fields are decoded only when their bytes change.
+	private int parseFieldNames(byte[] b, int s, int numFields) {
+		int p = s;
+		for (int i = 0; i < numFields; i++) {
+			p += WritableComparatorUtils.utfLength(b, p);
+		}
+
+		if (mNames != null && mFields != null && mFields.length == numFields
+				&& WritableComparator.compareBytes(mNames, 0, mNamesLength, b, s, p - s) == 0) {
+			return p;
+		}
+
+		mFields = new String[numFields];
+		for (int i = 0, q = s; i < numFields; i++) {
+			mFields[i] = WritableComparatorUtils.readUTF(b, q);
+			q += WritableComparatorUtils.utfLength(b, q);
+		}
+		mFieldLookup = null;
+
+		if (mNames == null || mNames.length < p - s) {
+			mNames = new byte[Math.max(p - s, 256)];
+		}
+		System.arraycopy(b, s, mNames, 0, p - s);
+		mNamesLength = p - s;
+
+		return p;
+	}
+
+	// field type of a serialized tuple, by the name of its class
+	private static Class<?> readType(byte[] b, int p) {
+		try {
+			return loadClass(WritableComparatorUtils.readUTF(b, p));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 
 	/**
@@ -416,6 +1051,13 @@ public class Tuple implements WritableComparable<Tuple> {
 	 *            where to write the raw byte representation
 	 */
 	public void write(DataOutput out) throws IOException {
+		decodeAll();
+
+		if (mSchema != null) {
+			writeBound(out);
+			return;
+		}
+
 		out.writeInt(mFields.length);
 		for (int i = 0; i < mFields.length; i++) {
 			out.writeUTF(mFields[i]);
@@ -432,19 +1074,19 @@ public class Tuple implements WritableComparable<Tuple> {
 				out.writeUTF(mSymbols[i]);
 			} else if (mTypes[i] == Integer.class) {
 				out.writeByte(INT);
-				out.writeInt((Integer) mObjects[i]);
+				out.writeInt(getInt(i));
 			} else if (mTypes[i] == Boolean.class) {
 				out.writeByte(BOOLEAN);
-				out.writeBoolean((Boolean) mObjects[i]);
+				out.writeBoolean(getBoolean(i));
 			} else if (mTypes[i] == Long.class) {
 				out.writeByte(LONG);
-				out.writeLong((Long) mObjects[i]);
+				out.writeLong(getLong(i));
 			} else if (mTypes[i] == Float.class) {
 				out.writeByte(FLOAT);
-				out.writeFloat((Float) mObjects[i]);
+				out.writeFloat(getFloat(i));
 			} else if (mTypes[i] == Double.class) {
 				out.writeByte(DOUBLE);
-				out.writeDouble((Double) mObjects[i]);
+				out.writeDouble(getDouble(i));
 			} else if (mTypes[i] == String.class) {
 				out.writeByte(STRING);
 				out.writeUTF(mObjects[i].toString());
@@ -462,6 +1104,350 @@ public class Tuple implements WritableComparable<Tuple> {
 		}
 	}
 
+	// The compact form of a bound tuple: a bitmap of the fields that contain
+	// special symbols, then each field, as a symbol or as a value of its type.
+	// Writables are prefixed by their length.
+	private int parseBound(byte[] b, int s) throws IOException {
+		int p = s + mSymbolBits.length;
+
+		for (int i = 0; i < mFields.length; i++) {
+			boolean symbol = (b[s + (i >> 3)] & (1 << (i & 7))) != 0;
+			byte code = mTypeCodes[i];
+
+			int length;
+			if (symbol || code == STRING) {
+				length = WritableComparatorUtils.utfLength(b, p);
+			} else if (code == WRITABLE) {
+				length = WritableComparator.readVInt(b, p);
+				p += WritableUtils.decodeVIntSize(b[p]);
+			} else {
+				length = BASIC_SIZES[code];
+			}
+
+			mSymbols[i] = null;
+			if (mProjected != null && !mProjected[i]) {
+				mObjects[i] = SKIPPED;
+			} else if (symbol) {
+				mObjects[i] = null;
+				mSymbols[i] = WritableComparatorUtils.readUTF(b, p);
+			} else if (code < STRING) {
+				mValues[i] = readBits(b, p, code);
+				mObjects[i] = UNBOXED;
+			} else {
+				mOffsets[i] = p - s;
+				mObjects[i] = mLazy ? PENDING : decodeValue(b, p, length, i);
+			}
+			p += length;
+		}
+
+		return p - s;
+	}
+
+	// Copies a serialized tuple from a stream, to be parsed as from a buffer.
+	private void copyRecord(DataInput in, DataOutputBuffer out) throws IOException {
+		out.reset();
+
+		if (mSchema != null) {
+			in.readFully(mSymbolBits);
+			out.write(mSymbolBits);
+			for (int i = 0; i < mFields.length; i++) {
+				byte code = mTypeCodes[i];
+				if ((mSymbolBits[i >> 3] & (1 << (i & 7))) != 0 || code == STRING) {
+					copyUTF(in, out);
+				} else if (code == WRITABLE) {
+					int length = WritableUtils.readVInt(in);
+					WritableUtils.writeVInt(out, length);
+					out.write(in, length);
+				} else {
+					out.write(in, BASIC_SIZES[code]);
+				}
+			}
+			return;
+		}
+
+		int numFields = in.readInt();
+		out.writeInt(numFields);
+		for (int i = 0; i < numFields; i++) {
+			copyUTF(in, out);
+		}
+		for (int i = 0; i < numFields; i++) {
+			byte type = in.readByte();
+			out.writeByte(type);
+			if (type == SYMBOL) {
+				copyUTF(in, out);
+				copyUTF(in, out);
+			} else if (type < STRING) {
+				out.write(in, BASIC_SIZES[type]);
+			} else if (type == STRING) {
+				copyUTF(in, out);
+			} else {
+				copyUTF(in, out);
+				int length = in.readInt();
+				out.writeInt(length);
+				out.write(in, length);
+			}
+		}
+	}
+
+	private static void copyUTF(DataInput in, DataOutputBuffer out) throws IOException {
+		int length = in.readUnsignedShort();
+		out.writeShort(length);
+		out.write(in, length);
+	}
+
+	// decodes the String or the Writable at a field from its serialized value
+	private Object decodeValue(byte[] b, int p, int length, int i) throws IOException {
+		if (mTypes[i] == String.class) {
+			return WritableComparatorUtils.readUTF(b, p);
+		}
+
+		// a bound tuple reuses its Writables
+		Writable w = mSchema != null ? writable(i) : newWritable(mTypes[i], mConf);
+		if (mRawIn == null) {
+			mRawIn = new DataInputBuffer();
+		}
+		mRawIn.reset(b, p, length);
+		w.readFields(mRawIn);
+		return w;
+	}
+
+	// Writable that a field of a bound tuple is deserialized into
+	private Writable writable(int i) {
+		if (mWritables[i] == null) {
+			mWritables[i] = newWritable(mTypes[i], mConf);
+		}
+		return mWritables[i];
+	}
+
+	// the object at a field, decoding it if it was read lazily
+	private Object object(int i) {
+		Object o = mObjects[i];
+		if (o == PENDING || o == SKIPPED) {
+			o = decode(i);
+		}
+		return o;
+	}
+
+	private Object decode(int i) {
+		if (mObjects[i] == SKIPPED) {
+			throw new TupleException("Field '" + mFields[i] + "' is not in the projection!");
+		}
+
+		try {
+			mObjects[i] = decodeValue(mRaw, mOffsets[i], mRawLength - mOffsets[i], i);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return mObjects[i];
+	}
+
+	private void decodeAll() {
+		for (int i = 0; i < mObjects.length; i++) {
+			object(i);
+		}
+	}
+
+	private void writeBound(DataOutput out) throws IOException {
+		Arrays.fill(mSymbolBits, (byte) 0);
+		for (int i = 0; i < mFields.length; i++) {
+			if (mObjects[i] == null) {
+				if (mSymbols[i] == null) {
+					throw new TupleException("Cannot serialize null fields!");
+				}
+				mSymbolBits[i >> 3] |= 1 << (i & 7);
+			}
+		}
+		out.write(mSymbolBits);
+
+		for (int i = 0; i < mFields.length; i++) {
+			if (mObjects[i] == null) {
+				out.writeUTF(mSymbols[i]);
+			} else if (mObjects[i] == UNBOXED) {
+				writeBits(out, mTypeCodes[i], mValues[i]);
+			} else {
+				if (mTypeCodes[i] == WRITABLE && mBuffer == null) {
+					mBuffer = new DataOutputBuffer();
+				}
+				writeValue(out, mTypeCodes[i], mObjects[i], mBuffer);
+			}
+		}
+	}
+
+	// Values of the basic types in mValues: ints, longs, and booleans as 0 or
+	// 1, and floats and doubles as their raw bits.
+	private static long readBits(byte[] b, int p, byte code) {
+		switch (code) {
+		case INT:
+		case FLOAT:
+			return WritableComparator.readInt(b, p);
+		case BOOLEAN:
+			return b[p] != 0 ? 1 : 0;
+		default:
+			return WritableComparator.readLong(b, p);
+		}
+	}
+
+	private static void writeBits(DataOutput out, byte code, long v) throws IOException {
+		switch (code) {
+		case INT:
+			out.writeInt((int) v);
+			break;
+		case BOOLEAN:
+			out.writeBoolean(v != 0);
+			break;
+		case LONG:
+			out.writeLong(v);
+			break;
+		case FLOAT:
+			out.writeFloat(Float.intBitsToFloat((int) v));
+			break;
+		default:
+			out.writeDouble(Double.longBitsToDouble(v));
+		}
+	}
+
+	private Object box(int i) {
+		long v = mValues[i];
+		Class<?> type = mTypes[i];
+
+		if (type == Integer.class) {
+			return (int) v;
+		} else if (type == Boolean.class) {
+			return v != 0;
+		} else if (type == Long.class) {
+			return v;
+		} else if (type == Float.class) {
+			return Float.intBitsToFloat((int) v);
+		}
+		return Double.longBitsToDouble(v);
+	}
+
+	// compares values in mValues, as the compareTo methods of their types do
+	private static int compareValues(Class<?> type, long v1, long v2) {
+		if (type == Float.class) {
+			return Float.compare(Float.intBitsToFloat((int) v1), Float.intBitsToFloat((int) v2));
+		} else if (type == Double.class) {
+			return Double.compare(Double.longBitsToDouble(v1), Double.longBitsToDouble(v2));
+		}
+		return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+	}
+
+	// hash code of a value in mValues, as the hashCode methods of its type do
+	private static int hashValue(Class<?> type, long v) {
+		if (type == Integer.class) {
+			return (int) v;
+		} else if (type == Boolean.class) {
+			return v != 0 ? 1231 : 1237;
+		} else if (type == Float.class) {
+			return Float.floatToIntBits(Float.intBitsToFloat((int) v));
+		} else if (type == Double.class) {
+			v = Double.doubleToLongBits(Double.longBitsToDouble(v));
+		}
+		return (int) (v ^ (v >>> 32));
+	}
+
+	/**
+	 * Returns the code of a field type in the serialized form.
+	 */
+	static byte typeCode(Class<?> type) {
+		if (type == Integer.class) {
+			return INT;
+		} else if (type == Boolean.class) {
+			return BOOLEAN;
+		} else if (type == Long.class) {
+			return LONG;
+		} else if (type == Float.class) {
+			return FLOAT;
+		} else if (type == Double.class) {
+			return DOUBLE;
+		} else if (type == String.class) {
+			return STRING;
+		}
+
+		return WRITABLE;
+	}
+
+	/**
+	 * Loads a field type by the name of its class.
+	 */
+	static Class<?> loadClass(String className) {
+		Class<?> c = CLASSES.get(className);
+		if (c == null) {
+			try {
+				c = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new TupleException("Unable to load field type " + className);
+			}
+			CLASSES.put(className, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Creates an instance of a Writable field type.
+	 */
+	static Writable newWritable(Class<?> type, Configuration conf) {
+		return (Writable) ReflectionUtils.newInstance(type, conf);
+	}
+
+	/**
+	 * Reads a field value. Writables are length-prefixed, so that they can be
+	 * skipped, and are read into <code>w</code>.
+	 */
+	static Object readValue(DataInput in, byte code, Writable w) throws IOException {
+		switch (code) {
+		case INT:
+			return in.readInt();
+		case BOOLEAN:
+			return in.readBoolean();
+		case LONG:
+			return in.readLong();
+		case FLOAT:
+			return in.readFloat();
+		case DOUBLE:
+			return in.readDouble();
+		case STRING:
+			return in.readUTF();
+		default:
+			WritableUtils.readVInt(in);
+			w.readFields(in);
+			return w;
+		}
+	}
+
+	/**
+	 * Writes a field value. Writables are serialized through
+	 * <code>buffer</code> to find their length.
+	 */
+	static void writeValue(DataOutput out, byte code, Object o, DataOutputBuffer buffer)
+			throws IOException {
+		switch (code) {
+		case INT:
+			out.writeInt((Integer) o);
+			break;
+		case BOOLEAN:
+			out.writeBoolean((Boolean) o);
+			break;
+		case LONG:
+			out.writeLong((Long) o);
+			break;
+		case FLOAT:
+			out.writeFloat((Float) o);
+			break;
+		case DOUBLE:
+			out.writeDouble((Double) o);
+			break;
+		case STRING:
+			out.writeUTF((String) o);
+			break;
+		default:
+			buffer.reset();
+			((Writable) o).write(buffer);
+			WritableUtils.writeVInt(out, buffer.getLength());
+			out.write(buffer.getData(), 0, buffer.getLength());
+		}
+	}
+
 	/**
 	 * Generates human-readable String representation of this Tuple.
 	 * 
@@ -473,10 +1459,12 @@ public class Tuple implements WritableComparable<Tuple> {
 		for (int i = 0; i < mFields.length; i++) {
 			if (i != 0)
 				sb.append(", ");
-			if (mSymbols[i] != null) {
+			if (mObjects[i] == SKIPPED) {
+				sb.append("<skipped>");
+			} else if (containsSymbol(i)) {
 				sb.append(mSymbols[i]);
 			} else {
-				sb.append(mObjects[i]);
+				sb.append(get(i));
 			}
 		}
 
@@ -527,6 +1515,15 @@ public class Tuple implements WritableComparable<Tuple> {
 				if (that.containsSymbol(i))
 					return 1;
 
+				// values of the basic types set without boxing
+				if (this.mObjects[i] == UNBOXED && that.mObjects[i] == UNBOXED) {
+					int cmp = compareValues(mTypes[i], this.mValues[i], that.mValues[i]);
+					if (cmp != 0) {
+						return cmp;
+					}
+					continue;
+				}
+
 				@SuppressWarnings("unchecked")
 				Comparable<Object> thisField = (Comparable<Object>) this.get(i);
 
@@ -534,8 +1531,9 @@ public class Tuple implements WritableComparable<Tuple> {
 				Comparable<Object> thatField = (Comparable<Object>) that.get(i);
 
 				// if the field tokens are identical, move to next field
-				if (!thisField.equals(thatField)) {
-					return thisField.compareTo(thatField);
+				int cmp = thisField.compareTo(thatField);
+				if (cmp != 0) {
+					return cmp;
 				}
 			}
 		}
@@ -552,8 +1550,11 @@ public class Tuple implements WritableComparable<Tuple> {
 		int hash = 0;
 
 		for (int i = 0; i < mObjects.length; i++) {
-			if (mObjects[i] != null) {
-				hash += mObjects[i].hashCode();
+			Object o = object(i);
+			if (o == UNBOXED) {
+				hash += hashValue(mTypes[i], mValues[i]);
+			} else if (o != null) {
+				hash += o.hashCode();
 			} else {
 				hash += mSymbols[i].hashCode();
 			}
@@ -562,4 +1563,347 @@ public class Tuple implements WritableComparable<Tuple> {
 		return hash;
 	}
 
+	/**
+	 * <p>
+	 * Comparator optimized for Tuples, which compares serialized Tuples without
+	 * deserializing them, in the same order as {@link Tuple#compareTo(Tuple)}.
+	 * Fields of the basic types and special symbols are compared directly on
+	 * the bytes; Writable fields are compared with the comparator registered
+	 * for their class. The comparator also computes, with
+	 * {@link #hash(byte[], int, int)}, the hash code of a serialized Tuple.
+	 * </p>
+	 * 
+	 * <p>
+	 * This comparator is registered for the Tuple class, and handles
+	 * self-describing Tuples. For Tuples bound to the Schema in the job
+	 * configuration, set it as the output key comparator with
+	 * <code>JobConf.setOutputKeyComparatorClass</code>, so that Hadoop
+	 * configures an instance with the Schema.
+	 * </p>
+	 */
+	public static class Comparator extends WritableComparator implements Configurable {
+		private Configuration mConf;
+
+		// field types of bound tuples, or null for self-describing tuples
+		private byte[] mTypeCodes;
+		private Class<?>[] mTypes;
+		private WritableComparator[] mFieldComparators;
+
+		// comparators for the Writable fields of self-describing tuples
+		private final Map<String, WritableComparator> mComparators = new ConcurrentHashMap<String, WritableComparator>();
+
+		private final DataInputBuffer mBuffer = new DataInputBuffer();
+
+		/**
+		 * Creates a new Comparator optimized for <code>Tuple</code>.
+		 */
+		public Comparator() {
+			super(Tuple.class);
+		}
+
+		public void setConf(Configuration conf) {
+			mConf = conf;
+
+			Schema schema = getSchema(conf);
+			if (schema != null) {
+				int n = schema.getFieldCount();
+				mTypeCodes = new byte[n];
+				mTypes = new Class<?>[n];
+				mFieldComparators = new WritableComparator[n];
+				for (int i = 0; i < n; i++) {
+					mTypes[i] = schema.getFieldType(i);
+					mTypeCodes[i] = typeCode(mTypes[i]);
+				}
+			}
+		}
+
+		public Configuration getConf() {
+			return mConf;
+		}
+
+		/**
+		 * Optimization hook.
+		 */
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			return mTypeCodes == null ? compareSelfDescribing(b1, s1, b2, s2) : compareBound(b1,
+					s1, b2, s2);
+		}
+
+		/**
+		 * Computes the hash code of a serialized Tuple, which is the same as
+		 * {@link Tuple#hashCode()} of the deserialized Tuple. Only Writable
+		 * fields are deserialized.
+		 * 
+		 * @param b
+		 *            byte array
+		 * @param s
+		 *            offset of the Tuple
+		 * @param l
+		 *            length of the Tuple
+		 * @return hash code of the Tuple
+		 */
+		public int hash(byte[] b, int s, int l) {
+			return mTypeCodes == null ? hashSelfDescribing(b, s) : hashBound(b, s);
+		}
+
+		private int compareSelfDescribing(byte[] b1, int s1, byte[] b2, int s2) {
+			int n1 = readInt(b1, s1);
+			int n2 = readInt(b2, s2);
+			int p1 = skipFieldNames(b1, s1 + 4, n1);
+			int p2 = skipFieldNames(b2, s2 + 4, n2);
+
+			int n = Math.min(n1, n2);
+			for (int i = 0; i < n; i++) {
+				byte t1 = b1[p1++];
+				byte t2 = b2[p2++];
+
+				int cmp;
+				if (t1 == SYMBOL || t2 == SYMBOL) {
+					// special symbols always come first
+					if (t1 != SYMBOL)
+						return 1;
+					if (t2 != SYMBOL)
+						return -1;
+
+					// skip the class names
+					p1 += WritableComparatorUtils.utfLength(b1, p1);
+					p2 += WritableComparatorUtils.utfLength(b2, p2);
+
+					cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+					p1 += WritableComparatorUtils.utfLength(b1, p1);
+					p2 += WritableComparatorUtils.utfLength(b2, p2);
+				} else if (t1 != t2) {
+					// fields of different types: tuples of different schemas
+					return t1 < t2 ? -1 : 1;
+				} else if (t1 == WRITABLE) {
+					String className = readUTF(b1, p1);
+					p1 += WritableComparatorUtils.utfLength(b1, p1);
+					p2 += WritableComparatorUtils.utfLength(b2, p2);
+
+					int len1 = readInt(b1, p1);
+					int len2 = readInt(b2, p2);
+					p1 += 4;
+					p2 += 4;
+
+					cmp = getComparator(className).compare(b1, p1, len1, b2, p2, len2);
+					p1 += len1;
+					p2 += len2;
+				} else {
+					cmp = compareValue(t1, b1, p1, b2, p2);
+					p1 += valueLength(t1, b1, p1);
+					p2 += valueLength(t2, b2, p2);
+				}
+
+				if (cmp != 0)
+					return cmp;
+			}
+
+			return 0;
+		}
+
+		private int compareBound(byte[] b1, int s1, byte[] b2, int s2) {
+			int n = mTypeCodes.length;
+			int p1 = s1 + (n + 7) / 8;
+			int p2 = s2 + (n + 7) / 8;
+
+			for (int i = 0; i < n; i++) {
+				boolean symbol1 = (b1[s1 + (i >> 3)] & (1 << (i & 7))) != 0;
+				boolean symbol2 = (b2[s2 + (i >> 3)] & (1 << (i & 7))) != 0;
+
+				int cmp;
+				if (symbol1 || symbol2) {
+					// special symbols always come first
+					if (!symbol1)
+						return 1;
+					if (!symbol2)
+						return -1;
+
+					cmp = WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+					p1 += WritableComparatorUtils.utfLength(b1, p1);
+					p2 += WritableComparatorUtils.utfLength(b2, p2);
+				} else if (mTypeCodes[i] == WRITABLE) {
+					int len1 = readVIntUnchecked(b1, p1);
+					int len2 = readVIntUnchecked(b2, p2);
+					p1 += WritableUtils.decodeVIntSize(b1[p1]);
+					p2 += WritableUtils.decodeVIntSize(b2[p2]);
+
+					if (mFieldComparators[i] == null) {
+						mFieldComparators[i] = WritableComparator.get(mTypes[i]
+								.asSubclass(WritableComparable.class));
+					}
+					cmp = mFieldComparators[i].compare(b1, p1, len1, b2, p2, len2);
+					p1 += len1;
+					p2 += len2;
+				} else {
+					cmp = compareValue(mTypeCodes[i], b1, p1, b2, p2);
+					p1 += valueLength(mTypeCodes[i], b1, p1);
+					p2 += valueLength(mTypeCodes[i], b2, p2);
+				}
+
+				if (cmp != 0)
+					return cmp;
+			}
+
+			return 0;
+		}
+
+		private int hashSelfDescribing(byte[] b, int s) {
+			int n = readInt(b, s);
+			int p = skipFieldNames(b, s + 4, n);
+
+			int hash = 0;
+			for (int i = 0; i < n; i++) {
+				byte t = b[p++];
+				if (t == SYMBOL) {
+					p += WritableComparatorUtils.utfLength(b, p);
+					hash += WritableComparatorUtils.hashUTF(b, p);
+					p += WritableComparatorUtils.utfLength(b, p);
+				} else if (t == WRITABLE) {
+					String className = readUTF(b, p);
+					p += WritableComparatorUtils.utfLength(b, p);
+
+					int len = readInt(b, p);
+					p += 4;
+
+					hash += hashWritable(loadClass(className), b, p, len);
+					p += len;
+				} else {
+					hash += hashValue(t, b, p);
+					p += valueLength(t, b, p);
+				}
+			}
+
+			return hash;
+		}
+
+		private int hashBound(byte[] b, int s) {
+			int n = mTypeCodes.length;
+			int p = s + (n + 7) / 8;
+
+			int hash = 0;
+			for (int i = 0; i < n; i++) {
+				if ((b[s + (i >> 3)] & (1 << (i & 7))) != 0) {
+					hash += WritableComparatorUtils.hashUTF(b, p);
+					p += WritableComparatorUtils.utfLength(b, p);
+				} else if (mTypeCodes[i] == WRITABLE) {
+					int len = readVIntUnchecked(b, p);
+					p += WritableUtils.decodeVIntSize(b[p]);
+
+					hash += hashWritable(mTypes[i], b, p, len);
+					p += len;
+				} else {
+					hash += hashValue(mTypeCodes[i], b, p);
+					p += valueLength(mTypeCodes[i], b, p);
+				}
+			}
+
+			return hash;
+		}
+
+		private static int skipFieldNames(byte[] b, int p, int n) {
+			for (int i = 0; i < n; i++) {
+				p += WritableComparatorUtils.utfLength(b, p);
+			}
+			return p;
+		}
+
+		// length of a value of a basic type
+		private static int valueLength(byte code, byte[] b, int p) {
+			switch (code) {
+			case INT:
+			case FLOAT:
+				return 4;
+			case BOOLEAN:
+				return 1;
+			case LONG:
+			case DOUBLE:
+				return 8;
+			default:
+				return WritableComparatorUtils.utfLength(b, p);
+			}
+		}
+
+		// compares values of a basic type, as their compareTo methods do
+		private static int compareValue(byte code, byte[] b1, int p1, byte[] b2, int p2) {
+			switch (code) {
+			case INT: {
+				int v1 = readInt(b1, p1);
+				int v2 = readInt(b2, p2);
+				return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+			}
+			case BOOLEAN:
+				return b1[p1] - b2[p2];
+			case LONG: {
+				long v1 = readLong(b1, p1);
+				long v2 = readLong(b2, p2);
+				return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+			}
+			case FLOAT:
+				return Float.compare(readFloat(b1, p1), readFloat(b2, p2));
+			case DOUBLE:
+				return Double.compare(readDouble(b1, p1), readDouble(b2, p2));
+			default:
+				return WritableComparatorUtils.compareUTF(b1, p1, b2, p2);
+			}
+		}
+
+		// hash code of a value of a basic type, as its hashCode method computes
+		private static int hashValue(byte code, byte[] b, int p) {
+			switch (code) {
+			case INT:
+				return readInt(b, p);
+			case BOOLEAN:
+				return b[p] != 0 ? 1231 : 1237;
+			case LONG: {
+				long v = readLong(b, p);
+				return (int) (v ^ (v >>> 32));
+			}
+			case FLOAT:
+				return Float.floatToIntBits(readFloat(b, p));
+			case DOUBLE: {
+				long v = Double.doubleToLongBits(readDouble(b, p));
+				return (int) (v ^ (v >>> 32));
+			}
+			default:
+				return WritableComparatorUtils.hashUTF(b, p);
+			}
+		}
+
+		private int hashWritable(Class<?> type, byte[] b, int p, int len) {
+			Writable w = newWritable(type, mConf);
+			try {
+				mBuffer.reset(b, p, len);
+				w.readFields(mBuffer);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return w.hashCode();
+		}
+
+		private static int readVIntUnchecked(byte[] b, int p) {
+			try {
+				return readVInt(b, p);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private static String readUTF(byte[] b, int p) {
+			return WritableComparatorUtils.readUTF(b, p);
+		}
+
+		private WritableComparator getComparator(String className) {
+			WritableComparator c = mComparators.get(className);
+			if (c == null) {
+				c = WritableComparator.get(loadClass(className).asSubclass(WritableComparable.class));
+				mComparators.put(className, c);
+			}
+			return c;
+		}
+	}
+
+	static { // register this comparator
+		WritableComparator.define(Tuple.class, new Comparator());
+	}
+
 }
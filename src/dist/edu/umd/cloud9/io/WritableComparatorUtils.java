@@ -5,6 +5,96 @@ import java.io.UTFDataFormatException;
 import org.apache.hadoop.io.WritableComparator;
 
 public class WritableComparatorUtils {
+
+	/**
+	 * Compares two strings serialized by {@link java.io.DataOutput#writeUTF},
+	 * in place, with the same ordering as {@link String#compareTo}, but without
+	 * decoding them into <code>String</code>s. Modified UTF-8 encodes each
+	 * UTF-16 char separately, surrogates included, so the byte order agrees
+	 * with the char order except for <code>'\u0000'</code>, which is encoded as
+	 * two bytes; only the chars at the first differing byte are decoded.
+	 *
+	 * @param b1
+	 *            first byte array
+	 * @param s1
+	 *            offset of the first string, at its two-byte length
+	 * @param b2
+	 *            second byte array
+	 * @param s2
+	 *            offset of the second string, at its two-byte length
+	 * @return a negative integer, zero, or a positive integer as the first
+	 *         string is less than, equal to, or greater than the second
+	 */
+	public static int compareUTF(byte[] b1, int s1, byte[] b2, int s2) {
+		int l1 = WritableComparator.readUnsignedShort(b1, s1);
+		int l2 = WritableComparator.readUnsignedShort(b2, s2);
+		s1 += 2;
+		s2 += 2;
+
+		int n = Math.min(l1, l2);
+		int i = 0;
+		while (i < n && b1[s1 + i] == b2[s2 + i]) {
+			i++;
+		}
+		if (i == n) {
+			// one is a prefix of the other, at a char boundary
+			return l1 - l2;
+		}
+
+		// the bytes before i are the same, so both chars start at the same place
+		int start = i;
+		while (start > 0 && (b1[s1 + start] & 0xC0) == 0x80) {
+			start--;
+		}
+		return readChar(b1, s1 + start) - readChar(b2, s2 + start);
+	}
+
+	/**
+	 * Returns the number of bytes taken by a string serialized by
+	 * {@link java.io.DataOutput#writeUTF}, including its two-byte length.
+	 */
+	public static int utfLength(byte[] bytes, int s) {
+		return 2 + WritableComparator.readUnsignedShort(bytes, s);
+	}
+
+	/**
+	 * Computes the hash code of a string serialized by
+	 * {@link java.io.DataOutput#writeUTF}, in place. The hash code is the same
+	 * as {@link String#hashCode()} of the decoded string.
+	 *
+	 * @param bytes
+	 *            byte array
+	 * @param s
+	 *            offset of the string, at its two-byte length
+	 * @return hash code of the string
+	 */
+	public static int hashUTF(byte[] bytes, int s) {
+		int end = s + utfLength(bytes, s);
+		int h = 0;
+		for (int i = s + 2; i < end; i += charLength(bytes[i])) {
+			h = 31 * h + readChar(bytes, i);
+		}
+		return h;
+	}
+
+	// number of bytes of the modified UTF-8 char starting with byte b
+	private static int charLength(byte b) {
+		int c = b & 0xff;
+		return c < 0x80 ? 1 : (c < 0xE0 ? 2 : 3);
+	}
+
+	// decodes the modified UTF-8 char starting at offset s
+	private static char readChar(byte[] bytes, int s) {
+		int c = bytes[s] & 0xff;
+		if (c < 0x80) {
+			return (char) c;
+		}
+		if (c < 0xE0) {
+			return (char) (((c & 0x1F) << 6) | (bytes[s + 1] & 0x3F));
+		}
+		return (char) (((c & 0x0F) << 12) | ((bytes[s + 1] & 0x3F) << 6) | (bytes[s + 2] & 0x3F));
+	}
+
 	public static String readUTF(byte[] bytes, int s) {
 		try {
 			int utflen = WritableComparator.readUnsignedShort(bytes, s);
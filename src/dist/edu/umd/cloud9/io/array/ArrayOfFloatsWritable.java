@@ -73,6 +73,15 @@ public class ArrayOfFloatsWritable implements Writable {
 	}
 
 	
+	/**
+	 * Returns the array backing this object.
+	 * @return
+	 * 		array of floats
+	 */
+	public float[] getArray() {
+		return array;
+	}
+
 	/**
 	 * Returns the size of the float array.
 	 * @return
@@ -0,0 +1,186 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.array;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.array.CompressedArrayOfInts;
+
+/**
+ * Writable extension of the {@link CompressedArrayOfInts} class, for
+ * adjacency lists, postings, and other lists of ids in MapReduce jobs. The
+ * compressed blocks are written as is, so serializing and deserializing cost
+ * little more than copying bytes, and the list is only decoded when read.
+ * Compared to {@link ArrayListOfIntsWritable}, which writes four bytes per
+ * value, a sorted list of dense ids takes a byte or less per value.
+ */
+public class CompressedArrayOfIntsWritable extends CompressedArrayOfInts implements Writable {
+
+	/**
+	 * Constructs an empty CompressedArrayOfIntsWritable, e.g., to read into.
+	 */
+	public CompressedArrayOfIntsWritable() {
+		super();
+	}
+
+	/**
+	 * Compresses a list of ints.
+	 *
+	 * @param list
+	 *            the ints
+	 * @param sorted
+	 *            whether to gap-code the values, which must be in
+	 *            non-decreasing order
+	 * @param codec
+	 *            block codec
+	 */
+	public CompressedArrayOfIntsWritable(ArrayListOfInts list, boolean sorted, Codec codec) {
+		super(list, sorted, codec);
+	}
+
+	/**
+	 * Compresses an array of ints.
+	 *
+	 * @param values
+	 *            the ints
+	 * @param sorted
+	 *            whether to gap-code the values, which must be in
+	 *            non-decreasing order
+	 * @param codec
+	 *            block codec
+	 */
+	public CompressedArrayOfIntsWritable(int[] values, boolean sorted, Codec codec) {
+		super(values, sorted, codec);
+	}
+
+	/**
+	 * Deserializes this object.
+	 *
+	 * @param in
+	 *            source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		size = WritableUtils.readVInt(in);
+		int flags = in.readByte();
+		sorted = (flags & 1) != 0;
+		codec = Codec.values()[flags >>> 1];
+
+		length = WritableUtils.readVInt(in);
+		if (bytes.length < length) {
+			bytes = new byte[length];
+		}
+		in.readFully(bytes, 0, length);
+
+		int numBlocks = numBlocks(size);
+		offsets = new int[numBlocks];
+		for (int b = 1; b < numBlocks; b++) {
+			offsets[b] = offsets[b - 1] + WritableUtils.readVInt(in);
+		}
+
+		if (sorted) {
+			lasts = new int[numBlocks];
+			int prev = 0;
+			for (int b = 0; b < numBlocks; b++) {
+				prev += WritableUtils.readVInt(in);
+				lasts[b] = prev;
+			}
+		} else {
+			lasts = null;
+		}
+	}
+
+	/**
+	 * Serializes this object.
+	 *
+	 * @param out
+	 *            where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, size);
+		out.writeByte((codec.ordinal() << 1) | (sorted ? 1 : 0));
+
+		WritableUtils.writeVInt(out, length);
+		out.write(bytes, 0, length);
+
+		// offsets and last values of blocks, gap-coded
+		for (int b = 1; b < offsets.length; b++) {
+			WritableUtils.writeVInt(out, offsets[b] - offsets[b - 1]);
+		}
+
+		if (sorted) {
+			int prev = 0;
+			for (int b = 0; b < lasts.length; b++) {
+				WritableUtils.writeVInt(out, lasts[b] - prev);
+				prev = lasts[b];
+			}
+		}
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this
+	 *         object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>CompressedArrayOfIntsWritable</code> object from a
+	 * <code>DataInput</code>.
+	 *
+	 * @param in
+	 *            source for reading the serialized representation
+	 * @return a newly-created <code>CompressedArrayOfIntsWritable</code> object
+	 * @throws IOException
+	 */
+	public static CompressedArrayOfIntsWritable create(DataInput in) throws IOException {
+		CompressedArrayOfIntsWritable a = new CompressedArrayOfIntsWritable();
+		a.readFields(in);
+
+		return a;
+	}
+
+	/**
+	 * Creates a <code>CompressedArrayOfIntsWritable</code> object from a byte
+	 * array.
+	 *
+	 * @param bytes
+	 *            raw serialized representation
+	 * @return a newly-created <code>CompressedArrayOfIntsWritable</code> object
+	 * @throws IOException
+	 */
+	public static CompressedArrayOfIntsWritable create(byte[] bytes) throws IOException {
+		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+}
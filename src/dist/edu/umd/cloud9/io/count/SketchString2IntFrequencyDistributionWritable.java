@@ -0,0 +1,164 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.count;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.count.SketchObject2IntFrequencyDistribution;
+
+/**
+ * Writable extension of {@link SketchObject2IntFrequencyDistribution} for
+ * strings, e.g., for counting terms. Mappers can emit partial distributions,
+ * which combiners and reducers add up with
+ * {@link #merge(SketchObject2IntFrequencyDistribution)}. The Count-Min sketch
+ * is written as in {@link SketchInt2IntFrequencyDistributionWritable}.
+ */
+public class SketchString2IntFrequencyDistributionWritable extends
+		SketchObject2IntFrequencyDistribution<String> implements Writable {
+
+	/**
+	 * Creates a distribution with the default error bounds and number of
+	 * heavy hitters.
+	 */
+	public SketchString2IntFrequencyDistributionWritable() {
+		super();
+	}
+
+	/**
+	 * Creates a distribution with the specified error bounds and number of
+	 * heavy hitters.
+	 *
+	 * @param epsilon
+	 *            relative error of point queries
+	 * @param delta
+	 *            probability of exceeding the relative error
+	 * @param capacity
+	 *            number of heavy hitters tracked
+	 */
+	public SketchString2IntFrequencyDistributionWritable(double epsilon, double delta, int capacity) {
+		super(epsilon, delta, capacity);
+	}
+
+	/**
+	 * Deserializes the distribution.
+	 *
+	 * @param in
+	 *            source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		int d = in.readInt();
+		int w = in.readInt();
+		int c = in.readInt();
+		if (d != depth || w != width || c != capacity) {
+			init(d, w, c);
+		} else {
+			clear();
+		}
+
+		SketchWritableUtils.readSketch(in, sketch);
+
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			String key = in.readUTF();
+			int count = WritableUtils.readVInt(in);
+			int error = WritableUtils.readVInt(in);
+			offer(key, count, error);
+		}
+
+		sumOfFrequencies = WritableUtils.readVLong(in);
+	}
+
+	/**
+	 * Serializes the distribution.
+	 *
+	 * @param out
+	 *            where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(depth);
+		out.writeInt(width);
+		out.writeInt(capacity);
+
+		SketchWritableUtils.writeSketch(out, sketch);
+
+		// in heap order, so that reading them back rebuilds the same heap
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeUTF((String) keys[i]);
+			WritableUtils.writeVInt(out, counts[i]);
+			WritableUtils.writeVInt(out, errors[i]);
+		}
+
+		WritableUtils.writeVLong(out, sumOfFrequencies);
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this
+	 *         object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>SketchString2IntFrequencyDistributionWritable</code> object
+	 * from a <code>DataInput</code>.
+	 *
+	 * @param in
+	 *            <code>DataInput</code> for reading the serialized
+	 *            representation
+	 * @return a newly-created
+	 *         <code>SketchString2IntFrequencyDistributionWritable</code> object
+	 * @throws IOException
+	 */
+	public static SketchString2IntFrequencyDistributionWritable create(DataInput in) throws IOException {
+		SketchString2IntFrequencyDistributionWritable fd = new SketchString2IntFrequencyDistributionWritable();
+		fd.readFields(in);
+
+		return fd;
+	}
+
+	/**
+	 * Creates a <code>SketchString2IntFrequencyDistributionWritable</code> object
+	 * from a byte array.
+	 *
+	 * @param bytes
+	 *            raw serialized representation
+	 * @return a newly-created
+	 *         <code>SketchString2IntFrequencyDistributionWritable</code> object
+	 * @throws IOException
+	 */
+	public static SketchString2IntFrequencyDistributionWritable create(byte[] bytes) throws IOException {
+		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.count;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Serialization of the counters of Count-Min sketches, shared by the sketch
+ * Writables.
+ */
+final class SketchWritableUtils {
+
+	private SketchWritableUtils() {}
+
+	/**
+	 * Writes counters as variable-length ints. If fewer than a third of them
+	 * are non-zero, only those are written, each preceded by its distance from
+	 * the previous one.
+	 */
+	static void writeSketch(DataOutput out, int[] sketch) throws IOException {
+		int nonZero = 0;
+		for (int v : sketch) {
+			if (v != 0)
+				nonZero++;
+		}
+
+		if (nonZero < sketch.length / 3) {
+			out.writeBoolean(true);
+			WritableUtils.writeVInt(out, nonZero);
+			int last = -1;
+			for (int i = 0; i < sketch.length; i++) {
+				if (sketch[i] != 0) {
+					WritableUtils.writeVInt(out, i - last);
+					WritableUtils.writeVInt(out, sketch[i]);
+					last = i;
+				}
+			}
+		} else {
+			out.writeBoolean(false);
+			for (int v : sketch) {
+				WritableUtils.writeVInt(out, v);
+			}
+		}
+	}
+
+	/**
+	 * Reads counters written by {@link #writeSketch(DataOutput, int[])} into
+	 * an array of zeros of the same length.
+	 */
+	static void readSketch(DataInput in, int[] sketch) throws IOException {
+		if (in.readBoolean()) {
+			int nonZero = WritableUtils.readVInt(in);
+			int i = -1;
+			for (int j = 0; j < nonZero; j++) {
+				i += WritableUtils.readVInt(in);
+				sketch[i] = WritableUtils.readVInt(in);
+			}
+		} else {
+			for (int i = 0; i < sketch.length; i++) {
+				sketch[i] = WritableUtils.readVInt(in);
+			}
+		}
+	}
+}
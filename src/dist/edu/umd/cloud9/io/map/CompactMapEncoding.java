@@ -0,0 +1,92 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Constants and helpers shared by the compact wire format of {@link HMapIIW},
+ * {@link HMapIFW} and {@link HMapIVW}.
+ * <p>
+ * The original format starts with the number of entries as a four-byte int,
+ * whose first byte is never negative. The compact format instead starts with
+ * a header byte that has the high bit set, followed by the number of entries
+ * as a VInt. Entries are written in ascending key order, each key as a VInt
+ * gap from the previous key, so that readers can tell the two formats apart
+ * and data written before the compact format existed stays readable.
+ */
+final class CompactMapEncoding {
+
+	/**
+	 * Header of the compact format with full-precision values.
+	 */
+	static final byte COMPACT = (byte) 0x80;
+
+	/**
+	 * Header of the compact format with float values quantized to 16 bits.
+	 */
+	static final byte COMPACT_QUANTIZED = (byte) 0x81;
+
+	private CompactMapEncoding() {
+	}
+
+	/**
+	 * Reads the rest of the number of entries of the original format, given
+	 * its first byte.
+	 */
+	static int readLegacySize(byte first, DataInput in) throws IOException {
+		if (first < 0)
+			throw new IOException("Unknown map encoding: " + first);
+
+		return (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8)
+				| in.readUnsignedByte();
+	}
+
+	/**
+	 * Packs a key and 32 bits of value into a long that sorts by key.
+	 */
+	static long pack(int key, int bits) {
+		return ((long) key << 32) | (bits & 0xffffffffL);
+	}
+
+	static int unpackKey(long entry) {
+		return (int) (entry >> 32);
+	}
+
+	static int unpackBits(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * Quantizes a float to its upper 16 bits (the "bfloat16" format), rounding
+	 * to nearest even. This keeps the full exponent range and about three
+	 * significant decimal digits.
+	 */
+	static short quantize(float f) {
+		if (Float.isNaN(f))
+			return (short) 0x7fc0;
+
+		int bits = Float.floatToIntBits(f);
+		bits += 0x7fff + ((bits >>> 16) & 1);
+		return (short) (bits >>> 16);
+	}
+
+	static float dequantize(short s) {
+		return Float.intBitsToFloat(s << 16);
+	}
+}
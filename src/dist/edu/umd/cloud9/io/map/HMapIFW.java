@@ -23,8 +23,10 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
 import edu.umd.cloud9.util.map.HMapIF;
 import edu.umd.cloud9.util.map.MapIF;
@@ -45,11 +47,26 @@ import edu.umd.cloud9.util.map.MapIF;
  * populated with the {@link #decode()} method.
  * </p>
  *
+ * <p>
+ * The map can also be written in a <i>compact encoding</i>, controlled by the
+ * {@link #setCompactEncodingFlag(boolean)} method: entries are sorted by key
+ * and keys are written as VInt gaps. If {@link #setQuantizeFlag(boolean)} is
+ * also set, values are quantized to 16 bits, keeping about three significant
+ * digits. The encoding is recorded in a header byte, so maps in any encoding,
+ * including data written before the compact encoding existed, are read back
+ * regardless of the flags. Since the flags are static, a job selects the
+ * encoding by setting them in each task, e.g., in <code>configure()</code> or
+ * <code>setup()</code>. Lazily decoded maps in the compact encoding hold their
+ * keys in ascending order.
+ * </p>
+ *
  * @author Jimmy Lin
  */
 public class HMapIFW extends HMapIF implements Writable {
 
 	private static boolean LazyDecode = false;
+	private static boolean CompactEncoding = false;
+	private static boolean Quantize = false;
 	private static final long serialVersionUID = 4760032853L;
 
 	private int numEntries = 0;
@@ -70,8 +87,15 @@ public class HMapIFW extends HMapIF implements Writable {
 	 */
 	public void readFields(DataInput in) throws IOException {
 		this.clear();
+		keys = null;
+		values = null;
 
-		numEntries = in.readInt();
+		byte header = in.readByte();
+		boolean compact = header == CompactMapEncoding.COMPACT
+				|| header == CompactMapEncoding.COMPACT_QUANTIZED;
+		boolean quantized = header == CompactMapEncoding.COMPACT_QUANTIZED;
+		numEntries = compact ? WritableUtils.readVInt(in) : CompactMapEncoding.readLegacySize(
+				header, in);
 		if (numEntries == 0)
 			return;
 
@@ -80,9 +104,23 @@ public class HMapIFW extends HMapIF implements Writable {
 			keys = new int[numEntries];
 			values = new float[numEntries];
 
+			int key = 0;
 			for (int i = 0; i < numEntries; i++) {
-				keys[i] = in.readInt();
-				values[i] = in.readFloat();
+				if (compact) {
+					key += WritableUtils.readVInt(in);
+					keys[i] = key;
+					values[i] = quantized ? CompactMapEncoding.dequantize(in.readShort()) : in
+							.readFloat();
+				} else {
+					keys[i] = in.readInt();
+					values[i] = in.readFloat();
+				}
+			}
+		} else if (compact) {
+			int key = 0;
+			for (int i = 0; i < numEntries; i++) {
+				key += WritableUtils.readVInt(in);
+				put(key, quantized ? CompactMapEncoding.dequantize(in.readShort()) : in.readFloat());
 			}
 		} else {
 			// Normal initialization; populate the map.
@@ -127,6 +165,11 @@ public class HMapIFW extends HMapIF implements Writable {
 	 * @param out where to write the raw byte representation
 	 */
 	public void write(DataOutput out) throws IOException {
+		if (CompactEncoding) {
+			writeCompact(out);
+			return;
+		}
+
 		// Write out the number of entries in the map.
 		out.writeInt(size());
 		if (size() == 0)
@@ -138,6 +181,45 @@ public class HMapIFW extends HMapIF implements Writable {
 		}
 	}
 
+	/**
+	 * Serializes the map in the compact encoding. Works on the raw arrays if
+	 * the map has not been decoded.
+	 */
+	private void writeCompact(DataOutput out) throws IOException {
+		out.writeByte(Quantize ? CompactMapEncoding.COMPACT_QUANTIZED : CompactMapEncoding.COMPACT);
+		WritableUtils.writeVInt(out, size());
+		if (size() == 0)
+			return;
+
+		// Sort the entries by key, carrying the values along in the low bits.
+		long[] entries = new long[size()];
+		if (isDecoded()) {
+			int i = 0;
+			MapIF.Cursor c = cursor();
+			while (c.advance()) {
+				entries[i++] = CompactMapEncoding.pack(c.key(), Float.floatToIntBits(c.value()));
+			}
+		} else {
+			for (int i = 0; i < keys.length; i++) {
+				entries[i] = CompactMapEncoding.pack(keys[i], Float.floatToIntBits(values[i]));
+			}
+		}
+		Arrays.sort(entries);
+
+		int prev = 0;
+		for (long e : entries) {
+			int key = CompactMapEncoding.unpackKey(e);
+			WritableUtils.writeVInt(out, key - prev);
+			float value = Float.intBitsToFloat(CompactMapEncoding.unpackBits(e));
+			if (Quantize) {
+				out.writeShort(CompactMapEncoding.quantize(value));
+			} else {
+				out.writeFloat(value);
+			}
+			prev = key;
+		}
+	}
+
 	/**
 	 * Returns the serialized representation of this object as a byte array.
 	 *
@@ -177,6 +259,36 @@ public class HMapIFW extends HMapIF implements Writable {
 		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
 	}
 
+	/**
+	 * Sets the compact encoding flag, which determines how maps are serialized.
+	 * Maps are read back in either encoding regardless of this flag.
+	 */
+	public static void setCompactEncodingFlag(boolean b) {
+		CompactEncoding = b;
+	}
+
+	/**
+	 * Returns the value of the compact encoding flag.
+	 */
+	public static boolean getCompactEncodingFlag() {
+		return CompactEncoding;
+	}
+
+	/**
+	 * Sets the flag for quantizing values to 16 bits in the compact encoding.
+	 * Has no effect unless the compact encoding flag is also set.
+	 */
+	public static void setQuantizeFlag(boolean b) {
+		Quantize = b;
+	}
+
+	/**
+	 * Returns the value of the quantization flag.
+	 */
+	public static boolean getQuantizeFlag() {
+		return Quantize;
+	}
+
 	/**
 	 * Sets the lazy decoding flag.
 	 */
@@ -23,8 +23,10 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
 import edu.umd.cloud9.util.map.HMapII;
 import edu.umd.cloud9.util.map.MapII;
@@ -45,11 +47,24 @@ import edu.umd.cloud9.util.map.MapII;
  * populated with the {@link #decode()} method.
  * </p>
  *
+ * <p>
+ * The map can also be written in a <i>compact encoding</i>, controlled by the
+ * {@link #setCompactEncodingFlag(boolean)} method: entries are sorted by key,
+ * keys are written as VInt gaps and values as VInts, which is much smaller for
+ * stripes and postings-like maps. The encoding is recorded in a header byte,
+ * so maps in either encoding, including data written before the compact
+ * encoding existed, are read back regardless of the flag. Since the flag is
+ * static, a job selects the encoding by setting it in each task, e.g., in
+ * <code>configure()</code> or <code>setup()</code>. Lazily decoded maps in the
+ * compact encoding hold their keys in ascending order.
+ * </p>
+ *
  * @author Jimmy Lin
  */
 public class HMapIIW extends HMapII implements Writable {
 
 	private static boolean LazyDecode = false;
+	private static boolean CompactEncoding = false;
 	private static final long serialVersionUID = 3801790315L;
 
 	private int numEntries = 0;
@@ -70,8 +85,13 @@ public class HMapIIW extends HMapII implements Writable {
 	 */
 	public void readFields(DataInput in) throws IOException {
 		this.clear();
+		keys = null;
+		values = null;
 
-		numEntries = in.readInt();
+		byte header = in.readByte();
+		boolean compact = header == CompactMapEncoding.COMPACT;
+		numEntries = compact ? WritableUtils.readVInt(in) : CompactMapEncoding.readLegacySize(
+				header, in);
 		if (numEntries == 0)
 			return;
 
@@ -80,9 +100,22 @@ public class HMapIIW extends HMapII implements Writable {
 			keys = new int[numEntries];
 			values = new int[numEntries];
 
+			int key = 0;
+			for (int i = 0; i < numEntries; i++) {
+				if (compact) {
+					key += WritableUtils.readVInt(in);
+					keys[i] = key;
+					values[i] = WritableUtils.readVInt(in);
+				} else {
+					keys[i] = in.readInt();
+					values[i] = in.readInt();
+				}
+			}
+		} else if (compact) {
+			int key = 0;
 			for (int i = 0; i < numEntries; i++) {
-				keys[i] = in.readInt();
-				values[i] = in.readInt();
+				key += WritableUtils.readVInt(in);
+				put(key, WritableUtils.readVInt(in));
 			}
 		} else {
 			// Normal initialization: populate the map.
@@ -127,6 +160,11 @@ public class HMapIIW extends HMapII implements Writable {
 	 * @param out where to write the raw byte representation
 	 */
 	public void write(DataOutput out) throws IOException {
+		if (CompactEncoding) {
+			writeCompact(out);
+			return;
+		}
+
 		// Write out the number of entries in the map.
 		out.writeInt(size());
 		if (size() == 0)
@@ -138,6 +176,40 @@ public class HMapIIW extends HMapII implements Writable {
 		}
 	}
 
+	/**
+	 * Serializes the map in the compact encoding. Works on the raw arrays if
+	 * the map has not been decoded.
+	 */
+	private void writeCompact(DataOutput out) throws IOException {
+		out.writeByte(CompactMapEncoding.COMPACT);
+		WritableUtils.writeVInt(out, size());
+		if (size() == 0)
+			return;
+
+		// Sort the entries by key, carrying the values along in the low bits.
+		long[] entries = new long[size()];
+		if (isDecoded()) {
+			int i = 0;
+			MapII.Cursor c = cursor();
+			while (c.advance()) {
+				entries[i++] = CompactMapEncoding.pack(c.key(), c.value());
+			}
+		} else {
+			for (int i = 0; i < keys.length; i++) {
+				entries[i] = CompactMapEncoding.pack(keys[i], values[i]);
+			}
+		}
+		Arrays.sort(entries);
+
+		int prev = 0;
+		for (long e : entries) {
+			int key = CompactMapEncoding.unpackKey(e);
+			WritableUtils.writeVInt(out, key - prev);
+			WritableUtils.writeVInt(out, CompactMapEncoding.unpackBits(e));
+			prev = key;
+		}
+	}
+
 	/**
 	 * Returns the serialized representation of this object as a byte array.
 	 *
@@ -177,6 +249,21 @@ public class HMapIIW extends HMapII implements Writable {
 		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
 	}
 
+	/**
+	 * Sets the compact encoding flag, which determines how maps are serialized.
+	 * Maps are read back in either encoding regardless of this flag.
+	 */
+	public static void setCompactEncodingFlag(boolean b) {
+		CompactEncoding = b;
+	}
+
+	/**
+	 * Returns the value of the compact encoding flag.
+	 */
+	public static boolean getCompactEncodingFlag() {
+		return CompactEncoding;
+	}
+
 	/**
 	 * Sets the lazy decoding flag.
 	 */
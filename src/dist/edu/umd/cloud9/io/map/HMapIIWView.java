@@ -0,0 +1,411 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.MapII;
+
+/**
+ * <p>
+ * Read-only view of a serialized {@link HMapIIW}. Instead of rebuilding a hash
+ * table, this class keeps the raw serialized entries in a byte array, sorted by
+ * key, and works on them directly: {@link #get(int)} is a binary search, and
+ * {@link #plus(HMapIIWView)} and {@link #merge(HMapIIWView[], int, HMapIIWView)}
+ * combine views with a linear merge. None of these allocate anything per
+ * entry, and the buffers are reused across calls to
+ * {@link #readFields(DataInput)}. This makes the class suitable as the value
+ * type of combiners and reducers that do nothing but sum stripes.
+ * </p>
+ *
+ * <p>
+ * The serialized form is the same as that of <code>HMapIIW</code> in its
+ * original (non-compact) encoding, with entries in ascending key order. Views
+ * can therefore read what <code>HMapIIW</code> writes, and
+ * <code>HMapIIW</code> can read what views write. Entries in the hash order of
+ * the original encoding are sorted once on reading; entries in the compact
+ * encoding (see {@link HMapIIW#setCompactEncodingFlag(boolean)}) and entries
+ * written by views are already sorted, and are read without sorting.
+ * </p>
+ */
+public class HMapIIWView implements Writable {
+	private static final int ENTRY_BYTES = 8;
+
+	private byte[] bytes = new byte[0];
+	private byte[] scratch = new byte[0];
+	private long[] entries = new long[0];
+	private int size = 0;
+
+	/**
+	 * Creates an empty <code>HMapIIWView</code> object.
+	 */
+	public HMapIIWView() {
+	}
+
+	/**
+	 * Deserializes the view, holding on to the raw entries.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		byte header = in.readByte();
+		if (header == CompactMapEncoding.COMPACT) {
+			// Entries of the compact encoding are already in key order.
+			size = WritableUtils.readVInt(in);
+			bytes = ensureCapacity(bytes, size * ENTRY_BYTES);
+			int key = 0;
+			for (int i = 0; i < size; i++) {
+				key += WritableUtils.readVInt(in);
+				putEntry(bytes, i * ENTRY_BYTES, key, WritableUtils.readVInt(in));
+			}
+			return;
+		}
+
+		size = CompactMapEncoding.readLegacySize(header, in);
+		bytes = ensureCapacity(bytes, size * ENTRY_BYTES);
+		in.readFully(bytes, 0, size * ENTRY_BYTES);
+
+		for (int i = 1; i < size; i++) {
+			if (getKey(i - 1) >= getKey(i)) {
+				sort();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Serializes the view.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.write(bytes, 0, size * ENTRY_BYTES);
+	}
+
+	/**
+	 * Sorts the entries by key.
+	 */
+	private void sort() {
+		if (entries.length < size) {
+			entries = new long[Math.max(size, entries.length + (entries.length >> 1))];
+		}
+		for (int i = 0; i < size; i++) {
+			entries[i] = CompactMapEncoding.pack(getKey(i), getValue(i));
+		}
+		Arrays.sort(entries, 0, size);
+
+		for (int i = 0; i < size; i++) {
+			putEntry(bytes, i * ENTRY_BYTES, (int) (entries[i] >> 32), (int) entries[i]);
+		}
+	}
+
+	/**
+	 * Replaces the contents of this view with the mappings of a map.
+	 *
+	 * @param m the map
+	 */
+	public void set(MapII m) {
+		size = 0;
+		bytes = ensureCapacity(bytes, m.size() * ENTRY_BYTES);
+		MapII.Cursor c = m.cursor();
+		while (c.advance()) {
+			putEntry(bytes, size++ * ENTRY_BYTES, c.key(), c.value());
+		}
+		sort();
+	}
+
+	/**
+	 * Replaces the contents of this view with a copy of another view.
+	 *
+	 * @param v the other view
+	 */
+	public void set(HMapIIWView v) {
+		size = v.size;
+		bytes = ensureCapacity(bytes, size * ENTRY_BYTES);
+		System.arraycopy(v.bytes, 0, bytes, 0, size * ENTRY_BYTES);
+	}
+
+	/**
+	 * Removes all entries from this view.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of entries in this view.
+	 *
+	 * @return number of entries in this view
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if this view has no entries.
+	 *
+	 * @return <code>true</code> if this view has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the key of the <i>i</i>-th entry, in ascending key order.
+	 *
+	 * @param i index of the entry
+	 * @return key of the entry
+	 */
+	public int getKey(int i) {
+		return WritableComparator.readInt(bytes, i * ENTRY_BYTES);
+	}
+
+	/**
+	 * Returns the value of the <i>i</i>-th entry, in ascending key order.
+	 *
+	 * @param i index of the entry
+	 * @return value of the entry
+	 */
+	public int getValue(int i) {
+		return WritableComparator.readInt(bytes, i * ENTRY_BYTES + 4);
+	}
+
+	/**
+	 * Returns the value of a key, or {@link MapII#DEFAULT_VALUE} if the key
+	 * is not present.
+	 *
+	 * @param key the key
+	 * @return value of the key
+	 */
+	public int get(int key) {
+		int i = indexOf(key);
+		return i < 0 ? MapII.DEFAULT_VALUE : getValue(i);
+	}
+
+	/**
+	 * Returns <code>true</code> if this view contains a key.
+	 *
+	 * @param key the key
+	 * @return <code>true</code> if this view contains the key
+	 */
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	private int indexOf(int key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int k = getKey(mid);
+			if (k < key) {
+				low = mid + 1;
+			} else if (k > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the entries of another view to this view, summing values of keys
+	 * present in both.
+	 *
+	 * @param v the other view
+	 */
+	public void plus(HMapIIWView v) {
+		byte[] out = ensureCapacity(scratch, (size + v.size) * ENTRY_BYTES);
+
+		int i = 0, j = 0, n = 0;
+		while (i < size && j < v.size) {
+			int k1 = getKey(i);
+			int k2 = v.getKey(j);
+			if (k1 < k2) {
+				putEntry(out, n++ * ENTRY_BYTES, k1, getValue(i++));
+			} else if (k1 > k2) {
+				putEntry(out, n++ * ENTRY_BYTES, k2, v.getValue(j++));
+			} else {
+				putEntry(out, n++ * ENTRY_BYTES, k1, getValue(i++) + v.getValue(j++));
+			}
+		}
+		while (i < size) {
+			System.arraycopy(bytes, i++ * ENTRY_BYTES, out, n++ * ENTRY_BYTES, ENTRY_BYTES);
+		}
+		while (j < v.size) {
+			System.arraycopy(v.bytes, j++ * ENTRY_BYTES, out, n++ * ENTRY_BYTES, ENTRY_BYTES);
+		}
+
+		scratch = bytes;
+		bytes = out;
+		size = n;
+	}
+
+	/**
+	 * Sums a number of views into a result view with a single k-way merge,
+	 * which is cheaper than adding the views one at a time when there are many
+	 * of them. Since the values handed to a reducer are usually the same
+	 * object, the views should be copies made with {@link #set(HMapIIWView)}.
+	 *
+	 * @param views the views to sum
+	 * @param n number of views in the array to sum
+	 * @param result view to hold the sum, which must not be one of the views
+	 */
+	public static void merge(HMapIIWView[] views, int n, HMapIIWView result) {
+		int total = 0;
+		for (int i = 0; i < n; i++) {
+			total += views[i].size;
+		}
+		byte[] out = ensureCapacity(result.bytes, total * ENTRY_BYTES);
+
+		// Min-heap of views ordered by the key at each view's position.
+		int[] heap = new int[n];
+		int[] pos = new int[n];
+		int heapSize = 0;
+		for (int i = 0; i < n; i++) {
+			if (views[i].size > 0) {
+				heap[heapSize++] = i;
+			}
+		}
+		for (int i = heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(views, heap, pos, i, heapSize);
+		}
+
+		int count = 0;
+		while (heapSize > 0) {
+			int top = heap[0];
+			int key = views[top].getKey(pos[top]);
+			int sum = 0;
+			do {
+				top = heap[0];
+				sum += views[top].getValue(pos[top]++);
+				if (pos[top] == views[top].size) {
+					heap[0] = heap[--heapSize];
+				}
+				siftDown(views, heap, pos, 0, heapSize);
+			} while (heapSize > 0 && views[heap[0]].getKey(pos[heap[0]]) == key);
+
+			putEntry(out, count++ * ENTRY_BYTES, key, sum);
+		}
+
+		result.bytes = out;
+		result.size = count;
+	}
+
+	private static void siftDown(HMapIIWView[] views, int[] heap, int[] pos, int i, int heapSize) {
+		int v = heap[i];
+		int key = heapSize > 0 ? views[v].getKey(pos[v]) : 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize
+					&& views[heap[child + 1]].getKey(pos[heap[child + 1]]) < views[heap[child]]
+							.getKey(pos[heap[child]])) {
+				child++;
+			}
+			if (key <= views[heap[child]].getKey(pos[heap[child]]))
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = v;
+	}
+
+	/**
+	 * Adds the entries of this view to a map.
+	 *
+	 * @param m the map
+	 */
+	public void addTo(HMapII m) {
+		for (int i = 0; i < size; i++) {
+			m.increment(getKey(i), getValue(i));
+		}
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>HMapIIWView</code> object from a byte array.
+	 *
+	 * @param bytes raw serialized representation
+	 * @return a newly-created <code>HMapIIWView</code> object
+	 * @throws IOException
+	 */
+	public static HMapIIWView create(byte[] bytes) throws IOException {
+		HMapIIWView v = new HMapIIWView();
+		v.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+
+		return v;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (int i = 0; i < size; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(getKey(i)).append('=').append(getValue(i));
+		}
+		return sb.append('}').toString();
+	}
+
+	private static byte[] ensureCapacity(byte[] b, int length) {
+		if (b.length >= length)
+			return b;
+
+		return new byte[Math.max(length, b.length + (b.length >> 1))];
+	}
+
+	private static void putEntry(byte[] b, int off, int key, int value) {
+		b[off] = (byte) (key >>> 24);
+		b[off + 1] = (byte) (key >>> 16);
+		b[off + 2] = (byte) (key >>> 8);
+		b[off + 3] = (byte) key;
+		b[off + 4] = (byte) (value >>> 24);
+		b[off + 5] = (byte) (value >>> 16);
+		b[off + 6] = (byte) (value >>> 8);
+		b[off + 7] = (byte) value;
+	}
+}
@@ -23,10 +23,12 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Set;
 
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 import edu.umd.cloud9.util.map.HMapIV;
 import edu.umd.cloud9.util.map.MapIV;
@@ -34,12 +36,21 @@ import edu.umd.cloud9.util.map.MapIV;
 /**
  * Writable representing a map from ints to values of arbitrary WritableComparable.
  *
+ * <p>
+ * The map can also be written in a <i>compact encoding</i>, controlled by the
+ * {@link #setCompactEncodingFlag(boolean)} method, in which entries are sorted
+ * by key and keys are written as VInt gaps. The encoding is recorded in a
+ * header byte, so maps in either encoding, including data written before the
+ * compact encoding existed, are read back regardless of the flag.
+ * </p>
+ *
  * @param <V> type of value
  *
  * @author Jimmy Lin
  */
 public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implements Writable {
 	private static final long serialVersionUID = 2532109344100674110L;
+	private static boolean CompactEncoding = false;
 
 	/**
 	 * Creates a <code>HMapIVW</code> object.
@@ -57,7 +68,10 @@ public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implemen
 	public void readFields(DataInput in) throws IOException {
 		this.clear();
 
-		int numEntries = in.readInt();
+		byte header = in.readByte();
+		boolean compact = header == CompactMapEncoding.COMPACT;
+		int numEntries = compact ? WritableUtils.readVInt(in) : CompactMapEncoding.readLegacySize(
+				header, in);
 		if (numEntries == 0)
 			return;
 
@@ -67,8 +81,13 @@ public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implemen
 
 		try {
 			Class valueClass = Class.forName(valueClassName);
+			int k = 0;
 			for (int i = 0; i < numEntries; i++) {
-				int k = in.readInt();
+				if (compact) {
+					k += WritableUtils.readVInt(in);
+				} else {
+					k = in.readInt();
+				}
 
 				objV = (V) valueClass.newInstance();
 				objV.readFields(in);
@@ -91,6 +110,11 @@ public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implemen
 	 * @param out where to write the raw byte representation
 	 */
 	public void write(DataOutput out) throws IOException {
+		if (CompactEncoding) {
+			writeCompact(out);
+			return;
+		}
+
 		// Write out the number of entries in the map.
 		out.writeInt(size());
 		if (size() == 0)
@@ -109,6 +133,33 @@ public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implemen
 		}
 	}
 
+	/**
+	 * Serializes the map in the compact encoding.
+	 */
+	private void writeCompact(DataOutput out) throws IOException {
+		out.writeByte(CompactMapEncoding.COMPACT);
+		WritableUtils.writeVInt(out, size());
+		if (size() == 0)
+			return;
+
+		int[] keys = new int[size()];
+		int i = 0;
+		MapIV.Cursor<V> c = cursor();
+		while (c.advance()) {
+			keys[i++] = c.key();
+		}
+		Arrays.sort(keys);
+
+		out.writeUTF(get(keys[0]).getClass().getCanonicalName());
+
+		int prev = 0;
+		for (int key : keys) {
+			WritableUtils.writeVInt(out, key - prev);
+			get(key).write(out);
+			prev = key;
+		}
+	}
+
 	/**
 	 * Returns the serialized representation of this object as a byte array.
 	 *
@@ -147,4 +198,19 @@ public class HMapIVW<V extends WritableComparable<?>> extends HMapIV<V> implemen
 	public static <T extends WritableComparable<?>> HMapIVW<T> create(byte[] bytes)	throws IOException {
 		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
 	}
+
+	/**
+	 * Sets the compact encoding flag, which determines how maps are serialized.
+	 * Maps are read back in either encoding regardless of this flag.
+	 */
+	public static void setCompactEncodingFlag(boolean b) {
+		CompactEncoding = b;
+	}
+
+	/**
+	 * Returns the value of the compact encoding flag.
+	 */
+	public static boolean getCompactEncodingFlag() {
+		return CompactEncoding;
+	}
 }
@@ -0,0 +1,515 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+
+import edu.umd.cloud9.util.map.HMapKI;
+import edu.umd.cloud9.util.map.MapKI;
+
+/**
+ * <p>
+ * Read-only view of a serialized {@link HMapSIW}. Instead of rebuilding a hash
+ * table, this class keeps the raw serialized entries in a byte array, together
+ * with an index of entry offsets sorted by key, and works on them directly:
+ * {@link #get(String)} is a binary search, and {@link #plus(HMapSIWView)} and
+ * {@link #merge(HMapSIWView[], int, HMapSIWView)} combine views with a linear
+ * merge that copies key bytes without ever materializing the keys as
+ * <code>String</code>s. The buffers are reused across calls to
+ * {@link #readFields(DataInput)}. This makes the class suitable as the value
+ * type of combiners and reducers that do nothing but sum stripes.
+ * </p>
+ *
+ * <p>
+ * Keys are ordered by the bytes of their serialized (modified UTF-8) form,
+ * which agrees with {@link String#compareTo(String)} for all characters other
+ * than the null character and supplementary characters. The serialized form is
+ * the same as that of <code>HMapSIW</code>, with entries in key order, so that
+ * views can read what <code>HMapSIW</code> writes (entries in hash order are
+ * sorted once on reading), and <code>HMapSIW</code> can read what views
+ * write.
+ * </p>
+ */
+public class HMapSIWView implements Writable {
+	private byte[] bytes = new byte[0];
+	private byte[] scratch = new byte[0];
+	private int[] offsets = new int[0];
+	private int[] scratchOffsets = new int[0];
+	private int size = 0;
+	private int length = 0;
+
+	private final DataOutputBuffer probe = new DataOutputBuffer();
+
+	// buffers of set(MapKI), which goes through the serialized form
+	private DataOutputBuffer setBuffer;
+	private DataInputBuffer setIn;
+
+	/**
+	 * Creates an empty <code>HMapSIWView</code> object.
+	 */
+	public HMapSIWView() {
+	}
+
+	/**
+	 * Deserializes the view, holding on to the raw entries.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		size = in.readInt();
+		if (size < 0)
+			throw new IOException("Unsupported map encoding: " + size);
+
+		offsets = ensureCapacity(offsets, size);
+		length = 0;
+		boolean sorted = true;
+		for (int i = 0; i < size; i++) {
+			int keyLength = in.readUnsignedShort();
+			bytes = ensureCapacity(bytes, length + keyLength + 6);
+			bytes[length] = (byte) (keyLength >>> 8);
+			bytes[length + 1] = (byte) keyLength;
+			in.readFully(bytes, length + 2, keyLength + 4);
+
+			offsets[i] = length;
+			length += keyLength + 6;
+			if (sorted && i > 0 && compare(bytes, offsets[i - 1], bytes, offsets[i]) >= 0) {
+				sorted = false;
+			}
+		}
+
+		if (!sorted) {
+			scratchOffsets = ensureCapacity(scratchOffsets, size);
+			mergeSort(offsets, scratchOffsets, 0, size);
+		}
+	}
+
+	/**
+	 * Serializes the view.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.write(bytes, offsets[i], entryLength(bytes, offsets[i]));
+		}
+	}
+
+	/**
+	 * Replaces the contents of this view with the mappings of a map.
+	 *
+	 * @param m the map
+	 */
+	public void set(MapKI<String> m) throws IOException {
+		if (setBuffer == null) {
+			setBuffer = new DataOutputBuffer();
+			setIn = new DataInputBuffer();
+		}
+
+		setBuffer.reset();
+		setBuffer.writeInt(m.size());
+		for (MapKI.Entry<String> e : m.entrySet()) {
+			setBuffer.writeUTF(e.getKey());
+			setBuffer.writeInt(e.getValue());
+		}
+
+		setIn.reset(setBuffer.getData(), setBuffer.getLength());
+		readFields(setIn);
+	}
+
+	/**
+	 * Replaces the contents of this view with a copy of another view.
+	 *
+	 * @param v the other view
+	 */
+	public void set(HMapSIWView v) {
+		size = v.size;
+		length = v.length;
+		bytes = ensureCapacity(bytes, length);
+		offsets = ensureCapacity(offsets, size);
+		System.arraycopy(v.bytes, 0, bytes, 0, length);
+		System.arraycopy(v.offsets, 0, offsets, 0, size);
+	}
+
+	/**
+	 * Removes all entries from this view.
+	 */
+	public void clear() {
+		size = 0;
+		length = 0;
+	}
+
+	/**
+	 * Returns the number of entries in this view.
+	 *
+	 * @return number of entries in this view
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if this view has no entries.
+	 *
+	 * @return <code>true</code> if this view has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the key of the <i>i</i>-th entry, in key order. Note that this
+	 * method creates a new <code>String</code>.
+	 *
+	 * @param i index of the entry
+	 * @return key of the entry
+	 */
+	public String getKey(int i) {
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(bytes, offsets[i], length - offsets[i]);
+		try {
+			return in.readUTF();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the value of the <i>i</i>-th entry, in key order.
+	 *
+	 * @param i index of the entry
+	 * @return value of the entry
+	 */
+	public int getValue(int i) {
+		return valueAt(bytes, offsets[i]);
+	}
+
+	/**
+	 * Returns the value of a key, or {@link MapKI#DEFAULT_VALUE} if the key
+	 * is not present.
+	 *
+	 * @param key the key
+	 * @return value of the key
+	 */
+	public int get(String key) {
+		int i = indexOf(key);
+		return i < 0 ? MapKI.DEFAULT_VALUE : getValue(i);
+	}
+
+	/**
+	 * Returns <code>true</code> if this view contains a key.
+	 *
+	 * @param key the key
+	 * @return <code>true</code> if this view contains the key
+	 */
+	public boolean containsKey(String key) {
+		return indexOf(key) >= 0;
+	}
+
+	private int indexOf(String key) {
+		if (key == null)
+			throw new IllegalArgumentException("Key cannot be null!");
+
+		probe.reset();
+		try {
+			probe.writeUTF(key);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compare(bytes, offsets[mid], probe.getData(), 0);
+			if (c < 0) {
+				low = mid + 1;
+			} else if (c > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the entries of another view to this view, summing values of keys
+	 * present in both.
+	 *
+	 * @param v the other view
+	 */
+	public void plus(HMapSIWView v) {
+		byte[] out = ensureCapacity(scratch, length + v.length);
+		int[] outOffsets = ensureCapacity(scratchOffsets, size + v.size);
+
+		int i = 0, j = 0, n = 0, len = 0;
+		while (i < size && j < v.size) {
+			int c = compare(bytes, offsets[i], v.bytes, v.offsets[j]);
+			outOffsets[n++] = len;
+			if (c < 0) {
+				len = copyEntry(bytes, offsets[i++], out, len);
+			} else if (c > 0) {
+				len = copyEntry(v.bytes, v.offsets[j++], out, len);
+			} else {
+				int value = valueAt(bytes, offsets[i]) + valueAt(v.bytes, v.offsets[j++]);
+				len = copyEntry(bytes, offsets[i++], out, len);
+				putInt(out, len - 4, value);
+			}
+		}
+		while (i < size) {
+			outOffsets[n++] = len;
+			len = copyEntry(bytes, offsets[i++], out, len);
+		}
+		while (j < v.size) {
+			outOffsets[n++] = len;
+			len = copyEntry(v.bytes, v.offsets[j++], out, len);
+		}
+
+		scratch = bytes;
+		scratchOffsets = offsets;
+		bytes = out;
+		offsets = outOffsets;
+		size = n;
+		length = len;
+	}
+
+	/**
+	 * Sums a number of views into a result view with a single k-way merge,
+	 * which is cheaper than adding the views one at a time when there are many
+	 * of them. Since the values handed to a reducer are usually the same
+	 * object, the views should be copies made with {@link #set(HMapSIWView)}.
+	 *
+	 * @param views the views to sum
+	 * @param n number of views in the array to sum
+	 * @param result view to hold the sum, which must not be one of the views
+	 */
+	public static void merge(HMapSIWView[] views, int n, HMapSIWView result) {
+		int totalSize = 0, totalLength = 0;
+		for (int i = 0; i < n; i++) {
+			totalSize += views[i].size;
+			totalLength += views[i].length;
+		}
+		byte[] out = ensureCapacity(result.bytes, totalLength);
+		int[] outOffsets = ensureCapacity(result.offsets, totalSize);
+
+		// Min-heap of views ordered by the key at each view's position.
+		int[] heap = new int[n];
+		int[] pos = new int[n];
+		int heapSize = 0;
+		for (int i = 0; i < n; i++) {
+			if (views[i].size > 0) {
+				heap[heapSize++] = i;
+			}
+		}
+		for (int i = heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(views, heap, pos, i, heapSize);
+		}
+
+		int count = 0, len = 0;
+		while (heapSize > 0) {
+			HMapSIWView first = views[heap[0]];
+			int keyOffset = first.offsets[pos[heap[0]]];
+
+			outOffsets[count++] = len;
+			len = copyEntry(first.bytes, keyOffset, out, len);
+			int sum = 0;
+			do {
+				int top = heap[0];
+				sum += valueAt(views[top].bytes, views[top].offsets[pos[top]++]);
+				if (pos[top] == views[top].size) {
+					heap[0] = heap[--heapSize];
+				}
+				siftDown(views, heap, pos, 0, heapSize);
+			} while (heapSize > 0
+					&& compare(views[heap[0]].bytes, views[heap[0]].offsets[pos[heap[0]]],
+							first.bytes, keyOffset) == 0);
+
+			putInt(out, len - 4, sum);
+		}
+
+		result.bytes = out;
+		result.offsets = outOffsets;
+		result.size = count;
+		result.length = len;
+	}
+
+	private static void siftDown(HMapSIWView[] views, int[] heap, int[] pos, int i,
+			int heapSize) {
+		if (heapSize == 0)
+			return;
+
+		int v = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && compareHeads(views, pos, heap[child + 1], heap[child]) < 0) {
+				child++;
+			}
+			if (compareHeads(views, pos, v, heap[child]) <= 0)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = v;
+	}
+
+	private static int compareHeads(HMapSIWView[] views, int[] pos, int a, int b) {
+		return compare(views[a].bytes, views[a].offsets[pos[a]], views[b].bytes,
+				views[b].offsets[pos[b]]);
+	}
+
+	/**
+	 * Adds the entries of this view to a map.
+	 *
+	 * @param m the map
+	 */
+	public void addTo(HMapKI<String> m) {
+		for (int i = 0; i < size; i++) {
+			String key = getKey(i);
+			m.put(key, m.get(key) + getValue(i));
+		}
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>HMapSIWView</code> object from a byte array.
+	 *
+	 * @param bytes raw serialized representation
+	 * @return a newly-created <code>HMapSIWView</code> object
+	 * @throws IOException
+	 */
+	public static HMapSIWView create(byte[] bytes) throws IOException {
+		HMapSIWView v = new HMapSIWView();
+		v.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+
+		return v;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (int i = 0; i < size; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(getKey(i)).append('=').append(getValue(i));
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Sorts entry offsets by key. A merge sort over primitive offsets, since
+	 * <code>Arrays</code> offers no way of sorting ints by a comparator.
+	 */
+	private void mergeSort(int[] a, int[] tmp, int from, int to) {
+		if (to - from < 2)
+			return;
+
+		int mid = (from + to) >>> 1;
+		mergeSort(a, tmp, from, mid);
+		mergeSort(a, tmp, mid, to);
+		if (compare(bytes, a[mid - 1], bytes, a[mid]) <= 0)
+			return;
+
+		System.arraycopy(a, from, tmp, from, to - from);
+		int i = from, j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || (i < mid && compare(bytes, tmp[i], bytes, tmp[j]) <= 0)) {
+				a[k] = tmp[i++];
+			} else {
+				a[k] = tmp[j++];
+			}
+		}
+	}
+
+	/**
+	 * Compares the keys of two serialized entries.
+	 */
+	private static int compare(byte[] b1, int s1, byte[] b2, int s2) {
+		return WritableComparator.compareBytes(b1, s1 + 2, keyLength(b1, s1), b2, s2 + 2,
+				keyLength(b2, s2));
+	}
+
+	private static int keyLength(byte[] b, int off) {
+		return ((b[off] & 0xff) << 8) | (b[off + 1] & 0xff);
+	}
+
+	private static int entryLength(byte[] b, int off) {
+		return keyLength(b, off) + 6;
+	}
+
+	private static int valueAt(byte[] b, int off) {
+		return WritableComparator.readInt(b, off + keyLength(b, off) + 2);
+	}
+
+	private static int copyEntry(byte[] src, int off, byte[] dest, int destOff) {
+		int len = entryLength(src, off);
+		System.arraycopy(src, off, dest, destOff, len);
+		return destOff + len;
+	}
+
+	private static void putInt(byte[] b, int off, int value) {
+		b[off] = (byte) (value >>> 24);
+		b[off + 1] = (byte) (value >>> 16);
+		b[off + 2] = (byte) (value >>> 8);
+		b[off + 3] = (byte) value;
+	}
+
+	private static byte[] ensureCapacity(byte[] b, int length) {
+		if (b.length >= length)
+			return b;
+
+		byte[] copy = new byte[Math.max(length, b.length + (b.length >> 1))];
+		System.arraycopy(b, 0, copy, 0, b.length);
+		return copy;
+	}
+
+	private static int[] ensureCapacity(int[] a, int length) {
+		if (a.length >= length)
+			return a;
+
+		int[] copy = new int[Math.max(length, a.length + (a.length >> 1))];
+		System.arraycopy(a, 0, copy, 0, a.length);
+		return copy;
+	}
+}
@@ -197,10 +197,7 @@ public class PairOfIntString implements WritableComparable<PairOfIntString> {
 			int thatLeftValue = readInt(b2, s2);
 
 			if (thisLeftValue == thatLeftValue) {
-				String thisRightValue = WritableComparatorUtils.readUTF(b1, s1 + 4);
-				String thatRightValue = WritableComparatorUtils.readUTF(b2, s2 + 4);
-
-				return thisRightValue.compareTo(thatRightValue);
+				return WritableComparatorUtils.compareUTF(b1, s1 + 4, b2, s2 + 4);
 			}
 
 			return (thisLeftValue < thatLeftValue ? -1 : (thisLeftValue == thatLeftValue ? 0 : 1));
@@ -196,21 +196,20 @@ public class PairOfStringInt implements WritableComparable<PairOfStringInt> {
 		 * Optimization hook.
 		 */
 		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-			String thisLeftValue = WritableComparatorUtils.readUTF(b1, s1);
-			String thatLeftValue = WritableComparatorUtils.readUTF(b2, s2);
+			int cmp = WritableComparatorUtils.compareUTF(b1, s1, b2, s2);
 
-			if (thisLeftValue.equals(thatLeftValue)) {
-				int s1offset = readUnsignedShort(b1, s1);
-				int s2offset = readUnsignedShort(b2, s2);
+			if (cmp == 0) {
+				int s1offset = WritableComparatorUtils.utfLength(b1, s1);
+				int s2offset = WritableComparatorUtils.utfLength(b2, s2);
 
-				int thisRightValue = readInt(b1, s1 + 2 + s1offset);
-				int thatRightValue = readInt(b2, s2 + 2 + s2offset);
+				int thisRightValue = readInt(b1, s1 + s1offset);
+				int thatRightValue = readInt(b2, s2 + s2offset);
 
 				return (thisRightValue < thatRightValue ? -1
 						: (thisRightValue == thatRightValue ? 0 : 1));
 			}
 
-			return thisLeftValue.compareTo(thatLeftValue);
+			return cmp;
 		}
 	}
 
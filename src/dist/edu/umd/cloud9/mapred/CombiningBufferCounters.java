@@ -0,0 +1,56 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.mapred;
+
+import org.apache.hadoop.mapred.Reporter;
+
+import edu.umd.cloud9.util.map.CombiningBuffer;
+
+/**
+ * Reports the flushes of a {@link CombiningBuffer} through the counters of
+ * the old (<code>org.apache.hadoop.mapred</code>) API. Since mappers only get
+ * hold of a <code>Reporter</code> in <code>map()</code>, the reporter is set
+ * there, and the last one set is used for flushes during <code>close()</code>.
+ */
+public class CombiningBufferCounters implements CombiningBuffer.Listener {
+	private Reporter mReporter;
+
+	/**
+	 * Creates an object that reports nothing until a reporter is set.
+	 */
+	public CombiningBufferCounters() {
+	}
+
+	/**
+	 * Sets the reporter through which to report flushes.
+	 *
+	 * @param reporter
+	 *            the reporter
+	 */
+	public void setReporter(Reporter reporter) {
+		mReporter = reporter;
+	}
+
+	public void flushed(int entries, long bytes) {
+		if (mReporter == null)
+			return;
+
+		mReporter.incrCounter(CombiningBuffer.Counters.FLUSHES, 1);
+		mReporter.incrCounter(CombiningBuffer.Counters.FLUSHED_ENTRIES, entries);
+		mReporter.incrCounter(CombiningBuffer.Counters.FLUSHED_BYTES, bytes);
+	}
+}
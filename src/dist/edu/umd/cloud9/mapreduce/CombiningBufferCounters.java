@@ -0,0 +1,45 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.mapreduce;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import edu.umd.cloud9.util.map.CombiningBuffer;
+
+/**
+ * Reports the flushes of a {@link CombiningBuffer} through the counters of
+ * the new (<code>org.apache.hadoop.mapreduce</code>) API.
+ */
+public class CombiningBufferCounters implements CombiningBuffer.Listener {
+	private final TaskInputOutputContext<?, ?, ?, ?> context;
+
+	/**
+	 * Creates an object that reports flushes through the counters of a task.
+	 *
+	 * @param context
+	 *            context of the task, as passed to <code>setup()</code>
+	 */
+	public CombiningBufferCounters(TaskInputOutputContext<?, ?, ?, ?> context) {
+		this.context = context;
+	}
+
+	public void flushed(int entries, long bytes) {
+		context.getCounter(CombiningBuffer.Counters.FLUSHES).increment(1);
+		context.getCounter(CombiningBuffer.Counters.FLUSHED_ENTRIES).increment(entries);
+		context.getCounter(CombiningBuffer.Counters.FLUSHED_BYTES).increment(bytes);
+	}
+}
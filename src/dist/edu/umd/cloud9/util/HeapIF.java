@@ -0,0 +1,324 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Priority queue of (int id, float priority) elements, as a <i>d</i>-ary heap
+ * in parallel arrays, with an index from ids to positions in the heap so that
+ * the priority of an element can be changed in O(log<sub><i>d</i></sub>
+ * <i>n</i>) time, e.g., for decrease-key in shortest-path searches. Unlike
+ * {@link java.util.PriorityQueue} or a Fibonacci heap, no object is created
+ * per element, so the heap creates no garbage once it has grown to size.
+ * </p>
+ *
+ * <p>
+ * The heap is either a min-heap, whose top is the element of lowest
+ * priority, or a max-heap, whose top is the element of highest priority. Ids
+ * are non-negative and each is in the heap at most once; the index takes four
+ * bytes per id up to the largest id inserted, which suits dense ids such as
+ * node ids or docnos. A 4-ary heap, the default, is usually faster than a
+ * binary heap, since it is shallower and the children of a node are adjacent
+ * in memory.
+ * </p>
+ */
+public class HeapIF {
+	private static final int INITIAL_CAPACITY_DEFAULT = 16;
+
+	private final int d;
+	private final boolean max;
+
+	// the heap, in parallel arrays
+	private int[] ids;
+	private float[] priorities;
+	private int size = 0;
+
+	// position of each id in the heap, or -1
+	private int[] positions;
+
+	/**
+	 * Creates a 4-ary min-heap.
+	 */
+	public HeapIF() {
+		this(4, false);
+	}
+
+	/**
+	 * Creates a heap.
+	 *
+	 * @param d
+	 *            number of children of each node, at least two
+	 * @param max
+	 *            <code>true</code> for a max-heap, <code>false</code> for a
+	 *            min-heap
+	 */
+	public HeapIF(int d, boolean max) {
+		if (d < 2) {
+			throw new IllegalArgumentException("Illegal arity: " + d);
+		}
+
+		this.d = d;
+		this.max = max;
+		ids = new int[INITIAL_CAPACITY_DEFAULT];
+		priorities = new float[INITIAL_CAPACITY_DEFAULT];
+		positions = new int[INITIAL_CAPACITY_DEFAULT];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if the heap is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if an id is in the heap.
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < positions.length && positions[id] >= 0;
+	}
+
+	/**
+	 * Adds an element.
+	 *
+	 * @param id
+	 *            the id, which must not be in the heap
+	 * @param priority
+	 *            its priority
+	 */
+	public void insert(int id, float priority) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Illegal id: " + id);
+		}
+		if (id >= positions.length) {
+			int n = positions.length;
+			positions = Arrays.copyOf(positions, Math.max(id + 1, n + (n >> 1)));
+			Arrays.fill(positions, n, positions.length, -1);
+		}
+		if (positions[id] >= 0) {
+			throw new IllegalArgumentException("Id already in heap: " + id);
+		}
+
+		if (size == ids.length) {
+			int capacity = size + (size >> 1) + 1;
+			ids = Arrays.copyOf(ids, capacity);
+			priorities = Arrays.copyOf(priorities, capacity);
+		}
+		ids[size] = id;
+		priorities[size] = priority;
+		positions[id] = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Returns the priority of an id in the heap.
+	 */
+	public float getPriority(int id) {
+		return priorities[position(id)];
+	}
+
+	/**
+	 * Moves an element towards the top of the heap: lowers its priority in a
+	 * min-heap, or raises it in a max-heap.
+	 *
+	 * @param id
+	 *            the id, which must be in the heap
+	 * @param priority
+	 *            the new priority, which must not move the element away from
+	 *            the top
+	 */
+	public void decreaseKey(int id, float priority) {
+		int i = position(id);
+		if (before(priorities[i], priority)) {
+			throw new IllegalArgumentException("Priority " + priority + " of id " + id
+					+ " would move it away from the top: " + priorities[i]);
+		}
+
+		priorities[i] = priority;
+		siftUp(i);
+	}
+
+	/**
+	 * Sets the priority of an element, which is added if it isn't in the heap.
+	 *
+	 * @param id
+	 *            the id
+	 * @param priority
+	 *            its priority
+	 */
+	public void setPriority(int id, float priority) {
+		if (!contains(id)) {
+			insert(id, priority);
+			return;
+		}
+
+		int i = positions[id];
+		float old = priorities[i];
+		priorities[i] = priority;
+		if (before(priority, old)) {
+			siftUp(i);
+		} else {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Returns the id at the top of the heap.
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return ids[0];
+	}
+
+	/**
+	 * Returns the priority of the element at the top of the heap.
+	 */
+	public float peekPriority() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return priorities[0];
+	}
+
+	/**
+	 * Removes the element at the top of the heap, and returns its id. Its
+	 * priority can be had from {@link #peekPriority()} beforehand.
+	 */
+	public int poll() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+
+		int id = ids[0];
+		removeAt(0);
+		return id;
+	}
+
+	/**
+	 * Removes an element.
+	 *
+	 * @return <code>true</code> if the id was in the heap
+	 */
+	public boolean remove(int id) {
+		if (!contains(id)) {
+			return false;
+		}
+		removeAt(positions[id]);
+		return true;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[ids[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private int position(int id) {
+		if (!contains(id)) {
+			throw new NoSuchElementException("Id not in heap: " + id);
+		}
+		return positions[id];
+	}
+
+	// whether priority a goes above priority b
+	private boolean before(float a, float b) {
+		return max ? a > b : a < b;
+	}
+
+	private void removeAt(int i) {
+		positions[ids[i]] = -1;
+		size--;
+		if (i == size) {
+			return;
+		}
+
+		// move the last element into the hole
+		float old = priorities[i];
+		ids[i] = ids[size];
+		priorities[i] = priorities[size];
+		positions[ids[i]] = i;
+		if (before(priorities[i], old)) {
+			siftUp(i);
+		} else {
+			siftDown(i);
+		}
+	}
+
+	private void siftUp(int i) {
+		int id = ids[i];
+		float p = priorities[i];
+		while (i > 0) {
+			int parent = (i - 1) / d;
+			if (!before(p, priorities[parent])) {
+				break;
+			}
+			ids[i] = ids[parent];
+			priorities[i] = priorities[parent];
+			positions[ids[i]] = i;
+			i = parent;
+		}
+		ids[i] = id;
+		priorities[i] = p;
+		positions[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = ids[i];
+		float p = priorities[i];
+		while (true) {
+			int first = d * i + 1;
+			if (first >= size) {
+				break;
+			}
+
+			int best = first;
+			int last = Math.min(first + d, size);
+			for (int c = first + 1; c < last; c++) {
+				if (before(priorities[c], priorities[best])) {
+					best = c;
+				}
+			}
+			if (!before(priorities[best], p)) {
+				break;
+			}
+			ids[i] = ids[best];
+			priorities[i] = priorities[best];
+			positions[ids[i]] = i;
+			i = best;
+		}
+		ids[i] = id;
+		priorities[i] = p;
+		positions[id] = i;
+	}
+}
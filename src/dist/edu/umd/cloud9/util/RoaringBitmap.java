@@ -0,0 +1,1293 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Compressed bitmap representing a set of ints, e.g., docnos or node ids, in
+ * the manner of Roaring bitmaps. The ints are split by their high 16 bits into
+ * chunks, and the low 16 bits of the ints of each chunk are held in a
+ * container of one of three kinds, whichever is the most compact:
+ * </p>
+ *
+ * <ul>
+ * <li>an array of sorted values, for chunks of at most 4096 ints;</li>
+ * <li>a bitmap of 2<sup>16</sup> bits, for denser chunks;</li>
+ * <li>a list of runs of consecutive values, for chunks that are mostly runs;
+ * these are only made by {@link #runOptimize()}.</li>
+ * </ul>
+ *
+ * <p>
+ * A set of docnos thus takes at most about a bit per docno of the collection,
+ * and two bytes per docno for sparse sets. Intersection, union, and difference
+ * work chunk by chunk, and on two bitmap containers a word at a time.
+ * </p>
+ *
+ * <p>
+ * Ints are ordered as unsigned, which is the natural order for non-negative
+ * ints such as docnos. The serialized form (see {@link #write(DataOutput)})
+ * can be read in place from a {@link ByteBuffer}, e.g., a memory-mapped file,
+ * with {@link #map(ByteBuffer)}, in which case containers are only decoded
+ * when they are first needed.
+ * </p>
+ */
+public class RoaringBitmap implements Iterable<Integer>, Cloneable {
+
+	// maximum number of values of an array container
+	private static final int ARRAY_MAX = 4096;
+
+	private static final byte ARRAY = 0;
+	private static final byte BITMAP = 1;
+	private static final byte RUN = 2;
+
+	// key of each chunk, and its container, in order of keys
+	protected char[] keys;
+	protected Container[] containers;
+	protected int size;
+
+	// for mapped bitmaps: the buffer, and the offsets of containers not yet
+	// decoded in it
+	private ByteBuffer source;
+	private int[] offsets;
+
+	/**
+	 * Creates an empty set.
+	 */
+	public RoaringBitmap() {
+		keys = new char[4];
+		containers = new Container[4];
+		size = 0;
+	}
+
+	/**
+	 * Creates a copy of a set.
+	 */
+	public RoaringBitmap(RoaringBitmap that) {
+		this();
+		for (int i = 0; i < that.size; i++) {
+			append(that.keys[i], that.container(i).clone());
+		}
+	}
+
+	/**
+	 * Creates a set of ints.
+	 */
+	public static RoaringBitmap bitmapOf(int... values) {
+		RoaringBitmap b = new RoaringBitmap();
+		for (int v : values) {
+			b.add(v);
+		}
+		return b;
+	}
+
+	/**
+	 * Adds an int to this set.
+	 *
+	 * @return <code>true</code> if the int wasn't already in the set
+	 */
+	public boolean add(int x) {
+		char key = (char) (x >>> 16);
+		int i = find(key);
+		if (i >= 0) {
+			Container c = container(i);
+			int card = c.cardinality();
+			containers[i] = c.add((char) x);
+			return containers[i].cardinality() > card;
+		}
+
+		i = -i - 1;
+		insert(i, key, new ArrayContainer().add((char) x));
+		return true;
+	}
+
+	/**
+	 * Removes an int from this set.
+	 *
+	 * @return <code>true</code> if the int was in the set
+	 */
+	public boolean remove(int x) {
+		int i = find((char) (x >>> 16));
+		if (i < 0) {
+			return false;
+		}
+
+		Container c = container(i);
+		int card = c.cardinality();
+		c = c.remove((char) x);
+		if (c.cardinality() == 0) {
+			delete(i);
+		} else {
+			containers[i] = c;
+		}
+		return c.cardinality() < card;
+	}
+
+	/**
+	 * Returns <code>true</code> if this set contains an int.
+	 */
+	public boolean contains(int x) {
+		int i = find((char) (x >>> 16));
+		return i >= 0 && container(i).contains((char) x);
+	}
+
+	/**
+	 * Returns the number of ints in this set.
+	 */
+	public long cardinality() {
+		long card = 0;
+		for (int i = 0; i < size; i++) {
+			card += cardinality(i);
+		}
+		return card;
+	}
+
+	/**
+	 * Returns <code>true</code> if this set is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all ints from this set.
+	 */
+	public void clear() {
+		keys = new char[4];
+		containers = new Container[4];
+		size = 0;
+		source = null;
+		offsets = null;
+	}
+
+	/**
+	 * Converts containers to runs where that makes them smaller, and back where
+	 * it doesn't. This is worth doing on sets that have long runs of
+	 * consecutive ints, e.g., ranges of docnos, before they are serialized.
+	 *
+	 * @return <code>true</code> if any container was converted
+	 */
+	public boolean runOptimize() {
+		boolean changed = false;
+		for (int i = 0; i < size; i++) {
+			Container c = container(i);
+			containers[i] = c.optimize();
+			changed |= containers[i] != c;
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns the intersection of two sets, as a new set.
+	 */
+	public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap r = new RoaringBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			char ka = a.keys[i];
+			char kb = b.keys[j];
+			if (ka < kb) {
+				i++;
+			} else if (ka > kb) {
+				j++;
+			} else {
+				Container c = and(a.container(i), b.container(j));
+				if (c.cardinality() > 0) {
+					r.append(ka, c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the number of ints in the intersection of two sets, without
+	 * computing it.
+	 */
+	public static long andCardinality(RoaringBitmap a, RoaringBitmap b) {
+		long card = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			char ka = a.keys[i];
+			char kb = b.keys[j];
+			if (ka < kb) {
+				i++;
+			} else if (ka > kb) {
+				j++;
+			} else {
+				card += andCardinality(a.container(i), b.container(j));
+				i++;
+				j++;
+			}
+		}
+		return card;
+	}
+
+	/**
+	 * Returns the union of two sets, as a new set.
+	 */
+	public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap r = new RoaringBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < a.size || j < b.size) {
+			if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+				r.append(a.keys[i], a.container(i).clone());
+				i++;
+			} else if (i == a.size || a.keys[i] > b.keys[j]) {
+				r.append(b.keys[j], b.container(j).clone());
+				j++;
+			} else {
+				r.append(a.keys[i], or(a.container(i), b.container(j)));
+				i++;
+				j++;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the ints of the first set that aren't in the second, as a new
+	 * set.
+	 */
+	public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap r = new RoaringBitmap();
+		int j = 0;
+		for (int i = 0; i < a.size; i++) {
+			char ka = a.keys[i];
+			while (j < b.size && b.keys[j] < ka) {
+				j++;
+			}
+
+			Container c = j < b.size && b.keys[j] == ka ? andNot(a.container(i), b.container(j)) : a
+					.container(i).clone();
+			if (c.cardinality() > 0) {
+				r.append(ka, c);
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the ints of this set, in order, in a new array.
+	 */
+	public int[] toArray() {
+		long card = cardinality();
+		if (card > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too many ints for an array: " + card);
+		}
+
+		int[] values = new int[(int) card];
+		int pos = 0;
+		for (int i = 0; i < size; i++) {
+			pos = container(i).toArray(values, pos, keys[i] << 16);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a cursor over the ints of this set, in order.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Returns an iterator over the ints of this set, in order. Note that this
+	 * method is included only for convenience to conform to the
+	 * <code>Iterable</code> interface; this method is not efficient because of
+	 * autoboxing; use {@link #cursor()} instead.
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		final Cursor cursor = cursor();
+		return new Iterator<Integer>() {
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			public Integer next() {
+				return cursor.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of bytes this set takes when serialized.
+	 */
+	public int serializedSize() {
+		int bytes = 4 + 7 * size;
+		for (int i = 0; i < size; i++) {
+			bytes += container(i).bytes();
+		}
+		return bytes;
+	}
+
+	@Override
+	public RoaringBitmap clone() {
+		return new RoaringBitmap(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof RoaringBitmap)) {
+			return false;
+		}
+
+		RoaringBitmap that = (RoaringBitmap) obj;
+		if (size != that.size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (keys[i] != that.keys[i]) {
+				return false;
+			}
+			Container c = container(i);
+			Container d = that.container(i);
+			if (c.cardinality() != d.cardinality() || andCardinality(c, d) != c.cardinality()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 0;
+		Cursor cursor = cursor();
+		while (cursor.hasNext()) {
+			h = 31 * h + cursor.next();
+		}
+		return h;
+	}
+
+	/**
+	 * Returns a string representation of this set, explicitly printing out
+	 * the first <i>n</i> ints.
+	 */
+	public String toString(int n) {
+		StringBuilder s = new StringBuilder("[");
+		Cursor cursor = cursor();
+		int count = 0;
+		while (cursor.hasNext() && count < n) {
+			if (count++ > 0) {
+				s.append(", ");
+			}
+			s.append(cursor.next());
+		}
+
+		long card = cardinality();
+		s.append(card > n ? "... (" + (card - n) + " more) ]" : "]");
+		return s.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toString(10);
+	}
+
+	/**
+	 * Serializes this set: the number of containers, then the key, kind, and
+	 * cardinality of each container, then the containers themselves. An array
+	 * container is its values, a bitmap container its 1024 words, and a run
+	 * container its number of runs followed by the start and length minus one
+	 * of each run, all big-endian.
+	 */
+	protected void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			Container c = container(i);
+			out.writeChar(keys[i]);
+			out.writeByte(c.type());
+			out.writeInt(c.cardinality());
+		}
+		for (int i = 0; i < size; i++) {
+			container(i).write(out);
+		}
+	}
+
+	/**
+	 * Deserializes this set, replacing its contents.
+	 */
+	protected void readFields(DataInput in) throws IOException {
+		int n = in.readInt();
+		keys = new char[Math.max(n, 4)];
+		containers = new Container[keys.length];
+		size = n;
+		source = null;
+		offsets = null;
+
+		byte[] types = new byte[n];
+		int[] cards = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = in.readChar();
+			types[i] = in.readByte();
+			cards[i] = in.readInt();
+		}
+
+		for (int i = 0; i < n; i++) {
+			if (types[i] == ARRAY) {
+				char[] values = new char[cards[i]];
+				for (int j = 0; j < values.length; j++) {
+					values[j] = in.readChar();
+				}
+				containers[i] = new ArrayContainer(values, values.length);
+			} else if (types[i] == BITMAP) {
+				long[] words = new long[1024];
+				for (int j = 0; j < words.length; j++) {
+					words[j] = in.readLong();
+				}
+				containers[i] = new BitmapContainer(words, cards[i]);
+			} else if (types[i] == RUN) {
+				char[] runs = new char[2 * in.readChar()];
+				for (int j = 0; j < runs.length; j++) {
+					runs[j] = in.readChar();
+				}
+				containers[i] = new RunContainer(runs, runs.length / 2, cards[i]);
+			} else {
+				throw new IOException("Unknown container type: " + types[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a set serialized by {@link #write(DataOutput)} in place, from the
+	 * position of a buffer. Only the keys of the containers are read; each
+	 * container is decoded the first time it is needed, so opening a set from
+	 * a memory-mapped file costs next to nothing. The buffer must not be
+	 * modified while the set is in use, and its position isn't changed.
+	 */
+	public static RoaringBitmap map(ByteBuffer buffer) {
+		ByteBuffer source = buffer.duplicate();
+		int base = source.position();
+
+		RoaringBitmap b = new RoaringBitmap();
+		int n = source.getInt(base);
+		b.keys = new char[Math.max(n, 4)];
+		b.containers = new Container[b.keys.length];
+		b.size = n;
+		b.source = source;
+		b.offsets = new int[n];
+
+		int offset = base + 4 + 7 * n;
+		for (int i = 0; i < n; i++) {
+			int header = base + 4 + 7 * i;
+			b.keys[i] = source.getChar(header);
+			byte type = source.get(header + 2);
+			int card = source.getInt(header + 3);
+
+			b.offsets[i] = offset;
+			if (type == ARRAY) {
+				offset += 2 * card;
+			} else if (type == BITMAP) {
+				offset += 8192;
+			} else if (type == RUN) {
+				offset += 2 + 4 * source.getChar(offset);
+			} else {
+				throw new IllegalArgumentException("Unknown container type: " + type);
+			}
+		}
+		return b;
+	}
+
+	// cardinality of the i-th container, from the header if not yet decoded
+	private int cardinality(int i) {
+		if (containers[i] == null) {
+			return source.getInt(source.position() + 4 + 7 * i + 3);
+		}
+		return containers[i].cardinality();
+	}
+
+	// the i-th container, which is decoded if need be
+	private Container container(int i) {
+		Container c = containers[i];
+		if (c != null) {
+			return c;
+		}
+
+		int header = source.position() + 4 + 7 * i;
+		byte type = source.get(header + 2);
+		int card = source.getInt(header + 3);
+		int offset = offsets[i];
+		if (type == ARRAY) {
+			char[] values = new char[card];
+			for (int j = 0; j < card; j++) {
+				values[j] = source.getChar(offset + 2 * j);
+			}
+			c = new ArrayContainer(values, card);
+		} else if (type == BITMAP) {
+			long[] words = new long[1024];
+			for (int j = 0; j < 1024; j++) {
+				words[j] = source.getLong(offset + 8 * j);
+			}
+			c = new BitmapContainer(words, card);
+		} else {
+			char[] runs = new char[2 * source.getChar(offset)];
+			for (int j = 0; j < runs.length; j++) {
+				runs[j] = source.getChar(offset + 2 + 2 * j);
+			}
+			c = new RunContainer(runs, runs.length / 2, card);
+		}
+
+		containers[i] = c;
+		return c;
+	}
+
+	private int find(char key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	// containers not yet decoded are decoded before containers move around
+	private void decodeAll() {
+		if (source != null) {
+			for (int i = 0; i < size; i++) {
+				container(i);
+			}
+			source = null;
+			offsets = null;
+		}
+	}
+
+	private void insert(int i, char key, Container c) {
+		decodeAll();
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * size);
+			containers = Arrays.copyOf(containers, 2 * size);
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i] = key;
+		containers[i] = c;
+		size++;
+	}
+
+	private void delete(int i) {
+		decodeAll();
+		System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+		System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+		containers[--size] = null;
+	}
+
+	private void append(char key, Container c) {
+		insert(size, key, c);
+	}
+
+	/**
+	 * Reads the ints of a set in order.
+	 */
+	public class Cursor {
+		private int i = -1;
+		private Container c;
+
+		// position within the container: index into an array or the runs, or the
+		// word of a bitmap and its remaining bits
+		private int j;
+		private int high;
+		private int runEnd;
+		private int next;
+		private long word;
+
+		protected Cursor() {
+			advance();
+		}
+
+		/**
+		 * Returns <code>true</code> if there are more ints.
+		 */
+		public boolean hasNext() {
+			return c != null;
+		}
+
+		/**
+		 * Returns the next int.
+		 */
+		public int next() {
+			if (c == null) {
+				throw new NoSuchElementException();
+			}
+
+			int value;
+			if (c instanceof ArrayContainer) {
+				ArrayContainer a = (ArrayContainer) c;
+				value = high | a.values[j++];
+				if (j == a.card) {
+					advance();
+				}
+			} else if (c instanceof BitmapContainer) {
+				value = high | (j << 6) | Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				nextWord();
+			} else {
+				RunContainer r = (RunContainer) c;
+				value = high | next;
+				if (next == runEnd) {
+					if (++j == r.numRuns) {
+						advance();
+					} else {
+						next = r.runs[2 * j];
+						runEnd = next + r.runs[2 * j + 1];
+					}
+				} else {
+					next++;
+				}
+			}
+			return value;
+		}
+
+		// moves to the first int of the next container
+		private void advance() {
+			if (++i == size) {
+				c = null;
+				return;
+			}
+
+			c = container(i);
+			high = keys[i] << 16;
+			j = 0;
+			if (c instanceof BitmapContainer) {
+				word = ((BitmapContainer) c).words[0];
+				nextWord();
+			} else if (c instanceof RunContainer) {
+				RunContainer r = (RunContainer) c;
+				next = r.runs[0];
+				runEnd = next + r.runs[1];
+			}
+		}
+
+		// skips to the next bitmap word with bits left
+		private void nextWord() {
+			long[] words = ((BitmapContainer) c).words;
+			while (word == 0) {
+				if (++j == words.length) {
+					advance();
+					return;
+				}
+				word = words[j];
+			}
+		}
+	}
+
+	// Operations on pairs of containers. Run containers are converted to one of
+	// the others first, which costs at most one pass over a bitmap.
+
+	private static Container and(Container x, Container y) {
+		x = x.unrun();
+		y = y.unrun();
+		if (x instanceof ArrayContainer) {
+			return y instanceof ArrayContainer ? ((ArrayContainer) x).and((ArrayContainer) y)
+					: ((ArrayContainer) x).and((BitmapContainer) y);
+		}
+		return y instanceof ArrayContainer ? ((ArrayContainer) y).and((BitmapContainer) x)
+				: ((BitmapContainer) x).and((BitmapContainer) y);
+	}
+
+	private static int andCardinality(Container x, Container y) {
+		x = x.unrun();
+		y = y.unrun();
+		if (x instanceof BitmapContainer && y instanceof BitmapContainer) {
+			long[] a = ((BitmapContainer) x).words;
+			long[] b = ((BitmapContainer) y).words;
+			int card = 0;
+			for (int k = 0; k < a.length; k++) {
+				card += Long.bitCount(a[k] & b[k]);
+			}
+			return card;
+		}
+		return and(x, y).cardinality();
+	}
+
+	private static Container or(Container x, Container y) {
+		x = x.unrun();
+		y = y.unrun();
+		if (x instanceof ArrayContainer) {
+			return y instanceof ArrayContainer ? ((ArrayContainer) x).or((ArrayContainer) y)
+					: ((BitmapContainer) y).or((ArrayContainer) x);
+		}
+		return y instanceof ArrayContainer ? ((BitmapContainer) x).or((ArrayContainer) y)
+				: ((BitmapContainer) x).or((BitmapContainer) y);
+	}
+
+	private static Container andNot(Container x, Container y) {
+		x = x.unrun();
+		y = y.unrun();
+		if (x instanceof ArrayContainer) {
+			return y instanceof ArrayContainer ? ((ArrayContainer) x).andNot((ArrayContainer) y)
+					: ((ArrayContainer) x).andNot((BitmapContainer) y);
+		}
+		return y instanceof ArrayContainer ? ((BitmapContainer) x).andNot((ArrayContainer) y)
+				: ((BitmapContainer) x).andNot((BitmapContainer) y);
+	}
+
+	/**
+	 * Set of the low 16 bits of the ints of a chunk. Operations that may
+	 * change the kind of container return the container to use from then on.
+	 */
+	protected abstract static class Container {
+		abstract byte type();
+
+		abstract int cardinality();
+
+		abstract boolean contains(char x);
+
+		abstract Container add(char x);
+
+		abstract Container remove(char x);
+
+		// writes the values, or'ed with the high bits, and returns the position
+		// after them
+		abstract int toArray(int[] out, int pos, int high);
+
+		// number of bytes when serialized
+		abstract int bytes();
+
+		abstract void write(DataOutput out) throws IOException;
+
+		abstract int numRuns();
+
+		// this container, as an array or bitmap container
+		Container unrun() {
+			return this;
+		}
+
+		// the smallest of the three representations
+		Container optimize() {
+			Container c = unrun();
+			int card = c.cardinality();
+			int runs = c.numRuns();
+			int runBytes = 2 + 4 * runs;
+
+			if (runBytes < Math.min(card <= ARRAY_MAX ? 2 * card : Integer.MAX_VALUE, 8192)) {
+				return this instanceof RunContainer ? this : RunContainer.of(c, runs);
+			}
+			return c instanceof BitmapContainer ? ((BitmapContainer) c).normalize() : c;
+		}
+
+		@Override
+		public abstract Container clone();
+	}
+
+	private static final class ArrayContainer extends Container {
+		char[] values;
+		int card;
+
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+		ArrayContainer(char[] values, int card) {
+			this.values = values;
+			this.card = card;
+		}
+
+		@Override
+		byte type() {
+			return ARRAY;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(char x) {
+			return Arrays.binarySearch(values, 0, card, x) >= 0;
+		}
+
+		@Override
+		Container add(char x) {
+			int i = Arrays.binarySearch(values, 0, card, x);
+			if (i >= 0) {
+				return this;
+			}
+			if (card == ARRAY_MAX) {
+				return toBitmap().add(x);
+			}
+
+			i = -i - 1;
+			if (card == values.length) {
+				values = Arrays.copyOf(values, Math.min(Math.max(2 * card, 4), ARRAY_MAX));
+			}
+			System.arraycopy(values, i, values, i + 1, card - i);
+			values[i] = x;
+			card++;
+			return this;
+		}
+
+		@Override
+		Container remove(char x) {
+			int i = Arrays.binarySearch(values, 0, card, x);
+			if (i >= 0) {
+				System.arraycopy(values, i + 1, values, i, card - i - 1);
+				card--;
+			}
+			return this;
+		}
+
+		@Override
+		int toArray(int[] out, int pos, int high) {
+			for (int i = 0; i < card; i++) {
+				out[pos++] = high | values[i];
+			}
+			return pos;
+		}
+
+		@Override
+		int bytes() {
+			return 2 * card;
+		}
+
+		@Override
+		void write(DataOutput out) throws IOException {
+			for (int i = 0; i < card; i++) {
+				out.writeChar(values[i]);
+			}
+		}
+
+		@Override
+		int numRuns() {
+			int runs = card > 0 ? 1 : 0;
+			for (int i = 1; i < card; i++) {
+				if (values[i] != values[i - 1] + 1) {
+					runs++;
+				}
+			}
+			return runs;
+		}
+
+		BitmapContainer toBitmap() {
+			long[] words = new long[1024];
+			for (int i = 0; i < card; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return new BitmapContainer(words, card);
+		}
+
+		ArrayContainer and(ArrayContainer that) {
+			char[] out = new char[Math.min(card, that.card)];
+			int i = 0;
+			int j = 0;
+			int k = 0;
+			while (i < card && j < that.card) {
+				char x = values[i];
+				char y = that.values[j];
+				if (x < y) {
+					i++;
+				} else if (x > y) {
+					j++;
+				} else {
+					out[k++] = x;
+					i++;
+					j++;
+				}
+			}
+			return new ArrayContainer(out, k);
+		}
+
+		ArrayContainer and(BitmapContainer that) {
+			char[] out = new char[card];
+			int k = 0;
+			for (int i = 0; i < card; i++) {
+				if (that.contains(values[i])) {
+					out[k++] = values[i];
+				}
+			}
+			return new ArrayContainer(out, k);
+		}
+
+		Container or(ArrayContainer that) {
+			if (card + that.card > ARRAY_MAX) {
+				return toBitmap().or(that).normalize();
+			}
+
+			char[] out = new char[card + that.card];
+			int i = 0;
+			int j = 0;
+			int k = 0;
+			while (i < card && j < that.card) {
+				char x = values[i];
+				char y = that.values[j];
+				if (x < y) {
+					out[k++] = x;
+					i++;
+				} else if (x > y) {
+					out[k++] = y;
+					j++;
+				} else {
+					out[k++] = x;
+					i++;
+					j++;
+				}
+			}
+			System.arraycopy(values, i, out, k, card - i);
+			k += card - i;
+			System.arraycopy(that.values, j, out, k, that.card - j);
+			k += that.card - j;
+			return new ArrayContainer(out, k);
+		}
+
+		ArrayContainer andNot(ArrayContainer that) {
+			char[] out = new char[card];
+			int j = 0;
+			int k = 0;
+			for (int i = 0; i < card; i++) {
+				char x = values[i];
+				while (j < that.card && that.values[j] < x) {
+					j++;
+				}
+				if (j == that.card || that.values[j] != x) {
+					out[k++] = x;
+				}
+			}
+			return new ArrayContainer(out, k);
+		}
+
+		ArrayContainer andNot(BitmapContainer that) {
+			char[] out = new char[card];
+			int k = 0;
+			for (int i = 0; i < card; i++) {
+				if (!that.contains(values[i])) {
+					out[k++] = values[i];
+				}
+			}
+			return new ArrayContainer(out, k);
+		}
+
+		@Override
+		public ArrayContainer clone() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(card, 1)), card);
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+		final long[] words;
+		int card;
+
+		BitmapContainer(long[] words, int card) {
+			this.words = words;
+			this.card = card;
+		}
+
+		@Override
+		byte type() {
+			return BITMAP;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(char x) {
+			return (words[x >>> 6] & (1L << x)) != 0;
+		}
+
+		@Override
+		Container add(char x) {
+			long w = words[x >>> 6];
+			long bit = 1L << x;
+			if ((w & bit) == 0) {
+				words[x >>> 6] = w | bit;
+				card++;
+			}
+			return this;
+		}
+
+		@Override
+		Container remove(char x) {
+			long w = words[x >>> 6];
+			long bit = 1L << x;
+			if ((w & bit) != 0) {
+				words[x >>> 6] = w & ~bit;
+				card--;
+				if (card <= ARRAY_MAX / 2) {
+					return toArrayContainer();
+				}
+			}
+			return this;
+		}
+
+		@Override
+		int toArray(int[] out, int pos, int high) {
+			for (int k = 0; k < words.length; k++) {
+				long w = words[k];
+				while (w != 0) {
+					out[pos++] = high | (k << 6) | Long.numberOfTrailingZeros(w);
+					w &= w - 1;
+				}
+			}
+			return pos;
+		}
+
+		@Override
+		int bytes() {
+			return 8192;
+		}
+
+		@Override
+		void write(DataOutput out) throws IOException {
+			for (int k = 0; k < words.length; k++) {
+				out.writeLong(words[k]);
+			}
+		}
+
+		@Override
+		int numRuns() {
+			// a run starts at every set bit whose preceding bit isn't set
+			int runs = 0;
+			long prev = 0;
+			for (int k = 0; k < words.length; k++) {
+				long w = words[k];
+				runs += Long.bitCount(w & ~((w << 1) | (prev >>> 63)));
+				prev = w;
+			}
+			return runs;
+		}
+
+		ArrayContainer toArrayContainer() {
+			char[] values = new char[Math.max(card, 1)];
+			int k = 0;
+			for (int i = 0; i < words.length; i++) {
+				long w = words[i];
+				while (w != 0) {
+					values[k++] = (char) ((i << 6) | Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+			return new ArrayContainer(values, card);
+		}
+
+		// the container to use for a result of this cardinality
+		private Container normalize() {
+			return card <= ARRAY_MAX ? toArrayContainer() : this;
+		}
+
+		Container and(BitmapContainer that) {
+			long[] out = new long[1024];
+			int c = 0;
+			for (int k = 0; k < out.length; k++) {
+				out[k] = words[k] & that.words[k];
+				c += Long.bitCount(out[k]);
+			}
+			return new BitmapContainer(out, c).normalize();
+		}
+
+		Container or(BitmapContainer that) {
+			long[] out = new long[1024];
+			int c = 0;
+			for (int k = 0; k < out.length; k++) {
+				out[k] = words[k] | that.words[k];
+				c += Long.bitCount(out[k]);
+			}
+			return new BitmapContainer(out, c);
+		}
+
+		BitmapContainer or(ArrayContainer that) {
+			BitmapContainer out = clone();
+			for (int i = 0; i < that.card; i++) {
+				out.add(that.values[i]);
+			}
+			return out;
+		}
+
+		Container andNot(BitmapContainer that) {
+			long[] out = new long[1024];
+			int c = 0;
+			for (int k = 0; k < out.length; k++) {
+				out[k] = words[k] & ~that.words[k];
+				c += Long.bitCount(out[k]);
+			}
+			return new BitmapContainer(out, c).normalize();
+		}
+
+		Container andNot(ArrayContainer that) {
+			BitmapContainer out = clone();
+			for (int i = 0; i < that.card; i++) {
+				char x = that.values[i];
+				long bit = 1L << x;
+				if ((out.words[x >>> 6] & bit) != 0) {
+					out.words[x >>> 6] &= ~bit;
+					out.card--;
+				}
+			}
+			return out.normalize();
+		}
+
+		@Override
+		public BitmapContainer clone() {
+			return new BitmapContainer(words.clone(), card);
+		}
+	}
+
+	private static final class RunContainer extends Container {
+		// start and length minus one of each run
+		final char[] runs;
+		final int numRuns;
+		final int card;
+
+		RunContainer(char[] runs, int numRuns, int card) {
+			this.runs = runs;
+			this.numRuns = numRuns;
+			this.card = card;
+		}
+
+		static RunContainer of(Container c, int numRuns) {
+			char[] runs = new char[2 * numRuns];
+			int[] values = new int[c.cardinality()];
+			c.toArray(values, 0, 0);
+
+			int r = -1;
+			for (int i = 0; i < values.length; i++) {
+				if (i == 0 || values[i] != values[i - 1] + 1) {
+					r++;
+					runs[2 * r] = (char) values[i];
+				} else {
+					runs[2 * r + 1]++;
+				}
+			}
+			return new RunContainer(runs, numRuns, values.length);
+		}
+
+		@Override
+		byte type() {
+			return RUN;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(char x) {
+			// last run starting at or before x
+			int lo = 0;
+			int hi = numRuns - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (runs[2 * mid] <= x) {
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			return hi >= 0 && x - runs[2 * hi] <= runs[2 * hi + 1];
+		}
+
+		@Override
+		Container add(char x) {
+			return contains(x) ? this : unrun().add(x);
+		}
+
+		@Override
+		Container remove(char x) {
+			return contains(x) ? unrun().remove(x) : this;
+		}
+
+		@Override
+		int toArray(int[] out, int pos, int high) {
+			for (int r = 0; r < numRuns; r++) {
+				int start = runs[2 * r];
+				int end = start + runs[2 * r + 1];
+				for (int v = start; v <= end; v++) {
+					out[pos++] = high | v;
+				}
+			}
+			return pos;
+		}
+
+		@Override
+		int bytes() {
+			return 2 + 4 * numRuns;
+		}
+
+		@Override
+		void write(DataOutput out) throws IOException {
+			out.writeChar(numRuns);
+			for (int i = 0; i < 2 * numRuns; i++) {
+				out.writeChar(runs[i]);
+			}
+		}
+
+		@Override
+		int numRuns() {
+			return numRuns;
+		}
+
+		@Override
+		Container unrun() {
+			if (card <= ARRAY_MAX) {
+				char[] values = new char[Math.max(card, 1)];
+				int k = 0;
+				for (int r = 0; r < numRuns; r++) {
+					int start = runs[2 * r];
+					int end = start + runs[2 * r + 1];
+					for (int v = start; v <= end; v++) {
+						values[k++] = (char) v;
+					}
+				}
+				return new ArrayContainer(values, card);
+			}
+
+			long[] words = new long[1024];
+			for (int r = 0; r < numRuns; r++) {
+				int start = runs[2 * r];
+				int end = start + runs[2 * r + 1];
+				setRange(words, start, end + 1);
+			}
+			return new BitmapContainer(words, card);
+		}
+
+		// sets bits [from, to)
+		private static void setRange(long[] words, int from, int to) {
+			int first = from >>> 6;
+			int last = (to - 1) >>> 6;
+			long firstMask = -1L << from;
+			long lastMask = -1L >>> -to;
+			if (first == last) {
+				words[first] |= firstMask & lastMask;
+				return;
+			}
+			words[first] |= firstMask;
+			for (int k = first + 1; k < last; k++) {
+				words[k] = -1L;
+			}
+			words[last] |= lastMask;
+		}
+
+		@Override
+		public RunContainer clone() {
+			return new RunContainer(runs.clone(), numRuns, card);
+		}
+	}
+}
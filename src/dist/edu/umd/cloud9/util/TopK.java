@@ -0,0 +1,200 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Selects the first <i>k</i> of a stream of elements under some ordering,
+ * without sorting (or even holding on to) the whole stream. The selected
+ * elements are kept in a bounded heap whose root is the last of them, so
+ * offering an element takes O(log <i>k</i>) time, and O(1) time if the element
+ * doesn't make the cut. Selecting from <i>N</i> elements therefore takes
+ * O(<i>N</i> log <i>k</i>) time and O(<i>k</i>) memory.
+ * </p>
+ *
+ * <p>
+ * The ordering is that of the sorted result: for the entries with the
+ * highest values, pass a comparator that sorts by descending value. For the
+ * result to be the same as the first <i>k</i> elements of a full sort, ties
+ * should be broken by the comparator, e.g., by key.
+ * </p>
+ *
+ * <p>
+ * {@link #offer(Object)} hands back the element that did not make (or
+ * dropped out of) the selection, so that callers materializing elements from
+ * primitives can reuse the object instead of allocating one per element.
+ * </p>
+ *
+ * @param <E>
+ *            type of elements
+ */
+public class TopK<E> {
+	private final Object[] heap;
+	private final Comparator<? super E> comparator;
+	private int size = 0;
+
+	/**
+	 * Creates a selection of the first <i>k</i> elements under an ordering.
+	 *
+	 * @param k
+	 *            number of elements to select
+	 * @param comparator
+	 *            the ordering
+	 */
+	public TopK(int k, Comparator<? super E> comparator) {
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal k: " + k);
+
+		this.heap = new Object[k];
+		this.comparator = comparator;
+	}
+
+	/**
+	 * Offers an element to the selection.
+	 *
+	 * @param e
+	 *            the element
+	 * @return the element that is no longer part of the selection: either
+	 *         <code>e</code> itself, the element it displaced, or
+	 *         <code>null</code> if the selection wasn't full yet
+	 */
+	public E offer(E e) {
+		if (size < heap.length) {
+			heap[size] = e;
+			siftUp(size++);
+			return null;
+		}
+
+		if (size == 0 || comparator.compare(e, get(0)) >= 0)
+			return e;
+
+		E evicted = get(0);
+		heap[0] = e;
+		siftDown(0);
+		return evicted;
+	}
+
+	/**
+	 * Returns <code>true</code> if an element offered now would be selected.
+	 * This is useful to avoid materializing elements that won't make the cut.
+	 *
+	 * @param e
+	 *            the element
+	 * @return <code>true</code> if the element would be selected
+	 */
+	public boolean accepts(E e) {
+		return size < heap.length || (size > 0 && comparator.compare(e, get(0)) < 0);
+	}
+
+	/**
+	 * Returns the number of selected elements.
+	 *
+	 * @return number of selected elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the selected elements, sorted, in a newly-created array. The
+	 * selection is emptied.
+	 *
+	 * @param a
+	 *            array of length zero, or at least the number of selected
+	 *            elements, for the runtime type of the result
+	 * @return the selected elements, sorted
+	 */
+	@SuppressWarnings("unchecked")
+	public E[] toSortedArray(E[] a) {
+		E[] result = a.length >= size ? a : (E[]) java.lang.reflect.Array.newInstance(a
+				.getClass().getComponentType(), size);
+
+		for (int i = size - 1; i >= 0; i--) {
+			result[i] = poll();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the selected elements, sorted, in a newly-created list. The
+	 * selection is emptied.
+	 *
+	 * @return the selected elements, sorted
+	 */
+	@SuppressWarnings("unchecked")
+	public List<E> toSortedList() {
+		Object[] sorted = new Object[size];
+		for (int i = size - 1; i >= 0; i--) {
+			sorted[i] = poll();
+		}
+
+		return new ArrayList<E>((List<E>) Arrays.asList(sorted));
+	}
+
+	/**
+	 * Removes and returns the last of the selected elements.
+	 */
+	private E poll() {
+		E last = get(0);
+		heap[0] = heap[--size];
+		heap[size] = null;
+		siftDown(0);
+		return last;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E get(int i) {
+		return (E) heap[i];
+	}
+
+	// The heap is ordered so that every element comes after its children.
+	private void siftUp(int i) {
+		E e = get(i);
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (comparator.compare(e, get(parent)) <= 0)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = e;
+	}
+
+	private void siftDown(int i) {
+		if (size == 0)
+			return;
+
+		E e = get(i);
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && comparator.compare(get(child + 1), get(child)) > 0) {
+				child++;
+			}
+			if (comparator.compare(e, get(child)) >= 0)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = e;
+	}
+}
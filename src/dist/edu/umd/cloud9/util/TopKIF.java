@@ -0,0 +1,159 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+/**
+ * <p>
+ * Selects the <i>k</i> (int id, float score) pairs with the highest scores
+ * from a stream, e.g., the nodes with the highest PageRank, without creating
+ * an object per pair. This is the primitive counterpart of {@link TopK}: the
+ * selected pairs are kept in a bounded heap in parallel arrays whose root is
+ * the last of them, so offering a pair takes O(log <i>k</i>) time, and O(1)
+ * time if it doesn't make the cut.
+ * </p>
+ *
+ * <p>
+ * Pairs are ordered by descending score, and ties by ascending id, so the
+ * result is the same as the first <i>k</i> pairs of a full sort regardless of
+ * the order in which pairs are offered.
+ * </p>
+ */
+public class TopKIF {
+	private final int[] ids;
+	private final float[] scores;
+	private int size = 0;
+
+	/**
+	 * Creates a selection of the <i>k</i> pairs with the highest scores.
+	 *
+	 * @param k
+	 *            number of pairs to select
+	 */
+	public TopKIF(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal k: " + k);
+
+		ids = new int[k];
+		scores = new float[k];
+	}
+
+	/**
+	 * Offers a pair to the selection.
+	 *
+	 * @param id
+	 *            the id
+	 * @param score
+	 *            its score
+	 * @return <code>true</code> if the pair was selected, possibly displacing
+	 *         another one
+	 */
+	public boolean offer(int id, float score) {
+		if (size < ids.length) {
+			ids[size] = id;
+			scores[size] = score;
+			siftUp(size++);
+			return true;
+		}
+
+		if (!accepts(id, score))
+			return false;
+
+		ids[0] = id;
+		scores[0] = score;
+		siftDown(0);
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if a pair offered now would be selected.
+	 */
+	public boolean accepts(int id, float score) {
+		return size < ids.length || (size > 0 && after(ids[0], scores[0], id, score));
+	}
+
+	/**
+	 * Returns the number of selected pairs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Copies the selected pairs into two arrays, in order of descending score,
+	 * and empties the selection.
+	 *
+	 * @param outIds
+	 *            array for the ids, at least as long as the number of pairs
+	 * @param outScores
+	 *            array for the scores, at least as long as the number of pairs
+	 * @return number of pairs
+	 */
+	public int drain(int[] outIds, float[] outScores) {
+		int n = size;
+		for (int i = n - 1; i >= 0; i--) {
+			outIds[i] = ids[0];
+			outScores[i] = scores[0];
+			ids[0] = ids[--size];
+			scores[0] = scores[size];
+			siftDown(0);
+		}
+		return n;
+	}
+
+	// whether pair (id1, s1) comes after pair (id2, s2)
+	private static boolean after(int id1, float s1, int id2, float s2) {
+		return s1 < s2 || (s1 == s2 && id1 > id2);
+	}
+
+	// The heap is ordered so that every pair comes after its children.
+	private void siftUp(int i) {
+		int id = ids[i];
+		float s = scores[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!after(id, s, ids[parent], scores[parent]))
+				break;
+			ids[i] = ids[parent];
+			scores[i] = scores[parent];
+			i = parent;
+		}
+		ids[i] = id;
+		scores[i] = s;
+	}
+
+	private void siftDown(int i) {
+		if (size == 0)
+			return;
+
+		int id = ids[i];
+		float s = scores[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && after(ids[child + 1], scores[child + 1], ids[child], scores[child])) {
+				child++;
+			}
+			if (!after(ids[child], scores[child], id, s))
+				break;
+			ids[i] = ids[child];
+			scores[i] = scores[child];
+			i = child;
+		}
+		ids[i] = id;
+		scores[i] = s;
+	}
+}
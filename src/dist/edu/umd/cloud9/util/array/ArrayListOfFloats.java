@@ -241,6 +241,38 @@ public class ArrayListOfFloats implements RandomAccess, Cloneable, Iterable<Floa
 		array = new float[INITIAL_CAPACITY_DEFAULT];
 	}
 
+	/**
+	 * Sorts this list in ascending order.
+	 */
+	public void sort() {
+		sort(1);
+	}
+
+	/**
+	 * Sorts this list in ascending order, using a number of threads.
+	 *
+	 * @param numThreads number of threads to use
+	 * @see ParallelSort
+	 */
+	public void sort(int numThreads) {
+		ParallelSort.sort(array, 0, size, numThreads);
+	}
+
+	/**
+	 * Sorts this list in ascending order, and moves the elements of another
+	 * list of the same size at the same positions along with them, e.g., to
+	 * order ids by their scores. The sort is stable.
+	 *
+	 * @param values list whose elements are moved along with this one's
+	 * @param numThreads number of threads to use
+	 */
+	public void sort(ArrayListOfInts values, int numThreads) {
+		if (values.size() != size) {
+			throw new IllegalArgumentException("Sizes differ: " + size + " and " + values.size());
+		}
+		ParallelSort.sortByKey(array, values.getArray(), 0, size, numThreads);
+	}
+
 	/**
 	 * Returns the array backing this object. Note that this array may be longer
 	 * than the number of elements in the list.
@@ -242,6 +242,13 @@ public class ArrayListOfShorts implements RandomAccess, Cloneable, Iterable<Shor
 		array = new short[INITIAL_CAPACITY_DEFAULT];
 	}
 
+	/**
+	 * Sorts this list in ascending order.
+	 */
+	public void sort() {
+		Arrays.sort(array, 0, size);
+	}
+
 	/**
 	 * Returns the array backing this object. Note that this array may be longer
 	 * than the number of elements in the list.
@@ -0,0 +1,379 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Object representing a sequence of ints in compressed form, for adjacency
+ * lists, postings, and other lists of ids that are stored or shuffled in bulk
+ * rather than modified. Values are compressed in blocks of
+ * {@link #BLOCK_SIZE}, each with one of two codecs: {@link Codec#VBYTE}, which
+ * takes one byte for values under 128, or {@link Codec#PFOR}, which packs a
+ * block into as few bits per value as fit most of its values.
+ * </p>
+ *
+ * <p>
+ * A sorted sequence (non-decreasing, as signed ints) is gap-coded: a value is
+ * stored as its difference from the previous one, so dense sequences of ids
+ * take a byte or less per value regardless of the magnitude of the ids. The
+ * last value of every block is kept in memory, which lets a
+ * {@link Cursor} skip over blocks without decoding them. An unsorted sequence
+ * is stored as is; small non-negative values compress best.
+ * </p>
+ *
+ * <p>
+ * Values are read back sequentially through a {@link Cursor}, which decodes
+ * one block at a time, or with {@link #get(int)}, which decodes the block of
+ * the value.
+ * </p>
+ */
+public class CompressedArrayOfInts {
+
+	/**
+	 * Number of values in a block.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Block codecs.
+	 */
+	public static enum Codec {
+		/**
+		 * Variable-byte coding: seven bits per byte.
+		 */
+		VBYTE,
+
+		/**
+		 * Bit-packed frames with exceptions.
+		 */
+		PFOR
+	}
+
+	protected int size;
+	protected boolean sorted;
+	protected Codec codec;
+
+	// compressed blocks, and the offset of each block in them
+	protected byte[] bytes;
+	protected int length;
+	protected int[] offsets;
+
+	// last value of each block, if sorted
+	protected int[] lasts;
+
+	/**
+	 * Constructs an empty sequence, e.g., to read into.
+	 */
+	protected CompressedArrayOfInts() {
+		this(new int[0], 0, false, Codec.VBYTE);
+	}
+
+	/**
+	 * Compresses a list of ints.
+	 *
+	 * @param list
+	 *            the ints
+	 * @param sorted
+	 *            whether to gap-code the values, which must be in
+	 *            non-decreasing order
+	 * @param codec
+	 *            block codec
+	 */
+	public CompressedArrayOfInts(ArrayListOfInts list, boolean sorted, Codec codec) {
+		this(list.getArray(), list.size(), sorted, codec);
+	}
+
+	/**
+	 * Compresses an array of ints.
+	 *
+	 * @param values
+	 *            the ints
+	 * @param sorted
+	 *            whether to gap-code the values, which must be in
+	 *            non-decreasing order
+	 * @param codec
+	 *            block codec
+	 */
+	public CompressedArrayOfInts(int[] values, boolean sorted, Codec codec) {
+		this(values, values.length, sorted, codec);
+	}
+
+	/**
+	 * Compresses the first <code>n</code> ints of an array.
+	 *
+	 * @param values
+	 *            the ints
+	 * @param n
+	 *            number of ints
+	 * @param sorted
+	 *            whether to gap-code the values, which must be in
+	 *            non-decreasing order
+	 * @param codec
+	 *            block codec
+	 */
+	public CompressedArrayOfInts(int[] values, int n, boolean sorted, Codec codec) {
+		Preconditions.checkNotNull(values);
+		Preconditions.checkNotNull(codec);
+		Preconditions.checkArgument(n >= 0 && n <= values.length, "Illegal size: " + n);
+
+		this.size = n;
+		this.sorted = sorted;
+		this.codec = codec;
+
+		int numBlocks = numBlocks(n);
+		offsets = new int[numBlocks];
+		lasts = sorted ? new int[numBlocks] : null;
+		bytes = new byte[Math.max(16, n + n / 2)];
+		length = 0;
+
+		int[] block = new int[BLOCK_SIZE];
+		int prev = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			int start = b * BLOCK_SIZE;
+			int blockSize = Math.min(BLOCK_SIZE, n - start);
+
+			for (int i = 0; i < blockSize; i++) {
+				int v = values[start + i];
+				if (sorted) {
+					if (start + i > 0 && v < prev) {
+						throw new IllegalArgumentException("Values not sorted at index " + (start + i)
+								+ ": " + v + " < " + prev);
+					}
+					block[i] = v - prev;
+					prev = v;
+				} else {
+					block[i] = v;
+				}
+			}
+			if (sorted) {
+				lasts[b] = prev;
+			}
+
+			// worst case for either codec
+			ensureCapacity(length + 5 * blockSize + 2);
+			offsets[b] = length;
+			length = encode(codec, block, blockSize, bytes, length);
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(minCapacity, bytes.length + (bytes.length >> 1)));
+		}
+	}
+
+	protected static int numBlocks(int n) {
+		return (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+	}
+
+	protected static int encode(Codec codec, int[] block, int n, byte[] out, int pos) {
+		return codec == Codec.VBYTE ? VByte.encode(block, n, out, pos) : PFor.encode(block, n, out,
+				pos);
+	}
+
+	protected static int decode(Codec codec, byte[] in, int pos, int[] block, int n) {
+		return codec == Codec.VBYTE ? VByte.decode(in, pos, block, n) : PFor.decode(in, pos, block,
+				n);
+	}
+
+	/**
+	 * Returns the number of values.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if there are no values.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if the values are sorted and gap-coded.
+	 */
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	/**
+	 * Returns the block codec.
+	 */
+	public Codec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Returns the number of bytes the compressed values take, not counting the
+	 * offsets and last values of blocks, which take eight bytes per block in
+	 * memory and a few in serialized form.
+	 */
+	public int getCompressedSize() {
+		return length;
+	}
+
+	/**
+	 * Returns the value at a position. This decodes the block of the value; use
+	 * a {@link Cursor} to read values in order.
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+
+		int b = index / BLOCK_SIZE;
+		int[] block = new int[BLOCK_SIZE];
+		decodeBlock(b, block);
+		return block[index % BLOCK_SIZE];
+	}
+
+	/**
+	 * Decodes all values into a new array.
+	 */
+	public int[] toArray() {
+		int[] values = new int[size];
+		int[] block = new int[BLOCK_SIZE];
+		for (int b = 0; b < offsets.length; b++) {
+			int n = decodeBlock(b, block);
+			System.arraycopy(block, 0, values, b * BLOCK_SIZE, n);
+		}
+		return values;
+	}
+
+	/**
+	 * Decodes all values into a new {@link ArrayListOfInts}.
+	 */
+	public ArrayListOfInts toArrayListOfInts() {
+		return new ArrayListOfInts(toArray());
+	}
+
+	/**
+	 * Returns a cursor positioned before the first value.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	// decodes the values of a block, and returns their number
+	private int decodeBlock(int b, int[] block) {
+		int n = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE);
+		decode(codec, bytes, offsets[b], block, n);
+
+		if (sorted) {
+			int v = b == 0 ? 0 : lasts[b - 1];
+			for (int i = 0; i < n; i++) {
+				v += block[i];
+				block[i] = v;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	/**
+	 * Reads values in order, decoding one block at a time.
+	 */
+	public class Cursor {
+		private final int[] block = new int[BLOCK_SIZE];
+		private int b = -1;
+		private int n = 0;
+		private int i = 0;
+
+		protected Cursor() {
+		}
+
+		/**
+		 * Returns <code>true</code> if there are more values.
+		 */
+		public boolean hasNext() {
+			return i < n || b + 1 < offsets.length;
+		}
+
+		/**
+		 * Returns the next value.
+		 */
+		public int next() {
+			if (i == n) {
+				if (b + 1 == offsets.length) {
+					throw new NoSuchElementException();
+				}
+				load(b + 1);
+			}
+			return block[i++];
+		}
+
+		/**
+		 * Advances to the first value that is greater than or equal to
+		 * <code>target</code>, so that it is returned by the next call to
+		 * {@link #next()}. Blocks whose values are all smaller are skipped
+		 * without being decoded. The cursor never moves backwards. Only
+		 * supported by sorted sequences.
+		 *
+		 * @param target
+		 *            the value to skip to
+		 * @return <code>true</code> if there is such a value,
+		 *         <code>false</code> if the cursor reached the end
+		 */
+		public boolean skipTo(int target) {
+			if (!sorted) {
+				throw new UnsupportedOperationException("Sequence isn't sorted!");
+			}
+
+			if (i == n || block[n - 1] < target) {
+				// first block at or after the next one whose last value is large enough
+				int lo = b + 1;
+				int hi = offsets.length;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (lasts[mid] < target) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+
+				if (lo == offsets.length) {
+					b = offsets.length - 1;
+					i = n = 0;
+					return false;
+				}
+				load(lo);
+			}
+
+			while (block[i] < target) {
+				i++;
+			}
+			return true;
+		}
+
+		private void load(int block) {
+			b = block;
+			n = decodeBlock(block, this.block);
+			i = 0;
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Fixed-length array of doubles that lives outside of the Java heap, with
+ * 64-bit indexes, for vectors indexed by node id (e.g., PageRank scores) that
+ * are too large for a <code>double[]</code> or too slow to load onto the heap.
+ * The array is either memory-mapped from a file, which persists it and makes
+ * reopening it instant, since pages are only read from disk as they are
+ * touched, or held in direct buffers.
+ * </p>
+ *
+ * <p>
+ * Reads and writes of single elements may be made from several threads at
+ * once, as long as no two threads write the same element. Arrays should be
+ * closed when no longer needed.
+ * </p>
+ */
+public class MappedArrayOfDoubles implements Closeable {
+	private static final char TYPE = 'D';
+
+	private final MappedSegments store;
+	private final DoubleBuffer[] segments;
+	private final int shift;
+	private final int mask;
+
+	private MappedArrayOfDoubles(MappedSegments store) {
+		this.store = store;
+		this.shift = store.shift;
+		this.mask = (1 << shift) - 1;
+
+		segments = new DoubleBuffer[store.segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = store.segments[i].asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Creates a file holding an array of zeros, replacing any existing file,
+	 * and maps it.
+	 *
+	 * @param file
+	 *            the file
+	 * @param size
+	 *            number of elements
+	 */
+	public static MappedArrayOfDoubles create(File file, long size) throws IOException {
+		return create(file, size, MappedSegments.DEFAULT_SHIFT);
+	}
+
+	static MappedArrayOfDoubles create(File file, long size, int shift) throws IOException {
+		return new MappedArrayOfDoubles(MappedSegments.create(file, TYPE, 8, size, shift));
+	}
+
+	/**
+	 * Maps an array from a file created by {@link #create(File, long)}, for
+	 * reading and writing.
+	 */
+	public static MappedArrayOfDoubles open(File file) throws IOException {
+		return open(file, false);
+	}
+
+	/**
+	 * Maps an array from a file created by {@link #create(File, long)}.
+	 *
+	 * @param file
+	 *            the file
+	 * @param readOnly
+	 *            whether to map the file read-only, in which case writes
+	 *            throw {@link java.nio.ReadOnlyBufferException}
+	 */
+	public static MappedArrayOfDoubles open(File file, boolean readOnly) throws IOException {
+		return open(file, readOnly, MappedSegments.DEFAULT_SHIFT);
+	}
+
+	static MappedArrayOfDoubles open(File file, boolean readOnly, int shift) throws IOException {
+		return new MappedArrayOfDoubles(MappedSegments.open(file, TYPE, 8, readOnly, shift));
+	}
+
+	/**
+	 * Allocates an array of zeros in direct buffers, which isn't backed by a
+	 * file.
+	 *
+	 * @param size
+	 *            number of elements
+	 */
+	public static MappedArrayOfDoubles allocate(long size) {
+		return allocate(size, MappedSegments.DEFAULT_SHIFT);
+	}
+
+	static MappedArrayOfDoubles allocate(long size, int shift) {
+		return new MappedArrayOfDoubles(MappedSegments.allocate(8, size, shift));
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public long size() {
+		return store.size;
+	}
+
+	/**
+	 * Returns the element at the specified position.
+	 */
+	public double get(long index) {
+		if (index < 0 || index >= store.size) {
+			throw store.outOfBounds(index);
+		}
+		return segments[(int) (index >>> shift)].get((int) index & mask);
+	}
+
+	/**
+	 * Replaces the element at the specified position.
+	 */
+	public void set(long index, double value) {
+		if (index < 0 || index >= store.size) {
+			throw store.outOfBounds(index);
+		}
+		segments[(int) (index >>> shift)].put((int) index & mask, value);
+	}
+
+	/**
+	 * Adds to the element at the specified position, and returns the new value.
+	 */
+	public double increment(long index, double delta) {
+		if (index < 0 || index >= store.size) {
+			throw store.outOfBounds(index);
+		}
+		DoubleBuffer segment = segments[(int) (index >>> shift)];
+		int i = (int) index & mask;
+		double value = segment.get(i) + delta;
+		segment.put(i, value);
+		return value;
+	}
+
+	/**
+	 * Copies <code>len</code> elements, starting at position
+	 * <code>index</code>, into an array.
+	 */
+	public void get(long index, double[] dst, int off, int len) {
+		store.checkRange(index, len);
+		while (len > 0) {
+			// a copy of the buffer, so that concurrent reads don't share a position
+			DoubleBuffer segment = segments[(int) (index >>> shift)].duplicate();
+			int i = (int) index & mask;
+			int n = Math.min(len, segment.limit() - i);
+			segment.position(i);
+			segment.get(dst, off, n);
+
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Copies <code>len</code> elements of an array into this array, starting
+	 * at position <code>index</code>.
+	 */
+	public void set(long index, double[] src, int off, int len) {
+		store.checkRange(index, len);
+		while (len > 0) {
+			DoubleBuffer segment = segments[(int) (index >>> shift)].duplicate();
+			int i = (int) index & mask;
+			int n = Math.min(len, segment.limit() - i);
+			segment.position(i);
+			segment.put(src, off, n);
+
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Copies <code>len</code> elements, starting at position
+	 * <code>index</code>, into a new list.
+	 */
+	public ArrayListOfDoubles get(long index, int len) {
+		double[] a = new double[len];
+		get(index, a, 0, len);
+		return new ArrayListOfDoubles(a);
+	}
+
+	/**
+	 * Copies the elements of a list into this array, starting at position
+	 * <code>index</code>.
+	 */
+	public void set(long index, ArrayListOfDoubles list) {
+		set(index, list.getArray(), 0, list.size());
+	}
+
+	/**
+	 * Sets every element to a value.
+	 */
+	public void fill(double value) {
+		double[] buffer = new double[(int) Math.min(store.size, 1 << 16)];
+		Arrays.fill(buffer, value);
+		for (long i = 0; i < store.size; i += buffer.length) {
+			set(i, buffer, 0, (int) Math.min(buffer.length, store.size - i));
+		}
+	}
+
+	/**
+	 * Writes changes to disk, if the array is backed by a file.
+	 */
+	public void flush() {
+		store.flush();
+	}
+
+	/**
+	 * Closes the file backing this array, if any. Changes are written out by
+	 * the operating system in any case; call {@link #flush()} first to make
+	 * sure they are on disk.
+	 */
+	@Override
+	public void close() throws IOException {
+		store.close();
+	}
+}
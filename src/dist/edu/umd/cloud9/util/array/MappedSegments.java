@@ -0,0 +1,192 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Storage of a fixed-length array of primitives outside of the Java heap,
+ * either in a memory-mapped file or in direct {@link ByteBuffer}s, split into
+ * segments of 2<sup><i>shift</i></sup> elements so that the array can hold
+ * more than 2<sup>31</sup> bytes. Segmenting is a matter of how the array is
+ * mapped, not of the file format, so a file can be reopened with any shift.
+ * </p>
+ *
+ * <p>
+ * A file holds a sixteen-byte header, which is a magic number, the type of
+ * the elements, and their number, followed by the elements in big-endian
+ * order, as {@link java.io.DataOutput} writes them.
+ * </p>
+ */
+final class MappedSegments {
+	static final int DEFAULT_SHIFT = 27;
+	static final int HEADER_BYTES = 16;
+
+	private static final int MAGIC = 0x43394d41;
+
+	final long size;
+	final int shift;
+	final ByteBuffer[] segments;
+
+	private final int elementBytes;
+	private final RandomAccessFile raf;
+
+	private MappedSegments(long size, int elementBytes, int shift, RandomAccessFile raf,
+			boolean readOnly) throws IOException {
+		if (size < 0) {
+			throw new IllegalArgumentException("Illegal size: " + size);
+		}
+		if (((1L << shift) * elementBytes) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Illegal shift: " + shift);
+		}
+
+		this.size = size;
+		this.elementBytes = elementBytes;
+		this.shift = shift;
+		this.raf = raf;
+
+		int n = (int) ((size + (1L << shift) - 1) >>> shift);
+		segments = new ByteBuffer[n];
+
+		if (raf == null) {
+			for (int i = 0; i < n; i++) {
+				segments[i] = ByteBuffer.allocateDirect(segmentBytes(i));
+			}
+			return;
+		}
+
+		FileChannel channel = raf.getChannel();
+		FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY
+				: FileChannel.MapMode.READ_WRITE;
+		long offset = HEADER_BYTES;
+		for (int i = 0; i < n; i++) {
+			int bytes = segmentBytes(i);
+			segments[i] = channel.map(mode, offset, bytes);
+			offset += bytes;
+		}
+	}
+
+	private int segmentBytes(int i) {
+		long elements = Math.min(size - ((long) i << shift), 1L << shift);
+		return (int) (elements * elementBytes);
+	}
+
+	/**
+	 * Creates a file holding a zeroed array, replacing any existing file.
+	 */
+	static MappedSegments create(File file, char type, int elementBytes, long size, int shift)
+			throws IOException {
+		if (size < 0) {
+			throw new IllegalArgumentException("Illegal size: " + size);
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			// Extending the file leaves it sparse, so the elements read back as zero.
+			raf.setLength(0);
+			raf.setLength(HEADER_BYTES + size * elementBytes);
+			raf.writeInt(MAGIC);
+			raf.writeInt(type);
+			raf.writeLong(size);
+
+			return new MappedSegments(size, elementBytes, shift, raf, false);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Maps an array from a file created by {@link #create}.
+	 */
+	static MappedSegments open(File file, char type, int elementBytes, boolean readOnly, int shift)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+		try {
+			if (raf.length() < HEADER_BYTES || raf.readInt() != MAGIC) {
+				throw new IOException("Not an array file: " + file);
+			}
+			int t = raf.readInt();
+			if (t != type) {
+				throw new IOException("Array file " + file + " holds elements of type '" + (char) t
+						+ "', not '" + type + "'");
+			}
+			long size = raf.readLong();
+			if (size < 0 || raf.length() < HEADER_BYTES + size * elementBytes) {
+				throw new IOException("Array file " + file + " is truncated");
+			}
+
+			return new MappedSegments(size, elementBytes, shift, raf, readOnly);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Allocates a zeroed array in direct buffers.
+	 */
+	static MappedSegments allocate(int elementBytes, long size, int shift) {
+		try {
+			return new MappedSegments(size, elementBytes, shift, null, false);
+		} catch (IOException e) {
+			// not thrown without a file
+			throw new RuntimeException(e);
+		}
+	}
+
+	IndexOutOfBoundsException outOfBounds(long index) {
+		return new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	void checkRange(long index, int len) {
+		if (index < 0 || len < 0 || index + len > size) {
+			throw new IndexOutOfBoundsException("Range: [" + index + ", " + (index + len)
+					+ "), Size: " + size);
+		}
+	}
+
+	/**
+	 * Writes changes of a mapped file to disk.
+	 */
+	void flush() {
+		if (raf == null) {
+			return;
+		}
+		for (ByteBuffer segment : segments) {
+			if (!segment.isReadOnly()) {
+				((MappedByteBuffer) segment).force();
+			}
+		}
+	}
+
+	/**
+	 * Closes the file, if any. The mapping goes away once the buffers are
+	 * garbage collected.
+	 */
+	void close() throws IOException {
+		if (raf != null) {
+			raf.close();
+		}
+	}
+}
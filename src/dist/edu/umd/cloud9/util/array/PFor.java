@@ -0,0 +1,144 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+/**
+ * <p>
+ * Patched frame-of-reference coding of a block of at most 255 ints, taken as
+ * unsigned. Every value of the block is packed into the same number of bits
+ * <i>b</i>, and the values that don't fit in <i>b</i> bits are exceptions:
+ * their high bits are appended to the block along with their positions. The
+ * width is chosen per block to minimize its size, so a few large values, e.g.,
+ * big gaps in a list of ids, don't inflate the width of the whole block.
+ * </p>
+ *
+ * <p>
+ * A block is laid out as the width, the number of exceptions, the packed low
+ * bits of all values, and then for every exception its position and its high
+ * bits, in {@link VByte} coding.
+ * </p>
+ */
+final class PFor {
+
+	private PFor() {
+	}
+
+	/**
+	 * Returns the maximum number of bytes a block of <code>n</code> values
+	 * takes.
+	 */
+	static int maxLength(int n) {
+		return 2 + 4 * n;
+	}
+
+	/**
+	 * Encodes <code>n</code> values at position <code>pos</code>, and returns
+	 * the position after them.
+	 */
+	static int encode(int[] in, int n, byte[] out, int pos) {
+		// number of values that need exactly w bits
+		int[] widths = new int[33];
+		for (int i = 0; i < n; i++) {
+			widths[32 - Integer.numberOfLeadingZeros(in[i])]++;
+		}
+
+		// an exception costs a byte for its position, and its high bits
+		int b = 32;
+		long best = Long.MAX_VALUE;
+		for (int w = 32; w >= 0; w--) {
+			long cost = ((long) n * w + 7) / 8;
+			for (int x = w + 1; x <= 32; x++) {
+				cost += widths[x] * (1 + (x - w + 6) / 7);
+			}
+			if (cost <= best) {
+				best = cost;
+				b = w;
+			}
+		}
+
+		int exceptions = 0;
+		for (int w = b + 1; w <= 32; w++) {
+			exceptions += widths[w];
+		}
+
+		out[pos++] = (byte) b;
+		out[pos++] = (byte) exceptions;
+
+		// low bits, packed
+		long mask = (1L << b) - 1;
+		long buffer = 0;
+		int bits = 0;
+		for (int i = 0; i < n; i++) {
+			buffer |= (in[i] & mask) << bits;
+			bits += b;
+			while (bits >= 8) {
+				out[pos++] = (byte) buffer;
+				buffer >>>= 8;
+				bits -= 8;
+			}
+		}
+		if (bits > 0) {
+			out[pos++] = (byte) buffer;
+		}
+
+		if (exceptions > 0) {
+			for (int i = 0; i < n; i++) {
+				if (b < 32 && (in[i] >>> b) != 0) {
+					out[pos++] = (byte) i;
+					pos = VByte.write(in[i] >>> b, out, pos);
+				}
+			}
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Decodes <code>n</code> values from position <code>pos</code>, and returns
+	 * the position after them.
+	 */
+	static int decode(byte[] in, int pos, int[] out, int n) {
+		int b = in[pos++];
+		int exceptions = in[pos++] & 0xff;
+
+		int mask = (int) ((1L << b) - 1);
+		long buffer = 0;
+		int bits = 0;
+		for (int i = 0; i < n; i++) {
+			while (bits < b) {
+				buffer |= (in[pos++] & 0xffL) << bits;
+				bits += 8;
+			}
+			out[i] = (int) buffer & mask;
+			buffer >>>= b;
+			bits -= b;
+		}
+
+		for (int e = 0; e < exceptions; e++) {
+			int i = in[pos++] & 0xff;
+			int v = in[pos++];
+			int high = v & 0x7f;
+			for (int shift = 7; v < 0; shift += 7) {
+				v = in[pos++];
+				high |= (v & 0x7f) << shift;
+			}
+			out[i] |= high << b;
+		}
+
+		return pos;
+	}
+}
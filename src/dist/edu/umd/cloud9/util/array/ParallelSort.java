@@ -0,0 +1,547 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Parallel sorting of arrays of primitives, and co-sorting of an array of keys
+ * with a parallel array of int values, e.g., node ids by score. Arrays are
+ * sorted by LSD radix sort, one byte per pass: in each pass, every thread
+ * counts the digits of its share of the array, and then moves its share to
+ * the positions given by the counts of all threads, so that the sort is stable
+ * and threads never write to the same position. Passes on which all keys have
+ * the same digit, e.g., the high bytes of small ids, are skipped.
+ * </p>
+ *
+ * <p>
+ * Sorting takes a scratch copy of the range being sorted (and of the values,
+ * if any), but the result ends up in the arrays passed in. Floats and doubles
+ * are sorted in the order of {@link Arrays#sort(float[])}, with -0.0 before
+ * 0.0 and NaN last; NaNs are canonicalized.
+ * </p>
+ */
+public final class ParallelSort {
+
+	// below this many elements, sort on a single thread, and with Arrays.sort if
+	// there are no values
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+	private static final int BUCKETS = 256;
+
+	private ParallelSort() {
+	}
+
+	/**
+	 * Sorts a range of an array of ints.
+	 *
+	 * @param a
+	 *            the array
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sort(int[] a, int from, int to, int numThreads) {
+		checkRange(a.length, from, to, numThreads);
+		if (to - from < SEQUENTIAL_THRESHOLD) {
+			Arrays.sort(a, from, to);
+			return;
+		}
+		radixSort(a, null, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of longs.
+	 *
+	 * @param a
+	 *            the array
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sort(long[] a, int from, int to, int numThreads) {
+		checkRange(a.length, from, to, numThreads);
+		if (to - from < SEQUENTIAL_THRESHOLD) {
+			Arrays.sort(a, from, to);
+			return;
+		}
+		radixSort(a, null, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of floats.
+	 *
+	 * @param a
+	 *            the array
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sort(float[] a, int from, int to, int numThreads) {
+		checkRange(a.length, from, to, numThreads);
+		if (to - from < SEQUENTIAL_THRESHOLD) {
+			Arrays.sort(a, from, to);
+			return;
+		}
+		sortByKey(a, null, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of doubles.
+	 *
+	 * @param a
+	 *            the array
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sort(double[] a, int from, int to, int numThreads) {
+		checkRange(a.length, from, to, numThreads);
+		if (to - from < SEQUENTIAL_THRESHOLD) {
+			Arrays.sort(a, from, to);
+			return;
+		}
+		sortByKey(a, null, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of keys, and moves the values at the same
+	 * positions of another array along with them. The sort is stable.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @param values
+	 *            the values
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sortByKey(int[] keys, int[] values, int from, int to, int numThreads) {
+		checkRange(Math.min(keys.length, values.length), from, to, numThreads);
+		radixSort(keys, values, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of keys, and moves the values at the same
+	 * positions of another array along with them. The sort is stable.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @param values
+	 *            the values
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sortByKey(long[] keys, int[] values, int from, int to, int numThreads) {
+		checkRange(Math.min(keys.length, values.length), from, to, numThreads);
+		radixSort(keys, values, from, to, numThreads);
+	}
+
+	/**
+	 * Sorts a range of an array of keys, and moves the values at the same
+	 * positions of another array along with them. The sort is stable.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @param values
+	 *            the values
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sortByKey(float[] keys, int[] values, int from, int to, int numThreads) {
+		checkRange(values == null ? keys.length : Math.min(keys.length, values.length), from, to,
+				numThreads);
+
+		// floats are sorted as ints whose order is the same
+		int n = to - from;
+		int[] bits = new int[n];
+		for (int i = 0; i < n; i++) {
+			bits[i] = sortable(Float.floatToIntBits(keys[from + i]));
+		}
+
+		int[] v = values;
+		if (values != null && from != 0) {
+			v = Arrays.copyOfRange(values, from, to);
+		}
+		radixSort(bits, v, 0, n, numThreads);
+		if (v != values) {
+			System.arraycopy(v, 0, values, from, n);
+		}
+
+		for (int i = 0; i < n; i++) {
+			keys[from + i] = Float.intBitsToFloat(sortable(bits[i]));
+		}
+	}
+
+	/**
+	 * Sorts a range of an array of keys, and moves the values at the same
+	 * positions of another array along with them. The sort is stable.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @param values
+	 *            the values
+	 * @param from
+	 *            index of the first element, inclusive
+	 * @param to
+	 *            index of the last element, exclusive
+	 * @param numThreads
+	 *            number of threads to use
+	 */
+	public static void sortByKey(double[] keys, int[] values, int from, int to, int numThreads) {
+		checkRange(values == null ? keys.length : Math.min(keys.length, values.length), from, to,
+				numThreads);
+
+		int n = to - from;
+		long[] bits = new long[n];
+		for (int i = 0; i < n; i++) {
+			bits[i] = sortable(Double.doubleToLongBits(keys[from + i]));
+		}
+
+		int[] v = values;
+		if (values != null && from != 0) {
+			v = Arrays.copyOfRange(values, from, to);
+		}
+		radixSort(bits, v, 0, n, numThreads);
+		if (v != values) {
+			System.arraycopy(v, 0, values, from, n);
+		}
+
+		for (int i = 0; i < n; i++) {
+			keys[from + i] = Double.longBitsToDouble(sortable(bits[i]));
+		}
+	}
+
+	// Maps the bits of a float onto an int of the same order, and back: negative
+	// floats order the other way around as ints.
+	private static int sortable(int bits) {
+		return bits ^ ((bits >> 31) & 0x7fffffff);
+	}
+
+	private static long sortable(long bits) {
+		return bits ^ ((bits >> 63) & 0x7fffffffffffffffL);
+	}
+
+	private static void checkRange(int length, int from, int to, int numThreads) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), Length: "
+					+ length);
+		}
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Illegal number of threads: " + numThreads);
+		}
+	}
+
+	private static void radixSort(int[] a, int[] v, int from, int to, int numThreads) {
+		int n = to - from;
+		if (n < 2) {
+			return;
+		}
+
+		int t = n < SEQUENTIAL_THRESHOLD ? 1 : numThreads;
+		ExecutorService pool = t > 1 ? Executors.newFixedThreadPool(t) : null;
+		try {
+			int[] srcA = a;
+			int[] srcV = v;
+			int srcOff = from;
+			int[] dstA = new int[n];
+			int[] dstV = v == null ? null : new int[n];
+			int dstOff = 0;
+
+			int[][] counts = new int[t][BUCKETS];
+			for (int shift = 0; shift < 32; shift += 8) {
+				if (!pass(srcA, srcV, srcOff, dstA, dstV, dstOff, n, shift, counts, pool)) {
+					continue;
+				}
+
+				int[] tmp = srcA;
+				srcA = dstA;
+				dstA = tmp;
+				tmp = srcV;
+				srcV = dstV;
+				dstV = tmp;
+				int off = srcOff;
+				srcOff = dstOff;
+				dstOff = off;
+			}
+
+			if (srcA != a) {
+				System.arraycopy(srcA, 0, a, from, n);
+				if (v != null) {
+					System.arraycopy(srcV, 0, v, from, n);
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	// One pass over the digits at a shift: returns false, without moving
+	// anything, if all keys have the same digit.
+	private static boolean pass(final int[] srcA, final int[] srcV, final int srcOff,
+			final int[] dstA, final int[] dstV, final int dstOff, final int n, final int shift,
+			final int[][] counts, ExecutorService pool) {
+		final int t = counts.length;
+		// the top digit holds the sign
+		final int flip = shift == 24 ? 0x80 : 0;
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(t);
+		for (int i = 0; i < t; i++) {
+			final int[] count = counts[i];
+			final int lo = srcOff + chunk(n, t, i);
+			final int hi = srcOff + chunk(n, t, i + 1);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Arrays.fill(count, 0);
+					for (int j = lo; j < hi; j++) {
+						count[((srcA[j] >>> shift) & 0xff) ^ flip]++;
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks, pool);
+
+		if (!offsets(counts, n, dstOff)) {
+			return false;
+		}
+
+		tasks.clear();
+		for (int i = 0; i < t; i++) {
+			final int[] pos = counts[i];
+			final int lo = srcOff + chunk(n, t, i);
+			final int hi = srcOff + chunk(n, t, i + 1);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					if (srcV == null) {
+						for (int j = lo; j < hi; j++) {
+							int k = srcA[j];
+							dstA[pos[((k >>> shift) & 0xff) ^ flip]++] = k;
+						}
+					} else {
+						for (int j = lo; j < hi; j++) {
+							int k = srcA[j];
+							int p = pos[((k >>> shift) & 0xff) ^ flip]++;
+							dstA[p] = k;
+							dstV[p] = srcV[j];
+						}
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks, pool);
+
+		return true;
+	}
+
+	private static void radixSort(long[] a, int[] v, int from, int to, int numThreads) {
+		int n = to - from;
+		if (n < 2) {
+			return;
+		}
+
+		int t = n < SEQUENTIAL_THRESHOLD ? 1 : numThreads;
+		ExecutorService pool = t > 1 ? Executors.newFixedThreadPool(t) : null;
+		try {
+			long[] srcA = a;
+			int[] srcV = v;
+			int srcOff = from;
+			long[] dstA = new long[n];
+			int[] dstV = v == null ? null : new int[n];
+			int dstOff = 0;
+
+			int[][] counts = new int[t][BUCKETS];
+			for (int shift = 0; shift < 64; shift += 8) {
+				if (!pass(srcA, srcV, srcOff, dstA, dstV, dstOff, n, shift, counts, pool)) {
+					continue;
+				}
+
+				long[] tmpA = srcA;
+				srcA = dstA;
+				dstA = tmpA;
+				int[] tmpV = srcV;
+				srcV = dstV;
+				dstV = tmpV;
+				int off = srcOff;
+				srcOff = dstOff;
+				dstOff = off;
+			}
+
+			if (srcA != a) {
+				System.arraycopy(srcA, 0, a, from, n);
+				if (v != null) {
+					System.arraycopy(srcV, 0, v, from, n);
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private static boolean pass(final long[] srcA, final int[] srcV, final int srcOff,
+			final long[] dstA, final int[] dstV, final int dstOff, final int n, final int shift,
+			final int[][] counts, ExecutorService pool) {
+		final int t = counts.length;
+		final int flip = shift == 56 ? 0x80 : 0;
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(t);
+		for (int i = 0; i < t; i++) {
+			final int[] count = counts[i];
+			final int lo = srcOff + chunk(n, t, i);
+			final int hi = srcOff + chunk(n, t, i + 1);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Arrays.fill(count, 0);
+					for (int j = lo; j < hi; j++) {
+						count[((int) (srcA[j] >>> shift) & 0xff) ^ flip]++;
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks, pool);
+
+		if (!offsets(counts, n, dstOff)) {
+			return false;
+		}
+
+		tasks.clear();
+		for (int i = 0; i < t; i++) {
+			final int[] pos = counts[i];
+			final int lo = srcOff + chunk(n, t, i);
+			final int hi = srcOff + chunk(n, t, i + 1);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					if (srcV == null) {
+						for (int j = lo; j < hi; j++) {
+							long k = srcA[j];
+							dstA[pos[((int) (k >>> shift) & 0xff) ^ flip]++] = k;
+						}
+					} else {
+						for (int j = lo; j < hi; j++) {
+							long k = srcA[j];
+							int p = pos[((int) (k >>> shift) & 0xff) ^ flip]++;
+							dstA[p] = k;
+							dstV[p] = srcV[j];
+						}
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks, pool);
+
+		return true;
+	}
+
+	// start of the i-th of t shares of n elements
+	private static int chunk(int n, int t, int i) {
+		return (int) ((long) n * i / t);
+	}
+
+	// Turns the digit counts of every thread into the positions at which the
+	// thread writes each digit: digits in order, and for each digit, threads in
+	// order. Returns false if all elements have the same digit.
+	private static boolean offsets(int[][] counts, int n, int start) {
+		int t = counts.length;
+		int pos = start;
+		for (int d = 0; d < BUCKETS; d++) {
+			int total = 0;
+			for (int i = 0; i < t; i++) {
+				total += counts[i][d];
+			}
+			if (total == n) {
+				return false;
+			}
+			if (total == 0) {
+				continue;
+			}
+
+			for (int i = 0; i < t; i++) {
+				int c = counts[i][d];
+				counts[i][d] = pos;
+				pos += c;
+			}
+		}
+		return true;
+	}
+
+	// Runs tasks on the pool, or on the calling thread if there is none, and
+	// waits for all of them to complete.
+	private static void run(List<Callable<Void>> tasks, ExecutorService pool) {
+		try {
+			if (pool == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+				return;
+			}
+
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
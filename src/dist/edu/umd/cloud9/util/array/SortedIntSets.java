@@ -0,0 +1,362 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>
+ * Set operations on sets of ints represented as sorted arrays, or ranges of
+ * arrays, without duplicates: e.g., postings or adjacency lists. Results are
+ * written into an output array supplied by the caller, so that buffers can be
+ * reused across operations, and the methods return the number of values
+ * written. The output array must have room for the largest possible result:
+ * the size of the smaller input for intersection, of the first input for
+ * difference, and of both inputs for union.
+ * </p>
+ *
+ * <p>
+ * Intersection picks its algorithm by the ratio of the sizes of the inputs: a
+ * linear merge for inputs of similar sizes, and galloping (exponential) search
+ * of the larger input for every value of the smaller one otherwise, which
+ * takes O(<i>m</i> log(<i>n</i>/<i>m</i>)) time for inputs of sizes <i>m</i>
+ * &lt; <i>n</i>. Both are also available directly.
+ * </p>
+ *
+ * <p>
+ * For intersection and difference, the output may be the first input array,
+ * with the output starting where the input range starts, since a value is
+ * never written ahead of where it is read; this makes it possible to intersect
+ * in place.
+ * </p>
+ */
+public final class SortedIntSets {
+
+	/**
+	 * Ratio of the sizes of the inputs from which intersection and difference
+	 * switch from a linear merge to galloping search.
+	 */
+	public static final int GALLOP_RATIO = 4;
+
+	private SortedIntSets() {
+	}
+
+	/**
+	 * Returns the index of the first value in <code>a[from, to)</code> that is
+	 * greater than or equal to <code>key</code>, or <code>to</code> if there is
+	 * none, by galloping from <code>from</code>: probing at exponentially
+	 * increasing distances, then binary search between the last two probes.
+	 * This takes O(log <i>d</i>) time, where <i>d</i> is the distance to the
+	 * result, which makes it the right search for values close to each other.
+	 */
+	public static int gallop(int[] a, int from, int to, int key) {
+		if (from >= to || a[from] >= key) {
+			return from;
+		}
+
+		// a[lo] < key, and a[hi] >= key unless hi == to
+		int lo = from;
+		int hi = from + 1;
+		int step = 1;
+		while (hi < to && a[hi] < key) {
+			lo = hi;
+			step <<= 1;
+			hi = to - lo > step ? lo + step : to;
+		}
+
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (a[mid] < key) {
+				lo = mid;
+			} else {
+				hi = mid;
+			}
+		}
+		return hi;
+	}
+
+	/**
+	 * Intersects two sets, choosing between a linear merge and galloping
+	 * search by the ratio of their sizes.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int intersect(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+			int[] out, int outFrom) {
+		int m = aTo - aFrom;
+		int n = bTo - bFrom;
+
+		if (m <= n) {
+			if (n / GALLOP_RATIO >= m) {
+				return intersectGallop(a, aFrom, aTo, b, bFrom, bTo, out, outFrom);
+			}
+		} else if (m / GALLOP_RATIO >= n) {
+			// the smaller set drives, but values are written in the order of a,
+			// which is the same, so out may still alias a
+			return intersectGallop(b, bFrom, bTo, a, aFrom, aTo, out, outFrom);
+		}
+
+		return intersectMerge(a, aFrom, aTo, b, bFrom, bTo, out, outFrom);
+	}
+
+	/**
+	 * Intersects two sets.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int intersect(int[] a, int aSize, int[] b, int bSize, int[] out) {
+		return intersect(a, 0, aSize, b, 0, bSize, out, 0);
+	}
+
+	/**
+	 * Intersects two sets, into a list whose contents are replaced.
+	 *
+	 * @return <code>out</code>
+	 */
+	public static ArrayListOfInts intersect(ArrayListOfInts a, ArrayListOfInts b, ArrayListOfInts out) {
+		out.ensureCapacity(Math.min(a.size(), b.size()));
+		out.setSize(intersect(a.getArray(), 0, a.size(), b.getArray(), 0, b.size(), out.getArray(), 0));
+		return out;
+	}
+
+	/**
+	 * Intersects two sets by a linear merge, in O(<i>m</i> + <i>n</i>) time.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int intersectMerge(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+			int[] out, int outFrom) {
+		int i = aFrom;
+		int j = bFrom;
+		int k = outFrom;
+
+		if (i < aTo && j < bTo) {
+			int x = a[i];
+			int y = b[j];
+			while (true) {
+				if (x < y) {
+					if (++i == aTo) {
+						break;
+					}
+					x = a[i];
+				} else if (x > y) {
+					if (++j == bTo) {
+						break;
+					}
+					y = b[j];
+				} else {
+					out[k++] = x;
+					if (++i == aTo || ++j == bTo) {
+						break;
+					}
+					x = a[i];
+					y = b[j];
+				}
+			}
+		}
+
+		return k - outFrom;
+	}
+
+	/**
+	 * Intersects two sets by galloping through the second for every value of
+	 * the first, in O(<i>m</i> log(<i>n</i>/<i>m</i>)) time, where <i>m</i> is
+	 * the size of the first. The first should be the smaller one.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int intersectGallop(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+			int[] out, int outFrom) {
+		int j = bFrom;
+		int k = outFrom;
+
+		for (int i = aFrom; i < aTo; i++) {
+			j = gallop(b, j, bTo, a[i]);
+			if (j == bTo) {
+				break;
+			}
+			if (b[j] == a[i]) {
+				out[k++] = a[i];
+				j++;
+			}
+		}
+
+		return k - outFrom;
+	}
+
+	/**
+	 * Intersects any number of sets, smallest first: the smallest two are
+	 * intersected, and the result is then intersected in place with each of the
+	 * others in order of size, so that the intermediate results only shrink.
+	 * The output must have room for the smallest set.
+	 *
+	 * @param sets
+	 *            the sets
+	 * @param sizes
+	 *            number of values of each set
+	 * @param out
+	 *            output
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int intersectAll(final int[][] sets, final int[] sizes, int[] out) {
+		if (sets.length == 0) {
+			return 0;
+		}
+
+		Integer[] order = new Integer[sets.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return sizes[i1] < sizes[i2] ? -1 : (sizes[i1] == sizes[i2] ? 0 : 1);
+			}
+		});
+
+		int first = order[0];
+		if (order.length == 1) {
+			System.arraycopy(sets[first], 0, out, 0, sizes[first]);
+			return sizes[first];
+		}
+
+		int second = order[1];
+		int n = intersect(sets[first], 0, sizes[first], sets[second], 0, sizes[second], out, 0);
+		for (int i = 2; i < order.length && n > 0; i++) {
+			n = intersect(out, 0, n, sets[order[i]], 0, sizes[order[i]], out, 0);
+		}
+
+		return n;
+	}
+
+	/**
+	 * Computes the union of two sets by a linear merge. The output must not be
+	 * either input array.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int union(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] out,
+			int outFrom) {
+		int i = aFrom;
+		int j = bFrom;
+		int k = outFrom;
+
+		while (i < aTo && j < bTo) {
+			int x = a[i];
+			int y = b[j];
+			if (x < y) {
+				out[k++] = x;
+				i++;
+			} else if (x > y) {
+				out[k++] = y;
+				j++;
+			} else {
+				out[k++] = x;
+				i++;
+				j++;
+			}
+		}
+
+		System.arraycopy(a, i, out, k, aTo - i);
+		k += aTo - i;
+		System.arraycopy(b, j, out, k, bTo - j);
+		k += bTo - j;
+
+		return k - outFrom;
+	}
+
+	/**
+	 * Computes the union of two sets.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int union(int[] a, int aSize, int[] b, int bSize, int[] out) {
+		return union(a, 0, aSize, b, 0, bSize, out, 0);
+	}
+
+	/**
+	 * Computes the union of two sets, into a list whose contents are replaced.
+	 * The output must not be either input list.
+	 *
+	 * @return <code>out</code>
+	 */
+	public static ArrayListOfInts union(ArrayListOfInts a, ArrayListOfInts b, ArrayListOfInts out) {
+		out.ensureCapacity(a.size() + b.size());
+		out.setSize(union(a.getArray(), 0, a.size(), b.getArray(), 0, b.size(), out.getArray(), 0));
+		return out;
+	}
+
+	/**
+	 * Computes the values of the first set that aren't in the second, by a
+	 * linear merge, or by galloping through the second if it is much larger.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int difference(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+			int[] out, int outFrom) {
+		int j = bFrom;
+		int k = outFrom;
+		boolean gallop = (bTo - bFrom) / GALLOP_RATIO >= aTo - aFrom;
+
+		for (int i = aFrom; i < aTo; i++) {
+			int x = a[i];
+			if (gallop) {
+				j = gallop(b, j, bTo, x);
+			} else {
+				while (j < bTo && b[j] < x) {
+					j++;
+				}
+			}
+
+			if (j == bTo) {
+				// nothing left to remove
+				System.arraycopy(a, i, out, k, aTo - i);
+				k += aTo - i;
+				break;
+			}
+
+			if (b[j] != x) {
+				out[k++] = x;
+			}
+		}
+
+		return k - outFrom;
+	}
+
+	/**
+	 * Computes the values of the first set that aren't in the second.
+	 *
+	 * @return number of values written to <code>out</code>
+	 */
+	public static int difference(int[] a, int aSize, int[] b, int bSize, int[] out) {
+		return difference(a, 0, aSize, b, 0, bSize, out, 0);
+	}
+
+	/**
+	 * Computes the values of the first set that aren't in the second, into a
+	 * list whose contents are replaced.
+	 *
+	 * @return <code>out</code>
+	 */
+	public static ArrayListOfInts difference(ArrayListOfInts a, ArrayListOfInts b,
+			ArrayListOfInts out) {
+		out.ensureCapacity(a.size());
+		out.setSize(difference(a.getArray(), 0, a.size(), b.getArray(), 0, b.size(), out.getArray(),
+				0));
+		return out;
+	}
+}
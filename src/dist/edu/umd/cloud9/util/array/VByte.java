@@ -0,0 +1,81 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+/**
+ * Variable-byte coding of ints, taken as unsigned: seven bits per byte, low
+ * bits first, with the high bit of a byte set if more bytes follow. Values
+ * under 128 take one byte, and no value takes more than five.
+ */
+final class VByte {
+
+	private VByte() {
+	}
+
+	/**
+	 * Returns the number of bytes a value takes.
+	 */
+	static int length(int v) {
+		int n = 1;
+		while ((v & ~0x7f) != 0) {
+			v >>>= 7;
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Writes a value at position <code>pos</code>, and returns the position
+	 * after it.
+	 */
+	static int write(int v, byte[] out, int pos) {
+		while ((v & ~0x7f) != 0) {
+			out[pos++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out[pos++] = (byte) v;
+		return pos;
+	}
+
+	/**
+	 * Encodes <code>n</code> values at position <code>pos</code>, and returns
+	 * the position after them.
+	 */
+	static int encode(int[] in, int n, byte[] out, int pos) {
+		for (int i = 0; i < n; i++) {
+			pos = write(in[i], out, pos);
+		}
+		return pos;
+	}
+
+	/**
+	 * Decodes <code>n</code> values from position <code>pos</code>, and returns
+	 * the position after them.
+	 */
+	static int decode(byte[] in, int pos, int[] out, int n) {
+		for (int i = 0; i < n; i++) {
+			int b = in[pos++];
+			int v = b & 0x7f;
+			for (int shift = 7; b < 0; shift += 7) {
+				b = in[pos++];
+				v |= (b & 0x7f) << shift;
+			}
+			out[i] = v;
+		}
+		return pos;
+	}
+}
@@ -24,7 +24,9 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.TopK;
 import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.IntIntProcedure;
 import edu.umd.cloud9.util.map.MapII;
 
 /**
@@ -37,6 +39,40 @@ public class EntryInt2IntFrequencyDistribution implements Int2IntFrequencyDistri
 	private HMapII counts = new HMapII();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private static final Comparator<PairOfInts> FREQUENCY_ORDER = new Comparator<PairOfInts>() {
+		public int compare(PairOfInts e1, PairOfInts e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() == e2.getLeftElement()) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
+		}
+	};
+
+	// ascending order of events
+	private static final Comparator<PairOfInts> EVENT_ORDER = new Comparator<PairOfInts>() {
+		public int compare(PairOfInts e1, PairOfInts e2) {
+			if (e1.getLeftElement() > e2.getLeftElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() < e2.getLeftElement()) {
+				return -1;
+			}
+
+			throw new RuntimeException("Event observed twice!");
+		}
+	};
+
 	@Override
 	public void increment(int key) {
 		set(key, get(key) + 1);
@@ -109,6 +145,13 @@ public class EntryInt2IntFrequencyDistribution implements Int2IntFrequencyDistri
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Int2IntFrequencyDistribution that) {
+		for (PairOfInts pair : that) {
+			increment(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
 	@Override
 	public List<PairOfInts> getFrequencySortedEvents() {
 		List<PairOfInts> list = Lists.newArrayList();
@@ -117,31 +160,14 @@ public class EntryInt2IntFrequencyDistribution implements Int2IntFrequencyDistri
 			list.add(new PairOfInts(e.getKey(), e.getValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfInts>() {
-			public int compare(PairOfInts e1, PairOfInts e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() == e2.getLeftElement()) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
-			}
-		});
+		Collections.sort(list, FREQUENCY_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfInts> getFrequencySortedEvents(int n) {
-		List<PairOfInts> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, FREQUENCY_ORDER);
 	}
 
 	@Override
@@ -152,27 +178,39 @@ public class EntryInt2IntFrequencyDistribution implements Int2IntFrequencyDistri
 			list.add(new PairOfInts(e.getKey(), e.getValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfInts>() {
-			public int compare(PairOfInts e1, PairOfInts e2) {
-				if (e1.getLeftElement() > e2.getLeftElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() < e2.getLeftElement()) {
-					return -1;
-				}
-
-				throw new RuntimeException("Event observed twice!");
-			}
-		});
+		Collections.sort(list, EVENT_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfInts> getSortedEvents(int n) {
-		List<PairOfInts> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, EVENT_ORDER);
+	}
+
+	@Override
+	public void topK(int n, IntIntProcedure procedure) {
+		for (PairOfInts pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfInts> select(int n, Comparator<PairOfInts> order) {
+		TopK<PairOfInts> top = new TopK<PairOfInts>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfInts pair = null;
+		for (MapII.Entry e : counts.entrySet()) {
+			if (pair == null) {
+				pair = new PairOfInts(e.getKey(), e.getValue());
+			} else {
+				pair.set(e.getKey(), e.getValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
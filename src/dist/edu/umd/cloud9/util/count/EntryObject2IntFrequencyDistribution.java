@@ -23,8 +23,10 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopK;
 import edu.umd.cloud9.util.map.HMapKI;
 import edu.umd.cloud9.util.map.MapKI;
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 /**
@@ -38,6 +40,32 @@ public class EntryObject2IntFrequencyDistribution<K extends Comparable<K>> imple
 	private MapKI<K> counts = new HMapKI<K>();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private final Comparator<PairOfObjectInt<K>> frequencyOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	// ascending order of events
+	private final Comparator<PairOfObjectInt<K>> eventOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			if (e1.getLeftElement().equals(e2.getLeftElement())) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
 	@Override
 	public void increment(K key) {
 		set(key, get(key) + 1);
@@ -110,6 +138,13 @@ public class EntryObject2IntFrequencyDistribution<K extends Comparable<K>> imple
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Object2IntFrequencyDistribution<K> that) {
+		for (PairOfObjectInt<K> pair : that) {
+			increment(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
 	@Override
 	public List<PairOfObjectInt<K>> getFrequencySortedEvents() {
 		List<PairOfObjectInt<K>> list = Lists.newArrayList();
@@ -118,27 +153,14 @@ public class EntryObject2IntFrequencyDistribution<K extends Comparable<K>> imple
 			list.add(new PairOfObjectInt<K>(e.getKey(), e.getValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfObjectInt<K>>() {
-			public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				return e1.getLeftElement().compareTo(e2.getLeftElement());
-			}
-		});
+		Collections.sort(list, frequencyOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectInt<K>> getFrequencySortedEvents(int n) {
-		List<PairOfObjectInt<K>> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, frequencyOrder);
 	}
 
 	@Override
@@ -150,23 +172,39 @@ public class EntryObject2IntFrequencyDistribution<K extends Comparable<K>> imple
 		}
 
 		// sort the entries
-		Collections.sort(list, new Comparator<PairOfObjectInt<K>>() {
-			public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
-				if (e1.getLeftElement().equals(e2.getLeftElement())) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement().compareTo(e2.getLeftElement());
-			}
-		});
+		Collections.sort(list, eventOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectInt<K>> getSortedEvents(int n) {
-		List<PairOfObjectInt<K>> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, eventOrder);
+	}
+
+	@Override
+	public void topK(int n, ObjectIntProcedure<K> procedure) {
+		for (PairOfObjectInt<K> pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfObjectInt<K>> select(int n, Comparator<PairOfObjectInt<K>> order) {
+		TopK<PairOfObjectInt<K>> top = new TopK<PairOfObjectInt<K>>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfObjectInt<K> pair = null;
+		for (MapKI.Entry<K> e : counts.entrySet()) {
+			if (pair == null) {
+				pair = new PairOfObjectInt<K>(e.getKey(), e.getValue());
+			} else {
+				pair.set(e.getKey(), e.getValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
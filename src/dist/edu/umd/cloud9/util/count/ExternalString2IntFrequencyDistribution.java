@@ -0,0 +1,674 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.CountingOutputStream;
+
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * <p>
+ * Implementation of {@link Object2IntFrequencyDistribution} for string events
+ * that isn't limited by the size of the heap, for counting vocabularies or
+ * n-grams outside of Hadoop. Counts are kept in an {@link Object2IntOpenHashMap}
+ * until it grows past a memory budget, at which point they are sorted and
+ * spilled to a run file in a local directory. Iterating over the
+ * distribution, and the methods that return events, merge the runs with the
+ * counts still in memory on the fly, in sorted order of events.
+ * </p>
+ *
+ * <p>
+ * Incrementing an event never touches the disk. Methods that need the current
+ * count of an event, i.e., {@link #get(String)}, {@link #contains(String)},
+ * {@link #set(String, int)}, {@link #remove(String)} and the
+ * <code>decrement</code> methods, look it up in every run, through a sparse
+ * index kept in memory, and are much slower. So is
+ * {@link #getNumberOfEvents()}, which requires a merge pass once counts have
+ * been spilled. Runs are merged into one whenever there are too many of them.
+ * </p>
+ *
+ * <p>
+ * Run files are removed by {@link #clear()}, which should be called once the
+ * distribution is no longer needed, and otherwise when the JVM exits. Events
+ * with a count of zero are dropped. Events are written with
+ * {@link DataOutputStream#writeUTF(String)}, and so cannot be longer than
+ * 65535 bytes in modified UTF-8.
+ * </p>
+ */
+public class ExternalString2IntFrequencyDistribution implements
+		Object2IntFrequencyDistribution<String> {
+
+	/**
+	 * Default memory budget for counts in memory, in bytes.
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	// rough cost of an event in memory, besides its chars: String and char[]
+	// headers, and its share of the hash table
+	private static final int EVENT_OVERHEAD = 80;
+
+	// every how many events of a run an index entry is kept
+	private static final int INDEX_INTERVAL = 64;
+
+	// runs are merged once there are this many of them
+	private static final int MAX_RUNS = 64;
+
+	// descending frequency, ties broken by the event
+	private static final Comparator<PairOfObjectInt<String>> FREQUENCY_ORDER = new Comparator<PairOfObjectInt<String>>() {
+		public int compare(PairOfObjectInt<String> e1, PairOfObjectInt<String> e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	private final long memoryBudget;
+	private final File directory;
+
+	// counts not yet spilled, which are added to those in the runs
+	private final Object2IntOpenHashMap<String> counts = new Object2IntOpenHashMap<String>();
+	private long memoryUsed = 0;
+
+	private final List<Run> runs = new ArrayList<Run>();
+
+	private long sumOfFrequencies = 0;
+
+	// -1 if it has to be recomputed
+	private int numberOfEvents = 0;
+
+	/**
+	 * Creates a distribution with the default memory budget, which spills to
+	 * the default temporary-file directory.
+	 */
+	public ExternalString2IntFrequencyDistribution() {
+		this(DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Creates a distribution which spills to the default temporary-file
+	 * directory.
+	 *
+	 * @param memoryBudget
+	 *            approximate number of bytes of counts to keep in memory
+	 */
+	public ExternalString2IntFrequencyDistribution(long memoryBudget) {
+		this(memoryBudget, new File(System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Creates a distribution.
+	 *
+	 * @param memoryBudget
+	 *            approximate number of bytes of counts to keep in memory
+	 * @param directory
+	 *            directory for run files
+	 */
+	public ExternalString2IntFrequencyDistribution(long memoryBudget, File directory) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("Illegal memory budget: " + memoryBudget);
+		}
+
+		this.memoryBudget = memoryBudget;
+		this.directory = directory;
+	}
+
+	@Override
+	public void increment(String key) {
+		increment(key, 1);
+	}
+
+	@Override
+	public void increment(String key, int cnt) {
+		add(key, cnt);
+		sumOfFrequencies += cnt;
+	}
+
+	@Override
+	public void decrement(String key) {
+		decrement(key, 1);
+	}
+
+	@Override
+	public void decrement(String key, int cnt) {
+		int v = get(key);
+		if (v == 0) {
+			throw new RuntimeException("Can't decrement non-existent event!");
+		}
+
+		if (v < cnt) {
+			throw new RuntimeException("Can't decrement past zero!");
+		}
+
+		add(key, -cnt);
+		sumOfFrequencies -= cnt;
+	}
+
+	@Override
+	public boolean contains(String key) {
+		return get(key) != 0;
+	}
+
+	@Override
+	public int get(String key) {
+		int v = counts.getInt(key);
+		for (Run run : runs) {
+			v += run.get(key);
+		}
+		return v;
+	}
+
+	@Override
+	public int set(String key, int cnt) {
+		int rv = get(key);
+		add(key, cnt - rv);
+		sumOfFrequencies = sumOfFrequencies - rv + cnt;
+
+		return rv;
+	}
+
+	@Override
+	public int remove(String key) {
+		return set(key, 0);
+	}
+
+	/**
+	 * Removes all events, and deletes the run files.
+	 */
+	@Override
+	public void clear() {
+		counts.clear();
+		memoryUsed = 0;
+
+		for (Run run : runs) {
+			run.delete();
+		}
+		runs.clear();
+
+		sumOfFrequencies = 0;
+		numberOfEvents = 0;
+	}
+
+	@Override
+	public void addAll(Object2IntFrequencyDistribution<String> that) {
+		for (PairOfObjectInt<String> pair : that) {
+			increment(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// adds to the count in memory, spilling if that exceeds the budget
+	private void add(String key, int delta) {
+		if (delta == 0) {
+			return;
+		}
+
+		int v = counts.getInt(key) + delta;
+		if (v == 0) {
+			counts.removeInt(key);
+			memoryUsed -= footprint(key);
+		} else if (counts.put(key, v) == 0) {
+			memoryUsed += footprint(key);
+		}
+		numberOfEvents = -1;
+
+		if (memoryUsed > memoryBudget) {
+			spill();
+		}
+	}
+
+	private static long footprint(String key) {
+		return EVENT_OVERHEAD + 2 * key.length();
+	}
+
+	// writes the counts in memory to a new run
+	private void spill() {
+		List<Cursor> cursors = Lists.newArrayList();
+		cursors.add(new MemoryCursor());
+		runs.add(Run.write(directory, new MergeIterator(cursors)));
+
+		counts.clear();
+		counts.trim();
+		memoryUsed = 0;
+
+		if (runs.size() >= MAX_RUNS) {
+			cursors.clear();
+			for (Run run : runs) {
+				cursors.add(run.cursor());
+			}
+			Run merged = Run.write(directory, new MergeIterator(cursors));
+
+			for (Run run : runs) {
+				run.delete();
+			}
+			runs.clear();
+			runs.add(merged);
+		}
+	}
+
+	/**
+	 * Returns the number of run files.
+	 */
+	int getNumberOfRuns() {
+		return runs.size();
+	}
+
+	@Override
+	public List<PairOfObjectInt<String>> getFrequencySortedEvents() {
+		List<PairOfObjectInt<String>> list = getSortedEvents();
+		Collections.sort(list, FREQUENCY_ORDER);
+
+		return list;
+	}
+
+	@Override
+	public List<PairOfObjectInt<String>> getFrequencySortedEvents(int n) {
+		// bounded by the number of events in memory and in runs, some of which
+		// are counted twice, which is cheaper than a merge pass
+		long bound = counts.size();
+		for (Run run : runs) {
+			bound += run.size;
+		}
+		TopK<PairOfObjectInt<String>> top = new TopK<PairOfObjectInt<String>>((int) Math.min(n,
+				bound), FREQUENCY_ORDER);
+
+		// events that don't make the cut are recycled
+		PairOfObjectInt<String> pair = null;
+		for (PairOfObjectInt<String> e : this) {
+			if (pair == null) {
+				pair = new PairOfObjectInt<String>(e.getLeftElement(), e.getRightElement());
+			} else {
+				pair.set(e.getLeftElement(), e.getRightElement());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
+	}
+
+	@Override
+	public void topK(int n, ObjectIntProcedure<String> procedure) {
+		for (PairOfObjectInt<String> pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	@Override
+	public List<PairOfObjectInt<String>> getSortedEvents() {
+		return getSortedEvents(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<PairOfObjectInt<String>> getSortedEvents(int n) {
+		List<PairOfObjectInt<String>> list = Lists.newArrayList();
+
+		// events come out of the merge in sorted order
+		Iterator<PairOfObjectInt<String>> iter = iterator();
+		while (list.size() < n && iter.hasNext()) {
+			PairOfObjectInt<String> e = iter.next();
+			list.add(new PairOfObjectInt<String>(e.getLeftElement(), e.getRightElement()));
+		}
+		((MergeIterator) iter).close();
+
+		return list;
+	}
+
+	@Override
+	public int getNumberOfEvents() {
+		if (runs.isEmpty()) {
+			return counts.size();
+		}
+
+		if (numberOfEvents == -1) {
+			int n = 0;
+			for (Iterator<PairOfObjectInt<String>> iter = iterator(); iter.hasNext(); iter.next()) {
+				n++;
+			}
+			numberOfEvents = n;
+		}
+
+		return numberOfEvents;
+	}
+
+	@Override
+	public long getSumOfFrequencies() {
+		return sumOfFrequencies;
+	}
+
+	/**
+	 * Iterator returns the same object every time, just with a different
+	 * payload. Events come out in sorted order. Run files are held open until
+	 * the iterator is exhausted, and the distribution shouldn't be modified in
+	 * the meantime.
+	 */
+	@Override
+	public Iterator<PairOfObjectInt<String>> iterator() {
+		List<Cursor> cursors = Lists.newArrayList();
+		for (Run run : runs) {
+			cursors.add(run.cursor());
+		}
+		cursors.add(new MemoryCursor());
+
+		return new MergeIterator(cursors);
+	}
+
+	/**
+	 * A sorted sequence of events and counts.
+	 */
+	private static abstract class Cursor implements Comparable<Cursor> {
+		String key;
+		int count;
+
+		/**
+		 * Moves to the next event, returning false if there are no more.
+		 */
+		abstract boolean advance();
+
+		void close() {
+		}
+
+		public int compareTo(Cursor that) {
+			return key.compareTo(that.key);
+		}
+	}
+
+	/**
+	 * Counts in memory, sorted when the cursor is created.
+	 */
+	private class MemoryCursor extends Cursor {
+		private final String[] keys;
+		private int i = 0;
+
+		MemoryCursor() {
+			keys = counts.keySet().toArray(new String[counts.size()]);
+			Arrays.sort(keys);
+		}
+
+		@Override
+		boolean advance() {
+			if (i == keys.length) {
+				return false;
+			}
+
+			key = keys[i++];
+			count = counts.getInt(key);
+			return true;
+		}
+	}
+
+	/**
+	 * Sums the counts of events across cursors, skipping events whose counts
+	 * sum to zero.
+	 */
+	private static class MergeIterator implements Iterator<PairOfObjectInt<String>> {
+		private final PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>();
+		private final PairOfObjectInt<String> pair = new PairOfObjectInt<String>();
+
+		private String nextKey;
+		private int nextCount;
+
+		MergeIterator(List<Cursor> cursors) {
+			for (Cursor cursor : cursors) {
+				if (cursor.advance()) {
+					queue.add(cursor);
+				} else {
+					cursor.close();
+				}
+			}
+			fetch();
+		}
+
+		private void fetch() {
+			nextKey = null;
+			while (nextKey == null && !queue.isEmpty()) {
+				String key = queue.peek().key;
+				int count = 0;
+				while (!queue.isEmpty() && queue.peek().key.equals(key)) {
+					Cursor cursor = queue.poll();
+					count += cursor.count;
+					if (cursor.advance()) {
+						queue.add(cursor);
+					} else {
+						cursor.close();
+					}
+				}
+
+				if (count != 0) {
+					nextKey = key;
+					nextCount = count;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextKey != null;
+		}
+
+		@Override
+		public PairOfObjectInt<String> next() {
+			if (nextKey == null) {
+				throw new NoSuchElementException();
+			}
+
+			pair.set(nextKey, nextCount);
+			fetch();
+			return pair;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Closes the files of the cursors that aren't exhausted yet.
+		 */
+		void close() {
+			for (Cursor cursor : queue) {
+				cursor.close();
+			}
+			queue.clear();
+			nextKey = null;
+		}
+	}
+
+	/**
+	 * A run file of events and counts, sorted by event, with a sparse index
+	 * into it: the first event of every block of <code>INDEX_INTERVAL</code>
+	 * events, and its offset in the file.
+	 */
+	private static class Run {
+		private final File file;
+		private final int size;
+		private final String[] indexKeys;
+		private final long[] indexOffsets;
+		private final long length;
+
+		private RandomAccessFile in;
+
+		private Run(File file, int size, String[] indexKeys, long[] indexOffsets, long length) {
+			this.file = file;
+			this.size = size;
+			this.indexKeys = indexKeys;
+			this.indexOffsets = indexOffsets;
+			this.length = length;
+		}
+
+		static Run write(File directory, Iterator<PairOfObjectInt<String>> iter) {
+			try {
+				File file = File.createTempFile("counts", ".run", directory);
+				file.deleteOnExit();
+
+				CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(
+						new FileOutputStream(file)));
+				DataOutputStream out = new DataOutputStream(counter);
+
+				List<String> indexKeys = Lists.newArrayList();
+				List<Long> indexOffsets = Lists.newArrayList();
+				int size = 0;
+				try {
+					while (iter.hasNext()) {
+						PairOfObjectInt<String> e = iter.next();
+						if (size % INDEX_INTERVAL == 0) {
+							indexKeys.add(e.getLeftElement());
+							indexOffsets.add(counter.getCount());
+						}
+
+						out.writeUTF(e.getLeftElement());
+						WritableUtils.writeVInt(out, e.getRightElement());
+						size++;
+					}
+				} finally {
+					out.close();
+				}
+
+				long[] offsets = new long[indexOffsets.size()];
+				for (int i = 0; i < offsets.length; i++) {
+					offsets[i] = indexOffsets.get(i);
+				}
+
+				return new Run(file, size, indexKeys.toArray(new String[indexKeys.size()]), offsets,
+						counter.getCount());
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Returns the count of an event in this run, reading only the block of
+		 * the file it would be in.
+		 */
+		int get(String key) {
+			int block = Arrays.binarySearch(indexKeys, key);
+			if (block == -1) {
+				return 0;
+			}
+			if (block < 0) {
+				block = -block - 2;
+			}
+
+			long start = indexOffsets[block];
+			long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : length;
+			byte[] bytes = new byte[(int) (end - start)];
+
+			try {
+				if (in == null) {
+					in = new RandomAccessFile(file, "r");
+				}
+				in.seek(start);
+				in.readFully(bytes);
+
+				DataInputStream blockIn = new DataInputStream(new ByteArrayInputStream(bytes));
+				int n = Math.min(INDEX_INTERVAL, size - block * INDEX_INTERVAL);
+				for (int i = 0; i < n; i++) {
+					int c = blockIn.readUTF().compareTo(key);
+					int count = WritableUtils.readVInt(blockIn);
+					if (c == 0) {
+						return count;
+					}
+					if (c > 0) {
+						break;
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			return 0;
+		}
+
+		Cursor cursor() {
+			try {
+				final DataInputStream cursorIn = new DataInputStream(new BufferedInputStream(
+						new FileInputStream(file)));
+
+				return new Cursor() {
+					private int remaining = size;
+
+					@Override
+					boolean advance() {
+						if (remaining == 0) {
+							return false;
+						}
+
+						try {
+							key = cursorIn.readUTF();
+							count = WritableUtils.readVInt(cursorIn);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+						remaining--;
+						return true;
+					}
+
+					@Override
+					void close() {
+						try {
+							cursorIn.close();
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				};
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		void delete() {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			file.delete();
+		}
+	}
+}
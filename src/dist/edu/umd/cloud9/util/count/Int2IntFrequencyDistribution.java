@@ -19,6 +19,7 @@ package edu.umd.cloud9.util.count;
 import java.util.List;
 
 import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.map.IntIntProcedure;
 
 /**
  * A frequency distribution where events are ints and counts are ints.
@@ -73,6 +74,12 @@ public interface Int2IntFrequencyDistribution extends Iterable<PairOfInts> {
 	 */
 	public void clear();
 
+	/**
+	 * Adds the frequencies of all events in another distribution to the
+	 * frequencies of the same events in this one.
+	 */
+	public void addAll(Int2IntFrequencyDistribution that);
+
 	/**
 	 * Returns events sorted by frequency of occurrence.
 	 */
@@ -83,6 +90,12 @@ public interface Int2IntFrequencyDistribution extends Iterable<PairOfInts> {
 	 */
 	public List<PairOfInts> getFrequencySortedEvents(int n);
 
+	/**
+	 * Applies a procedure to the top <i>n</i> events, in descending order of
+	 * frequency, without building a list of all events.
+	 */
+	public void topK(int n, IntIntProcedure procedure);
+
 	/**
 	 * Returns events in sorted order.
 	 */
@@ -3,6 +3,7 @@ package edu.umd.cloud9.util.count;
 import java.util.List;
 
 import edu.umd.cloud9.io.pair.PairOfIntLong;
+import edu.umd.cloud9.util.map.IntLongProcedure;
 
 /**
  * A frequency distribution where events are ints and counts are longs.
@@ -57,6 +58,12 @@ public interface Int2LongFrequencyDistribution extends Iterable<PairOfIntLong> {
 	 */
 	public void clear();
 
+	/**
+	 * Adds the frequencies of all events in another distribution to the
+	 * frequencies of the same events in this one.
+	 */
+	public void addAll(Int2LongFrequencyDistribution that);
+
 	/**
 	 * Returns events sorted by frequency of occurrence.
 	 */
@@ -67,6 +74,12 @@ public interface Int2LongFrequencyDistribution extends Iterable<PairOfIntLong> {
 	 */
 	public List<PairOfIntLong> getFrequencySortedEvents(int n);
 
+	/**
+	 * Applies a procedure to the top <i>n</i> events, in descending order of
+	 * frequency, without building a list of all events.
+	 */
+	public void topK(int n, IntLongProcedure procedure);
+
 	/**
 	 * Returns events in sorted order.
 	 */
@@ -19,6 +19,7 @@ package edu.umd.cloud9.util.count;
 import java.util.List;
 
 import edu.umd.cloud9.io.pair.PairOfLongInt;
+import edu.umd.cloud9.util.map.LongIntProcedure;
 
 /**
  * A frequency distribution where events are longs and counts are ints.
@@ -83,6 +84,12 @@ public interface Long2IntFrequencyDistribution extends Iterable<PairOfLongInt> {
 	 */
 	public List<PairOfLongInt> getFrequencySortedEvents(int n);
 
+	/**
+	 * Applies a procedure to the top <i>n</i> events, in descending order of
+	 * frequency, without building a list of all events.
+	 */
+	public void topK(int n, LongIntProcedure procedure);
+
 	/**
 	 * Returns events in sorted order.
 	 */
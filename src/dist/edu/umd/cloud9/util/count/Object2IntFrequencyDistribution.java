@@ -18,6 +18,7 @@ package edu.umd.cloud9.util.count;
 
 import java.util.List;
 
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 /**
@@ -73,6 +74,12 @@ public interface Object2IntFrequencyDistribution<K extends Comparable<K>> extend
 	 */
 	public void clear();
 
+	/**
+	 * Adds the frequencies of all events in another distribution to the
+	 * frequencies of the same events in this one.
+	 */
+	public void addAll(Object2IntFrequencyDistribution<K> that);
+
 	/**
 	 * Returns events sorted by frequency of occurrence.
 	 */
@@ -83,6 +90,12 @@ public interface Object2IntFrequencyDistribution<K extends Comparable<K>> extend
 	 */
 	public List<PairOfObjectInt<K>> getFrequencySortedEvents(int n);
 
+	/**
+	 * Applies a procedure to the top <i>n</i> events, in descending order of
+	 * frequency, without building a list of all events.
+	 */
+	public void topK(int n, ObjectIntProcedure<K> procedure);
+
 	/**
 	 * Returns events in sorted order.
 	 */
@@ -2,6 +2,7 @@ package edu.umd.cloud9.util.count;
 
 import java.util.List;
 
+import edu.umd.cloud9.util.map.ObjectLongProcedure;
 import edu.umd.cloud9.util.pair.PairOfObjectLong;
 
 /**
@@ -57,6 +58,12 @@ public interface Object2LongFrequencyDistribution<K extends Comparable<K>> exten
 	 */
 	public void clear();
 
+	/**
+	 * Adds the frequencies of all events in another distribution to the
+	 * frequencies of the same events in this one.
+	 */
+	public void addAll(Object2LongFrequencyDistribution<K> that);
+
 	/**
 	 * Returns events sorted by frequency of occurrence.
 	 */
@@ -67,6 +74,12 @@ public interface Object2LongFrequencyDistribution<K extends Comparable<K>> exten
 	 */
 	public List<PairOfObjectLong<K>> getFrequencySortedEvents(int n);
 
+	/**
+	 * Applies a procedure to the top <i>n</i> events, in descending order of
+	 * frequency, without building a list of all events.
+	 */
+	public void topK(int n, ObjectLongProcedure<K> procedure);
+
 	/**
 	 * Returns events in sorted order.
 	 */
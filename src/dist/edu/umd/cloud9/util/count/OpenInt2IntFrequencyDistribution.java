@@ -20,15 +20,20 @@ import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.map.IntIntProcedure;
 
 /**
  * Implementation of {@link Int2IntFrequencyDistribution} based on
@@ -42,6 +47,40 @@ public class OpenInt2IntFrequencyDistribution implements Int2IntFrequencyDistrib
 	private Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private static final Comparator<PairOfInts> FREQUENCY_ORDER = new Comparator<PairOfInts>() {
+		public int compare(PairOfInts e1, PairOfInts e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() == e2.getLeftElement()) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
+		}
+	};
+
+	// ascending order of events
+	private static final Comparator<PairOfInts> EVENT_ORDER = new Comparator<PairOfInts>() {
+		public int compare(PairOfInts e1, PairOfInts e2) {
+			if (e1.getLeftElement() > e2.getLeftElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() < e2.getLeftElement()) {
+				return -1;
+			}
+
+			throw new RuntimeException("Event observed twice!");
+		}
+	};
+
 	@Override
 	public void increment(int key) {
 		if (contains(key)) {
@@ -122,6 +161,124 @@ public class OpenInt2IntFrequencyDistribution implements Int2IntFrequencyDistrib
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Int2IntFrequencyDistribution that) {
+		long sum = 0;
+		for (PairOfInts pair : that) {
+			counts.put(pair.getLeftElement(), counts.get(pair.getLeftElement()) + pair.getRightElement());
+			sum += pair.getRightElement();
+		}
+		sumOfFrequencies += sum;
+	}
+
+	/**
+	 * Merges frequency distributions, e.g., ones built by different threads over
+	 * shards of a collection, into a new distribution, using
+	 * <code>numThreads</code> threads. Each input is first split into
+	 * partitions by the hash of its events, and each partition is then summed
+	 * over all inputs by a thread of its own, so that the time spent on the
+	 * merge scales with the number of threads rather than with the number of
+	 * inputs. The inputs are not modified.
+	 *
+	 * @param fds
+	 *            distributions to merge
+	 * @param numThreads
+	 *            number of threads to use
+	 * @return the merged distribution
+	 */
+	public static OpenInt2IntFrequencyDistribution mergeAll(
+			final List<? extends Int2IntFrequencyDistribution> fds, int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Illegal number of threads: " + numThreads);
+		}
+
+		OpenInt2IntFrequencyDistribution merged = new OpenInt2IntFrequencyDistribution();
+		if (fds.isEmpty()) {
+			return merged;
+		}
+
+		// Even with one thread, at least two partitions: adding the entries of
+		// one hash map to another in table order, as addAll does, makes the
+		// target cluster badly as it grows.
+		final int n = fds.size();
+		final int p = Math.max(numThreads, 2);
+		final ArrayListOfInts[][] keys = new ArrayListOfInts[n][p];
+		final ArrayListOfInts[][] values = new ArrayListOfInts[n][p];
+
+		List<Callable<Void>> tasks = Lists.newArrayList();
+		for (int i = 0; i < n; i++) {
+			final int input = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Int2IntFrequencyDistribution fd = fds.get(input);
+					int size = fd.getNumberOfEvents() / p + 1;
+					for (int j = 0; j < p; j++) {
+						keys[input][j] = new ArrayListOfInts(size);
+						values[input][j] = new ArrayListOfInts(size);
+					}
+
+					for (PairOfInts pair : fd) {
+						int key = pair.getLeftElement();
+						int j = ParallelMerge.partition(key, p);
+						keys[input][j].add(key);
+						values[input][j].add(pair.getRightElement());
+					}
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		final Int2IntOpenHashMap[] partitions = new Int2IntOpenHashMap[p];
+		final long[] sums = new long[p];
+
+		tasks.clear();
+		for (int j = 0; j < p; j++) {
+			final int partition = j;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+					long sum = 0;
+					for (int i = 0; i < n; i++) {
+						int[] k = keys[i][partition].getArray();
+						int[] v = values[i][partition].getArray();
+						for (int m = 0, size = values[i][partition].size(); m < size; m++) {
+							map.put(k[m], map.get(k[m]) + v[m]);
+							sum += v[m];
+						}
+
+						keys[i][partition] = null;
+						values[i][partition] = null;
+					}
+
+					partitions[partition] = map;
+					sums[partition] = sum;
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		// the partitions are disjoint, so they are simply copied over
+		int size = 0;
+		for (Int2IntOpenHashMap map : partitions) {
+			size += map.size();
+		}
+
+		merged.counts = new Int2IntOpenHashMap(size);
+		for (int j = 0; j < p; j++) {
+			ObjectIterator<Int2IntMap.Entry> iter = partitions[j].int2IntEntrySet().fastIterator();
+			while (iter.hasNext()) {
+				Int2IntMap.Entry e = iter.next();
+				merged.counts.put(e.getIntKey(), e.getIntValue());
+			}
+			partitions[j] = null;
+			merged.sumOfFrequencies += sums[j];
+		}
+
+		return merged;
+	}
+
 	/**
 	 * Exposes efficient method for accessing keys in this map.
 	 */
@@ -151,31 +308,14 @@ public class OpenInt2IntFrequencyDistribution implements Int2IntFrequencyDistrib
 			list.add(new PairOfInts(e.getIntKey(), e.getIntValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfInts>() {
-			public int compare(PairOfInts e1, PairOfInts e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() == e2.getLeftElement()) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
-			}
-		});
+		Collections.sort(list, FREQUENCY_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfInts> getFrequencySortedEvents(int n) {
-		List<PairOfInts> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, FREQUENCY_ORDER);
 	}
 
 	@Override
@@ -186,27 +326,39 @@ public class OpenInt2IntFrequencyDistribution implements Int2IntFrequencyDistrib
 			list.add(new PairOfInts(e.getIntKey(), e.getIntValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfInts>() {
-			public int compare(PairOfInts e1, PairOfInts e2) {
-				if (e1.getLeftElement() > e2.getLeftElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() < e2.getLeftElement()) {
-					return -1;
-				}
-
-				throw new RuntimeException("Event observed twice!");
-			}
-		});
+		Collections.sort(list, EVENT_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfInts> getSortedEvents(int n) {
-		List<PairOfInts> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, EVENT_ORDER);
+	}
+
+	@Override
+	public void topK(int n, IntIntProcedure procedure) {
+		for (PairOfInts pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfInts> select(int n, Comparator<PairOfInts> order) {
+		TopK<PairOfInts> top = new TopK<PairOfInts>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfInts pair = null;
+		for (Int2IntMap.Entry e : counts.int2IntEntrySet()) {
+			if (pair == null) {
+				pair = new PairOfInts(e.getIntKey(), e.getIntValue());
+			} else {
+				pair.set(e.getIntKey(), e.getIntValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
@@ -224,7 +376,7 @@ public class OpenInt2IntFrequencyDistribution implements Int2IntFrequencyDistrib
 	 */
 	public Iterator<PairOfInts> iterator() {
 		return new Iterator<PairOfInts>() {
-			private Iterator<Int2IntMap.Entry> iter = OpenInt2IntFrequencyDistribution.this.counts.int2IntEntrySet().iterator();
+			private Iterator<Int2IntMap.Entry> iter = OpenInt2IntFrequencyDistribution.this.counts.int2IntEntrySet().fastIterator();
 			private final PairOfInts pair = new PairOfInts();
 
 			@Override
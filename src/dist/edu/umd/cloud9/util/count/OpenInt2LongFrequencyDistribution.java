@@ -20,15 +20,21 @@ import it.unimi.dsi.fastutil.ints.Int2LongMap;
 import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfIntLong;
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.array.ArrayListOfLongs;
+import edu.umd.cloud9.util.map.IntLongProcedure;
 
 /**
  * Implementation of {@link Int2LongFrequencyDistribution} based on
@@ -42,6 +48,40 @@ public class OpenInt2LongFrequencyDistribution implements Int2LongFrequencyDistr
 	private Int2LongOpenHashMap counts = new Int2LongOpenHashMap();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private static final Comparator<PairOfIntLong> FREQUENCY_ORDER = new Comparator<PairOfIntLong>() {
+		public int compare(PairOfIntLong e1, PairOfIntLong e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() == e2.getLeftElement()) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
+		}
+	};
+
+	// ascending order of events
+	private static final Comparator<PairOfIntLong> EVENT_ORDER = new Comparator<PairOfIntLong>() {
+		public int compare(PairOfIntLong e1, PairOfIntLong e2) {
+			if (e1.getLeftElement() > e2.getLeftElement()) {
+				return 1;
+			}
+
+			if (e1.getLeftElement() < e2.getLeftElement()) {
+				return -1;
+			}
+
+			throw new RuntimeException("Event observed twice!");
+		}
+	};
+
 	@Override
 	public void increment(int key) {
 		if (contains(key)) {
@@ -122,6 +162,124 @@ public class OpenInt2LongFrequencyDistribution implements Int2LongFrequencyDistr
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Int2LongFrequencyDistribution that) {
+		long sum = 0;
+		for (PairOfIntLong pair : that) {
+			counts.put(pair.getLeftElement(), counts.get(pair.getLeftElement()) + pair.getRightElement());
+			sum += pair.getRightElement();
+		}
+		sumOfFrequencies += sum;
+	}
+
+	/**
+	 * Merges frequency distributions, e.g., ones built by different threads over
+	 * shards of a collection, into a new distribution, using
+	 * <code>numThreads</code> threads. Each input is first split into
+	 * partitions by the hash of its events, and each partition is then summed
+	 * over all inputs by a thread of its own, so that the time spent on the
+	 * merge scales with the number of threads rather than with the number of
+	 * inputs. The inputs are not modified.
+	 *
+	 * @param fds
+	 *            distributions to merge
+	 * @param numThreads
+	 *            number of threads to use
+	 * @return the merged distribution
+	 */
+	public static OpenInt2LongFrequencyDistribution mergeAll(
+			final List<? extends Int2LongFrequencyDistribution> fds, int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Illegal number of threads: " + numThreads);
+		}
+
+		OpenInt2LongFrequencyDistribution merged = new OpenInt2LongFrequencyDistribution();
+		if (fds.isEmpty()) {
+			return merged;
+		}
+
+		// Even with one thread, at least two partitions: adding the entries of
+		// one hash map to another in table order, as addAll does, makes the
+		// target cluster badly as it grows.
+		final int n = fds.size();
+		final int p = Math.max(numThreads, 2);
+		final ArrayListOfInts[][] keys = new ArrayListOfInts[n][p];
+		final ArrayListOfLongs[][] values = new ArrayListOfLongs[n][p];
+
+		List<Callable<Void>> tasks = Lists.newArrayList();
+		for (int i = 0; i < n; i++) {
+			final int input = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Int2LongFrequencyDistribution fd = fds.get(input);
+					int size = fd.getNumberOfEvents() / p + 1;
+					for (int j = 0; j < p; j++) {
+						keys[input][j] = new ArrayListOfInts(size);
+						values[input][j] = new ArrayListOfLongs(size);
+					}
+
+					for (PairOfIntLong pair : fd) {
+						int key = pair.getLeftElement();
+						int j = ParallelMerge.partition(key, p);
+						keys[input][j].add(key);
+						values[input][j].add(pair.getRightElement());
+					}
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		final Int2LongOpenHashMap[] partitions = new Int2LongOpenHashMap[p];
+		final long[] sums = new long[p];
+
+		tasks.clear();
+		for (int j = 0; j < p; j++) {
+			final int partition = j;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Int2LongOpenHashMap map = new Int2LongOpenHashMap();
+					long sum = 0;
+					for (int i = 0; i < n; i++) {
+						int[] k = keys[i][partition].getArray();
+						long[] v = values[i][partition].getArray();
+						for (int m = 0, size = values[i][partition].size(); m < size; m++) {
+							map.put(k[m], map.get(k[m]) + v[m]);
+							sum += v[m];
+						}
+
+						keys[i][partition] = null;
+						values[i][partition] = null;
+					}
+
+					partitions[partition] = map;
+					sums[partition] = sum;
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		// the partitions are disjoint, so they are simply copied over
+		int size = 0;
+		for (Int2LongOpenHashMap map : partitions) {
+			size += map.size();
+		}
+
+		merged.counts = new Int2LongOpenHashMap(size);
+		for (int j = 0; j < p; j++) {
+			ObjectIterator<Int2LongMap.Entry> iter = partitions[j].int2LongEntrySet().fastIterator();
+			while (iter.hasNext()) {
+				Int2LongMap.Entry e = iter.next();
+				merged.counts.put(e.getIntKey(), e.getLongValue());
+			}
+			partitions[j] = null;
+			merged.sumOfFrequencies += sums[j];
+		}
+
+		return merged;
+	}
+
 	/**
 	 * Exposes efficient method for accessing keys in this map.
 	 */
@@ -151,31 +309,14 @@ public class OpenInt2LongFrequencyDistribution implements Int2LongFrequencyDistr
 			list.add(new PairOfIntLong(e.getIntKey(), e.getLongValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfIntLong>() {
-			public int compare(PairOfIntLong e1, PairOfIntLong e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() == e2.getLeftElement()) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
-			}
-		});
+		Collections.sort(list, FREQUENCY_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfIntLong> getFrequencySortedEvents(int n) {
-		List<PairOfIntLong> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, FREQUENCY_ORDER);
 	}
 
 	@Override
@@ -186,27 +327,39 @@ public class OpenInt2LongFrequencyDistribution implements Int2LongFrequencyDistr
 			list.add(new PairOfIntLong(e.getIntKey(), e.getLongValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfIntLong>() {
-			public int compare(PairOfIntLong e1, PairOfIntLong e2) {
-				if (e1.getLeftElement() > e2.getLeftElement()) {
-					return 1;
-				}
-
-				if (e1.getLeftElement() < e2.getLeftElement()) {
-					return -1;
-				}
-
-				throw new RuntimeException("Event observed twice!");
-			}
-		});
+		Collections.sort(list, EVENT_ORDER);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfIntLong> getSortedEvents(int n) {
-		List<PairOfIntLong> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, EVENT_ORDER);
+	}
+
+	@Override
+	public void topK(int n, IntLongProcedure procedure) {
+		for (PairOfIntLong pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfIntLong> select(int n, Comparator<PairOfIntLong> order) {
+		TopK<PairOfIntLong> top = new TopK<PairOfIntLong>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfIntLong pair = null;
+		for (Int2LongMap.Entry e : counts.int2LongEntrySet()) {
+			if (pair == null) {
+				pair = new PairOfIntLong(e.getIntKey(), e.getLongValue());
+			} else {
+				pair.set(e.getIntKey(), e.getLongValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
@@ -224,7 +377,7 @@ public class OpenInt2LongFrequencyDistribution implements Int2LongFrequencyDistr
 	 */
 	public Iterator<PairOfIntLong> iterator() {
 		return new Iterator<PairOfIntLong>() {
-			private Iterator<Int2LongMap.Entry> iter = OpenInt2LongFrequencyDistribution.this.counts.int2LongEntrySet().iterator();
+			private Iterator<Int2LongMap.Entry> iter = OpenInt2LongFrequencyDistribution.this.counts.int2LongEntrySet().fastIterator();
 			private final PairOfIntLong pair = new PairOfIntLong();
 
 			@Override
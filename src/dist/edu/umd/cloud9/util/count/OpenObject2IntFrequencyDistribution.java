@@ -19,15 +19,21 @@ package edu.umd.cloud9.util.count;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 /**
@@ -42,6 +48,32 @@ public class OpenObject2IntFrequencyDistribution<K extends Comparable<K>> implem
 	private Object2IntOpenHashMap<K> counts = new Object2IntOpenHashMap<K>();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private final Comparator<PairOfObjectInt<K>> frequencyOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	// ascending order of events
+	private final Comparator<PairOfObjectInt<K>> eventOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			if (e1.getLeftElement().equals(e2.getLeftElement())) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
 	@Override
 	public void increment(K key) {
 		set(key, get(key) + 1);
@@ -114,6 +146,126 @@ public class OpenObject2IntFrequencyDistribution<K extends Comparable<K>> implem
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Object2IntFrequencyDistribution<K> that) {
+		long sum = 0;
+		for (PairOfObjectInt<K> pair : that) {
+			counts.put(pair.getLeftElement(), counts.getInt(pair.getLeftElement()) + pair.getRightElement());
+			sum += pair.getRightElement();
+		}
+		sumOfFrequencies += sum;
+	}
+
+	/**
+	 * Merges frequency distributions, e.g., ones built by different threads over
+	 * shards of a collection, into a new distribution, using
+	 * <code>numThreads</code> threads. Each input is first split into
+	 * partitions by the hash of its events, and each partition is then summed
+	 * over all inputs by a thread of its own, so that the time spent on the
+	 * merge scales with the number of threads rather than with the number of
+	 * inputs. The inputs are not modified.
+	 *
+	 * @param fds
+	 *            distributions to merge
+	 * @param numThreads
+	 *            number of threads to use
+	 * @return the merged distribution
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K extends Comparable<K>> OpenObject2IntFrequencyDistribution<K> mergeAll(
+			final List<? extends Object2IntFrequencyDistribution<K>> fds, int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Illegal number of threads: " + numThreads);
+		}
+
+		OpenObject2IntFrequencyDistribution<K> merged = new OpenObject2IntFrequencyDistribution<K>();
+		if (fds.isEmpty()) {
+			return merged;
+		}
+
+		// Even with one thread, at least two partitions: adding the entries of
+		// one hash map to another in table order, as addAll does, makes the
+		// target cluster badly as it grows.
+		final int n = fds.size();
+		final int p = Math.max(numThreads, 2);
+		final List<K>[][] keys = (List<K>[][]) new List<?>[n][p];
+		final ArrayListOfInts[][] values = new ArrayListOfInts[n][p];
+
+		List<Callable<Void>> tasks = Lists.newArrayList();
+		for (int i = 0; i < n; i++) {
+			final int input = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Object2IntFrequencyDistribution<K> fd = fds.get(input);
+					int size = fd.getNumberOfEvents() / p + 1;
+					for (int j = 0; j < p; j++) {
+						keys[input][j] = new ArrayList<K>(size);
+						values[input][j] = new ArrayListOfInts(size);
+					}
+
+					for (PairOfObjectInt<K> pair : fd) {
+						K key = pair.getLeftElement();
+						int j = ParallelMerge.partition(key.hashCode(), p);
+						keys[input][j].add(key);
+						values[input][j].add(pair.getRightElement());
+					}
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		final Object2IntOpenHashMap<K>[] partitions =
+				(Object2IntOpenHashMap<K>[]) new Object2IntOpenHashMap<?>[p];
+		final long[] sums = new long[p];
+
+		tasks.clear();
+		for (int j = 0; j < p; j++) {
+			final int partition = j;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Object2IntOpenHashMap<K> map = new Object2IntOpenHashMap<K>();
+					long sum = 0;
+					for (int i = 0; i < n; i++) {
+						List<K> k = keys[i][partition];
+						int[] v = values[i][partition].getArray();
+						for (int m = 0, size = values[i][partition].size(); m < size; m++) {
+							map.put(k.get(m), map.getInt(k.get(m)) + v[m]);
+							sum += v[m];
+						}
+
+						keys[i][partition] = null;
+						values[i][partition] = null;
+					}
+
+					partitions[partition] = map;
+					sums[partition] = sum;
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		// the partitions are disjoint, so they are simply copied over
+		int size = 0;
+		for (Object2IntOpenHashMap<K> map : partitions) {
+			size += map.size();
+		}
+
+		merged.counts = new Object2IntOpenHashMap<K>(size);
+		for (int j = 0; j < p; j++) {
+			ObjectIterator<Object2IntMap.Entry<K>> iter = partitions[j].object2IntEntrySet().fastIterator();
+			while (iter.hasNext()) {
+				Object2IntMap.Entry<K> e = iter.next();
+				merged.counts.put(e.getKey(), e.getIntValue());
+			}
+			partitions[j] = null;
+			merged.sumOfFrequencies += sums[j];
+		}
+
+		return merged;
+	}
+
 	/**
 	 * Exposes efficient method for accessing keys in this map.
 	 */
@@ -143,27 +295,14 @@ public class OpenObject2IntFrequencyDistribution<K extends Comparable<K>> implem
 			list.add(new PairOfObjectInt<K>(e.getKey(), e.getIntValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfObjectInt<K>>() {
-			public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				return e1.getLeftElement().compareTo(e2.getLeftElement());
-			}
-		});
+		Collections.sort(list, frequencyOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectInt<K>> getFrequencySortedEvents(int n) {
-		List<PairOfObjectInt<K>> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, frequencyOrder);
 	}
 
 	@Override
@@ -175,23 +314,39 @@ public class OpenObject2IntFrequencyDistribution<K extends Comparable<K>> implem
 		}
 
 		// sort the entries
-		Collections.sort(list, new Comparator<PairOfObjectInt<K>>() {
-			public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
-				if (e1.getLeftElement().equals(e2.getLeftElement())) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement().compareTo(e2.getLeftElement());
-			}
-		});
+		Collections.sort(list, eventOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectInt<K>> getSortedEvents(int n) {
-		List<PairOfObjectInt<K>> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, eventOrder);
+	}
+
+	@Override
+	public void topK(int n, ObjectIntProcedure<K> procedure) {
+		for (PairOfObjectInt<K> pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfObjectInt<K>> select(int n, Comparator<PairOfObjectInt<K>> order) {
+		TopK<PairOfObjectInt<K>> top = new TopK<PairOfObjectInt<K>>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfObjectInt<K> pair = null;
+		for (Object2IntMap.Entry<K> e : counts.object2IntEntrySet()) {
+			if (pair == null) {
+				pair = new PairOfObjectInt<K>(e.getKey(), e.getIntValue());
+			} else {
+				pair.set(e.getKey(), e.getIntValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
@@ -209,7 +364,7 @@ public class OpenObject2IntFrequencyDistribution<K extends Comparable<K>> implem
 	 */
 	public Iterator<PairOfObjectInt<K>> iterator() {
 		return new Iterator<PairOfObjectInt<K>>() {
-			private Iterator<Object2IntMap.Entry<K>> iter = OpenObject2IntFrequencyDistribution.this.counts.object2IntEntrySet().iterator();
+			private Iterator<Object2IntMap.Entry<K>> iter = OpenObject2IntFrequencyDistribution.this.counts.object2IntEntrySet().fastIterator();
 			private final PairOfObjectInt<K> pair = new PairOfObjectInt<K>();
 
 			@Override
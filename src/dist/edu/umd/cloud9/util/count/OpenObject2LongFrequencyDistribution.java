@@ -19,15 +19,21 @@ package edu.umd.cloud9.util.count;
 import it.unimi.dsi.fastutil.longs.LongCollection;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.array.ArrayListOfLongs;
+import edu.umd.cloud9.util.map.ObjectLongProcedure;
 import edu.umd.cloud9.util.pair.PairOfObjectLong;
 
 /**
@@ -42,6 +48,32 @@ public class OpenObject2LongFrequencyDistribution<K extends Comparable<K>> imple
 	private Object2LongOpenHashMap<K> counts = new Object2LongOpenHashMap<K>();
 	private long sumOfFrequencies = 0;
 
+	// descending frequency, ties broken by the event
+	private final Comparator<PairOfObjectLong<K>> frequencyOrder = new Comparator<PairOfObjectLong<K>>() {
+		public int compare(PairOfObjectLong<K> e1, PairOfObjectLong<K> e2) {
+			if (e1.getRightElement() > e2.getRightElement()) {
+				return -1;
+			}
+
+			if (e1.getRightElement() < e2.getRightElement()) {
+				return 1;
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	// ascending order of events
+	private final Comparator<PairOfObjectLong<K>> eventOrder = new Comparator<PairOfObjectLong<K>>() {
+		public int compare(PairOfObjectLong<K> e1, PairOfObjectLong<K> e2) {
+			if (e1.getLeftElement().equals(e2.getLeftElement())) {
+				throw new RuntimeException("Event observed twice!");
+			}
+
+			return e1.getLeftElement().compareTo(e1.getLeftElement());
+		}
+	};
+
 	@Override
 	public void increment(K key) {
 		if (contains(key)) {
@@ -122,6 +154,126 @@ public class OpenObject2LongFrequencyDistribution<K extends Comparable<K>> imple
 		sumOfFrequencies = 0;
 	}
 
+	@Override
+	public void addAll(Object2LongFrequencyDistribution<K> that) {
+		long sum = 0;
+		for (PairOfObjectLong<K> pair : that) {
+			counts.put(pair.getLeftElement(), counts.getLong(pair.getLeftElement()) + pair.getRightElement());
+			sum += pair.getRightElement();
+		}
+		sumOfFrequencies += sum;
+	}
+
+	/**
+	 * Merges frequency distributions, e.g., ones built by different threads over
+	 * shards of a collection, into a new distribution, using
+	 * <code>numThreads</code> threads. Each input is first split into
+	 * partitions by the hash of its events, and each partition is then summed
+	 * over all inputs by a thread of its own, so that the time spent on the
+	 * merge scales with the number of threads rather than with the number of
+	 * inputs. The inputs are not modified.
+	 *
+	 * @param fds
+	 *            distributions to merge
+	 * @param numThreads
+	 *            number of threads to use
+	 * @return the merged distribution
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K extends Comparable<K>> OpenObject2LongFrequencyDistribution<K> mergeAll(
+			final List<? extends Object2LongFrequencyDistribution<K>> fds, int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Illegal number of threads: " + numThreads);
+		}
+
+		OpenObject2LongFrequencyDistribution<K> merged = new OpenObject2LongFrequencyDistribution<K>();
+		if (fds.isEmpty()) {
+			return merged;
+		}
+
+		// Even with one thread, at least two partitions: adding the entries of
+		// one hash map to another in table order, as addAll does, makes the
+		// target cluster badly as it grows.
+		final int n = fds.size();
+		final int p = Math.max(numThreads, 2);
+		final List<K>[][] keys = (List<K>[][]) new List<?>[n][p];
+		final ArrayListOfLongs[][] values = new ArrayListOfLongs[n][p];
+
+		List<Callable<Void>> tasks = Lists.newArrayList();
+		for (int i = 0; i < n; i++) {
+			final int input = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Object2LongFrequencyDistribution<K> fd = fds.get(input);
+					int size = fd.getNumberOfEvents() / p + 1;
+					for (int j = 0; j < p; j++) {
+						keys[input][j] = new ArrayList<K>(size);
+						values[input][j] = new ArrayListOfLongs(size);
+					}
+
+					for (PairOfObjectLong<K> pair : fd) {
+						K key = pair.getLeftElement();
+						int j = ParallelMerge.partition(key.hashCode(), p);
+						keys[input][j].add(key);
+						values[input][j].add(pair.getRightElement());
+					}
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		final Object2LongOpenHashMap<K>[] partitions =
+				(Object2LongOpenHashMap<K>[]) new Object2LongOpenHashMap<?>[p];
+		final long[] sums = new long[p];
+
+		tasks.clear();
+		for (int j = 0; j < p; j++) {
+			final int partition = j;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					Object2LongOpenHashMap<K> map = new Object2LongOpenHashMap<K>();
+					long sum = 0;
+					for (int i = 0; i < n; i++) {
+						List<K> k = keys[i][partition];
+						long[] v = values[i][partition].getArray();
+						for (int m = 0, size = values[i][partition].size(); m < size; m++) {
+							map.put(k.get(m), map.getLong(k.get(m)) + v[m]);
+							sum += v[m];
+						}
+
+						keys[i][partition] = null;
+						values[i][partition] = null;
+					}
+
+					partitions[partition] = map;
+					sums[partition] = sum;
+					return null;
+				}
+			});
+		}
+		ParallelMerge.run(tasks, numThreads);
+
+		// the partitions are disjoint, so they are simply copied over
+		int size = 0;
+		for (Object2LongOpenHashMap<K> map : partitions) {
+			size += map.size();
+		}
+
+		merged.counts = new Object2LongOpenHashMap<K>(size);
+		for (int j = 0; j < p; j++) {
+			ObjectIterator<Object2LongMap.Entry<K>> iter = partitions[j].object2LongEntrySet().fastIterator();
+			while (iter.hasNext()) {
+				Object2LongMap.Entry<K> e = iter.next();
+				merged.counts.put(e.getKey(), e.getLongValue());
+			}
+			partitions[j] = null;
+			merged.sumOfFrequencies += sums[j];
+		}
+
+		return merged;
+	}
+
 	/**
 	 * Exposes efficient method for accessing keys in this map.
 	 */
@@ -151,27 +303,14 @@ public class OpenObject2LongFrequencyDistribution<K extends Comparable<K>> imple
 			list.add(new PairOfObjectLong<K>(e.getKey(), e.getLongValue()));
 		}
 
-		Collections.sort(list, new Comparator<PairOfObjectLong<K>>() {
-			public int compare(PairOfObjectLong<K> e1, PairOfObjectLong<K> e2) {
-				if (e1.getRightElement() > e2.getRightElement()) {
-					return -1;
-				}
-
-				if (e1.getRightElement() < e2.getRightElement()) {
-					return 1;
-				}
-
-				return e1.getLeftElement().compareTo(e2.getLeftElement());
-			}
-		});
+		Collections.sort(list, frequencyOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectLong<K>> getFrequencySortedEvents(int n) {
-		List<PairOfObjectLong<K>> list = getFrequencySortedEvents();
-		return list.subList(0, n);
+		return select(n, frequencyOrder);
 	}
 
 	@Override
@@ -183,23 +322,39 @@ public class OpenObject2LongFrequencyDistribution<K extends Comparable<K>> imple
 		}
 
 		// sort the entries
-		Collections.sort(list, new Comparator<PairOfObjectLong<K>>() {
-			public int compare(PairOfObjectLong<K> e1, PairOfObjectLong<K> e2) {
-				if (e1.getLeftElement().equals(e2.getLeftElement())) {
-					throw new RuntimeException("Event observed twice!");
-				}
-
-				return e1.getLeftElement().compareTo(e1.getLeftElement());
-			}
-		});
+		Collections.sort(list, eventOrder);
 
 		return list;
 	}
 
 	@Override
 	public List<PairOfObjectLong<K>> getSortedEvents(int n) {
-		List<PairOfObjectLong<K>> list = getSortedEvents();
-		return list.subList(0, n);
+		return select(n, eventOrder);
+	}
+
+	@Override
+	public void topK(int n, ObjectLongProcedure<K> procedure) {
+		for (PairOfObjectLong<K> pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	// selects the first n events in an order with a bounded heap, in O(N log n) time
+	private List<PairOfObjectLong<K>> select(int n, Comparator<PairOfObjectLong<K>> order) {
+		TopK<PairOfObjectLong<K>> top = new TopK<PairOfObjectLong<K>>(Math.min(n, counts.size()), order);
+
+		// events that don't make the cut are recycled
+		PairOfObjectLong<K> pair = null;
+		for (Object2LongMap.Entry<K> e : counts.object2LongEntrySet()) {
+			if (pair == null) {
+				pair = new PairOfObjectLong<K>(e.getKey(), e.getLongValue());
+			} else {
+				pair.set(e.getKey(), e.getLongValue());
+			}
+			pair = top.offer(pair);
+		}
+
+		return top.toSortedList();
 	}
 
 	@Override
@@ -217,7 +372,7 @@ public class OpenObject2LongFrequencyDistribution<K extends Comparable<K>> imple
 	 */
 	public Iterator<PairOfObjectLong<K>> iterator() {
 		return new Iterator<PairOfObjectLong<K>>() {
-			private Iterator<Object2LongMap.Entry<K>> iter = OpenObject2LongFrequencyDistribution.this.counts.object2LongEntrySet().iterator();
+			private Iterator<Object2LongMap.Entry<K>> iter = OpenObject2LongFrequencyDistribution.this.counts.object2LongEntrySet().fastIterator();
 			private final PairOfObjectLong<K> pair = new PairOfObjectLong<K>();
 
 			@Override
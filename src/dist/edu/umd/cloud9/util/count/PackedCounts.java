@@ -0,0 +1,203 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table of int counts keyed by longs, used by the packed
+ * conditional frequency distributions. A count of zero marks an empty slot, so
+ * counts that drop to zero are removed as part of the update that produces
+ * them, and {@link #put(long, int)} and {@link #add(long, int)} each probe the
+ * table once. Removal shifts the following entries back rather than leaving
+ * tombstones.
+ */
+final class PackedCounts {
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int threshold;
+	private int size = 0;
+
+	PackedCounts() {
+		allocate(16);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	// MurmurHash3 finalizer, so that keys differing only in the high 32 bits
+	// spread over the table
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	// slot holding key, or the empty slot where it would go
+	private int slot(long key) {
+		int i = hash(key) & mask;
+		while (values[i] != 0 && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the count of <code>key</code>, or zero if there is none.
+	 */
+	int get(long key) {
+		return values[slot(key)];
+	}
+
+	/**
+	 * Sets the count of <code>key</code>, removing it if <code>v</code> is
+	 * zero, and returns the previous count.
+	 */
+	int put(long key, int v) {
+		int i = slot(key);
+		int rv = values[i];
+		store(i, key, rv, v);
+		return rv;
+	}
+
+	/**
+	 * Adds <code>delta</code> to the count of <code>key</code>, removing it if
+	 * the result is zero, and returns the previous count.
+	 */
+	int add(long key, int delta) {
+		int i = slot(key);
+		int rv = values[i];
+		store(i, key, rv, rv + delta);
+		return rv;
+	}
+
+	private void store(int i, long key, int rv, int v) {
+		if (v == 0) {
+			if (rv != 0) {
+				remove(i);
+			}
+			return;
+		}
+
+		values[i] = v;
+		if (rv == 0) {
+			keys[i] = key;
+			if (++size > threshold) {
+				rehash();
+			}
+		}
+	}
+
+	// empties slot i, moving back entries of the same probe run that would
+	// otherwise become unreachable
+	private void remove(int i) {
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (values[j] == 0)
+				break;
+
+			int h = hash(keys[j]) & mask;
+			if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		values[i] = 0;
+		size--;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(oldValues.length << 1);
+
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != 0) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of non-zero counts.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots, for iterating with {@link #keyAt(int)} and
+	 * {@link #valueAt(int)}.
+	 */
+	int capacity() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the key in slot <code>i</code>, which is meaningful only if
+	 * {@link #valueAt(int)} is non-zero.
+	 */
+	long keyAt(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * Returns the count in slot <code>i</code>, or zero if the slot is empty.
+	 */
+	int valueAt(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Returns the keys in ascending order.
+	 */
+	long[] sortedKeys() {
+		long[] sorted = new long[size];
+		int n = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				sorted[n++] = keys[i];
+			}
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Returns the index of the first key in <code>sorted</code> whose high 32
+	 * bits are <code>hi</code>, or of the first greater key if there is none.
+	 */
+	static int lowerBound(long[] sorted, int hi) {
+		int i = Arrays.binarySearch(sorted, (long) hi << 32);
+		return i < 0 ? -i - 1 : i;
+	}
+}
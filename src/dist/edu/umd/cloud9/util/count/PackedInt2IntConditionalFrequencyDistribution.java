@@ -0,0 +1,199 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+/**
+ * <p>
+ * Implementation of {@link Int2IntConditionalFrequencyDistribution} that keeps
+ * all counts in a single open-addressing table, keyed by
+ * <code>(cond, k)</code> packed into a long. Unlike
+ * {@link OpenInt2IntConditionalFrequencyDistribution}, which holds a separate
+ * hash map per condition, this costs nothing per condition beyond a count of
+ * its events, which makes it much more compact for tables with many sparse
+ * conditions, such as translation or cooccurrence tables. Each update probes
+ * the table of pairs once.
+ * </p>
+ *
+ * <p>
+ * The price is that the distribution of a condition isn't stored as such:
+ * {@link #getConditionalDistribution(int)} produces it on demand from an index
+ * of the pairs sorted by condition, and returns a copy, which isn't backed by
+ * this object. The index takes 8 bytes per pair; it is built by the first call
+ * after pairs have been added or removed, at the cost of sorting all pairs, so
+ * reading the distributions of all conditions costs one sort plus a binary
+ * search per condition, as long as no pair appears or disappears in between.
+ * Changing counts of existing pairs keeps the index. Counts of zero are not
+ * stored.
+ * </p>
+ */
+public class PackedInt2IntConditionalFrequencyDistribution implements
+		Int2IntConditionalFrequencyDistribution {
+
+	// counts, keyed by cond in the high and k in the low 32 bits
+	private final PackedCounts counts = new PackedCounts();
+
+	// number of events observed with each condition
+	private final PackedCounts conditions = new PackedCounts();
+
+	private final PackedCounts marginals = new PackedCounts();
+
+	// keys of counts in ascending order, or null if pairs have been added or
+	// removed since it was built
+	private long[] index = null;
+
+	private long sumOfAllFrequencies = 0;
+
+	static long pack(int k, int cond) {
+		return ((long) cond << 32) | (k & 0xffffffffL);
+	}
+
+	@Override
+	public void set(int k, int cond, int v) {
+		update(k, cond, counts.put(pack(k, cond), v), v);
+	}
+
+	@Override
+	public void increment(int k, int cond) {
+		increment(k, cond, 1);
+	}
+
+	@Override
+	public void increment(int k, int cond, int v) {
+		int rv = counts.add(pack(k, cond), v);
+		update(k, cond, rv, rv + v);
+	}
+
+	// maintains the condition counts, marginals and index after the count of
+	// (k, cond) has changed from rv to v
+	private void update(int k, int cond, int rv, int v) {
+		if (rv == v)
+			return;
+
+		if (rv == 0) {
+			conditions.add(cond, 1);
+			index = null;
+		} else if (v == 0) {
+			conditions.add(cond, -1);
+			index = null;
+		}
+
+		marginals.add(k, v - rv);
+		sumOfAllFrequencies = sumOfAllFrequencies - rv + v;
+	}
+
+	@Override
+	public int get(int k, int cond) {
+		return counts.get(pack(k, cond));
+	}
+
+	@Override
+	public int getMarginalCount(int k) {
+		return marginals.get(k);
+	}
+
+	/**
+	 * Returns the frequency distribution conditioned on <code>cond</code>. The
+	 * distribution is read from the index of pairs, which is rebuilt first if
+	 * pairs have been added or removed since the last call, and changes to it
+	 * are not reflected in this object.
+	 */
+	@Override
+	public OpenInt2IntFrequencyDistribution getConditionalDistribution(int cond) {
+		OpenInt2IntFrequencyDistribution fd = new OpenInt2IntFrequencyDistribution();
+
+		if (conditions.get(cond) == 0)
+			return fd;
+
+		if (index == null) {
+			index = counts.sortedKeys();
+		}
+
+		for (int i = PackedCounts.lowerBound(index, cond); i < index.length
+				&& (int) (index[i] >>> 32) == cond; i++) {
+			fd.set((int) index[i], counts.get(index[i]));
+		}
+
+		return fd;
+	}
+
+	/**
+	 * Returns the number of distinct conditions observed.
+	 */
+	public int getNumberOfConditions() {
+		return conditions.size();
+	}
+
+	/**
+	 * Returns the number of distinct <code>(k, cond)</code> pairs observed.
+	 */
+	public int getNumberOfPairs() {
+		return counts.size();
+	}
+
+	@Override
+	public long getSumOfAllFrequencies() {
+		return sumOfAllFrequencies;
+	}
+
+	@Override
+	public void check() {
+		PackedCounts m = new PackedCounts();
+		PackedCounts c = new PackedCounts();
+
+		long totalSum = 0;
+		int n = 0;
+		for (int i = 0; i < counts.capacity(); i++) {
+			int v = counts.valueAt(i);
+			if (v == 0)
+				continue;
+
+			long key = counts.keyAt(i);
+			if (v != counts.get(key)) {
+				throw new RuntimeException("Internal Error!");
+			}
+
+			m.add((int) key, v);
+			c.add((int) (key >>> 32), 1);
+			totalSum += v;
+			n++;
+		}
+
+		if (totalSum != getSumOfAllFrequencies()) {
+			throw new RuntimeException("Internal Error! Got " + totalSum + ", Expected "	+ getSumOfAllFrequencies());
+		}
+
+		if (n != counts.size() || m.size() != marginals.size() || c.size() != conditions.size()) {
+			throw new RuntimeException("Internal Error!");
+		}
+
+		for (int i = 0; i < m.capacity(); i++) {
+			if (m.valueAt(i) != 0 && m.valueAt(i) != marginals.get(m.keyAt(i))) {
+				throw new RuntimeException("Internal Error!");
+			}
+		}
+
+		for (int i = 0; i < c.capacity(); i++) {
+			if (c.valueAt(i) != 0 && c.valueAt(i) != conditions.get(c.keyAt(i))) {
+				throw new RuntimeException("Internal Error!");
+			}
+		}
+
+		if (index != null && index.length != counts.size()) {
+			throw new RuntimeException("Internal Error!");
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Implementation of {@link Object2IntConditionalFrequencyDistribution} that
+ * keeps all counts in a single open-addressing table. Events and
+ * conditions are mapped to ints by a dictionary shared by both, and counts are
+ * keyed by the ids of <code>(cond, k)</code> packed into a long. Marginal
+ * counts, and the number of events observed with each condition, are kept in
+ * arrays indexed by id. Unlike
+ * {@link OpenObject2IntConditionalFrequencyDistribution}, which holds a
+ * separate hash map per condition, this makes the cost of a condition a
+ * dictionary entry, which is much more compact for tables with many sparse
+ * conditions. Each update probes the table of pairs once.
+ * </p>
+ *
+ * <p>
+ * The price is that the distribution of a condition isn't stored as such:
+ * {@link #getConditionalDistribution(Comparable)} produces it on demand from an
+ * index of the pairs sorted by condition, and returns a copy, which isn't
+ * backed by this object. As in
+ * {@link PackedInt2IntConditionalFrequencyDistribution}, the index takes 8
+ * bytes per pair, and is rebuilt by sorting all pairs on the first call after
+ * pairs have been added or removed. Counts of zero are not stored, but events
+ * and conditions stay in the dictionary once seen.
+ * </p>
+ */
+public class PackedObject2IntConditionalFrequencyDistribution<K extends Comparable<K>>
+		implements Object2IntConditionalFrequencyDistribution<K> {
+
+	private final Object2IntOpenHashMap<K> ids = new Object2IntOpenHashMap<K>();
+	private final List<K> objects = new ArrayList<K>();
+
+	// counts, keyed by the id of cond in the high and of k in the low 32 bits
+	private final PackedCounts counts = new PackedCounts();
+
+	// indexed by id: marginal counts, and number of events observed with each
+	// condition
+	private int[] marginals = new int[16];
+	private int[] conditions = new int[16];
+
+	// keys of counts in ascending order, or null if pairs have been added or
+	// removed since it was built
+	private long[] index = null;
+
+	private long sumOfAllFrequencies = 0;
+
+	public PackedObject2IntConditionalFrequencyDistribution() {
+		ids.defaultReturnValue(-1);
+	}
+
+	private int lookup(K o) {
+		return ids.getInt(o);
+	}
+
+	private int intern(K o) {
+		int id = ids.getInt(o);
+		if (id == -1) {
+			id = objects.size();
+			ids.put(o, id);
+			objects.add(o);
+
+			if (id == marginals.length) {
+				marginals = Arrays.copyOf(marginals, id + (id >> 1));
+				conditions = Arrays.copyOf(conditions, id + (id >> 1));
+			}
+		}
+		return id;
+	}
+
+	@Override
+	public void set(K k, K cond, int v) {
+		if (v == 0 && (lookup(k) == -1 || lookup(cond) == -1))
+			return;
+
+		int kid = intern(k);
+		int cid = intern(cond);
+		long key = PackedInt2IntConditionalFrequencyDistribution.pack(kid, cid);
+		update(kid, cid, counts.put(key, v), v);
+	}
+
+	// maintains the condition counts, marginals and index after the count of
+	// (kid, cid) has changed from rv to v
+	private void update(int kid, int cid, int rv, int v) {
+		if (rv == v)
+			return;
+
+		if (rv == 0) {
+			conditions[cid]++;
+			index = null;
+		} else if (v == 0) {
+			conditions[cid]--;
+			index = null;
+		}
+
+		marginals[kid] += -rv + v;
+		sumOfAllFrequencies = sumOfAllFrequencies - rv + v;
+	}
+
+	@Override
+	public void increment(K k, K cond) {
+		increment(k, cond, 1);
+	}
+
+	@Override
+	public void increment(K k, K cond, int v) {
+		if (v == 0)
+			return;
+
+		int kid = intern(k);
+		int cid = intern(cond);
+		long key = PackedInt2IntConditionalFrequencyDistribution.pack(kid, cid);
+		int rv = counts.add(key, v);
+		update(kid, cid, rv, rv + v);
+	}
+
+	@Override
+	public int get(K k, K cond) {
+		int kid = lookup(k);
+		int cid = lookup(cond);
+		if (kid == -1 || cid == -1)
+			return 0;
+
+		return counts.get(PackedInt2IntConditionalFrequencyDistribution.pack(kid, cid));
+	}
+
+	@Override
+	public int getMarginalCount(K k) {
+		int kid = lookup(k);
+		return kid == -1 ? 0 : marginals[kid];
+	}
+
+	/**
+	 * Returns the frequency distribution conditioned on <code>cond</code>. The
+	 * distribution is read from the index of pairs, which is rebuilt first if
+	 * pairs have been added or removed since the last call, and changes to it
+	 * are not reflected in this object.
+	 */
+	@Override
+	public OpenObject2IntFrequencyDistribution<K> getConditionalDistribution(K cond) {
+		OpenObject2IntFrequencyDistribution<K> fd = new OpenObject2IntFrequencyDistribution<K>();
+
+		int cid = lookup(cond);
+		if (cid == -1 || conditions[cid] == 0)
+			return fd;
+
+		if (index == null) {
+			index = counts.sortedKeys();
+		}
+
+		for (int i = PackedCounts.lowerBound(index, cid); i < index.length
+				&& (int) (index[i] >>> 32) == cid; i++) {
+			fd.set(objects.get((int) index[i]), counts.get(index[i]));
+		}
+
+		return fd;
+	}
+
+	/**
+	 * Returns the number of distinct <code>(k, cond)</code> pairs observed.
+	 */
+	public int getNumberOfPairs() {
+		return counts.size();
+	}
+
+	@Override
+	public long getSumOfAllFrequencies() {
+		return sumOfAllFrequencies;
+	}
+
+	@Override
+	public void check() {
+		int n = objects.size();
+		int[] m = new int[n];
+		int[] c = new int[n];
+
+		long totalSum = 0;
+		for (int i = 0; i < counts.capacity(); i++) {
+			int v = counts.valueAt(i);
+			if (v == 0)
+				continue;
+
+			long key = counts.keyAt(i);
+			if (v != counts.get(key)) {
+				throw new RuntimeException("Internal Error!");
+			}
+
+			m[(int) key] += v;
+			c[(int) (key >>> 32)]++;
+			totalSum += v;
+		}
+
+		if (totalSum != getSumOfAllFrequencies()) {
+			throw new RuntimeException("Internal Error! Got " + totalSum + ", Expected "	+ getSumOfAllFrequencies());
+		}
+
+		for (int i = 0; i < n; i++) {
+			if (m[i] != marginals[i] || c[i] != conditions[i] || ids.getInt(objects.get(i)) != i) {
+				throw new RuntimeException("Internal Error!");
+			}
+		}
+	}
+}
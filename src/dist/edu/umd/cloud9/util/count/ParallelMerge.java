@@ -0,0 +1,74 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plumbing for the <code>mergeAll</code> methods of the frequency
+ * distributions. A merge proceeds in two parallel phases: each input is split
+ * into partitions by the hash of its events, and then each partition is summed
+ * over all inputs. Since the partitions are disjoint, no two threads ever touch
+ * the same event.
+ */
+final class ParallelMerge {
+
+	private ParallelMerge() {
+	}
+
+	/**
+	 * Maps a hash code onto one of <code>n</code> partitions. The bits are
+	 * mixed first, since the hash codes of ints are the ints themselves.
+	 */
+	static int partition(int h, int n) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+
+		return (int) (((h & 0xffffffffL) * n) >>> 32);
+	}
+
+	/**
+	 * Runs tasks on a pool of <code>numThreads</code> threads and waits for all
+	 * of them to complete. Exceptions thrown by a task are rethrown.
+	 */
+	static void run(List<Callable<Void>> tasks, int numThreads) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()));
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
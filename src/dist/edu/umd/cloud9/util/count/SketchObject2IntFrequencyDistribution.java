@@ -0,0 +1,526 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * <p>
+ * Approximate implementation of {@link Object2IntFrequencyDistribution} with a
+ * fixed memory footprint, for counting more distinct events than fit in
+ * memory. Counts are kept in two sketches:
+ * </p>
+ *
+ * <ul>
+ * <li>A <i>Count-Min</i> sketch (Cormode and Muthukrishnan, 2005) answers
+ * point queries. With a sketch of <i>e</i>/&epsilon; columns and
+ * ln(1/&delta;) rows, {@link #get(Comparable)} never underestimates the
+ * frequency of an event, and with probability at least 1 - &delta;
+ * overestimates it by at most &epsilon;<i>N</i>, where <i>N</i> is the sum of
+ * all frequencies.</li>
+ *
+ * <li>A <i>Space-Saving</i> summary (Metwally et al., 2005) of <i>m</i>
+ * counters keeps track of the heavy hitters. Every event with a frequency
+ * above <i>N</i>/<i>m</i> is guaranteed to be in the summary, and the count of
+ * an event in the summary overestimates its frequency by at most
+ * <i>N</i>/<i>m</i>. The methods returning events, such as
+ * {@link #getFrequencySortedEvents(int)} and {@link #iterator()}, only return
+ * events in the summary, and {@link #getNumberOfEvents()} returns the number
+ * of events in the summary.</li>
+ * </ul>
+ *
+ * <p>
+ * Both sketches only support increments: decrementing, setting or removing
+ * counts throws an <code>UnsupportedOperationException</code>. Distributions
+ * with the same dimensions can be combined with
+ * {@link #merge(SketchObject2IntFrequencyDistribution)}, which preserves the
+ * error bounds with respect to the combined sum of frequencies. Events are
+ * hashed into the Count-Min sketch by their <code>hashCode()</code>, which
+ * must be the same in every JVM for separately built distributions to be
+ * merged, as is the case for strings.
+ * </p>
+ */
+public class SketchObject2IntFrequencyDistribution<K extends Comparable<K>> implements
+		Object2IntFrequencyDistribution<K> {
+
+	/**
+	 * Default relative error of point queries.
+	 */
+	public static final double DEFAULT_EPSILON = 0.0001;
+
+	/**
+	 * Default probability of exceeding the relative error of point queries.
+	 */
+	public static final double DEFAULT_DELTA = 0.01;
+
+	/**
+	 * Default number of heavy hitters tracked.
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	// Count-Min sketch: depth rows of width counters each
+	protected int depth;
+	protected int width;
+	protected int[] sketch;
+
+	// Space-Saving summary: a min-heap of monitored events on their counts
+	protected int capacity;
+	protected int size;
+	protected Object[] keys;
+	protected int[] counts;
+	protected int[] errors;
+	private final Object2IntOpenHashMap<K> positions = new Object2IntOpenHashMap<K>();
+
+	protected long sumOfFrequencies = 0;
+
+	/**
+	 * Creates a distribution with the default error bounds and number of
+	 * heavy hitters.
+	 */
+	public SketchObject2IntFrequencyDistribution() {
+		this(DEFAULT_EPSILON, DEFAULT_DELTA, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a distribution with the specified error bounds and number of
+	 * heavy hitters.
+	 *
+	 * @param epsilon
+	 *            relative error of point queries
+	 * @param delta
+	 *            probability of exceeding the relative error
+	 * @param capacity
+	 *            number of heavy hitters tracked
+	 */
+	public SketchObject2IntFrequencyDistribution(double epsilon, double delta, int capacity) {
+		if (epsilon <= 0 || epsilon >= 1)
+			throw new IllegalArgumentException("Illegal epsilon: " + epsilon);
+		if (delta <= 0 || delta >= 1)
+			throw new IllegalArgumentException("Illegal delta: " + delta);
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+
+		positions.defaultReturnValue(-1);
+		init(depth(delta), width(epsilon), capacity);
+	}
+
+	static int depth(double delta) {
+		return (int) Math.ceil(Math.log(1 / delta));
+	}
+
+	static int width(double epsilon) {
+		return (int) Math.ceil(Math.E / epsilon);
+	}
+
+	/**
+	 * (Re)allocates the sketches with the specified dimensions, discarding
+	 * all counts.
+	 */
+	protected void init(int depth, int width, int capacity) {
+		this.depth = depth;
+		this.width = width;
+		this.sketch = new int[depth * width];
+		this.capacity = capacity;
+		this.keys = new Object[capacity];
+		this.counts = new int[capacity];
+		this.errors = new int[capacity];
+		this.size = 0;
+		this.positions.clear();
+		this.sumOfFrequencies = 0;
+	}
+
+	/**
+	 * Returns the index in the sketch of the counter of an event in a row.
+	 * Each row mixes the hash differently.
+	 */
+	static int bucket(int hash, int row, int width) {
+		int h = hash * 0x9e3779b9 + row * 0x7feb352d;
+		h ^= h >>> 15;
+		h *= 0x846ca68b;
+		h ^= h >>> 16;
+		return row * width + (h & 0x7fffffff) % width;
+	}
+
+	@Override
+	public void increment(K key) {
+		increment(key, 1);
+	}
+
+	@Override
+	public void increment(K key, int cnt) {
+		if (cnt < 0)
+			throw new UnsupportedOperationException("Sketches can't be decremented!");
+		if (cnt == 0)
+			return;
+
+		for (int row = 0; row < depth; row++) {
+			sketch[SketchInt2IntFrequencyDistribution.bucket(key.hashCode(), row, width)] += cnt;
+		}
+		offer(key, cnt, 0);
+		sumOfFrequencies += cnt;
+	}
+
+	/**
+	 * Adds to the count and error of an event in the heavy-hitter summary,
+	 * making room for it if necessary. This leaves the Count-Min sketch alone.
+	 */
+	protected void offer(K key, int cnt, int err) {
+		int pos = positions.getInt(key);
+		if (pos >= 0) {
+			counts[pos] += cnt;
+			errors[pos] += err;
+			siftDown(pos);
+		} else if (size < capacity) {
+			pos = size++;
+			keys[pos] = key;
+			counts[pos] = cnt;
+			errors[pos] = err;
+			positions.put(key, pos);
+			siftUp(pos);
+		} else {
+			// replace the event with the smallest count, whose count is an
+			// upper bound on the frequency of any event not in the summary
+			positions.removeInt(keys[0]);
+			int min = counts[0];
+			keys[0] = key;
+			counts[0] = min + cnt;
+			errors[0] = min + err;
+			positions.put(key, 0);
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (counts[parent] <= counts[i])
+				break;
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && counts[child + 1] < counts[child]) {
+				child++;
+			}
+			if (counts[i] <= counts[child])
+				break;
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		Object k = keys[i];
+		int c = counts[i];
+		int e = errors[i];
+		keys[i] = keys[j];
+		counts[i] = counts[j];
+		errors[i] = errors[j];
+		keys[j] = k;
+		counts[j] = c;
+		errors[j] = e;
+		positions.put(key(i), i);
+		positions.put(key(j), j);
+	}
+
+	@SuppressWarnings("unchecked")
+	private K key(int i) {
+		return (K) keys[i];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> K key(Object[] keys, int i) {
+		return (K) keys[i];
+	}
+
+	@Override
+	public void decrement(K key) {
+		throw new UnsupportedOperationException("Sketches can't be decremented!");
+	}
+
+	@Override
+	public void decrement(K key, int cnt) {
+		throw new UnsupportedOperationException("Sketches can't be decremented!");
+	}
+
+	/**
+	 * Returns true if <i>key</i> may have been observed. False positives are
+	 * possible, false negatives are not.
+	 */
+	@Override
+	public boolean contains(K key) {
+		return get(key) > 0;
+	}
+
+	/**
+	 * Returns an estimate of the frequency of a particular event <i>key</i>,
+	 * which is never below the true frequency.
+	 */
+	@Override
+	public int get(K key) {
+		int est = Integer.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			est = Math.min(est,
+					sketch[SketchInt2IntFrequencyDistribution.bucket(key.hashCode(), row, width)]);
+		}
+
+		// the count in the summary is an upper bound too
+		int pos = positions.getInt(key);
+		return pos >= 0 ? Math.min(est, counts[pos]) : est;
+	}
+
+	/**
+	 * Returns the maximum overestimation of the count of an event in the
+	 * heavy-hitter summary, or -1 if the event isn't in the summary.
+	 */
+	public int getError(K key) {
+		int pos = positions.getInt(key);
+		return pos >= 0 ? errors[pos] : -1;
+	}
+
+	/**
+	 * Unsupported: sketches can't be set.
+	 */
+	@Override
+	public int set(K key, int cnt) {
+		throw new UnsupportedOperationException("Sketches can't be set!");
+	}
+
+	/**
+	 * Unsupported: sketches can't remove events.
+	 */
+	@Override
+	public int remove(K k) {
+		throw new UnsupportedOperationException("Sketches can't remove events!");
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(sketch, 0);
+		Arrays.fill(keys, 0, size, null);
+		size = 0;
+		positions.clear();
+		sumOfFrequencies = 0;
+	}
+
+	/**
+	 * Adds the frequencies of the events of another distribution. Another
+	 * sketch is better combined with {@link #merge(SketchObject2IntFrequencyDistribution)}, since
+	 * only its heavy hitters are visible through its iterator.
+	 */
+	@Override
+	public void addAll(Object2IntFrequencyDistribution<K> that) {
+		for (PairOfObjectInt<K> pair : that) {
+			increment(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	/**
+	 * Adds the counts of another distribution to this distribution. Both must
+	 * have sketches of the same dimensions; the number of heavy hitters
+	 * tracked by this distribution is unchanged.
+	 *
+	 * @param that
+	 *            the other distribution
+	 */
+	public void merge(SketchObject2IntFrequencyDistribution<K> that) {
+		if (that.depth != depth || that.width != width)
+			throw new IllegalArgumentException("Can't merge sketches of different dimensions!");
+
+		for (int i = 0; i < sketch.length; i++) {
+			sketch[i] += that.sketch[i];
+		}
+
+		// An event missing from a full summary may have occurred as many times
+		// as the smallest count in that summary (Agarwal et al., 2012).
+		int thisMin = size == capacity ? counts[0] : 0;
+		int thatMin = that.size == that.capacity ? that.counts[0] : 0;
+
+		int n = 0;
+		Object[] k = new Object[size + that.size];
+		int[] c = new int[k.length];
+		int[] e = new int[k.length];
+		for (int i = 0; i < size; i++) {
+			int pos = that.positions.getInt(keys[i]);
+			k[n] = keys[i];
+			c[n] = counts[i] + (pos >= 0 ? that.counts[pos] : thatMin);
+			e[n++] = errors[i] + (pos >= 0 ? that.errors[pos] : thatMin);
+		}
+		for (int i = 0; i < that.size; i++) {
+			if (positions.getInt(that.keys[i]) < 0) {
+				k[n] = that.keys[i];
+				c[n] = that.counts[i] + thisMin;
+				e[n++] = that.errors[i] + thisMin;
+			}
+		}
+
+		// keep the events with the highest counts
+		final int[] merged = c;
+		TopK<Integer> top = new TopK<Integer>(Math.min(n, capacity), new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return merged[i1] > merged[i2] ? -1 : merged[i1] < merged[i2] ? 1 : 0;
+			}
+		});
+		for (int i = 0; i < n; i++) {
+			top.offer(i);
+		}
+
+		size = 0;
+		positions.clear();
+		for (Integer i : top.toSortedList()) {
+			offer(key(k, i), c[i], e[i]);
+		}
+
+		sumOfFrequencies += that.sumOfFrequencies;
+	}
+
+	// descending frequency, ties broken by the event
+	private final Comparator<PairOfObjectInt<K>> frequencyOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			if (e1.getRightElement() != e2.getRightElement()) {
+				return e1.getRightElement() > e2.getRightElement() ? -1 : 1;
+			}
+
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	// ascending order of events
+	private final Comparator<PairOfObjectInt<K>> eventOrder = new Comparator<PairOfObjectInt<K>>() {
+		public int compare(PairOfObjectInt<K> e1, PairOfObjectInt<K> e2) {
+			return e1.getLeftElement().compareTo(e2.getLeftElement());
+		}
+	};
+
+	/**
+	 * Returns the heavy hitters, sorted by their counts in the summary.
+	 */
+	@Override
+	public List<PairOfObjectInt<K>> getFrequencySortedEvents() {
+		return select(size, frequencyOrder);
+	}
+
+	/**
+	 * Returns the top <i>n</i> heavy hitters, sorted by their counts in the
+	 * summary.
+	 */
+	@Override
+	public List<PairOfObjectInt<K>> getFrequencySortedEvents(int n) {
+		return select(n, frequencyOrder);
+	}
+
+	@Override
+	public void topK(int n, ObjectIntProcedure<K> procedure) {
+		for (PairOfObjectInt<K> pair : getFrequencySortedEvents(n)) {
+			procedure.apply(pair.getLeftElement(), pair.getRightElement());
+		}
+	}
+
+	/**
+	 * Returns the heavy hitters in sorted order.
+	 */
+	@Override
+	public List<PairOfObjectInt<K>> getSortedEvents() {
+		return select(size, eventOrder);
+	}
+
+	/**
+	 * Returns the first <i>n</i> heavy hitters in sorted order.
+	 */
+	@Override
+	public List<PairOfObjectInt<K>> getSortedEvents(int n) {
+		return select(n, eventOrder);
+	}
+
+	private List<PairOfObjectInt<K>> select(int n, Comparator<PairOfObjectInt<K>> order) {
+		TopK<PairOfObjectInt<K>> top = new TopK<PairOfObjectInt<K>>(Math.min(n, size), order);
+		for (int i = 0; i < size; i++) {
+			top.offer(new PairOfObjectInt<K>(key(i), counts[i]));
+		}
+
+		return top.toSortedList();
+	}
+
+	/**
+	 * Returns the number of heavy hitters, which is at most the number of
+	 * heavy hitters tracked.
+	 */
+	@Override
+	public int getNumberOfEvents() {
+		return size;
+	}
+
+	@Override
+	public long getSumOfFrequencies() {
+		return sumOfFrequencies;
+	}
+
+	/**
+	 * Returns the number of heavy hitters tracked.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Iterates over the heavy hitters. Iterator returns the same object every
+	 * time, just with a different payload.
+	 */
+	public Iterator<PairOfObjectInt<K>> iterator() {
+		return new Iterator<PairOfObjectInt<K>>() {
+			private int i = 0;
+			private final PairOfObjectInt<K> pair = new PairOfObjectInt<K>();
+
+			@Override
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			@Override
+			public PairOfObjectInt<K> next() {
+				if (i >= size) {
+					throw new NoSuchElementException();
+				}
+
+				pair.set(key(i), counts[i]);
+				i++;
+				return pair;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
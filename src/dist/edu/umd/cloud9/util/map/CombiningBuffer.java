@@ -0,0 +1,288 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * <p>
+ * Base class of buffers for in-mapper combining whose memory is bounded.
+ * Partial aggregates are kept in a map until either the number of entries or
+ * the estimated footprint of the map reaches its budget, at which point the
+ * entries are flushed to a sink, typically wrapping an
+ * <code>OutputCollector</code> or a <code>Context</code>, and the map is
+ * cleared. Whatever remains is flushed by {@link #close()}, which mappers
+ * should call from <code>close()</code> or <code>cleanup()</code>.
+ * </p>
+ *
+ * <p>
+ * The budgets are read from the job configuration, using the properties
+ * {@link #MAX_ENTRIES_PROPERTY} and {@link #MAX_BYTES_PROPERTY}. Flushes can
+ * be reported through Hadoop counters (see {@link Counters}) by registering a
+ * {@link Listener}; <code>edu.umd.cloud9.mapred.CombiningBufferCounters</code>
+ * and <code>edu.umd.cloud9.mapreduce.CombiningBufferCounters</code> do so for
+ * the two MapReduce APIs.
+ * </p>
+ */
+public abstract class CombiningBuffer implements Closeable {
+
+	/**
+	 * Job property holding the maximum number of buffered entries.
+	 */
+	public static final String MAX_ENTRIES_PROPERTY = "CombiningBuffer.MaxEntries";
+
+	/**
+	 * Job property holding the maximum estimated footprint of the buffer, in
+	 * bytes. Defaults to a quarter of the maximum heap size.
+	 */
+	public static final String MAX_BYTES_PROPERTY = "CombiningBuffer.MaxBytes";
+
+	/**
+	 * Estimated heap footprint of one entry of an <code>HMap</code>: the
+	 * entry object, with its header, key, value, hash and chain reference,
+	 * plus its share of the table at the default load factor.
+	 */
+	public static final int HASH_ENTRY_BYTES = 48;
+
+	/**
+	 * Estimated footprint of one entry of an off-heap map, such as
+	 * {@link OffHeapMapIF}: its slot in the memory-mapped table, plus its
+	 * share of the table at the default load factor.
+	 */
+	public static final int OFF_HEAP_ENTRY_BYTES = (int) (OffHeapStore.SLOT_BYTES
+			/ OffHeapMap.DEFAULT_LOAD_FACTOR);
+
+	/**
+	 * Counters for reporting flushes.
+	 */
+	public static enum Counters {
+		FLUSHES, FLUSHED_ENTRIES, FLUSHED_BYTES
+	};
+
+	/**
+	 * Callback notified after each flush.
+	 */
+	public static interface Listener {
+		/**
+		 * Called after entries have been flushed.
+		 *
+		 * @param entries
+		 *            number of entries flushed
+		 * @param bytes
+		 *            estimated footprint of the flushed entries
+		 */
+		void flushed(int entries, long bytes);
+	}
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final int bytesPerEntry;
+
+	private Listener listener;
+	private int flushes = 0;
+	private long flushedEntries = 0;
+	private long flushedBytes = 0;
+
+	/**
+	 * Creates a buffer with budgets read from a job configuration.
+	 *
+	 * @param conf
+	 *            the job configuration
+	 * @param bytesPerEntry
+	 *            estimated footprint of one entry
+	 */
+	protected CombiningBuffer(Configuration conf, int bytesPerEntry) {
+		this(conf.getInt(MAX_ENTRIES_PROPERTY, Integer.MAX_VALUE), conf.getLong(
+				MAX_BYTES_PROPERTY, Runtime.getRuntime().maxMemory() / 4), bytesPerEntry);
+	}
+
+	/**
+	 * Creates a buffer with the specified budgets.
+	 *
+	 * @param maxEntries
+	 *            maximum number of buffered entries
+	 * @param maxBytes
+	 *            maximum estimated footprint, in bytes
+	 * @param bytesPerEntry
+	 *            estimated footprint of one entry
+	 */
+	protected CombiningBuffer(int maxEntries, long maxBytes, int bytesPerEntry) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("Illegal entry budget: " + maxEntries);
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("Illegal byte budget: " + maxBytes);
+
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.bytesPerEntry = bytesPerEntry;
+	}
+
+	/**
+	 * Copies the budgets, if any, from one configuration to another. This is
+	 * useful for drivers that create their job configurations from scratch.
+	 *
+	 * @param from
+	 *            the configuration to copy from
+	 * @param to
+	 *            the configuration to copy to
+	 */
+	public static void copyBudgets(Configuration from, Configuration to) {
+		if (from.get(MAX_ENTRIES_PROPERTY) != null) {
+			to.set(MAX_ENTRIES_PROPERTY, from.get(MAX_ENTRIES_PROPERTY));
+		}
+		if (from.get(MAX_BYTES_PROPERTY) != null) {
+			to.set(MAX_BYTES_PROPERTY, from.get(MAX_BYTES_PROPERTY));
+		}
+	}
+
+	/**
+	 * Returns the number of buffered entries.
+	 *
+	 * @return the number of buffered entries
+	 */
+	public abstract int size();
+
+	/**
+	 * Passes every buffered entry to the sink.
+	 */
+	protected abstract void emitAll() throws IOException, InterruptedException;
+
+	/**
+	 * Discards every buffered entry.
+	 */
+	protected abstract void clearEntries();
+
+	/**
+	 * Releases resources held by the buffer, once it has been flushed for the
+	 * last time.
+	 */
+	protected void release() throws IOException {
+	}
+
+	/**
+	 * Flushes the buffer if a budget has been reached. Subclasses call this
+	 * after adding an entry.
+	 */
+	protected final void checkBudget() throws IOException {
+		if (size() >= maxEntries || getEstimatedBytes() >= maxBytes) {
+			flush();
+		}
+	}
+
+	/**
+	 * Passes all buffered entries to the sink, and clears the buffer. If the
+	 * sink is interrupted, the interrupt status of the thread is restored, and
+	 * an <code>InterruptedIOException</code> is thrown.
+	 */
+	public final void flush() throws IOException {
+		int entries = size();
+		if (entries == 0)
+			return;
+
+		long bytes = getEstimatedBytes();
+		try {
+			emitAll();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while flushing combining buffer");
+		}
+		clearEntries();
+
+		flushes++;
+		flushedEntries += entries;
+		flushedBytes += bytes;
+		if (listener != null) {
+			listener.flushed(entries, bytes);
+		}
+	}
+
+	/**
+	 * Flushes the buffer for the last time, and releases its resources.
+	 */
+	public void close() throws IOException {
+		flush();
+		release();
+	}
+
+	/**
+	 * Returns the estimated footprint of the buffered entries, in bytes.
+	 *
+	 * @return estimated footprint of the buffered entries
+	 */
+	public long getEstimatedBytes() {
+		return (long) size() * bytesPerEntry;
+	}
+
+	/**
+	 * Returns the maximum number of buffered entries.
+	 *
+	 * @return maximum number of buffered entries
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Returns the maximum estimated footprint of the buffer, in bytes.
+	 *
+	 * @return maximum estimated footprint of the buffer
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the number of flushes so far.
+	 *
+	 * @return number of flushes so far
+	 */
+	public int getFlushCount() {
+		return flushes;
+	}
+
+	/**
+	 * Returns the number of entries flushed so far.
+	 *
+	 * @return number of entries flushed so far
+	 */
+	public long getFlushedEntries() {
+		return flushedEntries;
+	}
+
+	/**
+	 * Returns the estimated footprint of the entries flushed so far.
+	 *
+	 * @return estimated footprint of the entries flushed so far
+	 */
+	public long getFlushedBytes() {
+		return flushedBytes;
+	}
+
+	/**
+	 * Registers a listener to be notified after each flush.
+	 *
+	 * @param listener
+	 *            the listener, or <code>null</code> to remove the listener
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Memory-bounded in-mapper combining buffer of int keys and int values. The
+ * partial aggregate of a key is computed by {@link #combine(int, int)},
+ * which subclasses implement, e.g., as a sum.
+ *
+ * @see CombiningBuffer
+ */
+public abstract class CombiningBufferII extends CombiningBuffer {
+
+	/**
+	 * Destination of flushed entries.
+	 */
+	public static interface Sink {
+		/**
+		 * Emits a partial aggregate.
+		 *
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the partial aggregate of the key
+		 */
+		void emit(int key, int value) throws IOException, InterruptedException;
+	}
+
+	private final MapII map;
+	private final Sink sink;
+
+	/**
+	 * Creates a buffer backed by an {@link HMapII}, with budgets read from a
+	 * job configuration.
+	 *
+	 * @param conf
+	 *            the job configuration
+	 * @param sink
+	 *            destination of flushed entries
+	 */
+	public CombiningBufferII(Configuration conf, Sink sink) {
+		super(conf, HASH_ENTRY_BYTES);
+		this.map = new HMapII();
+		this.sink = sink;
+	}
+
+	/**
+	 * Creates a buffer backed by the specified map, with budgets read from a
+	 * job configuration. If the map is <code>Closeable</code>, it is closed
+	 * when the buffer is closed.
+	 *
+	 * @param conf
+	 *            the job configuration
+	 * @param map
+	 *            the (empty) map to buffer entries in
+	 * @param bytesPerEntry
+	 *            estimated footprint of one entry of the map
+	 * @param sink
+	 *            destination of flushed entries
+	 */
+	public CombiningBufferII(Configuration conf, MapII map, int bytesPerEntry, Sink sink) {
+		super(conf, bytesPerEntry);
+		this.map = map;
+		this.sink = sink;
+	}
+
+	/**
+	 * Creates a buffer backed by an {@link HMapII}, with the specified
+	 * budgets.
+	 *
+	 * @param maxEntries
+	 *            maximum number of buffered entries
+	 * @param maxBytes
+	 *            maximum estimated footprint, in bytes
+	 * @param sink
+	 *            destination of flushed entries
+	 */
+	public CombiningBufferII(int maxEntries, long maxBytes, Sink sink) {
+		super(maxEntries, maxBytes, HASH_ENTRY_BYTES);
+		this.map = new HMapII();
+		this.sink = sink;
+	}
+
+	/**
+	 * Combines the buffered partial aggregate of a key with a new value.
+	 *
+	 * @param oldValue
+	 *            the buffered partial aggregate
+	 * @param value
+	 *            the new value
+	 * @return the new partial aggregate
+	 */
+	protected abstract int combine(int oldValue, int value);
+
+	/**
+	 * Adds a value to the buffer, combining it with the buffered partial
+	 * aggregate of the key, if any. The buffer is flushed if this brings it
+	 * to its budget.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return <code>true</code> if the value was combined with a buffered
+	 *         partial aggregate, <code>false</code> if it started a new one
+	 */
+	public boolean add(int key, int value) throws IOException {
+		if (map.containsKey(key)) {
+			map.put(key, combine(map.get(key), value));
+			return true;
+		}
+
+		map.put(key, value);
+		checkBudget();
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	protected void emitAll() throws IOException, InterruptedException {
+		MapII.Cursor c = map.cursor();
+		while (c.advance()) {
+			sink.emit(c.key(), c.value());
+		}
+	}
+
+	@Override
+	protected void clearEntries() {
+		map.clear();
+	}
+
+	@Override
+	protected void release() throws IOException {
+		if (map instanceof Closeable) {
+			((Closeable) map).close();
+		}
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe implementation of {@link MapIF} based on lock striping. Keys are
+ * spread over a fixed number of segments, each of which is an {@link HMapIF}
+ * guarded by its own lock, so that threads updating different keys rarely
+ * contend. This allows the mapper threads of a <code>MultithreadedMapRunner</code>
+ * to share a single in-mapper combining map instead of keeping one copy each.
+ * <p>
+ * Single-key operations, including {@link #increment(int, float)}, are atomic.
+ * {@link #forEach(IntFloatProcedure)} and {@link #forEachKey(IntProcedure)} lock
+ * every segment for the duration of the traversal, and so see a consistent
+ * state of the map. The views and the cursor operate on a copy of the map
+ * taken by {@link #snapshot()}: they are not affected by, and do not write
+ * through to, later changes. Aggregate operations such as {@link #size()} and
+ * {@link #putAll(MapIF)} are not atomic with respect to other threads.
+ */
+public class ConcurrentHMapIF implements MapIF {
+
+	/**
+	 * The default number of segments.
+	 */
+	static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private final HMapIF[] segments;
+	private final ReentrantLock[] locks;
+	private final int segmentShift;
+
+	/**
+	 * Constructs an empty map with the default concurrency level.
+	 */
+	public ConcurrentHMapIF() {
+		this(DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs an empty map with the specified concurrency level.
+	 *
+	 * @param concurrencyLevel
+	 *            estimated number of concurrently updating threads; the
+	 *            number of segments is the next power of two
+	 */
+	public ConcurrentHMapIF(int concurrencyLevel) {
+		if (concurrencyLevel <= 0)
+			throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+
+		int shift = 0;
+		int n = 1;
+		while (n < concurrencyLevel) {
+			n <<= 1;
+			shift++;
+		}
+		segmentShift = 32 - shift;
+
+		segments = new HMapIF[n];
+		locks = new ReentrantLock[n];
+		for (int i = 0; i < n; i++) {
+			segments[i] = new HMapIF();
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Picks the segment from the high bits of a multiplicative hash, so that
+	 * the choice is independent of the bucket chosen within the segment.
+	 */
+	private int segmentFor(int key) {
+		return segmentShift == 32 ? 0 : (key * 0x9E3779B9) >>> segmentShift;
+	}
+
+	private void lockAll() {
+		for (int i = 0; i < locks.length; i++)
+			locks[i].lock();
+	}
+
+	private void unlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--)
+			locks[i].unlock();
+	}
+
+	// Query Operations
+
+	// doc copied from interface
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < segments.length; i++) {
+			locks[i].lock();
+			try {
+				size += segments[i].size();
+			} finally {
+				locks[i].unlock();
+			}
+		}
+		return size;
+	}
+
+	// doc copied from interface
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	// doc copied from interface
+	public boolean containsKey(int key) {
+		int s = segmentFor(key);
+		locks[s].lock();
+		try {
+			return segments[s].containsKey(key);
+		} finally {
+			locks[s].unlock();
+		}
+	}
+
+	// doc copied from interface
+	public boolean containsValue(float value) {
+		for (int i = 0; i < segments.length; i++) {
+			locks[i].lock();
+			try {
+				if (segments[i].containsValue(value))
+					return true;
+			} finally {
+				locks[i].unlock();
+			}
+		}
+		return false;
+	}
+
+	// doc copied from interface
+	public float get(int key) {
+		int s = segmentFor(key);
+		locks[s].lock();
+		try {
+			return segments[s].get(key);
+		} finally {
+			locks[s].unlock();
+		}
+	}
+
+	// Modification Operations
+
+	// doc copied from interface
+	public void put(int key, float value) {
+		int s = segmentFor(key);
+		locks[s].lock();
+		try {
+			segments[s].put(key, value);
+		} finally {
+			locks[s].unlock();
+		}
+	}
+
+	// doc copied from interface
+	public float remove(int key) {
+		int s = segmentFor(key);
+		locks[s].lock();
+		try {
+			return segments[s].remove(key);
+		} finally {
+			locks[s].unlock();
+		}
+	}
+
+	// Bulk Operations
+
+	// doc copied from interface
+	public void putAll(MapIF m) {
+		MapIF.Cursor c = m.cursor();
+		while (c.advance()) {
+			put(c.key(), c.value());
+		}
+	}
+
+	// doc copied from interface
+	public void clear() {
+		lockAll();
+		try {
+			for (int i = 0; i < segments.length; i++)
+				segments[i].clear();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Atomically increments the key by some value. If the key does not exist
+	 * in the map, its value is set to the parameter value.
+	 *
+	 * @param key
+	 *            key to increment
+	 * @param value
+	 *            increment value
+	 * @return the value of the key after the increment
+	 */
+	public float increment(int key, float value) {
+		int s = segmentFor(key);
+		locks[s].lock();
+		try {
+			HMapIF.Entry e = segments[s].getEntry(key);
+			if (e != null) {
+				return e.value += value;
+			}
+			segments[s].put(key, value);
+			return value;
+		} finally {
+			locks[s].unlock();
+		}
+	}
+
+	/**
+	 * Atomically increments the key. If the key does not exist in the map, its
+	 * value is set to one.
+	 *
+	 * @param key
+	 *            key to increment
+	 * @return the value of the key after the increment
+	 */
+	public float increment(int key) {
+		return increment(key, 1);
+	}
+
+	/**
+	 * Adds values of keys from another map to this map. Each key is
+	 * incremented atomically, but the operation as a whole is not.
+	 *
+	 * @param m
+	 *            the other map
+	 */
+	public void plus(MapIF m) {
+		MapIF.Cursor c = m.cursor();
+		while (c.advance()) {
+			increment(c.key(), c.value());
+		}
+	}
+
+	/**
+	 * Returns a copy of this map taken while all segments are locked, and so
+	 * consistent with respect to concurrent updates.
+	 *
+	 * @return a copy of this map
+	 */
+	public HMapIF snapshot() {
+		lockAll();
+		try {
+			int size = 0;
+			for (int i = 0; i < segments.length; i++)
+				size += segments[i].size();
+
+			HMapIF copy = new HMapIF(Math.max((int) (size / HMapIF.DEFAULT_LOAD_FACTOR) + 1,
+					HMapIF.DEFAULT_INITIAL_CAPACITY));
+			for (int i = 0; i < segments.length; i++)
+				copy.putAll(segments[i]);
+			return copy;
+		} finally {
+			unlockAll();
+		}
+	}
+
+	// Views
+
+	/**
+	 * Returns the keys of a {@link #snapshot()} of this map.
+	 */
+	public Set<Integer> keySet() {
+		return snapshot().keySet();
+	}
+
+	/**
+	 * Returns the values of a {@link #snapshot()} of this map.
+	 */
+	public Collection<Float> values() {
+		return snapshot().values();
+	}
+
+	/**
+	 * Returns the mappings of a {@link #snapshot()} of this map. Setting the
+	 * value of an entry does not write through to this map.
+	 */
+	public Set<MapIF.Entry> entrySet() {
+		return snapshot().entrySet();
+	}
+
+	// Allocation-free iteration
+
+	/**
+	 * Applies a procedure to each key-value mapping in this map. All segments
+	 * are locked during the traversal, which blocks concurrent writers.
+	 */
+	public void forEach(IntFloatProcedure procedure) {
+		lockAll();
+		try {
+			for (int i = 0; i < segments.length; i++)
+				segments[i].forEach(procedure);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Applies a procedure to each key in this map. All segments are locked
+	 * during the traversal, which blocks concurrent writers.
+	 */
+	public void forEachKey(IntProcedure procedure) {
+		lockAll();
+		try {
+			for (int i = 0; i < segments.length; i++)
+				segments[i].forEachKey(procedure);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Returns a cursor over a {@link #snapshot()} of this map.
+	 */
+	public MapIF.Cursor cursor() {
+		return snapshot().cursor();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
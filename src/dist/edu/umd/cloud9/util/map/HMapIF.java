@@ -21,6 +21,8 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of {@link MapIF}.
  */
@@ -784,6 +786,58 @@ public class HMapIF implements MapIF, Cloneable, Serializable {
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntFloatProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapIF.Cursor cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapIF.Cursor {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry e = current == null ? null : current.next;
+			Entry[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public int key() {
+			return current.key;
+		}
+
+		public float value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -881,6 +935,32 @@ public class HMapIF implements MapIF, Cloneable, Serializable {
 
 	}
 
+	/**
+	 * Returns an immutable sparse vector with the same mappings as this map,
+	 * for use once the map is no longer changed.
+	 * 
+	 * @return a sparse vector with the same mappings as this map
+	 */
+	public SparseVectorIF freeze() {
+		return SparseVectorIF.freeze(this);
+	}
+
+	// descending value, ties broken by the key
+	private static final Comparator<MapIF.Entry> VALUE_ORDER = new Comparator<MapIF.Entry>() {
+		public int compare(MapIF.Entry e1, MapIF.Entry e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return e1.getKey() > e2.getKey() ? 1 : -1;
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -916,42 +996,55 @@ public class HMapIF implements MapIF, Cloneable, Serializable {
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapIF.Entry>() {
-			public int compare(MapIF.Entry e1, MapIF.Entry e2) {
-				if (e1.getValue() > e2.getValue()) {
-					return -1;
-				} else if (e1.getValue() < e2.getValue()) {
-					return 1;
-				}
-
-				if (e1.getKey() == e2.getKey())
-					return 0;
-
-				return e1.getKey() > e2.getKey() ? 1 : -1;
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapIF.Entry[] getEntriesSortedByValue(int n) {
-		MapIF.Entry[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapIF.Entry> top = selectByValue(n);
+		return top.toSortedArray(new MapIF.Entry[top.size()]);
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, IntFloatProcedure procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapIF.Entry e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapIF.Entry> selectByValue(int n) {
+		TopK<MapIF.Entry> top = new TopK<MapIF.Entry>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 
 }
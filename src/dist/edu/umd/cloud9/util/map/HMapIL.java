@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of the <tt>MapIL</tt> interface. {@link MapIL} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -793,6 +795,58 @@ public class HMapIL implements MapIL, Cloneable, Serializable {
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntLongProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapIL.Cursor cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapIL.Cursor {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry e = current == null ? null : current.next;
+			Entry[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public int key() {
+			return current.key;
+		}
+
+		public long value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -886,6 +940,22 @@ public class HMapIL implements MapIL, Cloneable, Serializable {
 		}
 	}
 
+	// descending value, ties broken by the key
+	private static final Comparator<MapIL.Entry> VALUE_ORDER = new Comparator<MapIL.Entry>() {
+		public int compare(MapIL.Entry e1, MapIL.Entry e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return e1.getKey() > e2.getKey() ? 1 : -1;
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -921,41 +991,54 @@ public class HMapIL implements MapIL, Cloneable, Serializable {
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapIL.Entry>() {
-			public int compare(MapIL.Entry e1, MapIL.Entry e2) {
-				if (e1.getValue() > e2.getValue()) {
-					return -1;
-				} else if (e1.getValue() < e2.getValue()) {
-					return 1;
-				}
-
-				if (e1.getKey() == e2.getKey())
-					return 0;
-
-				return e1.getKey() > e2.getKey() ? 1 : -1;
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapIL.Entry[] getEntriesSortedByValue(int n) {
-		MapIL.Entry[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapIL.Entry> top = selectByValue(n);
+		return top.toSortedArray(new MapIL.Entry[top.size()]);
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, IntLongProcedure procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapIL.Entry e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapIL.Entry> selectByValue(int n) {
+		TopK<MapIL.Entry> top = new TopK<MapIL.Entry>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 }
@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of the <tt>MapIS</tt> interface. {@link MapIS} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -793,6 +795,58 @@ public class HMapIS implements MapIS, Cloneable, Serializable {
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntShortProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapIS.Cursor cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapIS.Cursor {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry e = current == null ? null : current.next;
+			Entry[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public int key() {
+			return current.key;
+		}
+
+		public short value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -886,6 +940,22 @@ public class HMapIS implements MapIS, Cloneable, Serializable {
 		}
 	}
 
+	// descending value, ties broken by the key
+	private static final Comparator<MapIS.Entry> VALUE_ORDER = new Comparator<MapIS.Entry>() {
+		public int compare(MapIS.Entry e1, MapIS.Entry e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return e1.getKey() > e2.getKey() ? 1 : -1;
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -921,41 +991,54 @@ public class HMapIS implements MapIS, Cloneable, Serializable {
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapIS.Entry>() {
-			public int compare(MapIS.Entry e1, MapIS.Entry e2) {
-				if (e1.getValue() > e2.getValue()) {
-					return -1;
-				} else if (e1.getValue() < e2.getValue()) {
-					return 1;
-				}
-
-				if (e1.getKey() == e2.getKey())
-					return 0;
-
-				return e1.getKey() > e2.getKey() ? 1 : -1;
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapIS.Entry[] getEntriesSortedByValue(int n) {
-		MapIS.Entry[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapIS.Entry> top = selectByValue(n);
+		return top.toSortedArray(new MapIS.Entry[top.size()]);
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, IntShortProcedure procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapIS.Entry e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapIS.Entry> selectByValue(int n) {
+		TopK<MapIS.Entry> top = new TopK<MapIS.Entry>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 }
@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of the <tt>MapIV</tt> interface. {@link MapIV} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -798,6 +800,58 @@ public class HMapIV<V> implements MapIV<V>, Cloneable, Serializable {
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntObjectProcedure<V> procedure) {
+		Entry<V>[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry<V> e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		Entry<V>[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry<V> e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapIV.Cursor<V> cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapIV.Cursor<V> {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry<V> current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry<V> e = current == null ? null : current.next;
+			Entry<V>[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public int key() {
+			return current.key;
+		}
+
+		public V value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -829,6 +883,14 @@ public class HMapIV<V> implements MapIV<V>, Cloneable, Serializable {
 	
 	// methods not part of a standard HashMap
 
+	// descending value, ties broken by the key
+	@SuppressWarnings("unchecked")
+	private static final Comparator<MapIV.Entry<?>> VALUE_ORDER = new Comparator<MapIV.Entry<?>>() {
+		public int compare(MapIV.Entry e1, MapIV.Entry e2) {
+			return ((Comparable) e1.getValue()).compareTo(e2.getValue());
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -865,32 +927,55 @@ public class HMapIV<V> implements MapIV<V>, Cloneable, Serializable {
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapIV.Entry<V>>() {
-			public int compare(MapIV.Entry e1, MapIV.Entry e2) {
-				return ((Comparable) e1.getValue()).compareTo(e2.getValue());
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
+	@SuppressWarnings("unchecked")
 	public MapIV.Entry<V>[] getEntriesSortedByValue(int n) {
-		MapIV.Entry<V>[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapIV.Entry<V>> top = selectByValue(n);
+		return top.toSortedArray((MapIV.Entry<V>[]) new MapIV.Entry<?>[top.size()]);
+	}
+
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, IntObjectProcedure<V> procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapIV.Entry<V> e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapIV.Entry<V>> selectByValue(int n) {
+		TopK<MapIV.Entry<V>> top = new TopK<MapIV.Entry<V>>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry<V> e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 }
@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of the <tt>MapKF</tt> interface. {@link MapKF} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -840,6 +842,48 @@ public class HMapKF<K extends Comparable<?>> implements MapKF<K>, Cloneable, Ser
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(ObjectFloatProcedure<K> procedure) {
+		Entry<K>[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry<K> e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapKF.Cursor<K> cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapKF.Cursor<K> {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry<K> current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry<K> e = current == null ? null : current.next;
+			Entry<K>[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public K key() {
+			return current.key;
+		}
+
+		public float value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -937,6 +981,23 @@ public class HMapKF<K extends Comparable<?>> implements MapKF<K>, Cloneable, Ser
 
 	}
 
+	// descending value, ties broken by the key
+	@SuppressWarnings("unchecked")
+	private static final Comparator<MapKF.Entry<?>> VALUE_ORDER = new Comparator<MapKF.Entry<?>>() {
+		public int compare(MapKF.Entry<?> e1, MapKF.Entry<?> e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return ((Comparable) e1.getKey()).compareTo(e2.getKey());
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -973,41 +1034,55 @@ public class HMapKF<K extends Comparable<?>> implements MapKF<K>, Cloneable, Ser
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapKF.Entry<K>>() {
-			public int compare(MapKF.Entry<K> e1, MapKF.Entry<K> e2) {
-				if (e1.getValue() > e2.getValue()) {
-					return -1;
-				} else if (e1.getValue() < e2.getValue()) {
-					return 1;
-				}
-
-				if (e1.getKey() == e2.getKey())
-					return 0;
-
-				return ((Comparable) e1.getKey()).compareTo(e2.getKey());
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
+	@SuppressWarnings("unchecked")
 	public MapKF.Entry<K>[] getEntriesSortedByValue(int n) {
-		MapKF.Entry<K>[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapKF.Entry<K>> top = selectByValue(n);
+		return top.toSortedArray((MapKF.Entry<K>[]) new MapKF.Entry<?>[top.size()]);
+	}
+
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, ObjectFloatProcedure<K> procedure) {
+		if (this.size() == 0)
+			return;
 
-		return Arrays.copyOfRange(entries, 0, n);
+		for (MapKF.Entry<K> e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapKF.Entry<K>> selectByValue(int n) {
+		TopK<MapKF.Entry<K>> top = new TopK<MapKF.Entry<K>>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry<K> e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 }
@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopK;
+
 /**
  * Hash-based implementation of the <tt>MapKI</tt> interface. {@link MapKI} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -808,6 +810,48 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(ObjectIntProcedure<K> procedure) {
+		Entry<K>[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry<K> e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapKI.Cursor<K> cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapKI.Cursor<K> {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry<K> current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry<K> e = current == null ? null : current.next;
+			Entry<K>[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public K key() {
+			return current.key;
+		}
+
+		public int value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -893,6 +937,23 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 		}
 	}
 
+	// descending value, ties broken by the key
+	@SuppressWarnings("unchecked")
+	private static final Comparator<MapKI.Entry<?>> VALUE_ORDER = new Comparator<MapKI.Entry<?>>() {
+		public int compare(MapKI.Entry<?> e1, MapKI.Entry<?> e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return ((Comparable) e1.getKey()).compareTo(e2.getKey());
+		}
+	};
+
 	/**
 	 * Returns entries sorted by descending value. Ties broken by the key.
 	 * 
@@ -929,42 +990,56 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 		}
 
 		// sort the entries
-		Arrays.sort(entries, new Comparator<MapKI.Entry<K>>() {
-			public int compare(MapKI.Entry<K> e1, MapKI.Entry<K> e2) {
-				if (e1.getValue() > e2.getValue()) {
-					return -1;
-				} else if (e1.getValue() < e2.getValue()) {
-					return 1;
-				}
-
-				if (e1.getKey() == e2.getKey())
-					return 0;
-
-				return ((Comparable) e1.getKey()).compareTo(e2.getKey());
-			}
-		});
+		Arrays.sort(entries, VALUE_ORDER);
 
 		return entries;
 	}
 
 	/**
 	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
-	 * the key.
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
 	 * 
 	 * @param n
 	 *            number of entries to return
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
+	@SuppressWarnings("unchecked")
 	public MapKI.Entry<K>[] getEntriesSortedByValue(int n) {
-		MapKI.Entry<K>[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		TopK<MapKI.Entry<K>> top = selectByValue(n);
+		return top.toSortedArray((MapKI.Entry<K>[]) new MapKI.Entry<?>[top.size()]);
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, ObjectIntProcedure<K> procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapKI.Entry<K> e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapKI.Entry<K>> selectByValue(int n) {
+		TopK<MapKI.Entry<K>> top = new TopK<MapKI.Entry<K>>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry<K> e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -838,6 +838,48 @@ public class HMapKL<K> implements MapKL<K>, Cloneable, Serializable {
 		}
 	}
 
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(ObjectLongProcedure<K> procedure) {
+		Entry<K>[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry<K> e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapKL.Cursor<K> cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapKL.Cursor<K> {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry<K> current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry<K> e = current == null ? null : current.next;
+			Entry<K>[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public K key() {
+			return current.key;
+		}
+
+		public long value() {
+			return current.value;
+		}
+	}
+
 	// These methods are used when serializing HashSets
 	int capacity() {
 		return table.length;
@@ -0,0 +1,1045 @@
+/*
+ *  @(#)HashMap.java	1.73 07/03/13
+ *
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.umd.cloud9.util.TopK;
+
+/**
+ * Hash-based implementation of the <tt>MapLL</tt> interface. {@link MapLL} is
+ * a specialized variant the standard Java {@link Map} interface, except that
+ * the keys are hard coded as ints and values are hard coded as longs for
+ * efficiency reasons. This implementation was adapted from {@link HashMap}
+ * version 1.73, 03/13/07. See <a href="{@docRoot}/../content/map.html">this
+ * benchmark</a> for an efficiency comparison.
+ */
+public class HMapLL implements MapLL, Cloneable, Serializable {
+
+	/**
+	 * The default initial capacity - MUST be a power of two.
+	 */
+	static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The maximum capacity, used if a higher value is implicitly specified by
+	 * either of the constructors with arguments. MUST be a power of two <= 1<<30.
+	 */
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The load factor used when none specified in constructor.
+	 */
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	/**
+	 * The table, resized as necessary. Length MUST Always be a power of two.
+	 */
+	transient Entry[] table;
+
+	/**
+	 * The number of key-value mappings contained in this map.
+	 */
+	transient int size;
+
+	/**
+	 * The next size value at which to resize (capacity * load factor).
+	 * 
+	 * @serial
+	 */
+	int threshold;
+
+	/**
+	 * The load factor for the hash table.
+	 * 
+	 * @serial
+	 */
+	final float loadFactor;
+
+	/**
+	 * The number of times this HMapLL has been structurally modified Structural
+	 * modifications are those that change the number of mappings in the HMapLL
+	 * or otherwise modify its internal structure (e.g., rehash). This field is
+	 * used to make iterators on Collection-views of the HMapLL fail-fast. (See
+	 * ConcurrentModificationException).
+	 */
+	transient volatile int modCount;
+
+	/**
+	 * Constructs an empty <tt>HMapLL</tt> with the specified initial capacity
+	 * and load factor.
+	 * 
+	 * @param initialCapacity
+	 *            the initial capacity
+	 * @param loadFactor
+	 *            the load factor
+	 * @throws IllegalArgumentException
+	 *             if the initial capacity is negative or the load factor is
+	 *             nonpositive
+	 */
+	public HMapLL(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		if (initialCapacity > MAXIMUM_CAPACITY)
+			initialCapacity = MAXIMUM_CAPACITY;
+		if (loadFactor <= 0 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+		// Find a power of 2 >= initialCapacity
+		int capacity = 1;
+		while (capacity < initialCapacity)
+			capacity <<= 1;
+
+		this.loadFactor = loadFactor;
+		threshold = (int) (capacity * loadFactor);
+		table = new Entry[capacity];
+		init();
+	}
+
+	/**
+	 * Constructs an empty <tt>HMapLL</tt> with the specified initial capacity
+	 * and the default load factor (0.75).
+	 * 
+	 * @param initialCapacity
+	 *            the initial capacity.
+	 * @throws IllegalArgumentException
+	 *             if the initial capacity is negative.
+	 */
+	public HMapLL(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>HMapLL</tt> with the default initial capacity
+	 * (1024) and the default load factor (0.75).
+	 */
+	public HMapLL() {
+		this.loadFactor = DEFAULT_LOAD_FACTOR;
+		threshold = (int) (DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);
+		table = new Entry[DEFAULT_INITIAL_CAPACITY];
+		init();
+	}
+
+	/**
+	 * Constructs a new <tt>HMapLL</tt> with the same mappings as the
+	 * specified <tt>MapLL</tt>. The <tt>HMapLL</tt> is created with default
+	 * load factor (0.75) and an initial capacity sufficient to hold the
+	 * mappings in the specified <tt>MapLL</tt>.
+	 * 
+	 * @param m
+	 *            the map whose mappings are to be placed in this map
+	 * @throws NullPointerException
+	 *             if the specified map is null
+	 */
+	public HMapLL(MapLL m) {
+		this(Math.max((int) (m.size() / DEFAULT_LOAD_FACTOR) + 1, DEFAULT_INITIAL_CAPACITY),
+				DEFAULT_LOAD_FACTOR);
+		putAllForCreate(m);
+	}
+
+	// internal utilities
+
+	/**
+	 * Initialization hook for subclasses. This method is called in all
+	 * constructors and pseudo-constructors (clone, readObject) after HMapLL has
+	 * been initialized but before any entries have been inserted. (In the
+	 * absence of this method, readObject would require explicit knowledge of
+	 * subclasses.)
+	 */
+	void init() {
+	}
+
+	/**
+	 * Mixes all 64 bits of a key before folding it into an int, with the
+	 * finalizer of MurmurHash3. Folding first, the way <tt>Long.hashCode()</tt>
+	 * does, maps a key packed from two ints, <code>(hi &lt;&lt; 32) | lo</code>,
+	 * to <code>hi ^ lo</code>, so that keys packed from small ints collide in
+	 * the power-of-two length hash tables of HMapLL.
+	 */
+	static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Returns index for hash code h.
+	 */
+	static int indexFor(int h, int length) {
+		return h & (length - 1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public long get(long key) {
+		int hash = hash(key);
+		for (Entry e = table[indexFor(hash, table.length)]; e != null; e = e.next) {
+			long k;
+			if (e.hash == hash && ((k = e.key) == key || key == k))
+				return e.value;
+		}
+
+		return DEFAULT_VALUE;
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		return getEntry(key) != null;
+	}
+
+	/**
+	 * Returns the entry associated with the specified key in the HMapLL.
+	 * Returns null if the HMapLL contains no mapping for the key.
+	 */
+	final Entry getEntry(long key) {
+		int hash = hash(key);
+		for (Entry e = table[indexFor(hash, table.length)]; e != null; e = e.next) {
+			long k;
+			if (e.hash == hash && ((k = e.key) == key || key == k))
+				return e;
+		}
+		return null;
+	}
+
+	@Override
+	public long put(long key, long value) {
+		int hash = hash(key);
+		int i = indexFor(hash, table.length);
+		for (Entry e = table[i]; e != null; e = e.next) {
+			long k;
+			if (e.hash == hash && ((k = e.key) == key || key == k)) {
+				long oldValue = e.value;
+				e.value = value;
+				e.recordAccess(this);
+				return oldValue;
+			}
+		}
+
+		modCount++;
+		addEntry(hash, key, value, i);
+		return DEFAULT_VALUE;
+	}
+
+	/**
+	 * This method is used instead of put by constructors and pseudoconstructors
+	 * (clone, readObject). It does not resize the table, check for
+	 * comodification, etc. It calls createEntry rather than addEntry.
+	 */
+	private void putForCreate(long key, long value) {
+		int hash = hash(key);
+		int i = indexFor(hash, table.length);
+
+		/**
+		 * Look for preexisting entry for key. This will never happen for clone
+		 * or deserialize. It will only happen for construction if the input Map
+		 * is a sorted map whose ordering is inconsistent w/ equals.
+		 */
+		for (Entry e = table[i]; e != null; e = e.next) {
+			long k;
+			if (e.hash == hash && ((k = e.key) == key || key == k)) {
+				e.value = value;
+				return;
+			}
+		}
+
+		createEntry(hash, key, value, i);
+	}
+
+	private void putAllForCreate(MapLL m) {
+		for (Iterator<? extends MapLL.Entry> i = m.entrySet().iterator(); i.hasNext();) {
+			MapLL.Entry e = i.next();
+			putForCreate(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Rehashes the contents of this map into a new array with a larger
+	 * capacity. This method is called automatically when the number of keys in
+	 * this map reaches its threshold.
+	 * 
+	 * If current capacity is MAXIMUM_CAPACITY, this method does not resize the
+	 * map, but sets threshold to Integer.MAX_VALUE. This has the effect of
+	 * preventing future calls.
+	 * 
+	 * @param newCapacity
+	 *            the new capacity, MUST be a power of two; must be greater than
+	 *            current capacity unless current capacity is MAXIMUM_CAPACITY
+	 *            (in which case value is irrelevant).
+	 */
+	void resize(int newCapacity) {
+		Entry[] oldTable = table;
+		int oldCapacity = oldTable.length;
+		if (oldCapacity == MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+
+		Entry[] newTable = new Entry[newCapacity];
+		transfer(newTable);
+		table = newTable;
+		threshold = (int) (newCapacity * loadFactor);
+	}
+
+	/**
+	 * Transfers all entries from current table to newTable.
+	 */
+	void transfer(Entry[] newTable) {
+		Entry[] src = table;
+		int newCapacity = newTable.length;
+		for (int j = 0; j < src.length; j++) {
+			Entry e = src[j];
+			if (e != null) {
+				src[j] = null;
+				do {
+					Entry next = e.next;
+					int i = indexFor(e.hash, newCapacity);
+					e.next = newTable[i];
+					newTable[i] = e;
+					e = next;
+				} while (e != null);
+			}
+		}
+	}
+
+	@Override
+	public void putAll(MapLL m) {
+		int numKeysToBeAdded = m.size();
+		if (numKeysToBeAdded == 0)
+			return;
+
+		/*
+		 * Expand the map if the map if the number of mappings to be added is
+		 * greater than or equal to threshold. This is conservative; the obvious
+		 * condition is (m.size() + size) >= threshold, but this condition could
+		 * result in a map with twice the appropriate capacity, if the keys to
+		 * be added overlap with the keys already in this map. By using the
+		 * conservative calculation, we subject ourself to at most one extra
+		 * resize.
+		 */
+		if (numKeysToBeAdded > threshold) {
+			int targetCapacity = (int) (numKeysToBeAdded / loadFactor + 1);
+			if (targetCapacity > MAXIMUM_CAPACITY)
+				targetCapacity = MAXIMUM_CAPACITY;
+			int newCapacity = table.length;
+			while (newCapacity < targetCapacity)
+				newCapacity <<= 1;
+			if (newCapacity > table.length)
+				resize(newCapacity);
+		}
+
+		for (Iterator<? extends MapLL.Entry> i = m.entrySet().iterator(); i.hasNext();) {
+			MapLL.Entry e = i.next();
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public long remove(long key) {
+		Entry e = removeEntryForKey(key);
+		if (e != null) {
+			return e.value;
+		}
+
+		throw new NoSuchElementException();
+	}
+
+	/**
+	 * Removes and returns the entry associated with the specified key in the
+	 * HMapLL. Returns null if the HMapLL contains no mapping for this key.
+	 */
+	final Entry removeEntryForKey(long key) {
+		int hash = hash(key);
+		int i = indexFor(hash, table.length);
+		Entry prev = table[i];
+		Entry e = prev;
+
+		while (e != null) {
+			Entry next = e.next;
+			long k;
+			if (e.hash == hash && ((k = e.key) == key || key == k)) {
+				modCount++;
+				size--;
+				if (prev == e)
+					table[i] = next;
+				else
+					prev.next = next;
+				e.recordRemoval(this);
+				return e;
+			}
+			prev = e;
+			e = next;
+		}
+
+		return e;
+	}
+
+	/**
+	 * Special version of remove for EntrySet.
+	 */
+	final Entry removeMapping(Object o) {
+		MapLL.Entry entry = (MapLL.Entry) o;
+		long key = entry.getKey();
+		int hash = hash(key);
+		int i = indexFor(hash, table.length);
+		Entry prev = table[i];
+		Entry e = prev;
+
+		while (e != null) {
+			Entry next = e.next;
+			if (e.hash == hash && e.equals(entry)) {
+				modCount++;
+				size--;
+				if (prev == e)
+					table[i] = next;
+				else
+					prev.next = next;
+				e.recordRemoval(this);
+				return e;
+			}
+			prev = e;
+			e = next;
+		}
+
+		return e;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++)
+			tab[i] = null;
+		size = 0;
+	}
+
+	@Override
+	public boolean containsValue(long value) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++)
+			for (Entry e = tab[i]; e != null; e = e.next)
+				if (value == e.value)
+					return true;
+		return false;
+	}
+
+	/**
+	 * Returns a shallow copy of this <tt>HMapLL</tt> instance: the keys and
+	 * values themselves are not cloned.
+	 * 
+	 * @return a shallow copy of this map
+	 */
+	@Override
+	public Object clone() {
+		HMapLL result = null;
+		try {
+			result = (HMapLL) super.clone();
+		} catch (CloneNotSupportedException e) {
+			// assert false;
+		}
+		result.table = new Entry[table.length];
+		result.entrySet = null;
+		result.modCount = 0;
+		result.size = 0;
+		result.init();
+		result.putAllForCreate(this);
+
+		return result;
+	}
+
+	static class Entry implements MapLL.Entry {
+		final long key;
+		long value;
+		Entry next;
+		final int hash;
+
+		/**
+		 * Creates new entry.
+		 */
+		Entry(int h, long k, long v, Entry n) {
+			value = v;
+			next = n;
+			key = k;
+			hash = h;
+		}
+
+		public final long getKey() {
+			return key;
+		}
+
+		public final long getValue() {
+			return value;
+		}
+
+		public final long setValue(long newValue) {
+			long oldValue = value;
+			value = newValue;
+			return oldValue;
+		}
+
+		public final boolean equals(Object o) {
+			MapLL.Entry e = (MapLL.Entry) o;
+			long k1 = getKey();
+			long k2 = e.getKey();
+			if (k1 == k2) {
+				long v1 = getValue();
+				long v2 = e.getValue();
+				if (v1 == v2)
+					return true;
+			}
+			return false;
+		}
+
+		public final int hashCode() {
+			return (int) (key ^ (key >>> 32)) ^ (int) (value ^ (value >>> 32));
+		}
+
+		public final String toString() {
+			return getKey() + "=" + getValue();
+		}
+
+		/**
+		 * This method is invoked whenever the value in an entry is overwritten
+		 * by an invocation of put(k,v) for a key k that's already in the
+		 * HMapLL.
+		 */
+		void recordAccess(HMapLL m) {
+		}
+
+		/**
+		 * This method is invoked whenever the entry is removed from the table.
+		 */
+		void recordRemoval(HMapLL m) {
+		}
+	}
+
+	/**
+	 * Adds a new entry with the specified key, value and hash code to the
+	 * specified bucket. It is the responsibility of this method to resize the
+	 * table if appropriate.
+	 * 
+	 * Subclass overrides this to alter the behavior of put method.
+	 */
+	void addEntry(int hash, long key, long value, int bucketIndex) {
+		Entry e = table[bucketIndex];
+		table[bucketIndex] = new Entry(hash, key, value, e);
+		if (size++ >= threshold)
+			resize(2 * table.length);
+	}
+
+	/**
+	 * Like addEntry except that this version is used when creating entries as
+	 * part of Map construction or "pseudo-construction" (cloning,
+	 * deserialization). This version needn't worry about resizing the table.
+	 * 
+	 * Subclass overrides this to alter the behavior of HMapLL(Map), clone, and
+	 * readObject.
+	 */
+	void createEntry(int hash, long key, long value, int bucketIndex) {
+		Entry e = table[bucketIndex];
+		table[bucketIndex] = new Entry(hash, key, value, e);
+		size++;
+	}
+
+	private abstract class HashIterator<E> implements Iterator<E> {
+		Entry next; // next entry to return
+		int expectedModCount; // For fast-fail
+		int index; // current slot
+		Entry current; // current entry
+
+		HashIterator() {
+			expectedModCount = modCount;
+			if (size > 0) { // advance to first entry
+				Entry[] t = table;
+				while (index < t.length && (next = t[index++]) == null)
+					;
+			}
+		}
+
+		public final boolean hasNext() {
+			return next != null;
+		}
+
+		final Entry nextEntry() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry e = next;
+			if (e == null)
+				throw new NoSuchElementException();
+
+			if ((next = e.next) == null) {
+				Entry[] t = table;
+				while (index < t.length && (next = t[index++]) == null)
+					;
+			}
+			current = e;
+			return e;
+		}
+
+		public void remove() {
+			if (current == null)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			long k = current.key;
+			current = null;
+			HMapLL.this.removeEntryForKey(k);
+			expectedModCount = modCount;
+		}
+
+	}
+
+	private final class ValueIterator extends HashIterator<Long> {
+		public Long next() {
+			return nextEntry().value;
+		}
+	}
+
+	private final class KeyIterator extends HashIterator<Long> {
+		public Long next() {
+			return nextEntry().getKey();
+		}
+	}
+
+	private final class EntryIterator extends HashIterator<MapLL.Entry> {
+		public MapLL.Entry next() {
+			return nextEntry();
+		}
+	}
+
+	// Subclass overrides these to alter behavior of views' iterator() method
+	Iterator<Long> newKeyIterator() {
+		return new KeyIterator();
+	}
+
+	Iterator<Long> newValueIterator() {
+		return new ValueIterator();
+	}
+
+	Iterator<MapLL.Entry> newEntryIterator() {
+		return new EntryIterator();
+	}
+
+	// Views
+
+	private transient Set<MapLL.Entry> entrySet = null;
+
+	/**
+	 * Each of these fields are initialized to contain an instance of the
+	 * appropriate view the first time this view is requested. The views are
+	 * stateless, so there's no reason to create more than one of each.
+	 */
+	transient volatile Set<Long> keySet = null;
+	transient volatile Collection<Long> values = null;
+
+	@Override
+	public Set<Long> keySet() {
+		Set<Long> ks = keySet;
+		return (ks != null ? ks : (keySet = new KeySet()));
+	}
+
+	private final class KeySet extends AbstractSet<Long> {
+		@Override
+		public Iterator<Long> iterator() {
+			return newKeyIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsKey((Long) o);
+		}
+	}
+
+	@Override
+	public Collection<Long> values() {
+		Collection<Long> vs = values;
+		return (vs != null ? vs : (values = new Values()));
+	}
+
+	private final class Values extends AbstractCollection<Long> {
+		@Override
+		public Iterator<Long> iterator() {
+			return newValueIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsValue((Short) o);
+		}
+	}
+
+	@Override
+	public Set<MapLL.Entry> entrySet() {
+		return entrySet0();
+	}
+
+	private Set<MapLL.Entry> entrySet0() {
+		Set<MapLL.Entry> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	private final class EntrySet extends AbstractSet<MapLL.Entry> {
+		@Override
+		public Iterator<MapLL.Entry> iterator() {
+			return newEntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			MapLL.Entry e = (MapLL.Entry) o;
+			Entry candidate = getEntry(e.getKey());
+			return candidate != null && candidate.equals(e);
+		}
+	}
+
+	/**
+	 * Save the state of the <tt>HMapLL</tt> instance to a stream (i.e.,
+	 * serialize it).
+	 * 
+	 * @serialData The <i>capacity</i> of the HMapLL (the length of the bucket
+	 *             array) is emitted (int), followed by the <i>size</i> (an
+	 *             int, the number of key-value mappings), followed by the key
+	 *             (Object) and value (Object) for each key-value mapping. The
+	 *             key-value mappings are emitted in no particular order.
+	 */
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		Iterator<MapLL.Entry> i = (size > 0) ? entrySet0().iterator() : null;
+
+		// Write out the threshold, loadfactor, and any hidden stuff
+		s.defaultWriteObject();
+
+		// Write out number of buckets
+		s.writeInt(table.length);
+
+		// Write out size (number of Mappings)
+		s.writeInt(size);
+
+		// Write out keys and values (alternating)
+		if (i != null) {
+			while (i.hasNext()) {
+				MapLL.Entry e = i.next();
+				s.writeLong(e.getKey());
+				s.writeLong(e.getValue());
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 362498820763181265L;
+
+	/**
+	 * Reconstitute the <tt>HMapLL</tt> instance from a stream (i.e.,
+	 * deserialize it).
+	 */
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		// Read in the threshold, loadfactor, and any hidden stuff
+		s.defaultReadObject();
+
+		// Read in number of buckets and allocate the bucket array;
+		int numBuckets = s.readInt();
+		table = new Entry[numBuckets];
+
+		init(); // Give subclass a chance to do its thing.
+
+		// Read in size (number of Mappings)
+		int size = s.readInt();
+
+		// Read the keys and values, and put the mappings in the HMapLL
+		for (int i = 0; i < size; i++) {
+			long key = s.readLong();
+			long value = s.readShort();
+			putForCreate(key, value);
+		}
+	}
+
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(LongLongProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key, e.value);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(LongProcedure procedure) {
+		Entry[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				procedure.apply(e.key);
+			}
+		}
+	}
+
+	// doc copied from interface
+	public MapLL.Cursor cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapLL.Cursor {
+		private final int expectedModCount = modCount;
+		private int index = 0;
+		private Entry current;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Entry e = current == null ? null : current.next;
+			Entry[] tab = table;
+			while (e == null && index < tab.length)
+				e = tab[index++];
+			current = e;
+			return e != null;
+		}
+
+		public long key() {
+			return current.key;
+		}
+
+		public long value() {
+			return current.value;
+		}
+	}
+
+	// These methods are used when serializing HashSets
+	int capacity() {
+		return table.length;
+	}
+
+	float loadFactor() {
+		return loadFactor;
+	}
+
+	@Override
+	public String toString() {
+		Iterator<MapLL.Entry> i = entrySet().iterator();
+		if (!i.hasNext())
+			return "{}";
+
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (;;) {
+			MapLL.Entry e = i.next();
+			long key = e.getKey();
+			long value = e.getValue();
+			sb.append(key);
+			sb.append('=');
+			sb.append(value);
+			if (!i.hasNext())
+				return sb.append('}').toString();
+			sb.append(", ");
+		}
+	}
+	
+	// methods not part of a standard HashMap
+
+	/**
+	 * Adds values of keys from another map to this map.
+	 * 
+	 * @param m
+	 *            the other map
+	 */
+	public void plus(MapLL m) {
+		for (MapLL.Entry e : m.entrySet()) {
+			long key = e.getKey();
+
+			if (this.containsKey(key)) {
+				this.put(key, this.get(key) + e.getValue());
+			} else {
+				this.put(key, e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Computes the dot product of this map with another map.
+	 * 
+	 * @param m
+	 *            the other map
+	 */
+	public long dot(MapLL m) {
+		long s = 0;
+
+		for (MapLL.Entry e : m.entrySet()) {
+			long key = e.getKey();
+
+			if (this.containsKey(key)) {
+				s += this.get(key) * e.getValue();
+			}
+		}
+
+		return s;
+	}
+
+	/**
+	 * Increments the key. If the key does not exist in the map, its value is
+	 * set to one.
+	 * 
+	 * @param key
+	 *            key to increment
+	 */
+	public void increment(long key) {
+		if (this.containsKey(key)) {
+			this.put(key, this.get(key) + 1);
+		} else {
+			this.put(key, (long) 1);
+		}
+	}
+	
+	public void increment(long key, long value) {
+		if (this.containsKey(key)) {
+			this.put(key, this.get(key) + value);
+		} else {
+			this.put(key, value);
+		}
+	}
+
+	// descending value, ties broken by the key
+	private static final Comparator<MapLL.Entry> VALUE_ORDER = new Comparator<MapLL.Entry>() {
+		public int compare(MapLL.Entry e1, MapLL.Entry e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return e1.getKey() > e2.getKey() ? 1 : -1;
+		}
+	};
+
+	/**
+	 * Returns entries sorted by descending value. Ties broken by the key.
+	 * 
+	 * @return entries sorted by descending value
+	 */
+	public MapLL.Entry[] getEntriesSortedByValue() {
+		if (this.size() == 0)
+			return null;
+
+		// for storing the entries
+		MapLL.Entry[] entries = new Entry[this.size()];
+		int i = 0;
+		Entry next = null;
+
+		int index = 0;
+		// advance to first entry
+		while (index < table.length && (next = table[index++]) == null)
+			;
+
+		while (next != null) {
+			// current entry
+			Entry e = next;
+
+			// advance to next entry
+			next = e.next;
+			if ((next = e.next) == null) {
+				while (index < table.length && (next = table[index++]) == null)
+					;
+			}
+
+			// add entry to array
+			entries[i++] = e;
+		}
+
+		// sort the entries
+		Arrays.sort(entries, VALUE_ORDER);
+
+		return entries;
+	}
+
+	/**
+	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
+	 * 
+	 * @param n
+	 *            number of entries to return
+	 * @return top <i>n</i> entries sorted by descending value
+	 */
+	public MapLL.Entry[] getEntriesSortedByValue(int n) {
+		if (this.size() == 0)
+			return null;
+
+		TopK<MapLL.Entry> top = selectByValue(n);
+		return top.toSortedArray(new MapLL.Entry[top.size()]);
+	}
+
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 * 
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, LongLongProcedure procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapLL.Entry e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapLL.Entry> selectByValue(int n) {
+		TopK<MapLL.Entry> top = new TopK<MapLL.Entry>(Math.min(n, size()), VALUE_ORDER);
+		for (Entry e : table) {
+			for (; e != null; e = e.next) {
+				top.offer(e);
+			}
+		}
+		return top;
+	}
+}
@@ -198,6 +198,72 @@ public interface MapIS {
 		int hashCode();
 	}
 
+	// Allocation-free iteration
+
+	/**
+	 * Applies a procedure to each key-value mapping in this map. Unlike
+	 * iterating over {@link #entrySet()}, this does not create an object per
+	 * mapping. The procedure must not structurally modify the map.
+	 * 
+	 * @param procedure
+	 *            procedure to apply to each mapping
+	 */
+	void forEach(IntShortProcedure procedure);
+
+	/**
+	 * Applies a procedure to each key in this map. Unlike iterating over
+	 * {@link #keySet()}, this does not box the keys. The procedure must not
+	 * structurally modify the map.
+	 * 
+	 * @param procedure
+	 *            procedure to apply to each key
+	 */
+	void forEachKey(IntProcedure procedure);
+
+	/**
+	 * Returns a cursor over the mappings in this map. The cursor is positioned
+	 * before the first mapping; each call to {@link Cursor#advance()}
+	 * moves it to the next mapping. A cursor does not allocate anything per
+	 * mapping, and fails fast if the map is structurally modified while it is
+	 * in use.
+	 * 
+	 * @return a cursor over the mappings in this map
+	 */
+	Cursor cursor();
+
+	/**
+	 * A cursor over the mappings of a map, obtained from {@link #cursor()}.
+	 * The results of {@link #key()} and {@link #value()} are undefined
+	 * unless the preceding call to {@link #advance()} returned
+	 * <tt>true</tt>.
+	 */
+	interface Cursor {
+		/**
+		 * Moves the cursor to the next mapping.
+		 * 
+		 * @return <tt>true</tt> if the cursor is positioned on a mapping, or
+		 *         <tt>false</tt> if there are no more mappings
+		 * @throws java.util.ConcurrentModificationException
+		 *             if the map was structurally modified since the cursor
+		 *             was created
+		 */
+		boolean advance();
+
+		/**
+		 * Returns the key of the current mapping.
+		 * 
+		 * @return the key of the current mapping
+		 */
+		int key();
+
+		/**
+		 * Returns the value of the current mapping.
+		 * 
+		 * @return the value of the current mapping
+		 */
+		short value();
+	}
+
 	// Comparison and hashing
 
 	/**
@@ -0,0 +1,313 @@
+/*
+ * @(#)Map.java	1.56 06/04/21
+ *
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from longs to ints.
+ */
+public interface MapLI {
+	public static final int DEFAULT_VALUE = 0;
+	// Query Operations
+
+	/**
+	 * Returns the number of key-value mappings in this map.
+	 * 
+	 * @return the number of key-value mappings in this map
+	 */
+	int size();
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 * 
+	 * @return <tt>true</tt> if this map contains no key-value mappings
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the specified
+	 * key.
+	 * 
+	 * @param key
+	 *            key whose presence in this map is to be tested
+	 * @return <tt>true</tt> if this map contains a mapping for the specified
+	 *         key
+	 */
+	boolean containsKey(long key);
+
+	/**
+	 * Returns <tt>true</tt> if this map contains one or more mappings with
+	 * the specified value.
+	 * 
+	 * @param value
+	 *            value whose presence in this map is to be tested
+	 * @return <tt>true</tt> this map contains one or more mappings with the
+	 *         specified value
+	 */
+	boolean containsValue(int value);
+
+	/**
+	 * Returns the value to which the specified key is mapped, or throws
+	 * {@link NoSuchElementException} if this map contains no mapping for the
+	 * key.
+	 * 
+	 * @param key
+	 *            the key whose associated value is to be returned
+	 * @return the value to which the specified key is mapped
+	 * @throws NoSuchElementException
+	 *             if the key is not contained in this map
+	 */
+	int get(long key);
+
+	// Modification Operations
+
+	/**
+	 * Associates the specified value with the specified key in this map. If the
+	 * map previously contained a mapping for the key, the old value is replaced
+	 * by the specified value.
+	 * 
+	 * @param key
+	 *            key with which the specified value is to be associated
+	 * @param value
+	 *            value to be associated with the specified key
+	 */
+	int put(long key, int value);
+
+	/**
+	 * Removes the mapping for a key from this map if it is present. No action
+	 * is performed if this map does not contain the key.
+	 * 
+	 * @param key
+	 *            key whose mapping is to be removed from the map
+	 */
+	int remove(long key);
+
+	// Bulk Operations
+
+	/**
+	 * Copies all of the mappings from the specified map to this map.
+	 * 
+	 * @param m
+	 *            mappings to be stored in this map
+	 */
+	void putAll(MapLI m);
+
+	/**
+	 * Removes all of the mappings from this map. The map will be empty after
+	 * this call returns.
+	 */
+	void clear();
+
+	// Views
+
+	/**
+	 * Returns a {@link Set} view of the keys contained in this map. Note that
+	 * this is a inefficient operation since it triggers autoboxing of the long
+	 * keys, which is exactly what this implementation is trying to avoid.
+	 * Unlike a standard Java <tt>Map</tt>, values in the backing map cannot
+	 * be altered with this collection view.
+	 * 
+	 * @return a set view of the keys contained in this map
+	 */
+	Set<Long> keySet();
+
+	/**
+	 * Returns a {@link Collection} view of the values contained in this map.
+	 * Note that this is a inefficient operation since it triggers autoboxing of
+	 * the int values, which is exactly what this implementation is trying to
+	 * avoid. Unlike a standard Java <tt>Map</tt>, values in the backing map
+	 * cannot be altered with this collection view.
+	 * 
+	 * @return a collection view of the values contained in this map
+	 */
+	Collection<Integer> values();
+
+	/**
+	 * Returns a {@link Set} view of the mappings contained in this map. The set
+	 * is backed by the map, so changes to the map are reflected in the set, and
+	 * vice-versa. See {@link Map#entrySet} for more details.
+	 * 
+	 * @return a set view of the mappings contained in this map
+	 */
+	Set<MapLI.Entry> entrySet();
+
+	/**
+	 * A map entry (key-value pair) for <tt>MapLI</tt>. The
+	 * <tt>MapLI.entrySet</tt> method returns a collection-view of the map,
+	 * whose elements are of this class. The <i>only</i> way to obtain a
+	 * reference to a map entry is from the iterator of this collection-view.
+	 * These <tt>MapLI.Entry</tt> objects are valid <i>only</i> for the
+	 * duration of the iteration; more formally, the behavior of a map entry is
+	 * undefined if the backing map has been modified after the entry was
+	 * returned by the iterator, except through the <tt>setValue</tt>
+	 * operation on the map entry.
+	 */
+	interface Entry {
+		/**
+		 * Returns the key corresponding to this entry.
+		 * 
+		 * @return the key corresponding to this entry
+		 */
+		long getKey();
+
+		/**
+		 * Returns the value corresponding to this entry. If the mapping has
+		 * been removed from the backing map (by the iterator's <tt>remove</tt>
+		 * operation), the results of this call are undefined.
+		 * 
+		 * @return the value corresponding to this entry
+		 */
+		int getValue();
+
+		/**
+		 * Replaces the value corresponding to this entry with the specified
+		 * value, and write through to the backing map. The behavior of this
+		 * call is undefined if the mapping has already been removed from the
+		 * map (by the iterator's <tt>remove</tt> operation).
+		 * 
+		 * @param value
+		 *            new value to be stored in this entry
+		 * @return old value corresponding to the entry
+		 */
+		int setValue(int value);
+
+		/**
+		 * Compares the specified object with this entry for equality. Returns
+		 * <tt>true</tt> if the given object is also a map entry and the two
+		 * entries represent the same mapping.
+		 * 
+		 * @param o
+		 *            object to be compared for equality with this map entry
+		 * @return <tt>true</tt> if the specified object is equal to this map
+		 *         entry
+		 */
+		boolean equals(Object o);
+
+		/**
+		 * Returns the hash code value for this map entry. The hash code of a
+		 * map entry <tt>e</tt> is defined to be:
+		 * 
+		 * <pre>
+		 * e.getKey() &circ; e.getValue().hashCode()
+		 * </pre>
+		 * 
+		 * This ensures that <tt>e1.equals(e2)</tt> implies that
+		 * <tt>e1.hashCode()==e2.hashCode()</tt> for any two Entries
+		 * <tt>e1</tt> and <tt>e2</tt>, as required by the general contract
+		 * of <tt>Object.hashCode</tt>.
+		 * 
+		 * @return the hash code value for this map entry
+		 * @see Object#hashCode()
+		 * @see Object#equals(Object)
+		 * @see #equals(Object)
+		 */
+		int hashCode();
+	}
+
+	// Allocation-free iteration
+
+	/**
+	 * Applies a procedure to each key-value mapping in this map. Unlike
+	 * iterating over {@link #entrySet()}, this does not create an object per
+	 * mapping. The procedure must not structurally modify the map.
+	 * 
+	 * @param procedure
+	 *            procedure to apply to each mapping
+	 */
+	void forEach(LongIntProcedure procedure);
+
+	/**
+	 * Applies a procedure to each key in this map. Unlike iterating over
+	 * {@link #keySet()}, this does not box the keys. The procedure must not
+	 * structurally modify the map.
+	 * 
+	 * @param procedure
+	 *            procedure to apply to each key
+	 */
+	void forEachKey(LongProcedure procedure);
+
+	/**
+	 * Returns a cursor over the mappings in this map. The cursor is positioned
+	 * before the first mapping; each call to {@link Cursor#advance()}
+	 * moves it to the next mapping. A cursor does not allocate anything per
+	 * mapping, and fails fast if the map is structurally modified while it is
+	 * in use.
+	 * 
+	 * @return a cursor over the mappings in this map
+	 */
+	Cursor cursor();
+
+	/**
+	 * A cursor over the mappings of a map, obtained from {@link #cursor()}.
+	 * The results of {@link #key()} and {@link #value()} are undefined
+	 * unless the preceding call to {@link #advance()} returned
+	 * <tt>true</tt>.
+	 */
+	interface Cursor {
+		/**
+		 * Moves the cursor to the next mapping.
+		 * 
+		 * @return <tt>true</tt> if the cursor is positioned on a mapping, or
+		 *         <tt>false</tt> if there are no more mappings
+		 * @throws java.util.ConcurrentModificationException
+		 *             if the map was structurally modified since the cursor
+		 *             was created
+		 */
+		boolean advance();
+
+		/**
+		 * Returns the key of the current mapping.
+		 * 
+		 * @return the key of the current mapping
+		 */
+		long key();
+
+		/**
+		 * Returns the value of the current mapping.
+		 * 
+		 * @return the value of the current mapping
+		 */
+		int value();
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this map for equality. Returns
+	 * <tt>true</tt> if the given object is also a map and the two maps
+	 * represent the same mappings. More formally, two maps <tt>m1</tt> and
+	 * <tt>m2</tt> represent the same mappings if
+	 * <tt>m1.entrySet().equals(m2.entrySet())</tt>. This ensures that the
+	 * <tt>equals</tt> method works properly across different implementations
+	 * of the <tt>MapLI</tt> interface.
+	 * 
+	 * @param o
+	 *            object to be compared for equality with this map
+	 * @return <tt>true</tt> if the specified object is equal to this map
+	 */
+	boolean equals(Object o);
+
+	/**
+	 * Returns the hash code value for this map. The hash code of a map is
+	 * defined to be the sum of the hash codes of each entry in the map's
+	 * <tt>entrySet()</tt> view. This ensures that <tt>m1.equals(m2)</tt>
+	 * implies that <tt>m1.hashCode()==m2.hashCode()</tt> for any two maps
+	 * <tt>m1</tt> and <tt>m2</tt>, as required by the general contract of
+	 * {@link Object#hashCode}.
+	 * 
+	 * @return the hash code value for this map
+	 * @see MapKI.Entry#hashCode()
+	 * @see Object#equals(Object)
+	 * @see #equals(Object)
+	 */
+	int hashCode();
+}
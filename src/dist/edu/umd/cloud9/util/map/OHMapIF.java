@@ -0,0 +1,992 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.umd.cloud9.util.TopK;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+/**
+ * Open-addressing implementation of {@link MapIF}. Unlike {@link HMapIF},
+ * which allocates a chained <tt>Entry</tt> object for every mapping, this
+ * implementation stores keys and values in parallel primitive arrays and
+ * resolves collisions by linear probing. Deletions use backward shifting, so
+ * the table never accumulates tombstones. This class is meant as a drop-in
+ * replacement for {@link HMapIF} in memory-sensitive code such as in-mapper
+ * combiners: an entry costs roughly nine bytes per slot instead of a 32-byte
+ * object plus a table reference.
+ */
+public class OHMapIF implements MapIF, Cloneable, Serializable {
+
+	/**
+	 * The default initial capacity - MUST be a power of two.
+	 */
+	static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The maximum capacity, used if a higher value is implicitly specified by
+	 * either of the constructors with arguments. MUST be a power of two <= 1<<30.
+	 */
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The load factor used when none specified in constructor.
+	 */
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	/**
+	 * The keys, resized as necessary. Length MUST Always be a power of two.
+	 */
+	transient int[] keys;
+
+	/**
+	 * The values, parallel to <tt>keys</tt>.
+	 */
+	transient float[] values;
+
+	/**
+	 * Marks which slots of the table are occupied.
+	 */
+	transient boolean[] used;
+
+	/**
+	 * The number of key-value mappings contained in this map.
+	 */
+	transient int size;
+
+	/**
+	 * The next size value at which to resize (capacity * load factor).
+	 *
+	 * @serial
+	 */
+	int threshold;
+
+	/**
+	 * The load factor for the hash table.
+	 *
+	 * @serial
+	 */
+	final float loadFactor;
+
+	/**
+	 * The number of times this map has been structurally modified. This field
+	 * is used to make iterators on Collection-views of the map fail-fast.
+	 */
+	transient volatile int modCount;
+
+	/**
+	 * Constructs an empty <tt>OHMapIF</tt> with the specified initial capacity
+	 * and load factor.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity
+	 * @param loadFactor
+	 *            the load factor
+	 * @throws IllegalArgumentException
+	 *             if the initial capacity is negative or the load factor is
+	 *             nonpositive or not less than one
+	 */
+	public OHMapIF(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		if (initialCapacity > MAXIMUM_CAPACITY)
+			initialCapacity = MAXIMUM_CAPACITY;
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+		// Find a power of 2 >= initialCapacity
+		int capacity = 1;
+		while (capacity < initialCapacity)
+			capacity <<= 1;
+
+		this.loadFactor = loadFactor;
+		allocate(capacity);
+	}
+
+	/**
+	 * Constructs an empty <tt>OHMapIF</tt> with the specified initial capacity
+	 * and the default load factor (0.75).
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity.
+	 * @throws IllegalArgumentException
+	 *             if the initial capacity is negative.
+	 */
+	public OHMapIF(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>OHMapIF</tt> with the default initial capacity
+	 * (1024) and the default load factor (0.75).
+	 */
+	public OHMapIF() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs a new <tt>OHMapIF</tt> with the same mappings as the
+	 * specified <tt>MapIF</tt>. The <tt>OHMapIF</tt> is created with default
+	 * load factor (0.75) and an initial capacity sufficient to hold the
+	 * mappings in the specified <tt>MapIF</tt>.
+	 *
+	 * @param m
+	 *            the map whose mappings are to be placed in this map
+	 * @throws NullPointerException
+	 *             if the specified map is null
+	 */
+	public OHMapIF(MapIF m) {
+		this(Math.max((int) (m.size() / DEFAULT_LOAD_FACTOR) + 1, DEFAULT_INITIAL_CAPACITY),
+				DEFAULT_LOAD_FACTOR);
+		putAll(m);
+	}
+
+	// internal utilities
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new float[capacity];
+		used = new boolean[capacity];
+		threshold = Math.min((int) (capacity * loadFactor), capacity - 1);
+	}
+
+	/**
+	 * Applies a supplemental hash function to a given key, which defends
+	 * against keys that do not differ in lower bits. This is the same function
+	 * used by {@link HMapIF}; it leaves runs of consecutive keys (e.g., node
+	 * ids) in consecutive slots, which keeps probing cache-friendly.
+	 */
+	static int hash(int h) {
+		// This function ensures that hashCodes that differ only by
+		// constant multiples at each bit position have a bounded
+		// number of collisions (approximately 8 at default load factor).
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	/**
+	 * Returns the slot holding the specified key, or -1 if the key is not
+	 * present.
+	 */
+	final int slotOf(int key) {
+		final int mask = keys.length - 1;
+		int pos = hash(key) & mask;
+		while (used[pos]) {
+			if (keys[pos] == key)
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot holding the specified key, or the free slot at which the
+	 * key should be inserted encoded as <tt>-(slot + 1)</tt>.
+	 */
+	final int insertionSlotOf(int key) {
+		final int mask = keys.length - 1;
+		int pos = hash(key) & mask;
+		while (used[pos]) {
+			if (keys[pos] == key)
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+		return -(pos + 1);
+	}
+
+	/**
+	 * Stores a new mapping in the free slot <tt>pos</tt>, growing the table if
+	 * necessary.
+	 */
+	final void insertAt(int pos, int key, float value) {
+		keys[pos] = key;
+		values[pos] = value;
+		used[pos] = true;
+		modCount++;
+		if (++size > threshold)
+			resize(2 * keys.length);
+	}
+
+	/**
+	 * Removes the mapping stored at slot <tt>pos</tt> and shifts subsequent
+	 * entries of the probe sequence back so that lookups never hit a gap.
+	 */
+	final void removeAt(int pos) {
+		final int mask = keys.length - 1;
+		int last;
+		size--;
+		modCount++;
+		for (;;) {
+			last = pos;
+			pos = (pos + 1) & mask;
+			for (;;) {
+				if (!used[pos]) {
+					used[last] = false;
+					return;
+				}
+				int slot = hash(keys[pos]) & mask;
+				// Entry may be moved to last if its home slot is not in (last, pos].
+				if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos))
+					break;
+				pos = (pos + 1) & mask;
+			}
+			keys[last] = keys[pos];
+			values[last] = values[pos];
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public float get(int key) {
+		int pos = slotOf(key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+		return values[pos];
+	}
+
+	@Override
+	public boolean containsKey(int key) {
+		return slotOf(key) >= 0;
+	}
+
+	@Override
+	public void put(int key, float value) {
+		int pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			values[pos] = value;
+			return;
+		}
+
+		insertAt(-pos - 1, key, value);
+	}
+
+	/**
+	 * Rehashes the contents of this map into a new array with a larger
+	 * capacity. This method is called automatically when the number of keys in
+	 * this map reaches its threshold.
+	 *
+	 * @param newCapacity
+	 *            the new capacity, MUST be a power of two
+	 */
+	void resize(int newCapacity) {
+		int oldCapacity = keys.length;
+		if (oldCapacity == MAXIMUM_CAPACITY) {
+			if (size >= MAXIMUM_CAPACITY - 1)
+				throw new IllegalStateException("Map is full");
+			threshold = MAXIMUM_CAPACITY - 1;
+			return;
+		}
+
+		int[] oldKeys = keys;
+		float[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(newCapacity);
+
+		final int mask = newCapacity - 1;
+		for (int i = 0; i < oldCapacity; i++) {
+			if (oldUsed[i]) {
+				int pos = hash(oldKeys[i]) & mask;
+				while (used[pos])
+					pos = (pos + 1) & mask;
+				keys[pos] = oldKeys[i];
+				values[pos] = oldValues[i];
+				used[pos] = true;
+			}
+		}
+		modCount++;
+	}
+
+	@Override
+	public void putAll(MapIF m) {
+		int numKeysToBeAdded = m.size();
+		if (numKeysToBeAdded == 0)
+			return;
+
+		// Conservatively expand once up front; see HMapIF.putAll.
+		if (numKeysToBeAdded > threshold) {
+			int targetCapacity = (int) (numKeysToBeAdded / loadFactor + 1);
+			if (targetCapacity > MAXIMUM_CAPACITY)
+				targetCapacity = MAXIMUM_CAPACITY;
+			int newCapacity = keys.length;
+			while (newCapacity < targetCapacity)
+				newCapacity <<= 1;
+			if (newCapacity > keys.length)
+				resize(newCapacity);
+		}
+
+		for (MapIF.Entry e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public float remove(int key) {
+		int pos = slotOf(key);
+		if (pos >= 0) {
+			float value = values[pos];
+			removeAt(pos);
+			return value;
+		}
+
+		throw new NoSuchElementException();
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	@Override
+	public boolean containsValue(float value) {
+		for (int i = 0; i < keys.length; i++)
+			if (used[i] && values[i] == value)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns a copy of this <tt>OHMapIF</tt> instance.
+	 *
+	 * @return a copy of this map
+	 */
+	@Override
+	public Object clone() {
+		OHMapIF result = null;
+		try {
+			result = (OHMapIF) super.clone();
+		} catch (CloneNotSupportedException e) {
+			// assert false;
+		}
+		result.keys = keys.clone();
+		result.values = values.clone();
+		result.used = used.clone();
+		result.entrySet = null;
+		result.keySet = null;
+		result.valueCollection = null;
+		result.modCount = 0;
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of slots in the underlying table.
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	float loadFactor() {
+		return loadFactor;
+	}
+
+	/**
+	 * Entry handed out by the views. Reads and writes go straight through to
+	 * the backing arrays; the entry is valid only until the next structural
+	 * modification of the map.
+	 */
+	final class Entry implements MapIF.Entry {
+		final int index;
+
+		Entry(int index) {
+			this.index = index;
+		}
+
+		public final int getKey() {
+			return keys[index];
+		}
+
+		public final float getValue() {
+			return values[index];
+		}
+
+		public final float setValue(float newValue) {
+			float oldValue = values[index];
+			values[index] = newValue;
+			return oldValue;
+		}
+
+		public final boolean equals(Object o) {
+			MapIF.Entry e = (MapIF.Entry) o;
+			return getKey() == e.getKey() && getValue() == e.getValue();
+		}
+
+		public final int hashCode() {
+			return (getKey()) ^ ((int) getValue());
+		}
+
+		public final String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	/**
+	 * Detached key-value pair, used where entries must outlive changes to the
+	 * map (e.g., sorted entries).
+	 */
+	static final class SimpleEntry implements MapIF.Entry {
+		int key;
+		float value;
+
+		SimpleEntry(int key, float value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		public final int getKey() {
+			return key;
+		}
+
+		public final float getValue() {
+			return value;
+		}
+
+		public final float setValue(float newValue) {
+			float oldValue = value;
+			value = newValue;
+			return oldValue;
+		}
+
+		public final boolean equals(Object o) {
+			MapIF.Entry e = (MapIF.Entry) o;
+			return key == e.getKey() && value == e.getValue();
+		}
+
+		public final int hashCode() {
+			return (key) ^ ((int) value);
+		}
+
+		public final String toString() {
+			return key + "=" + value;
+		}
+	}
+
+	/**
+	 * Iterates over the table from the last slot down to the first. Removing
+	 * an element shifts entries of its probe sequence backwards; entries that
+	 * wrap around from the start of the table into already-visited slots are
+	 * remembered and returned at the end, so every mapping is seen exactly once.
+	 */
+	private abstract class HashIterator<E> implements Iterator<E> {
+		int pos = keys.length; // next slot to examine is pos - 1
+		int last = -1; // slot of the entry last returned, or -1
+		int remaining = size;
+		int expectedModCount = modCount;
+		ArrayListOfInts wrapped; // keys moved behind the cursor by remove()
+		boolean lastWasWrapped;
+
+		public final boolean hasNext() {
+			return remaining > 0;
+		}
+
+		final int nextIndex() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (remaining == 0)
+				throw new NoSuchElementException();
+
+			remaining--;
+			lastWasWrapped = false;
+			if (pos > 0) {
+				while (--pos >= 0) {
+					if (used[pos]) {
+						last = pos;
+						return pos;
+					}
+				}
+			}
+
+			// Only wrapped entries are left; report the slot they now occupy.
+			lastWasWrapped = true;
+			int slot = slotOf(wrapped.remove(wrapped.size() - 1));
+			last = slot;
+			return slot;
+		}
+
+		public void remove() {
+			if (last == -1)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			if (lastWasWrapped) {
+				removeAt(last);
+			} else {
+				removeWithCursor(last);
+			}
+			last = -1;
+			expectedModCount = modCount;
+		}
+
+		/**
+		 * Same as removeAt(), but keeps track of entries that are shifted from
+		 * unvisited slots (at the front of the table) to visited slots.
+		 */
+		private void removeWithCursor(int slot) {
+			final int mask = keys.length - 1;
+			int lastSlot;
+			int p = slot;
+			size--;
+			modCount++;
+			for (;;) {
+				lastSlot = p;
+				p = (p + 1) & mask;
+				for (;;) {
+					if (!used[p]) {
+						used[lastSlot] = false;
+						return;
+					}
+					int home = hash(keys[p]) & mask;
+					if (lastSlot <= p ? (lastSlot >= home || home > p)
+							: (lastSlot >= home && home > p))
+						break;
+					p = (p + 1) & mask;
+				}
+				if (p < lastSlot) {
+					// Moving an unvisited entry into the visited region.
+					if (wrapped == null)
+						wrapped = new ArrayListOfInts(2);
+					wrapped.add(keys[p]);
+				}
+				keys[lastSlot] = keys[p];
+				values[lastSlot] = values[p];
+			}
+		}
+	}
+
+	private final class ValueIterator extends HashIterator<Float> {
+		public Float next() {
+			return values[nextIndex()];
+		}
+	}
+
+	private final class KeyIterator extends HashIterator<Integer> {
+		public Integer next() {
+			return keys[nextIndex()];
+		}
+	}
+
+	private final class EntryIterator extends HashIterator<MapIF.Entry> {
+		public MapIF.Entry next() {
+			return new Entry(nextIndex());
+		}
+	}
+
+	// Views
+
+	private transient Set<MapIF.Entry> entrySet = null;
+	private transient Set<Integer> keySet = null;
+	private transient Collection<Float> valueCollection = null;
+
+	@Override
+	public Set<Integer> keySet() {
+		Set<Integer> ks = keySet;
+		return (ks != null ? ks : (keySet = new KeySet()));
+	}
+
+	private final class KeySet extends AbstractSet<Integer> {
+		@Override
+		public Iterator<Integer> iterator() {
+			return new KeyIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsKey((Integer) o);
+		}
+	}
+
+	@Override
+	public Collection<Float> values() {
+		Collection<Float> vs = valueCollection;
+		return (vs != null ? vs : (valueCollection = new Values()));
+	}
+
+	private final class Values extends AbstractCollection<Float> {
+		@Override
+		public Iterator<Float> iterator() {
+			return new ValueIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsValue((Float) o);
+		}
+	}
+
+	@Override
+	public Set<MapIF.Entry> entrySet() {
+		Set<MapIF.Entry> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	private final class EntrySet extends AbstractSet<MapIF.Entry> {
+		@Override
+		public Iterator<MapIF.Entry> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			MapIF.Entry e = (MapIF.Entry) o;
+			int pos = slotOf(e.getKey());
+			return pos >= 0 && values[pos] == e.getValue();
+		}
+	}
+
+	/**
+	 * Save the state of the <tt>OHMapIF</tt> instance to a stream (i.e.,
+	 * serialize it).
+	 *
+	 * @serialData The <i>capacity</i> of the table is emitted (int), followed
+	 *             by the <i>size</i> (an int, the number of key-value
+	 *             mappings), followed by the key (int) and value (float) for each
+	 *             key-value mapping. The key-value mappings are emitted in no
+	 *             particular order.
+	 */
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(keys.length);
+		s.writeInt(size);
+
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				s.writeInt(keys[i]);
+				s.writeFloat(values[i]);
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 2893713059227347613L;
+
+	/**
+	 * Reconstitute the <tt>OHMapIF</tt> instance from a stream (i.e.,
+	 * deserialize it).
+	 */
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+
+		int capacity = s.readInt();
+		allocate(capacity);
+
+		int n = s.readInt();
+		for (int i = 0; i < n; i++) {
+			int key = s.readInt();
+			float value = s.readFloat();
+			put(key, value);
+		}
+	}
+
+	@Override
+	public String toString() {
+		if (size == 0)
+			return "{}";
+
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		boolean first = true;
+		for (int i = 0; i < keys.length; i++) {
+			if (!used[i])
+				continue;
+			if (!first)
+				sb.append(", ");
+			sb.append(keys[i]);
+			sb.append('=');
+			sb.append(values[i]);
+			first = false;
+		}
+		return sb.append('}').toString();
+	}
+
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntFloatProcedure procedure) {
+		int[] k = keys;
+		float[] v = values;
+		boolean[] u = used;
+		for (int i = 0; i < u.length; i++) {
+			if (u[i])
+				procedure.apply(k[i], v[i]);
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		int[] k = keys;
+		boolean[] u = used;
+		for (int i = 0; i < u.length; i++) {
+			if (u[i])
+				procedure.apply(k[i]);
+		}
+	}
+
+	// doc copied from interface
+	public MapIF.Cursor cursor() {
+		return new TableCursor();
+	}
+
+	private final class TableCursor implements MapIF.Cursor {
+		private final int expectedModCount = modCount;
+		private int pos = -1;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			boolean[] u = used;
+			while (++pos < u.length) {
+				if (u[pos])
+					return true;
+			}
+			return false;
+		}
+
+		public int key() {
+			return keys[pos];
+		}
+
+		public float value() {
+			return values[pos];
+		}
+	}
+
+	// methods not part of a standard HashMap
+
+	/**
+	 * Adds values of keys from another map to this map.
+	 *
+	 * @param m
+	 *            the other map
+	 */
+	public void plus(MapIF m) {
+		for (MapIF.Entry e : m.entrySet()) {
+			increment(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Computes the dot product of this map with another map.
+	 *
+	 * @param m
+	 *            the other map
+	 */
+	public float dot(MapIF m) {
+		float s = 0;
+
+		for (MapIF.Entry e : m.entrySet()) {
+			int pos = slotOf(e.getKey());
+
+			if (pos >= 0) {
+				s += values[pos] * e.getValue();
+			}
+		}
+
+		return s;
+	}
+
+	/**
+	 * Returns the length of the vector represented by this map.
+	 *
+	 * @return length of the vector represented by this map
+	 */
+	public float length() {
+		float s = 0.0f;
+
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				s += values[i] * values[i];
+			}
+		}
+
+		return (float) Math.sqrt(s);
+	}
+
+	/**
+	 * Normalizes values such that the vector represented by this map has unit
+	 * length.
+	 */
+	public void normalize() {
+		float l = this.length();
+
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				values[i] /= l;
+			}
+		}
+	}
+
+	/**
+	 * Increments the key. If the key does not exist in the map, its value is
+	 * set to one.
+	 *
+	 * @param key
+	 *            key to increment
+	 */
+	public void increment(int key) {
+		increment(key, 1.0f);
+	}
+
+	/**
+	 * Increments the key by some value. If the key does not exist in the map,
+	 * its value is set to the parameter value.
+	 *
+	 * @param key
+	 *            key to increment
+	 * @param value
+	 *            increment value
+	 */
+	public void increment(int key, float value) {
+		int pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			values[pos] += value;
+		} else {
+			insertAt(-pos - 1, key, value);
+		}
+	}
+
+	// descending value, ties broken by the key
+	private static final Comparator<MapIF.Entry> VALUE_ORDER = new Comparator<MapIF.Entry>() {
+		public int compare(MapIF.Entry e1, MapIF.Entry e2) {
+			if (e1.getValue() > e2.getValue()) {
+				return -1;
+			} else if (e1.getValue() < e2.getValue()) {
+				return 1;
+			}
+
+			if (e1.getKey() == e2.getKey())
+				return 0;
+
+			return e1.getKey() > e2.getKey() ? 1 : -1;
+		}
+	};
+
+	/**
+	 * Returns entries sorted by descending value. Ties broken by the key.
+	 *
+	 * @return entries sorted by descending value
+	 */
+	public MapIF.Entry[] getEntriesSortedByValue() {
+		if (this.size() == 0)
+			return null;
+
+		// for storing the entries
+		MapIF.Entry[] entries = new MapIF.Entry[this.size()];
+		int i = 0;
+		for (int pos = 0; pos < keys.length; pos++) {
+			if (used[pos]) {
+				entries[i++] = new SimpleEntry(keys[pos], values[pos]);
+			}
+		}
+
+		// sort the entries
+		Arrays.sort(entries, VALUE_ORDER);
+
+		return entries;
+	}
+
+	/**
+	 * Returns top <i>n</i> entries sorted by descending value. Ties broken by
+	 * the key. Rather than sorting every entry, this selects the top entries
+	 * with a bounded heap, in O(<i>N</i> log <i>n</i>) time and O(<i>n</i>) space.
+	 *
+	 * @param n
+	 *            number of entries to return
+	 * @return top <i>n</i> entries sorted by descending value
+	 */
+	public MapIF.Entry[] getEntriesSortedByValue(int n) {
+		if (this.size() == 0)
+			return null;
+
+		TopK<MapIF.Entry> top = selectByValue(n);
+		return top.toSortedArray(new MapIF.Entry[top.size()]);
+	}
+
+	/**
+	 * Applies a procedure to the top <i>n</i> entries, in descending order of
+	 * value. Ties broken by the key.
+	 *
+	 * @param n
+	 *            number of entries
+	 * @param procedure
+	 *            the procedure to apply
+	 */
+	public void topK(int n, IntFloatProcedure procedure) {
+		if (this.size() == 0)
+			return;
+
+		for (MapIF.Entry e : getEntriesSortedByValue(n)) {
+			procedure.apply(e.getKey(), e.getValue());
+		}
+	}
+
+	// selects the top n entries with a bounded heap, in O(N log n) time
+	private TopK<MapIF.Entry> selectByValue(int n) {
+		TopK<MapIF.Entry> top = new TopK<MapIF.Entry>(Math.min(n, size()), VALUE_ORDER);
+		// entries that don't make the cut are recycled
+		SimpleEntry e = null;
+		for (int pos = 0; pos < keys.length; pos++) {
+			if (used[pos]) {
+				if (e == null) {
+					e = new SimpleEntry(keys[pos], values[pos]);
+				} else {
+					e.key = keys[pos];
+					e.value = values[pos];
+				}
+				e = (SimpleEntry) top.offer(e);
+			}
+		}
+		return top;
+	}
+}
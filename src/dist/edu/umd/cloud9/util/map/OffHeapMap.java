@@ -0,0 +1,273 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing hash table of int keys and 32-bit values stored in an
+ * {@link OffHeapStore}. Shared by {@link OffHeapMapII} and
+ * {@link OffHeapMapIF}, which differ only in how the value bits are
+ * interpreted.
+ */
+abstract class OffHeapMap implements Closeable {
+
+	/**
+	 * The default initial capacity - MUST be a power of two.
+	 */
+	static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The load factor used when none specified in constructor.
+	 */
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private final File dir;
+	private final float loadFactor;
+
+	OffHeapStore store;
+	long mask;
+	int size;
+	long threshold;
+	int modCount;
+
+	OffHeapMap(File dir, int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		if (dir != null && !dir.isDirectory())
+			throw new IllegalArgumentException("Not a directory: " + dir);
+
+		long capacity = 1;
+		while (capacity < initialCapacity)
+			capacity <<= 1;
+
+		this.dir = dir;
+		this.loadFactor = loadFactor;
+		allocate(capacity);
+	}
+
+	private void allocate(long capacity) {
+		try {
+			store = new OffHeapStore(capacity, dir);
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to allocate off-heap table", e);
+		}
+		mask = capacity - 1;
+		threshold = Math.min((long) (capacity * loadFactor), capacity - 1);
+	}
+
+	/**
+	 * Same supplemental hash function as {@link HMapII}.
+	 */
+	static int hash(int h) {
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	final OffHeapStore store() {
+		if (store == null)
+			throw new IllegalStateException("Map has been closed");
+		return store;
+	}
+
+	/**
+	 * Returns the slot holding the specified key, or -1 if the key is not
+	 * present.
+	 */
+	final long slotOf(int key) {
+		OffHeapStore s = store();
+		long pos = (hash(key) & 0xffffffffL) & mask;
+		while (s.isUsed(pos)) {
+			if (s.getKey(pos) == key)
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot holding the specified key, or the free slot at which the
+	 * key should be inserted encoded as <tt>-(slot + 1)</tt>.
+	 */
+	final long insertionSlotOf(int key) {
+		OffHeapStore s = store();
+		long pos = (hash(key) & 0xffffffffL) & mask;
+		while (s.isUsed(pos)) {
+			if (s.getKey(pos) == key)
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+		return -(pos + 1);
+	}
+
+	final void insertAt(long pos, int key, int bits) {
+		store.set(pos, key, bits);
+		modCount++;
+		if (++size > threshold)
+			resize(2 * (mask + 1));
+	}
+
+	/**
+	 * Puts the value bits for a key and returns the slot that held the key
+	 * before, or -1 if the key is new.
+	 */
+	final long putBits(int key, int bits) {
+		long pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			store.setValue(pos, bits);
+			return pos;
+		}
+		insertAt(-pos - 1, key, bits);
+		return -1;
+	}
+
+	/**
+	 * Removes the mapping stored at slot <tt>pos</tt> and shifts subsequent
+	 * entries of the probe sequence back so that lookups never hit a gap.
+	 */
+	final void removeAt(long pos) {
+		OffHeapStore s = store;
+		long last;
+		size--;
+		modCount++;
+		for (;;) {
+			last = pos;
+			pos = (pos + 1) & mask;
+			for (;;) {
+				if (!s.isUsed(pos)) {
+					s.free(last);
+					return;
+				}
+				long slot = (hash(s.getKey(pos)) & 0xffffffffL) & mask;
+				if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos))
+					break;
+				pos = (pos + 1) & mask;
+			}
+			s.set(last, s.getKey(pos), s.getValue(pos));
+		}
+	}
+
+	private void resize(long newCapacity) {
+		OffHeapStore old = store;
+		long oldCapacity = mask + 1;
+		allocate(newCapacity);
+
+		for (long i = 0; i < oldCapacity; i++) {
+			if (old.isUsed(i)) {
+				long pos = (hash(old.getKey(i)) & 0xffffffffL) & mask;
+				while (store.isUsed(pos))
+					pos = (pos + 1) & mask;
+				store.set(pos, old.getKey(i), old.getValue(i));
+			}
+		}
+		release(old);
+	}
+
+	private static void release(OffHeapStore s) {
+		try {
+			s.release();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to release off-heap table", e);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(int key) {
+		return slotOf(key) >= 0;
+	}
+
+	/**
+	 * Removes all of the mappings from this map. The backing storage is
+	 * released and a new, empty table of the default capacity is allocated.
+	 */
+	public void clear() {
+		release(store());
+		modCount++;
+		size = 0;
+		allocate(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Releases the backing storage and deletes the scratch file, if any. The
+	 * map cannot be used after it has been closed.
+	 */
+	public void close() throws IOException {
+		if (store != null) {
+			store.release();
+			store = null;
+			size = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of off-heap storage used by this map.
+	 */
+	public long getStorageSize() {
+		return (mask + 1) * OffHeapStore.SLOT_BYTES;
+	}
+
+	/**
+	 * Iterates over occupied slots in table order. Removal through the
+	 * iterator is not supported.
+	 */
+	abstract class SlotIterator<E> implements Iterator<E> {
+		long pos = 0;
+		int remaining = size;
+		final int expectedModCount = modCount;
+
+		public final boolean hasNext() {
+			return remaining > 0;
+		}
+
+		final long nextSlot() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (remaining == 0)
+				throw new NoSuchElementException();
+
+			OffHeapStore s = store();
+			while (!s.isUsed(pos))
+				pos++;
+			remaining--;
+			return pos++;
+		}
+
+		public final void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	final class KeyIterator extends SlotIterator<Integer> {
+		public Integer next() {
+			return store.getKey(nextSlot());
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.File;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implementation of {@link MapIF} whose table lives outside of the Java heap,
+ * so that the size of the map is bounded by local disk and page cache rather
+ * than by <code>-Xmx</code>. If a scratch directory is specified, the table is
+ * kept in a memory-mapped file in that directory; otherwise, it is kept in
+ * direct buffers. Either way, {@link #close()} should be called when the map
+ * is no longer needed, which deletes the scratch file. Iterators over the
+ * views of this map do not support removal.
+ */
+public class OffHeapMapIF extends OffHeapMap implements MapIF {
+
+	/**
+	 * Constructs an empty map backed by direct buffers.
+	 */
+	public OffHeapMapIF() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty map backed by a scratch file in the specified
+	 * directory.
+	 *
+	 * @param dir
+	 *            directory for the scratch file, or <code>null</code> to use
+	 *            direct buffers
+	 */
+	public OffHeapMapIF(File dir) {
+		this(dir, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty map with the specified initial capacity and load
+	 * factor.
+	 *
+	 * @param dir
+	 *            directory for the scratch file, or <code>null</code> to use
+	 *            direct buffers
+	 * @param initialCapacity
+	 *            the initial capacity
+	 * @param loadFactor
+	 *            the load factor
+	 */
+	public OffHeapMapIF(File dir, int initialCapacity, float loadFactor) {
+		super(dir, initialCapacity, loadFactor);
+	}
+
+	@Override
+	public boolean containsValue(float value) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i) && Float.intBitsToFloat(s.getValue(i)) == value)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public float get(int key) {
+		long pos = slotOf(key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+		return Float.intBitsToFloat(store.getValue(pos));
+	}
+
+	@Override
+	public void put(int key, float value) {
+		putBits(key, Float.floatToIntBits(value));
+	}
+
+	@Override
+	public float remove(int key) {
+		long pos = slotOf(key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+
+		float value = Float.intBitsToFloat(store.getValue(pos));
+		removeAt(pos);
+		return value;
+	}
+
+	@Override
+	public void putAll(MapIF m) {
+		for (MapIF.Entry e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Increments the key by some value. If the key does not exist in the map,
+	 * its value is set to the parameter value.
+	 *
+	 * @param key
+	 *            key to increment
+	 * @param value
+	 *            increment value
+	 */
+	public void increment(int key, float value) {
+		long pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			float v = Float.intBitsToFloat(store.getValue(pos)) + value;
+			store.setValue(pos, Float.floatToIntBits(v));
+		} else {
+			insertAt(-pos - 1, key, Float.floatToIntBits(value));
+		}
+	}
+
+	/**
+	 * Increments the key. If the key does not exist in the map, its value is
+	 * set to one.
+	 *
+	 * @param key
+	 *            key to increment
+	 */
+	public void increment(int key) {
+		increment(key, 1.0f);
+	}
+
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntFloatProcedure procedure) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i))
+				procedure.apply(s.getKey(i), Float.intBitsToFloat(s.getValue(i)));
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i))
+				procedure.apply(s.getKey(i));
+		}
+	}
+
+	// doc copied from interface
+	public MapIF.Cursor cursor() {
+		return new SlotCursor();
+	}
+
+	private final class SlotCursor implements MapIF.Cursor {
+		private final int expectedModCount = modCount;
+		private long pos = -1;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			OffHeapStore s = store();
+			while (++pos <= mask) {
+				if (s.isUsed(pos))
+					return true;
+			}
+			return false;
+		}
+
+		public int key() {
+			return store.getKey(pos);
+		}
+
+		public float value() {
+			return Float.intBitsToFloat(store.getValue(pos));
+		}
+	}
+
+	// Views
+
+	@Override
+	public Set<Integer> keySet() {
+		return new AbstractSet<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				return new KeyIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey((Integer) o);
+			}
+		};
+	}
+
+	@Override
+	public Collection<Float> values() {
+		return new AbstractCollection<Float>() {
+			@Override
+			public Iterator<Float> iterator() {
+				return new SlotIterator<Float>() {
+					public Float next() {
+						return Float.intBitsToFloat(store.getValue(nextSlot()));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<MapIF.Entry> entrySet() {
+		return new AbstractSet<MapIF.Entry>() {
+			@Override
+			public Iterator<MapIF.Entry> iterator() {
+				return new SlotIterator<MapIF.Entry>() {
+					public MapIF.Entry next() {
+						return new Entry(nextSlot());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private final class Entry implements MapIF.Entry {
+		private final long slot;
+
+		Entry(long slot) {
+			this.slot = slot;
+		}
+
+		public int getKey() {
+			return store.getKey(slot);
+		}
+
+		public float getValue() {
+			return Float.intBitsToFloat(store.getValue(slot));
+		}
+
+		public float setValue(float value) {
+			float oldValue = getValue();
+			store.setValue(slot, Float.floatToIntBits(value));
+			return oldValue;
+		}
+
+		public boolean equals(Object o) {
+			MapIF.Entry e = (MapIF.Entry) o;
+			return getKey() == e.getKey() && getValue() == e.getValue();
+		}
+
+		public int hashCode() {
+			return getKey() ^ ((int) getValue());
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (Iterator<MapIF.Entry> i = entrySet().iterator(); i.hasNext();) {
+			sb.append(i.next());
+			if (i.hasNext())
+				sb.append(", ");
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.File;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implementation of {@link MapII} whose table lives outside of the Java heap,
+ * so that the size of the map is bounded by local disk and page cache rather
+ * than by <code>-Xmx</code>. If a scratch directory is specified, the table is
+ * kept in a memory-mapped file in that directory; otherwise, it is kept in
+ * direct buffers. Either way, {@link #close()} should be called when the map
+ * is no longer needed, which deletes the scratch file. Iterators over the
+ * views of this map do not support removal.
+ */
+public class OffHeapMapII extends OffHeapMap implements MapII {
+
+	/**
+	 * Constructs an empty map backed by direct buffers.
+	 */
+	public OffHeapMapII() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty map backed by a scratch file in the specified
+	 * directory.
+	 *
+	 * @param dir
+	 *            directory for the scratch file, or <code>null</code> to use
+	 *            direct buffers
+	 */
+	public OffHeapMapII(File dir) {
+		this(dir, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty map with the specified initial capacity and load
+	 * factor.
+	 *
+	 * @param dir
+	 *            directory for the scratch file, or <code>null</code> to use
+	 *            direct buffers
+	 * @param initialCapacity
+	 *            the initial capacity
+	 * @param loadFactor
+	 *            the load factor
+	 */
+	public OffHeapMapII(File dir, int initialCapacity, float loadFactor) {
+		super(dir, initialCapacity, loadFactor);
+	}
+
+	@Override
+	public boolean containsValue(int value) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i) && s.getValue(i) == value)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int get(int key) {
+		long pos = slotOf(key);
+		return pos < 0 ? DEFAULT_VALUE : store.getValue(pos);
+	}
+
+	@Override
+	public int put(int key, int value) {
+		long pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			int oldValue = store.getValue(pos);
+			store.setValue(pos, value);
+			return oldValue;
+		}
+		insertAt(-pos - 1, key, value);
+		return DEFAULT_VALUE;
+	}
+
+	@Override
+	public int remove(int key) {
+		long pos = slotOf(key);
+		if (pos < 0)
+			throw new NoSuchElementException();
+
+		int value = store.getValue(pos);
+		removeAt(pos);
+		return value;
+	}
+
+	@Override
+	public void putAll(MapII m) {
+		for (MapII.Entry e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Increments the key by some value. If the key does not exist in the map,
+	 * its value is set to the parameter value.
+	 *
+	 * @param key
+	 *            key to increment
+	 * @param value
+	 *            increment value
+	 */
+	public void increment(int key, int value) {
+		long pos = insertionSlotOf(key);
+		if (pos >= 0) {
+			store.setValue(pos, store.getValue(pos) + value);
+		} else {
+			insertAt(-pos - 1, key, value);
+		}
+	}
+
+	/**
+	 * Increments the key. If the key does not exist in the map, its value is
+	 * set to one.
+	 *
+	 * @param key
+	 *            key to increment
+	 */
+	public void increment(int key) {
+		increment(key, 1);
+	}
+
+	// Allocation-free iteration
+
+	// doc copied from interface
+	public void forEach(IntIntProcedure procedure) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i))
+				procedure.apply(s.getKey(i), s.getValue(i));
+		}
+	}
+
+	// doc copied from interface
+	public void forEachKey(IntProcedure procedure) {
+		OffHeapStore s = store();
+		for (long i = 0; i <= mask; i++) {
+			if (s.isUsed(i))
+				procedure.apply(s.getKey(i));
+		}
+	}
+
+	// doc copied from interface
+	public MapII.Cursor cursor() {
+		return new SlotCursor();
+	}
+
+	private final class SlotCursor implements MapII.Cursor {
+		private final int expectedModCount = modCount;
+		private long pos = -1;
+
+		public boolean advance() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			OffHeapStore s = store();
+			while (++pos <= mask) {
+				if (s.isUsed(pos))
+					return true;
+			}
+			return false;
+		}
+
+		public int key() {
+			return store.getKey(pos);
+		}
+
+		public int value() {
+			return store.getValue(pos);
+		}
+	}
+
+	// Views
+
+	@Override
+	public Set<Integer> keySet() {
+		return new AbstractSet<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				return new KeyIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey((Integer) o);
+			}
+		};
+	}
+
+	@Override
+	public Collection<Integer> values() {
+		return new AbstractCollection<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				return new SlotIterator<Integer>() {
+					public Integer next() {
+						return store.getValue(nextSlot());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<MapII.Entry> entrySet() {
+		return new AbstractSet<MapII.Entry>() {
+			@Override
+			public Iterator<MapII.Entry> iterator() {
+				return new SlotIterator<MapII.Entry>() {
+					public MapII.Entry next() {
+						return new Entry(nextSlot());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private final class Entry implements MapII.Entry {
+		private final long slot;
+
+		Entry(long slot) {
+			this.slot = slot;
+		}
+
+		public int getKey() {
+			return store.getKey(slot);
+		}
+
+		public int getValue() {
+			return store.getValue(slot);
+		}
+
+		public int setValue(int value) {
+			int oldValue = store.getValue(slot);
+			store.setValue(slot, value);
+			return oldValue;
+		}
+
+		public boolean equals(Object o) {
+			MapII.Entry e = (MapII.Entry) o;
+			return getKey() == e.getKey() && getValue() == e.getValue();
+		}
+
+		public int hashCode() {
+			return getKey() ^ getValue();
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (Iterator<MapII.Entry> i = entrySet().iterator(); i.hasNext();) {
+			sb.append(i.next());
+			if (i.hasNext())
+				sb.append(", ");
+		}
+		return sb.append('}').toString();
+	}
+}
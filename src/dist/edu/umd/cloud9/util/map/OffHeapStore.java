@@ -0,0 +1,135 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fixed-capacity table of (int key, int value) slots that lives outside of the
+ * Java heap, either in direct {@link ByteBuffer}s or in a memory-mapped scratch
+ * file. Each slot takes twelve bytes: an occupancy flag, the key, and the raw
+ * value bits. The table is split into segments so that it can hold more than
+ * 2<sup>31</sup> bytes.
+ */
+final class OffHeapStore {
+	static final int SLOT_BYTES = 12;
+
+	private static final int SEGMENT_SHIFT = 26;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final long capacity;
+	private final File file;
+	private final RandomAccessFile raf;
+	private ByteBuffer[] segments;
+
+	/**
+	 * Creates a zeroed table with the specified number of slots.
+	 *
+	 * @param capacity
+	 *            number of slots
+	 * @param dir
+	 *            directory in which to create the scratch file, or
+	 *            <code>null</code> to use direct buffers
+	 */
+	OffHeapStore(long capacity, File dir) throws IOException {
+		this.capacity = capacity;
+
+		int n = (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+		segments = new ByteBuffer[n];
+
+		if (dir == null) {
+			file = null;
+			raf = null;
+			for (int i = 0; i < n; i++) {
+				segments[i] = ByteBuffer.allocateDirect(segmentBytes(i));
+			}
+			return;
+		}
+
+		file = File.createTempFile("offheap-map", ".tmp", dir);
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		// Extending the file leaves it sparse, so the slots read back as zero.
+		raf.setLength(capacity * SLOT_BYTES);
+
+		FileChannel channel = raf.getChannel();
+		long offset = 0;
+		for (int i = 0; i < n; i++) {
+			int bytes = segmentBytes(i);
+			segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes);
+			offset += bytes;
+		}
+	}
+
+	private int segmentBytes(int i) {
+		long slots = Math.min(capacity - ((long) i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+		return (int) (slots * SLOT_BYTES);
+	}
+
+	long capacity() {
+		return capacity;
+	}
+
+	boolean isUsed(long slot) {
+		return segments[(int) (slot >>> SEGMENT_SHIFT)].getInt(offset(slot)) != 0;
+	}
+
+	int getKey(long slot) {
+		return segments[(int) (slot >>> SEGMENT_SHIFT)].getInt(offset(slot) + 4);
+	}
+
+	int getValue(long slot) {
+		return segments[(int) (slot >>> SEGMENT_SHIFT)].getInt(offset(slot) + 8);
+	}
+
+	void setValue(long slot, int value) {
+		segments[(int) (slot >>> SEGMENT_SHIFT)].putInt(offset(slot) + 8, value);
+	}
+
+	void set(long slot, int key, int value) {
+		ByteBuffer b = segments[(int) (slot >>> SEGMENT_SHIFT)];
+		int off = offset(slot);
+		b.putInt(off, 1);
+		b.putInt(off + 4, key);
+		b.putInt(off + 8, value);
+	}
+
+	void free(long slot) {
+		segments[(int) (slot >>> SEGMENT_SHIFT)].putInt(offset(slot), 0);
+	}
+
+	private static int offset(long slot) {
+		return (int) (slot & SEGMENT_MASK) * SLOT_BYTES;
+	}
+
+	/**
+	 * Drops the buffers and deletes the scratch file, if any. Memory held by
+	 * the buffers is returned once they are garbage collected; the file's disk
+	 * space is returned as soon as the mapping goes away.
+	 */
+	void release() throws IOException {
+		segments = null;
+		if (raf != null) {
+			raf.close();
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse vector of int keys and int values, held as two parallel
+ * arrays sorted by key. Vectors are created from a {@link MapII} with
+ * {@link #freeze(MapII)} once they are no longer changed. Operations between
+ * two vectors, such as {@link #dot(SparseVectorII)} and
+ * {@link #plus(SparseVectorII)}, walk both key arrays in a single linear merge
+ * rather than probing a hash table for every entry, and lookups of single keys
+ * use binary search.
+ */
+public class SparseVectorII {
+
+	private static final int[] EMPTY_KEYS = new int[0];
+	private static final int[] EMPTY_VALUES = new int[0];
+
+	/**
+	 * Keys in ascending order. Not modified once the vector has been built.
+	 */
+	protected int[] keys;
+
+	/**
+	 * Values, parallel to {@link #keys}.
+	 */
+	protected int[] values;
+
+	/**
+	 * Creates an empty vector.
+	 */
+	protected SparseVectorII() {
+		this(EMPTY_KEYS, EMPTY_VALUES);
+	}
+
+	/**
+	 * Creates a vector over the specified arrays, which are not copied.
+	 *
+	 * @param keys
+	 *            keys in strictly ascending order
+	 * @param values
+	 *            values parallel to the keys
+	 */
+	protected SparseVectorII(int[] keys, int[] values) {
+		if (keys.length != values.length)
+			throw new IllegalArgumentException("Keys and values differ in length!");
+
+		this.keys = keys;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a vector with the same mappings as a map.
+	 *
+	 * @param m
+	 *            the map
+	 * @return a vector with the same mappings as the map
+	 */
+	public static SparseVectorII freeze(MapII m) {
+		// Packing each mapping into a long with the key in the high bits lets a
+		// single primitive sort order the keys and carry the values along.
+		long[] packed = new long[m.size()];
+		int n = 0;
+		MapII.Cursor c = m.cursor();
+		while (c.advance()) {
+			packed[n++] = ((long) c.key() << 32) | (c.value() & 0xffffffffL);
+		}
+		Arrays.sort(packed);
+
+		int[] k = new int[n];
+		int[] v = new int[n];
+		for (int i = 0; i < n; i++) {
+			k[i] = (int) (packed[i] >> 32);
+			v[i] = (int) packed[i];
+		}
+
+		return new SparseVectorII(k, v);
+	}
+
+	/**
+	 * Creates a vector directly over the specified arrays, which are neither
+	 * copied nor checked.
+	 *
+	 * @param keys
+	 *            keys in strictly ascending order
+	 * @param values
+	 *            values parallel to the keys
+	 * @return a vector over the arrays
+	 */
+	public static SparseVectorII wrap(int[] keys, int[] values) {
+		return new SparseVectorII(keys, values);
+	}
+
+	/**
+	 * Returns the number of non-zero entries in this vector.
+	 *
+	 * @return the number of entries in this vector
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the keys of this vector in ascending order. The array is shared
+	 * with this vector and must not be modified.
+	 *
+	 * @return the keys of this vector
+	 */
+	public int[] getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Returns the values of this vector, parallel to {@link #getKeys()}. The
+	 * array is shared with this vector and must not be modified.
+	 *
+	 * @return the values of this vector
+	 */
+	public int[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this vector contains the specified key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return <tt>true</tt> if this vector contains the key
+	 */
+	public boolean containsKey(int key) {
+		return Arrays.binarySearch(keys, key) >= 0;
+	}
+
+	/**
+	 * Returns the value of the specified key, or {@link MapII#DEFAULT_VALUE}
+	 * if this vector does not contain the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value of the key
+	 */
+	public int get(int key) {
+		int i = Arrays.binarySearch(keys, key);
+		if (i < 0)
+			return MapII.DEFAULT_VALUE;
+
+		return values[i];
+	}
+
+	/**
+	 * Applies a procedure to each entry of this vector in key order.
+	 *
+	 * @param procedure
+	 *            procedure to apply to each entry
+	 */
+	public void forEach(IntIntProcedure procedure) {
+		for (int i = 0; i < keys.length; i++) {
+			procedure.apply(keys[i], values[i]);
+		}
+	}
+
+	/**
+	 * Computes the dot product of this vector with another vector.
+	 *
+	 * @param v
+	 *            the other vector
+	 * @return dot product of the two vectors
+	 */
+	public long dot(SparseVectorII v) {
+		int[] k1 = keys, k2 = v.keys;
+		int[] v1 = values, v2 = v.values;
+		long s = 0;
+
+		int i = 0, j = 0;
+		while (i < k1.length && j < k2.length) {
+			if (k1[i] < k2[j]) {
+				i++;
+			} else if (k1[i] > k2[j]) {
+				j++;
+			} else {
+				s += (long) v1[i++] * v2[j++];
+			}
+		}
+
+		return s;
+	}
+
+	/**
+	 * Returns a new vector that is the sum of this vector and another vector.
+	 *
+	 * @param v
+	 *            the other vector
+	 * @return sum of the two vectors
+	 */
+	public SparseVectorII plus(SparseVectorII v) {
+		int[] k1 = keys, k2 = v.keys;
+		int[] v1 = values, v2 = v.values;
+		int[] k = new int[k1.length + k2.length];
+		int[] s = new int[k.length];
+
+		int i = 0, j = 0, n = 0;
+		while (i < k1.length && j < k2.length) {
+			if (k1[i] < k2[j]) {
+				k[n] = k1[i];
+				s[n++] = v1[i++];
+			} else if (k1[i] > k2[j]) {
+				k[n] = k2[j];
+				s[n++] = v2[j++];
+			} else {
+				k[n] = k1[i];
+				s[n++] = v1[i++] + v2[j++];
+			}
+		}
+		while (i < k1.length) {
+			k[n] = k1[i];
+			s[n++] = v1[i++];
+		}
+		while (j < k2.length) {
+			k[n] = k2[j];
+			s[n++] = v2[j++];
+		}
+
+		if (n < k.length) {
+			k = Arrays.copyOf(k, n);
+			s = Arrays.copyOf(s, n);
+		}
+
+		return new SparseVectorII(k, s);
+	}
+
+	/**
+	 * Returns the L1 norm of this vector, i.e., the sum of the absolute values
+	 * of its entries.
+	 *
+	 * @return L1 norm of this vector
+	 */
+	public long l1Norm() {
+		long s = 0;
+		for (int i = 0; i < values.length; i++) {
+			s += Math.abs(values[i]);
+		}
+
+		return s;
+	}
+
+	/**
+	 * Returns the L2 norm (length) of this vector.
+	 *
+	 * @return L2 norm of this vector
+	 */
+	public float l2Norm() {
+		double s = 0.0;
+		for (int i = 0; i < values.length; i++) {
+			s += (double) values[i] * values[i];
+		}
+
+		return (float) Math.sqrt(s);
+	}
+
+	/**
+	 * Computes the cosine similarity between this vector and another vector.
+	 * The similarity involving an empty vector is zero.
+	 *
+	 * @param v
+	 *            the other vector
+	 * @return cosine similarity of the two vectors
+	 */
+	public float cosine(SparseVectorII v) {
+		double norms = (double) l2Norm() * v.l2Norm();
+		if (norms == 0.0)
+			return 0.0f;
+
+		return (float) (dot(v) / norms);
+	}
+
+	/**
+	 * Returns a new, mutable map with the same mappings as this vector.
+	 *
+	 * @return a map with the same mappings as this vector
+	 */
+	public HMapII toMap() {
+		HMapII m = new HMapII(Math.max((int) (keys.length / HMapII.DEFAULT_LOAD_FACTOR) + 1,
+				HMapII.DEFAULT_INITIAL_CAPACITY));
+		for (int i = 0; i < keys.length; i++) {
+			m.put(keys[i], values[i]);
+		}
+
+		return m;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof SparseVectorII))
+			return false;
+
+		SparseVectorII v = (SparseVectorII) o;
+		return Arrays.equals(keys, v.keys) && Arrays.equals(values, v.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(keys[i]).append('=').append(values[i]);
+		}
+		return sb.append('}').toString();
+	}
+}
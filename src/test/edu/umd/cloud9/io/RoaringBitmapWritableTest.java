@@ -0,0 +1,87 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.RoaringBitmap;
+
+public class RoaringBitmapWritableTest {
+
+	@Test
+	public void testSerialize() throws IOException {
+		Random r = new Random(0);
+		RoaringBitmapWritable b = new RoaringBitmapWritable();
+		for (int i = 0; i < 100000; i++) {
+			b.add(r.nextInt(1 << 24));
+		}
+		// a dense chunk, and a chunk of runs
+		for (int v = 1 << 25; v < (1 << 25) + 60000; v++) {
+			b.add(v);
+		}
+		for (int v = 1 << 26; v < (1 << 26) + 60000; v++) {
+			b.add(v);
+		}
+		b.runOptimize();
+
+		byte[] bytes = b.serialize();
+		assertEquals(b.serializedSize(), bytes.length);
+
+		RoaringBitmapWritable c = RoaringBitmapWritable.create(bytes);
+		assertEquals(b, c);
+		assertArrayEquals(b.toArray(), c.toArray());
+
+		RoaringBitmap m = RoaringBitmap.map(ByteBuffer.wrap(bytes));
+		assertEquals(b.cardinality(), m.cardinality());
+		assertArrayEquals(b.toArray(), m.toArray());
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		RoaringBitmapWritable b = RoaringBitmapWritable.create(new RoaringBitmapWritable().serialize());
+		assertTrue(b.isEmpty());
+
+		b.add(3);
+		assertEquals(1, b.cardinality());
+	}
+
+	@Test
+	public void testReuse() throws IOException {
+		RoaringBitmapWritable b = new RoaringBitmapWritable(RoaringBitmap.bitmapOf(1, 2, 3));
+		RoaringBitmapWritable c = new RoaringBitmapWritable(RoaringBitmap.bitmapOf(70000, 5));
+
+		// reading into an object replaces its contents
+		c.readFields(new DataInputStream(new ByteArrayInputStream(b.serialize())));
+		assertArrayEquals(new int[] { 1, 2, 3 }, c.toArray());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(RoaringBitmapWritableTest.class);
+	}
+}
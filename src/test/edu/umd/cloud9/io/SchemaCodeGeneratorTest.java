@@ -0,0 +1,249 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+import edu.umd.cloud9.example.bigram.Bigram;
+
+public class SchemaCodeGeneratorTest {
+
+	@Test
+	public void testBigram() throws IOException {
+		Schema schema = new Schema();
+		schema.addField("Left", String.class, "");
+		schema.addField("Right", String.class, "");
+
+		String[] strings = { "", "a", "ab", "\u00e9t\u00e9", "\ud83d\ude00" };
+		List<Tuple> tuples = new ArrayList<Tuple>();
+		List<Bigram> bigrams = new ArrayList<Bigram>();
+		for (String left : strings) {
+			for (String right : strings) {
+				Tuple tuple = schema.instantiate(left, right);
+				Bigram bigram = new Bigram(left, right);
+				tuples.add(tuple);
+				bigrams.add(bigram);
+
+				tuple = schema.instantiate(left, right);
+				tuple.setSymbol("Right", "*");
+				bigram = new Bigram(left, right);
+				bigram.setRightSymbol("*");
+				tuples.add(tuple);
+				bigrams.add(bigram);
+			}
+		}
+
+		assertTrue(WritableComparator.get(Bigram.class) instanceof Bigram.Comparator);
+		checkRecords(schema, tuples, bigrams, new Bigram.Comparator());
+	}
+
+	@Test
+	public void testGeneratedRecord() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeTrue(compiler != null);
+
+		// field names that are keywords become "int_" and so on
+		Schema schema = TupleTest.SCHEMA3;
+
+		File dir = new File(System.getProperty("java.io.tmpdir"), "SchemaCodeGeneratorTest"
+				+ System.nanoTime());
+		File source = new File(dir, "generated/Record.java");
+		source.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(source), "UTF-8");
+		writer.write(SchemaCodeGenerator.generate(schema, "generated.Record"));
+		writer.close();
+
+		assertEquals(0, compiler.run(null, null, null, "-classpath", System
+				.getProperty("java.class.path"), "-d", dir.getPath(), source.getPath()));
+
+		ClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+				getClass().getClassLoader());
+		Class<?> recordClass = Class.forName("generated.Record", true, loader);
+
+		Random r = new Random(0);
+		List<Tuple> tuples = new ArrayList<Tuple>();
+		List<Object> records = new ArrayList<Object>();
+		for (int i = 0; i < 200; i++) {
+			Tuple tuple = randomTuple(schema, r);
+			tuples.add(tuple);
+
+			// goes through readFields, and the setters are checked below
+			Tuple bound = copy(schema, tuple);
+			Writable record = (Writable) recordClass.getDeclaredConstructor().newInstance();
+			DataOutputBuffer out = new DataOutputBuffer();
+			bound.write(out);
+			DataInputBuffer in = new DataInputBuffer();
+			in.reset(out.getData(), out.getLength());
+			record.readFields(in);
+			records.add(record);
+		}
+
+		// setters
+		Object record = recordClass.getDeclaredConstructor().newInstance();
+		recordClass.getMethod("setInt_", int.class).invoke(record, 42);
+		recordClass.getMethod("setDouble_Symbol", String.class).invoke(record, "*");
+		recordClass.getMethod("setText", Text.class).invoke(record, new Text("abc"));
+		Tuple tuple = schema.instantiate();
+		tuple.set("int", 42);
+		tuple.setSymbol("double", "*");
+		tuple.set("text", new Text("abc"));
+		tuples.add(tuple);
+		records.add(record);
+		assertEquals(42, recordClass.getMethod("getInt_").invoke(record));
+		assertEquals(Boolean.TRUE, recordClass.getMethod("containsDouble_Symbol").invoke(record));
+
+		WritableComparator comparator = WritableComparator.get(recordClass.asSubclass(
+				WritableComparable.class));
+		assertTrue(comparator.getClass().getName().equals("generated.Record$Comparator"));
+		checkRecords(schema, tuples, records, comparator);
+	}
+
+	@Test(expected = SchemaException.class)
+	public void testIdentifierClash() {
+		Schema schema = new Schema();
+		schema.addField("a-b", Integer.class, 0);
+		schema.addField("a_b", Integer.class, 0);
+		SchemaCodeGenerator.generate(schema, "Record");
+	}
+
+	@Test
+	public void testGeneratedIdentifierClash() {
+		// locals of the generated methods, and members generated for other fields
+		String[][] clashes = { { "cmp" }, { "hash" }, { "that" }, { "in" }, { "out" },
+				{ "x", "xSymbol" }, { "xSymbol", "x" }, { "x", "xComparator" } };
+		for (String[] names : clashes) {
+			Schema schema = new Schema();
+			for (String name : names) {
+				schema.addField(name, Integer.class, 0);
+			}
+			try {
+				SchemaCodeGenerator.generate(schema, "Record");
+				fail(Arrays.toString(names));
+			} catch (SchemaException e) {
+			}
+		}
+	}
+
+	// records must serialize, hash, print and sort like tuples bound to the schema
+	@SuppressWarnings("unchecked")
+	private static void checkRecords(Schema schema, List<Tuple> tuples, List<?> records,
+			WritableComparator comparator) throws IOException {
+		List<byte[]> bytes = new ArrayList<byte[]>();
+		DataOutputBuffer out = new DataOutputBuffer();
+		for (int i = 0; i < tuples.size(); i++) {
+			Tuple tuple = copy(schema, tuples.get(i));
+			Object record = records.get(i);
+
+			out.reset();
+			tuple.write(out);
+			byte[] expected = Arrays.copyOf(out.getData(), out.getLength());
+			out.reset();
+			((Writable) record).write(out);
+			byte[] actual = Arrays.copyOf(out.getData(), out.getLength());
+			assertTrue(tuple.toString(), Arrays.equals(expected, actual));
+			bytes.add(actual);
+
+			assertEquals(tuple.hashCode(), record.hashCode());
+			assertEquals(tuple.toString(), record.toString());
+		}
+
+		for (int i = 0; i < tuples.size(); i++) {
+			for (int j = 0; j < tuples.size(); j++) {
+				String message = tuples.get(i) + " vs. " + tuples.get(j);
+				int expected = Integer.signum(tuples.get(i).compareTo(tuples.get(j)));
+				Comparable<Object> record = (Comparable<Object>) records.get(i);
+				assertEquals(message, expected, Integer.signum(record.compareTo(records.get(j))));
+				assertEquals(message, expected == 0, record.equals(records.get(j)));
+
+				byte[] b1 = bytes.get(i);
+				byte[] b2 = bytes.get(j);
+				assertEquals(message, expected, Integer.signum(comparator.compare(b1, 0, b1.length,
+						b2, 0, b2.length)));
+			}
+		}
+	}
+
+	private static Tuple copy(Schema schema, Tuple tuple) {
+		Tuple t = schema.instantiate();
+		t.bind(schema);
+		for (int j = 0; j < tuple.getFieldCount(); j++) {
+			if (tuple.containsSymbol(j)) {
+				t.setSymbol(j, tuple.getSymbol(j));
+			} else {
+				t.set(j, tuple.get(j));
+			}
+		}
+		return t;
+	}
+
+	private static Tuple randomTuple(Schema schema, Random r) {
+		Tuple tuple = schema.instantiate();
+		float[] floats = { -1.5f, -0.0f, 0.0f, 2.5f, Float.NaN };
+		double[] doubles = { -1.5, -0.0, 0.0, 2.5, Double.NaN };
+		String[] strings = { "", "a", "ab", "\u00e9t\u00e9", "\ud83d\ude00", "\uffff" };
+
+		tuple.set(0, strings[r.nextInt(strings.length)]);
+		tuple.set(1, r.nextBoolean());
+		tuple.set(2, r.nextInt(3) - 1);
+		tuple.set(3, (long) r.nextInt(3) - 1);
+		tuple.set(4, floats[r.nextInt(floats.length)]);
+		tuple.set(5, doubles[r.nextInt(doubles.length)]);
+		tuple.set(6, new Text(strings[r.nextInt(strings.length)]));
+		tuple.set(7, new IntWritable(r.nextInt(3) - 1));
+
+		for (int i = 0; i < tuple.getFieldCount(); i++) {
+			if (r.nextInt(8) == 0) {
+				tuple.setSymbol(i, r.nextBoolean() ? "*" : "$");
+			}
+		}
+
+		return tuple;
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SchemaCodeGeneratorTest.class);
+	}
+}
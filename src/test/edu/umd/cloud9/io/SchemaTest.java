@@ -17,11 +17,15 @@
 package edu.umd.cloud9.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
@@ -81,6 +85,40 @@ public class SchemaTest {
 		assertEquals(t.get(2), new Text("default"));
 	}
 
+	@Test
+	public void testSerialize() {
+		Schema schema = new Schema();
+		schema.addField("field0", Integer.class, 0);
+		schema.addField("field1", IntWritable.class, new IntWritable(3));
+		schema.addField("field2", Text.class, null);
+		schema.addField("field3", String.class, "default");
+		schema.addField("field4", Double.class, null);
+
+		Schema s = Schema.decode(schema.encode());
+		assertEquals(schema, s);
+		assertEquals(schema.toString(), s.toString());
+		assertEquals(2, s.getFieldIndex("field2"));
+		assertEquals(Text.class, s.getFieldType("field2"));
+		assertEquals(new IntWritable(3), s.getDefault(1));
+		assertFalse(s.isLocked());
+
+		assertEquals(new Schema(), Schema.decode(new Schema().encode()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReadIntoLocked() throws Exception {
+		Schema schema = new Schema();
+		schema.addField("field0", Integer.class, 0);
+		schema.lockSchema();
+		assertTrue(schema.isLocked());
+
+		DataOutputBuffer out = new DataOutputBuffer();
+		SCHEMA1.write(out);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		schema.readFields(in);
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(SchemaTest.class);
 	}
@@ -19,17 +19,30 @@ package edu.umd.cloud9.io;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.junit.Test;
 
 public class TupleTest {
@@ -371,6 +384,453 @@ public class TupleTest {
 		assertEquals(t.getFieldType(2), Text.class);
 	}
 
+	@Test
+	public void testSerializeBound() throws IOException {
+		Schema schema = (Schema) SCHEMA1.clone();
+		Tuple tuple = schema.instantiate("Hello world!", false, 5, 3L, 1.2f, 2.871,
+				"another string");
+		tuple.bind(schema);
+		tuple.setSymbol(6, "*");
+
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+
+		tuple.write(dataOut);
+
+		// one byte of bitmap, the values, and the symbol
+		assertEquals(1 + (2 + 12) + 1 + 4 + 8 + 4 + 8 + (2 + 1), bytesOut.size());
+
+		Tuple t = Tuple.createFrom(new DataInputStream(new ByteArrayInputStream(bytesOut
+				.toByteArray())), schema);
+
+		assertEquals(t.get(0), "Hello world!");
+		assertEquals(t.get(1), false);
+		assertEquals(t.get(2), Integer.valueOf(5));
+		assertEquals(t.get(3), Long.valueOf(3));
+		assertEquals(t.get(4), Float.valueOf(1.2f));
+		assertEquals(t.get(5), Double.valueOf(2.871));
+		assertTrue(t.containsSymbol(6));
+		assertEquals(t.getSymbol(6), "*");
+		assertEquals(t.get("field5"), Double.valueOf(2.871));
+		assertEquals(t.getSchema(), schema);
+		assertEquals(0, tuple.compareTo(t));
+	}
+
+	@Test
+	public void testSerializeBoundWritableFields() throws IOException {
+		Tuple tuple = SCHEMA2.instantiate();
+		tuple.bind(SCHEMA2);
+
+		DataOutputBuffer out = new DataOutputBuffer();
+		tuple.set(1, new IntWritable(7));
+		tuple.write(out);
+		tuple.setSymbol(1, "*");
+		tuple.set(2, new Text("another"));
+		tuple.write(out);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out
+				.getLength()));
+
+		Tuple t = new Tuple();
+		t.bind(SCHEMA2);
+
+		t.readFields(in);
+		assertEquals(t.get(0), 0);
+		assertEquals(t.get(1), new IntWritable(7));
+		assertEquals(t.get(2), new Text("default"));
+		Object text = t.get(2);
+
+		// the same tuple is read into, reusing its Writables
+		t.readFields(in);
+		assertEquals(t.get(0), 0);
+		assertTrue(t.containsSymbol(1));
+		assertEquals(t.getSymbol(1), "*");
+		assertEquals(t.get(2), new Text("another"));
+		assertTrue(t.get(2) == text);
+
+		assertEquals(t.getFieldType(1), IntWritable.class);
+		assertEquals(t.getFieldType(2), Text.class);
+	}
+
+	@Test(expected = TupleException.class)
+	public void testBindMismatch() {
+		SCHEMA1.instantiate().bind(SCHEMA2);
+	}
+
+	@Test
+	public void testSchemaInConf() throws IOException {
+		Configuration conf = new Configuration();
+		Tuple.setSchema(conf, SCHEMA2);
+
+		// Hadoop creates Tuples through ReflectionUtils, which binds them
+		Tuple t = ReflectionUtils.newInstance(Tuple.class, conf);
+		assertEquals(SCHEMA2, t.getSchema());
+		assertEquals(3, t.getFieldCount());
+
+		// ...but not without a schema in the conf
+		assertTrue(ReflectionUtils.newInstance(Tuple.class, new Configuration()).getSchema() == null);
+
+		SequenceFile.Metadata metadata = new SequenceFile.Metadata();
+		assertTrue(Tuple.getSchema(metadata) == null);
+		Tuple.setSchema(metadata, SCHEMA2);
+		assertEquals(SCHEMA2, Tuple.getSchema(metadata));
+	}
+
+	@Test
+	public void testComparator() throws IOException {
+		Schema schema = new Schema();
+		schema.addField("token", String.class, "");
+		schema.addField("count", Integer.class, 0);
+
+		Configuration conf = new Configuration();
+		Tuple.setSchema(conf, schema);
+		Tuple.Comparator comparator = ReflectionUtils.newInstance(Tuple.Comparator.class, conf);
+
+		Random r = new Random(0);
+		List<Tuple> tuples = new ArrayList<Tuple>();
+		List<byte[]> bytes = new ArrayList<byte[]>();
+		for (int i = 0; i < 100; i++) {
+			Tuple tuple = schema.instantiate();
+			tuple.bind(schema);
+			if (r.nextInt(5) == 0) {
+				tuple.setSymbol(0, "*");
+			} else {
+				tuple.set(0, "" + (char) ('a' + r.nextInt(5)));
+			}
+			tuple.set(1, r.nextInt(10) - 5);
+			tuples.add(tuple);
+
+			DataOutputBuffer out = new DataOutputBuffer();
+			tuple.write(out);
+			bytes.add(Arrays.copyOf(out.getData(), out.getLength()));
+		}
+
+		for (int i = 0; i < tuples.size(); i++) {
+			for (int j = 0; j < tuples.size(); j++) {
+				byte[] b1 = bytes.get(i);
+				byte[] b2 = bytes.get(j);
+				assertEquals(Integer.signum(tuples.get(i).compareTo(tuples.get(j))), Integer
+						.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length)));
+			}
+		}
+
+		Collections.sort(tuples);
+		assertTrue(tuples.get(0).containsSymbol(0));
+	}
+
+	public static final Schema SCHEMA3 = new Schema();
+	static {
+		SCHEMA3.addField("string", String.class, "");
+		SCHEMA3.addField("boolean", Boolean.class, false);
+		SCHEMA3.addField("int", Integer.class, 0);
+		SCHEMA3.addField("long", Long.class, 0L);
+		SCHEMA3.addField("float", Float.class, 0.0f);
+		SCHEMA3.addField("double", Double.class, 0.0);
+		SCHEMA3.addField("text", Text.class, new Text());
+		SCHEMA3.addField("intWritable", IntWritable.class, new IntWritable());
+	}
+
+	@Test
+	public void testRawComparator() throws IOException {
+		WritableComparator registered = WritableComparator.get(Tuple.class);
+		assertTrue(registered instanceof Tuple.Comparator);
+
+		Configuration conf = new Configuration();
+		Tuple.setSchema(conf, SCHEMA3);
+		Tuple.Comparator bound = ReflectionUtils.newInstance(Tuple.Comparator.class, conf);
+
+		Random r = new Random(0);
+		List<Tuple> tuples = new ArrayList<Tuple>();
+		for (int i = 0; i < 300; i++) {
+			tuples.add(randomTuple(r));
+		}
+
+		// same tuples, in both forms
+		List<byte[]> selfDescribing = new ArrayList<byte[]>();
+		List<byte[]> compact = new ArrayList<byte[]>();
+		for (Tuple tuple : tuples) {
+			DataOutputBuffer out = new DataOutputBuffer();
+			tuple.write(out);
+			selfDescribing.add(Arrays.copyOf(out.getData(), out.getLength()));
+
+			out.reset();
+			bind(tuple).write(out);
+			compact.add(Arrays.copyOf(out.getData(), out.getLength()));
+		}
+
+		for (int i = 0; i < tuples.size(); i++) {
+			byte[] b1 = selfDescribing.get(i);
+			byte[] c1 = compact.get(i);
+			assertEquals(tuples.get(i).hashCode(), ((Tuple.Comparator) registered).hash(b1, 0,
+					b1.length));
+			assertEquals(tuples.get(i).hashCode(), bound.hash(c1, 0, c1.length));
+
+			for (int j = 0; j < tuples.size(); j++) {
+				int expected = Integer.signum(tuples.get(i).compareTo(tuples.get(j)));
+
+				byte[] b2 = selfDescribing.get(j);
+				byte[] c2 = compact.get(j);
+				assertEquals(tuples.get(i) + " vs. " + tuples.get(j), expected, Integer
+						.signum(registered.compare(b1, 0, b1.length, b2, 0, b2.length)));
+				assertEquals(tuples.get(i) + " vs. " + tuples.get(j), expected, Integer
+						.signum(bound.compare(c1, 0, c1.length, c2, 0, c2.length)));
+			}
+		}
+	}
+
+	@Test
+	public void testTypedAccessors() throws IOException {
+		Tuple tuple = SCHEMA3.instantiate();
+		tuple.setBoolean(1, true);
+		tuple.setInt(2, -7);
+		tuple.setLong(3, 1L << 40);
+		tuple.setFloat(4, 2.5f);
+		tuple.setDouble(5, -0.0);
+
+		assertTrue(tuple.getBoolean(1));
+		assertEquals(-7, tuple.getInt(2));
+		assertEquals(1L << 40, tuple.getLong(3));
+		assertEquals(2.5f, tuple.getFloat(4), 0.0f);
+		assertEquals(-0.0, tuple.getDouble(5), 0.0);
+		assertFalse(tuple.containsSymbol(2));
+
+		// the same tuple, with boxed values
+		Tuple boxed = SCHEMA3.instantiate("", true, -7, 1L << 40, 2.5f, -0.0, new Text(),
+				new IntWritable());
+		assertEquals(boxed.hashCode(), tuple.hashCode());
+		assertEquals(0, boxed.compareTo(tuple));
+		assertEquals(0, tuple.compareTo(boxed));
+		assertEquals(boxed.toString(), tuple.toString());
+
+		Tuple other = SCHEMA3.instantiate();
+		other.setBoolean(1, true);
+		other.setInt(2, -7);
+		other.setLong(3, 1L << 40);
+		other.setFloat(4, 2.5f);
+		other.setDouble(5, 0.0);
+		assertTrue(tuple.compareTo(other) < 0);
+		assertTrue(other.compareTo(tuple) > 0);
+
+		// boxed on demand
+		assertEquals(Integer.valueOf(-7), tuple.get(2));
+		assertEquals(Double.valueOf(-0.0), tuple.get("double"));
+		assertEquals(-7, tuple.getInt(2));
+		assertEquals(4, boxed.getLong(3) >>> 38);
+
+		// both forms serialize the same way
+		DataOutputBuffer out1 = new DataOutputBuffer();
+		DataOutputBuffer out2 = new DataOutputBuffer();
+		tuple.write(out1);
+		boxed.write(out2);
+		assertEquals(out2.getLength(), out1.getLength());
+
+		tuple.bind(SCHEMA3);
+		boxed.bind(SCHEMA3);
+		out1.reset();
+		out2.reset();
+		tuple.write(out1);
+		boxed.write(out2);
+		assertTrue(Arrays.equals(Arrays.copyOf(out2.getData(), out2.getLength()), Arrays.copyOf(
+				out1.getData(), out1.getLength())));
+
+		// a bound tuple reads values into the slots
+		Tuple t = Tuple.createFrom(new DataInputStream(new ByteArrayInputStream(out1.getData(),
+				0, out1.getLength())), SCHEMA3);
+		assertEquals(-7, t.getInt(2));
+		assertEquals(1L << 40, t.getLong(3));
+		assertEquals(0, t.compareTo(boxed));
+		assertEquals(boxed.hashCode(), t.hashCode());
+		assertEquals(Float.valueOf(2.5f), t.get(4));
+	}
+
+	@Test(expected = TupleException.class)
+	public void testTypedAccessorWrongType() {
+		SCHEMA3.instantiate().setLong(2, 1L);
+	}
+
+	@Test(expected = TupleException.class)
+	public void testTypedAccessorSymbol() {
+		Tuple tuple = SCHEMA3.instantiate();
+		tuple.setSymbol(2, "*");
+		tuple.getInt(2);
+	}
+
+	@Test
+	public void testLazy() throws IOException {
+		Random r = new Random(0);
+		for (int k = 0; k < 4; k++) {
+			boolean bound = k % 2 == 1;
+			List<Tuple> tuples = new ArrayList<Tuple>();
+			DataOutputBuffer out = new DataOutputBuffer();
+			for (int i = 0; i < 100; i++) {
+				Tuple tuple = randomTuple(r);
+				tuples.add(tuple);
+				(bound ? bind(tuple) : tuple).write(out);
+			}
+
+			// tuples are parsed in place from buffers, and copied from streams
+			DataInputBuffer buffer = new DataInputBuffer();
+			buffer.reset(out.getData(), out.getLength());
+			DataInput in = k < 2 ? buffer : new DataInputStream(new ByteArrayInputStream(out
+					.getData(), 0, out.getLength()));
+			Tuple lazy = new Tuple();
+			if (bound) {
+				lazy.bind(SCHEMA3);
+			}
+			lazy.setLazy(true);
+
+			DataOutputBuffer again = new DataOutputBuffer();
+			for (int i = 0; i < tuples.size(); i++) {
+				Tuple tuple = tuples.get(i);
+				lazy.readFields(in);
+
+				// serialized straight away, or after decoding some fields
+				if (i % 2 == 0) {
+					assertEquals(tuple.get(6), lazy.get(6));
+					assertEquals(tuple.getSymbol(0), lazy.getSymbol(0));
+				}
+				lazy.write(again);
+
+				assertEquals(0, tuple.compareTo(lazy));
+				assertEquals(tuple.hashCode(), lazy.hashCode());
+				assertEquals(tuple.toString(), lazy.toString());
+			}
+
+			if (in == buffer) {
+				assertEquals(out.getLength(), buffer.getPosition());
+			}
+			assertTrue(Arrays.equals(Arrays.copyOf(out.getData(), out.getLength()), Arrays.copyOf(
+					again.getData(), again.getLength())));
+		}
+	}
+
+	@Test
+	public void testProjection() throws IOException {
+		Random r = new Random(0);
+		int[] projected = { 0, 3, 6 };
+		for (boolean bound : new boolean[] { false, true }) {
+			for (boolean lazy : new boolean[] { false, true }) {
+				List<Tuple> tuples = new ArrayList<Tuple>();
+				DataOutputBuffer out = new DataOutputBuffer();
+				for (int i = 0; i < 100; i++) {
+					Tuple tuple = randomTuple(r);
+					tuples.add(tuple);
+					(bound ? bind(tuple) : tuple).write(out);
+				}
+
+				DataInputBuffer in = new DataInputBuffer();
+				in.reset(out.getData(), out.getLength());
+				Tuple t = new Tuple();
+				if (bound) {
+					t.bind(SCHEMA3);
+				}
+				t.setLazy(lazy);
+				t.setProjection("string", "long", "text");
+
+				for (Tuple tuple : tuples) {
+					t.readFields(in);
+					for (int i : projected) {
+						assertEquals(tuple.getSymbol(i), t.getSymbol(i));
+						assertEquals(tuple.get(i), t.get(i));
+					}
+					assertEquals(IntWritable.class, t.getFieldType("intWritable"));
+
+					try {
+						t.get("int");
+						fail();
+					} catch (TupleException e) {
+					}
+					try {
+						t.containsSymbol(7);
+						fail();
+					} catch (TupleException e) {
+					}
+				}
+				assertEquals(out.getLength(), in.getPosition());
+
+				assertTrue(t.toString().contains("<skipped>"));
+				try {
+					t.write(new DataOutputBuffer());
+					fail();
+				} catch (TupleException e) {
+				}
+
+				// all fields are read again without a projection
+				t.setProjection((String[]) null);
+				in.reset(out.getData(), out.getLength());
+				t.readFields(in);
+				assertEquals(0, tuples.get(0).compareTo(t));
+			}
+		}
+	}
+
+	@Test
+	public void testLazyAndProjectionInConf() throws IOException {
+		Configuration conf = new Configuration();
+		Tuple.setSchema(conf, SCHEMA3);
+		Tuple.setLazy(conf, true);
+		Tuple.setProjection(conf, "int", "text");
+
+		Tuple t = ReflectionUtils.newInstance(Tuple.class, conf);
+		assertTrue(t.isLazy());
+
+		Tuple tuple = SCHEMA3.instantiate("a", true, 7, 8L, 1.0f, 2.0, new Text("b"),
+				new IntWritable(9));
+		tuple.bind(SCHEMA3);
+		DataOutputBuffer out = new DataOutputBuffer();
+		tuple.write(out);
+
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		t.readFields(in);
+		assertEquals(7, t.getInt(2));
+		assertEquals(new Text("b"), t.get("text"));
+		try {
+			t.get(0);
+			fail();
+		} catch (TupleException e) {
+		}
+	}
+
+	// a copy of a tuple, bound to its schema
+	private static Tuple bind(Tuple tuple) {
+		Tuple t = SCHEMA3.instantiate();
+		t.bind(SCHEMA3);
+		for (int i = 0; i < tuple.getFieldCount(); i++) {
+			if (tuple.containsSymbol(i)) {
+				t.setSymbol(i, tuple.getSymbol(i));
+			} else {
+				t.set(i, tuple.get(i));
+			}
+		}
+		return t;
+	}
+
+	// few distinct values per field, so that ties are broken by later fields
+	private static Tuple randomTuple(Random r) {
+		Tuple tuple = SCHEMA3.instantiate();
+		float[] floats = { -1.5f, -0.0f, 0.0f, 2.5f, Float.NaN };
+		double[] doubles = { -1.5, -0.0, 0.0, 2.5, Double.NaN };
+		String[] strings = { "", "a", "ab", "\u00e9t\u00e9", "\ud83d\ude00", "\uffff" };
+
+		tuple.set(0, strings[r.nextInt(strings.length)]);
+		tuple.set(1, r.nextBoolean());
+		tuple.set(2, r.nextInt(3) - 1);
+		tuple.set(3, (long) r.nextInt(3) - 1);
+		tuple.set(4, floats[r.nextInt(floats.length)]);
+		tuple.set(5, doubles[r.nextInt(doubles.length)]);
+		tuple.set(6, new Text(strings[r.nextInt(strings.length)]));
+		tuple.set(7, new IntWritable(r.nextInt(3) - 1));
+
+		for (int i = 0; i < tuple.getFieldCount(); i++) {
+			if (r.nextInt(8) == 0) {
+				tuple.setSymbol(i, r.nextBoolean() ? "*" : "$");
+			}
+		}
+
+		return tuple;
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(TupleTest.class);
 	}
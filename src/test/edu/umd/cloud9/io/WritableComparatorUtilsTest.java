@@ -0,0 +1,151 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+import edu.umd.cloud9.debug.WritableComparatorTestHarness;
+import edu.umd.cloud9.io.pair.PairOfIntString;
+import edu.umd.cloud9.io.pair.PairOfStringFloat;
+import edu.umd.cloud9.io.pair.PairOfStringInt;
+import edu.umd.cloud9.io.pair.PairOfStringLong;
+import edu.umd.cloud9.io.pair.PairOfStrings;
+
+public class WritableComparatorUtilsTest {
+
+	// one, two and three byte chars, surrogates, and chars above them
+	private static final char[] ALPHABET = { '\u0000', '\u0001', 'a', 'b', '\u007f', '\u0080',
+			'\u00e9', '\u07ff', '\u0800', '\u4e2d', '\ud7ff', '\ud800', '\ud83d', '\udbff',
+			'\udc00', '\ude00', '\udfff', '\ue000', '\uff21', '\uffff' };
+
+	@Test
+	public void testCompareUTF() throws IOException {
+		Random r = new Random(0);
+		String[] strings = randomStrings(r, 300);
+		byte[][] bytes = new byte[strings.length][];
+		for (int i = 0; i < strings.length; i++) {
+			bytes[i] = writeUTF(strings[i]);
+			assertEquals(bytes[i].length, WritableComparatorUtils.utfLength(bytes[i], 0));
+			assertEquals(strings[i].hashCode(), WritableComparatorUtils.hashUTF(bytes[i], 0));
+		}
+
+		for (int i = 0; i < strings.length; i++) {
+			for (int j = 0; j < strings.length; j++) {
+				assertEquals(strings[i] + " vs. " + strings[j], Integer.signum(strings[i]
+						.compareTo(strings[j])), Integer.signum(WritableComparatorUtils.compareUTF(
+						bytes[i], 0, bytes[j], 0)));
+			}
+		}
+	}
+
+	@Test
+	public void testEdgeCases() throws IOException {
+		// '\u0000' is encoded as two bytes, C0 80, but is the lowest char
+		assertTrue(compareUTF("a\u0000", "a\u0001") < 0);
+		assertTrue(compareUTF("\u0000", "\u007f") < 0);
+		assertTrue(compareUTF("\u0000", "") > 0);
+
+		// surrogates sort before the chars above them, as in UTF-16
+		assertTrue(compareUTF("\ud83d\ude00", "\ue000") < 0);
+		assertTrue(compareUTF("\ud7ff", "\ud800") < 0);
+		assertTrue(compareUTF("\ud83d\ude00", "\ud83d\ude01") < 0);
+		assertTrue(compareUTF("\udc00", "\ud800\udc00") > 0);
+
+		assertEquals(0, compareUTF("", ""));
+		assertEquals(0, compareUTF("\u4e2d\u0000x", "\u4e2d\u0000x"));
+		assertTrue(compareUTF("ab", "abc") < 0);
+	}
+
+	@Test
+	public void testPairComparators() throws IOException {
+		Random r = new Random(0);
+		String[] strings = randomStrings(r, 20);
+
+		List<PairOfStrings> pairs1 = new ArrayList<PairOfStrings>();
+		List<PairOfStringInt> pairs2 = new ArrayList<PairOfStringInt>();
+		List<PairOfStringFloat> pairs3 = new ArrayList<PairOfStringFloat>();
+		List<PairOfStringLong> pairs4 = new ArrayList<PairOfStringLong>();
+		List<PairOfIntString> pairs5 = new ArrayList<PairOfIntString>();
+		for (int i = 0; i < strings.length; i++) {
+			for (int j = 0; j < strings.length; j++) {
+				// few distinct numbers, so that ties on the strings are broken
+				pairs1.add(new PairOfStrings(strings[i], strings[j]));
+				pairs2.add(new PairOfStringInt(strings[i], j % 3 - 1));
+				pairs3.add(new PairOfStringFloat(strings[i], (j % 3) / 2.0f));
+				pairs4.add(new PairOfStringLong(strings[i], j % 3 - 1L));
+				pairs5.add(new PairOfIntString(i % 3 - 1, strings[j]));
+			}
+		}
+
+		checkAgrees(new PairOfStrings.Comparator(), pairs1, r);
+		checkAgrees(new PairOfStringInt.Comparator(), pairs2, r);
+		checkAgrees(new PairOfStringFloat.Comparator(), pairs3, r);
+		checkAgrees(new PairOfStringLong.Comparator(), pairs4, r);
+		checkAgrees(new PairOfIntString.Comparator(), pairs5, r);
+	}
+
+	private static <T extends WritableComparable<T>> void checkAgrees(
+			WritableComparator comparator, List<T> pairs, Random r) {
+		for (int i = 0; i < 2000; i++) {
+			T p1 = pairs.get(r.nextInt(pairs.size()));
+			T p2 = r.nextInt(10) == 0 ? p1 : pairs.get(r.nextInt(pairs.size()));
+			assertTrue(p1 + " vs. " + p2, WritableComparatorTestHarness.agrees(comparator, p1, p2));
+		}
+	}
+
+	private static String[] randomStrings(Random r, int n) {
+		String[] strings = new String[n];
+		for (int i = 0; i < n; i++) {
+			// short strings over a small alphabet share prefixes often
+			StringBuilder sb = new StringBuilder();
+			int len = r.nextInt(5);
+			for (int j = 0; j < len; j++) {
+				sb.append(ALPHABET[r.nextInt(ALPHABET.length)]);
+			}
+			strings[i] = sb.toString();
+		}
+		return strings;
+	}
+
+	private static byte[] writeUTF(String s) throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		new DataOutputStream(bytesOut).writeUTF(s);
+		return bytesOut.toByteArray();
+	}
+
+	private static int compareUTF(String s1, String s2) throws IOException {
+		return WritableComparatorUtils.compareUTF(writeUTF(s1), 0, writeUTF(s2), 0);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(WritableComparatorUtilsTest.class);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.array;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.array.CompressedArrayOfInts.Codec;
+
+public class CompressedArrayOfIntsWritableTest {
+
+	@Test
+	public void testSerialize() throws IOException {
+		Random r = new Random(1);
+		for (Codec codec : Codec.values()) {
+			for (int n : new int[] { 0, 1, 128, 1000 }) {
+				int[] sorted = new int[n];
+				int[] unsorted = new int[n];
+				int v = -50;
+				for (int i = 0; i < n; i++) {
+					v += r.nextInt(5);
+					sorted[i] = v;
+					unsorted[i] = r.nextInt(1000) - 10;
+				}
+
+				CompressedArrayOfIntsWritable a = CompressedArrayOfIntsWritable
+						.create(new CompressedArrayOfIntsWritable(sorted, true, codec).serialize());
+				assertTrue(a.isSorted());
+				assertEquals(codec, a.getCodec());
+				assertArrayEquals(sorted, a.toArray());
+
+				CompressedArrayOfIntsWritable b = CompressedArrayOfIntsWritable
+						.create(new CompressedArrayOfIntsWritable(unsorted, false, codec).serialize());
+				assertEquals(n, b.size());
+				assertArrayEquals(unsorted, b.toArray());
+
+				// skipping works off the deserialized block index
+				if (n > 0) {
+					CompressedArrayOfIntsWritable.Cursor cursor = a.cursor();
+					assertTrue(cursor.skipTo(sorted[n - 1]));
+					assertEquals(sorted[n - 1], cursor.next());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testReuse() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+
+		int[] a1 = new int[500];
+		for (int i = 0; i < a1.length; i++) {
+			a1[i] = 3 * i;
+		}
+		int[] a2 = { 9, 4, 7 };
+
+		new CompressedArrayOfIntsWritable(a1, true, Codec.PFOR).write(dataOut);
+		new CompressedArrayOfIntsWritable(a2, false, Codec.VBYTE).write(dataOut);
+		new CompressedArrayOfIntsWritable(a1, false, Codec.VBYTE).write(dataOut);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray()));
+		CompressedArrayOfIntsWritable a = new CompressedArrayOfIntsWritable();
+		a.readFields(in);
+		assertArrayEquals(a1, a.toArray());
+		a.readFields(in);
+		assertArrayEquals(a2, a.toArray());
+		a.readFields(in);
+		assertArrayEquals(a1, a.toArray());
+	}
+
+	@Test
+	public void testSmallerThanArrayListOfIntsWritable() throws IOException {
+		int[] ids = new int[1000];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = 1000000 + 2 * i;
+		}
+
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		new ArrayListOfIntsWritable(ids).write(new DataOutputStream(bytesOut));
+		int raw = bytesOut.size();
+
+		int compressed = new CompressedArrayOfIntsWritable(ids, true, Codec.PFOR).serialize().length;
+		assertTrue(compressed * 10 < raw);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(CompressedArrayOfIntsWritableTest.class);
+	}
+}
@@ -16,17 +16,35 @@
 
 package edu.umd.cloud9.io.benchmark;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import edu.umd.cloud9.example.bigram.Bigram;
 import edu.umd.cloud9.io.Schema;
 import edu.umd.cloud9.io.Tuple;
+import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.io.pair.PairOfStringInt;
+import edu.umd.cloud9.io.pair.PairOfStrings;
 
 /**
  * Benchmark for {@link Tuple}. See {@link BenchmarkPairOfInts} for more
- * details.
+ * details. Also compares the size and the serialization speed of Tuples in the
+ * self-describing form, Tuples bound to their Schema, records generated from
+ * the Schema (see {@link Bigram}), and the equivalent {@link PairOfInts},
+ * {@link PairOfStringInt} and {@link PairOfStrings}. Finally, compares reading
+ * a single field of wide Tuples eagerly, lazily, and with a projection.
  */
 public class BenchmarkTuple {
 
@@ -42,6 +60,32 @@ public class BenchmarkTuple {
 		MY_SCHEMA.addField("right", Integer.class, new Integer(1));
 	}
 
+	private static final Schema STRING_SCHEMA = new Schema();
+	static {
+		STRING_SCHEMA.addField("token", String.class, "");
+		STRING_SCHEMA.addField("count", Integer.class, 0);
+	}
+
+	// the schema that Bigram is generated from
+	private static final Schema BIGRAM_SCHEMA = new Schema();
+	static {
+		BIGRAM_SCHEMA.addField("Left", String.class, "");
+		BIGRAM_SCHEMA.addField("Right", String.class, "");
+	}
+
+	// a wide schema, of which scans read a single field
+	private static final Schema WIDE_SCHEMA = new Schema();
+	static {
+		for (int i = 0; i < 4; i++) {
+			WIDE_SCHEMA.addField("string" + i, String.class, "");
+			WIDE_SCHEMA.addField("text" + i, Text.class, new Text());
+			WIDE_SCHEMA.addField("int" + i, Integer.class, 0);
+		}
+	}
+
+	private static final String[] TOKENS = { "the", "of", "and", "mapreduce", "hadoop",
+			"information", "retrieval", "cloud" };
+
 	/**
 	 * Runs this benchmark.
 	 */
@@ -84,5 +128,198 @@ public class BenchmarkTuple {
 
 		System.out.println("Sorted 2m Tuples in " + duration + " seconds");
 
+		// serialization of (int, int)
+		List<PairOfInts> listPairs = new ArrayList<PairOfInts>();
+		List<Tuple> listBound = new ArrayList<Tuple>();
+		for (Tuple t : listTuples1) {
+			listPairs.add(new PairOfInts((Integer) t.get(0), (Integer) t.get(1)));
+
+			Tuple n = MY_SCHEMA.instantiate(t.get(0), t.get(1));
+			n.bind(MY_SCHEMA);
+			listBound.add(n);
+		}
+
+		Tuple bound = new Tuple();
+		bound.bind(MY_SCHEMA);
+
+		benchmarkSerialization("Tuples", listTuples1, new Tuple());
+		benchmarkSerialization("bound Tuples", listBound, bound);
+		benchmarkSerialization("PairOfInts", listPairs, new PairOfInts());
+
+		// serialization of (String, int)
+		List<Tuple> listStringTuples = new ArrayList<Tuple>();
+		List<Tuple> listStringBound = new ArrayList<Tuple>();
+		List<PairOfStringInt> listStringPairs = new ArrayList<PairOfStringInt>();
+		for (int i = 0; i < 2000000; i++) {
+			String token = TOKENS[r.nextInt(TOKENS.length)];
+			int count = r.nextInt(1000);
+
+			listStringTuples.add(STRING_SCHEMA.instantiate(token, count));
+			Tuple n = STRING_SCHEMA.instantiate(token, count);
+			n.bind(STRING_SCHEMA);
+			listStringBound.add(n);
+			listStringPairs.add(new PairOfStringInt(token, count));
+		}
+
+		Tuple stringBound = new Tuple();
+		stringBound.bind(STRING_SCHEMA);
+
+		benchmarkSerialization("(String, int) Tuples", listStringTuples, new Tuple());
+		benchmarkSerialization("bound (String, int) Tuples", listStringBound, stringBound);
+		benchmarkSerialization("PairOfStringInt", listStringPairs, new PairOfStringInt());
+
+		// comparison of serialized (String, int) tuples, as in the shuffle
+		Configuration conf = new Configuration();
+		Tuple.setSchema(conf, STRING_SCHEMA);
+
+		benchmarkComparator("Tuples, deserializing", listStringTuples,
+				new WritableComparator(Tuple.class, true) {
+				});
+		benchmarkComparator("Tuples, raw", listStringTuples, WritableComparator.get(Tuple.class));
+		benchmarkComparator("bound Tuples, raw", listStringBound, ReflectionUtils.newInstance(
+				Tuple.Comparator.class, conf));
+		benchmarkComparator("PairOfStringInt, raw", listStringPairs, WritableComparator
+				.get(PairOfStringInt.class));
+
+		// (String, String) as bound Tuples, generated records and pairs
+		List<Tuple> listBigramBound = new ArrayList<Tuple>();
+		List<Bigram> listBigrams = new ArrayList<Bigram>();
+		List<PairOfStrings> listStringPairs2 = new ArrayList<PairOfStrings>();
+		for (int i = 0; i < 2000000; i++) {
+			String left = TOKENS[r.nextInt(TOKENS.length)];
+			String right = TOKENS[r.nextInt(TOKENS.length)];
+
+			Tuple n = BIGRAM_SCHEMA.instantiate(left, right);
+			n.bind(BIGRAM_SCHEMA);
+			listBigramBound.add(n);
+			listBigrams.add(new Bigram(left, right));
+			listStringPairs2.add(new PairOfStrings(left, right));
+		}
+
+		Tuple bigramBound = new Tuple();
+		bigramBound.bind(BIGRAM_SCHEMA);
+
+		benchmarkSerialization("bound (String, String) Tuples", listBigramBound, bigramBound);
+		benchmarkSerialization("Bigrams", listBigrams, new Bigram());
+		benchmarkSerialization("PairOfStrings", listStringPairs2, new PairOfStrings());
+
+		Tuple.setSchema(conf, BIGRAM_SCHEMA);
+		benchmarkComparator("bound (String, String) Tuples, raw", listBigramBound, ReflectionUtils
+				.newInstance(Tuple.Comparator.class, conf));
+		benchmarkComparator("Bigrams, raw", listBigrams, WritableComparator.get(Bigram.class));
+		benchmarkComparator("PairOfStrings, raw", listStringPairs2, WritableComparator
+				.get(PairOfStrings.class));
+
+		// scans of a single field of wide tuples
+		DataOutputBuffer wide = new DataOutputBuffer();
+		DataOutputBuffer wideBound = new DataOutputBuffer();
+		Tuple tuple = WIDE_SCHEMA.instantiate();
+		Tuple tupleBound = WIDE_SCHEMA.instantiate();
+		tupleBound.bind(WIDE_SCHEMA);
+		for (int i = 0; i < 1000000; i++) {
+			for (int j = 0; j < WIDE_SCHEMA.getFieldCount(); j += 3) {
+				String token = TOKENS[r.nextInt(TOKENS.length)];
+				tuple.set(j, token);
+				tuple.set(j + 1, new Text(token));
+				tuple.set(j + 2, r.nextInt(1000));
+				tupleBound.set(j, token);
+				tupleBound.set(j + 1, new Text(token));
+				tupleBound.set(j + 2, r.nextInt(1000));
+			}
+			tuple.write(wide);
+			tupleBound.write(wideBound);
+		}
+
+		for (boolean compact : new boolean[] { false, true }) {
+			DataOutputBuffer data = compact ? wideBound : wide;
+			for (int mode = 0; mode < 3; mode++) {
+				Tuple reuse = new Tuple();
+				if (compact) {
+					reuse.bind(WIDE_SCHEMA);
+				}
+				reuse.setLazy(mode == 1);
+				if (mode == 2) {
+					reuse.setProjection("string1");
+				}
+
+				String name = (compact ? "bound " : "") + "wide Tuples, "
+						+ new String[] { "eagerly", "lazily", "with a projection" }[mode];
+				benchmarkScan(name, data, reuse);
+			}
+		}
+	}
+
+	private static void benchmarkComparator(String name, List<? extends Writable> objects,
+			RawComparator<?> comparator) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		int[] offsets = new int[objects.size() + 1];
+		for (int i = 0; i < objects.size(); i++) {
+			offsets[i] = out.getLength();
+			objects.get(i).write(out);
+		}
+		offsets[objects.size()] = out.getLength();
+		byte[] b = out.getData();
+		System.gc();
+
+		long startTime = System.currentTimeMillis();
+
+		int sum = 0;
+		for (int i = 0; i + 1 < objects.size(); i++) {
+			sum += comparator.compare(b, offsets[i], offsets[i + 1] - offsets[i], b,
+					offsets[i + 1], offsets[i + 2] - offsets[i + 1]);
+		}
+
+		double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+		System.out.println("Compared 2m serialized " + name + " in " + duration + " seconds ("
+				+ sum + ")");
+	}
+
+	private static void benchmarkScan(String name, DataOutputBuffer data, Tuple reuse)
+			throws IOException {
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(data.getData(), data.getLength());
+		System.gc();
+
+		long startTime = System.currentTimeMillis();
+
+		int sum = 0;
+		for (int i = 0; i < 1000000; i++) {
+			reuse.readFields(in);
+			sum += reuse.get(3).hashCode();
+		}
+
+		double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+		System.out.println("Read one field of 1m " + name + " in " + duration + " seconds ("
+				+ sum + ")");
+	}
+
+	private static void benchmarkSerialization(String name, List<? extends Writable> objects,
+			Writable reuse) throws IOException {
+		long startTime;
+		double duration;
+
+		// keep collections of earlier phases out of the timings
+		System.gc();
+		startTime = System.currentTimeMillis();
+
+		DataOutputBuffer out = new DataOutputBuffer();
+		for (Writable w : objects) {
+			w.write(out);
+		}
+
+		duration = (System.currentTimeMillis() - startTime) / 1000.0;
+		System.out.println("Serialized 2m " + name + " in " + duration + " seconds, "
+				+ out.getLength() + " bytes");
+
+		startTime = System.currentTimeMillis();
+
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		for (int i = 0; i < objects.size(); i++) {
+			reuse.readFields(in);
+		}
+
+		duration = (System.currentTimeMillis() - startTime) / 1000.0;
+		System.out.println("Deserialized 2m " + name + " in " + duration + " seconds");
 	}
 }
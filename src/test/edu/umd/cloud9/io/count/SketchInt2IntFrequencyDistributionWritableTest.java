@@ -0,0 +1,104 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.io.pair.PairOfInts;
+
+public class SketchInt2IntFrequencyDistributionWritableTest {
+
+	private static void assertSame(SketchInt2IntFrequencyDistributionWritable fd1,
+			SketchInt2IntFrequencyDistributionWritable fd2, int maxKey) {
+		assertEquals(fd1.getSumOfFrequencies(), fd2.getSumOfFrequencies());
+		assertEquals(fd1.getNumberOfEvents(), fd2.getNumberOfEvents());
+		assertEquals(fd1.getFrequencySortedEvents(), fd2.getFrequencySortedEvents());
+		for (int i = 0; i < maxKey; i++) {
+			assertEquals(fd1.get(i), fd2.get(i));
+			assertEquals(fd1.getError(i), fd2.getError(i));
+		}
+	}
+
+	@Test
+	public void testSerializeSparse() throws IOException {
+		SketchInt2IntFrequencyDistributionWritable fd = new SketchInt2IntFrequencyDistributionWritable();
+		fd.increment(1);
+		fd.increment(2, 3);
+		fd.increment(1000000, 7);
+
+		byte[] bytes = fd.serialize();
+		// far smaller than the sketch itself
+		assertTrue(bytes.length < 200);
+
+		SketchInt2IntFrequencyDistributionWritable copy = SketchInt2IntFrequencyDistributionWritable
+				.create(bytes);
+		assertSame(fd, copy, 10);
+		assertEquals(7, copy.get(1000000));
+	}
+
+	@Test
+	public void testSerializeDense() throws IOException {
+		SketchInt2IntFrequencyDistributionWritable fd = new SketchInt2IntFrequencyDistributionWritable(
+				0.05, 0.05, 10);
+		Random r = new Random(4);
+		for (int i = 0; i < 10000; i++) {
+			fd.increment(r.nextInt(1000));
+		}
+
+		SketchInt2IntFrequencyDistributionWritable copy = SketchInt2IntFrequencyDistributionWritable
+				.create(fd.serialize());
+		assertSame(fd, copy, 1000);
+
+		// reusing an object with other dimensions
+		SketchInt2IntFrequencyDistributionWritable other = new SketchInt2IntFrequencyDistributionWritable();
+		other.increment(5);
+		other.readFields(new java.io.DataInputStream(new java.io.ByteArrayInputStream(fd.serialize())));
+		assertSame(fd, other, 1000);
+	}
+
+	@Test
+	public void testMergeAfterSerialize() throws IOException {
+		SketchInt2IntFrequencyDistributionWritable fd1 = new SketchInt2IntFrequencyDistributionWritable();
+		SketchInt2IntFrequencyDistributionWritable fd2 = new SketchInt2IntFrequencyDistributionWritable();
+		fd1.increment(1, 2);
+		fd1.increment(2, 5);
+		fd2.increment(2, 1);
+		fd2.increment(3, 4);
+
+		SketchInt2IntFrequencyDistributionWritable sum = SketchInt2IntFrequencyDistributionWritable
+				.create(fd1.serialize());
+		sum.merge(SketchInt2IntFrequencyDistributionWritable.create(fd2.serialize()));
+
+		assertEquals(12, sum.getSumOfFrequencies());
+		assertEquals(2, sum.get(1));
+		assertEquals(6, sum.get(2));
+		assertEquals(4, sum.get(3));
+		assertEquals(new PairOfInts(2, 6), sum.getFrequencySortedEvents(1).get(0));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SketchInt2IntFrequencyDistributionWritableTest.class);
+	}
+}
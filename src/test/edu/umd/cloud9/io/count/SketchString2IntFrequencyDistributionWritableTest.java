@@ -0,0 +1,67 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.count;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class SketchString2IntFrequencyDistributionWritableTest {
+
+	@Test
+	public void testSerialize() throws IOException {
+		SketchString2IntFrequencyDistributionWritable fd = new SketchString2IntFrequencyDistributionWritable();
+		fd.increment("hi");
+		fd.increment("there", 3);
+		fd.increment("\u00e9t\u00e9", 2);
+
+		SketchString2IntFrequencyDistributionWritable copy = SketchString2IntFrequencyDistributionWritable
+				.create(fd.serialize());
+
+		assertEquals(6, copy.getSumOfFrequencies());
+		assertEquals(3, copy.getNumberOfEvents());
+		assertEquals(1, copy.get("hi"));
+		assertEquals(3, copy.get("there"));
+		assertEquals(2, copy.get("\u00e9t\u00e9"));
+		assertEquals(0, copy.get("nope"));
+		assertEquals("there", copy.getFrequencySortedEvents(1).get(0).getLeftElement());
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		SketchString2IntFrequencyDistributionWritable fd1 = new SketchString2IntFrequencyDistributionWritable();
+		SketchString2IntFrequencyDistributionWritable fd2 = new SketchString2IntFrequencyDistributionWritable();
+		fd1.increment("a", 2);
+		fd2.increment("a", 3);
+		fd2.increment("b");
+
+		fd1.merge(SketchString2IntFrequencyDistributionWritable.create(fd2.serialize()));
+
+		assertEquals(6, fd1.getSumOfFrequencies());
+		assertEquals(5, fd1.get("a"));
+		assertEquals(1, fd1.get("b"));
+		assertEquals(2, fd1.getNumberOfEvents());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SketchString2IntFrequencyDistributionWritableTest.class);
+	}
+}
@@ -21,15 +21,26 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
 import java.io.IOException;
+import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.junit.Before;
 import org.junit.Test;
 
 import edu.umd.cloud9.io.map.HMapIFW;
+import edu.umd.cloud9.util.map.MapIF;
 
 public class HMapIFWTest {
 
+	// The flags are static, so reset them in case another test left them set.
+	@Before
+	public void resetFlags() {
+		HMapIFW.setLazyDecodeFlag(false);
+		HMapIFW.setCompactEncodingFlag(false);
+		HMapIFW.setQuantizeFlag(false);
+	}
+
 	@Test
 	public void testBasic() throws IOException {
 		HMapIFW m = new HMapIFW();
@@ -320,6 +331,62 @@ public class HMapIFWTest {
 
 	// TODO: Should add a test case for lazy add
 
+	@Test
+	public void testSerializeCompact() throws IOException {
+		Random r = new Random(0);
+		HMapIFW m = new HMapIFW();
+		for (int i = 0; i < 1000; i++) {
+			m.put(r.nextInt(100000), r.nextFloat() * 100);
+		}
+
+		byte[] legacy = m.serialize();
+		HMapIFW.setCompactEncodingFlag(true);
+		try {
+			byte[] compact = m.serialize();
+			assertTrue(compact.length < legacy.length);
+
+			HMapIFW.setQuantizeFlag(true);
+			byte[] quantized = m.serialize();
+			assertTrue(quantized.length < compact.length);
+
+			for (byte[] bytes : new byte[][] { compact, legacy }) {
+				HMapIFW n = HMapIFW.create(bytes);
+				assertEquals(m.size(), n.size());
+				for (MapIF.Entry e : m.entrySet()) {
+					assertEquals(e.getValue(), n.get(e.getKey()), 0.0f);
+				}
+			}
+
+			HMapIFW n = HMapIFW.create(quantized);
+			assertEquals(m.size(), n.size());
+			for (MapIF.Entry e : m.entrySet()) {
+				assertEquals(e.getValue(), n.get(e.getKey()), Math.abs(e.getValue()) / 256);
+			}
+
+			// Lazily decoded arrays come back in key order.
+			HMapIFW.setLazyDecodeFlag(true);
+			n = HMapIFW.create(compact);
+			assertFalse(n.isDecoded());
+			int[] keys = n.getKeys();
+			assertEquals(m.size(), keys.length);
+			for (int i = 1; i < keys.length; i++) {
+				assertTrue(keys[i - 1] < keys[i]);
+			}
+
+			HMapIFW sum = new HMapIFW();
+			sum.plus(n);
+			n.decode();
+			assertEquals(m.size(), sum.size());
+			for (MapIF.Entry e : m.entrySet()) {
+				assertEquals(e.getValue(), sum.get(e.getKey()), 0.0f);
+			}
+		} finally {
+			HMapIFW.setCompactEncodingFlag(false);
+			HMapIFW.setQuantizeFlag(false);
+			HMapIFW.setLazyDecodeFlag(false);
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIFWTest.class);
 	}
@@ -16,21 +16,32 @@
 
 package edu.umd.cloud9.io.map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.junit.Before;
 import org.junit.Test;
 
 import edu.umd.cloud9.io.map.HMapIFW;
 import edu.umd.cloud9.io.map.HMapIIW;
+import edu.umd.cloud9.util.map.MapII;
 
 public class HMapIIWTest {
 
+	// The flags are static, so reset them in case another test left them set.
+	@Before
+	public void resetFlags() {
+		HMapIIW.setLazyDecodeFlag(false);
+		HMapIIW.setCompactEncodingFlag(false);
+	}
+
 	@Test
 	public void testBasic() throws IOException {
 		HMapIIW m = new HMapIIW();
@@ -129,6 +140,67 @@ public class HMapIIWTest {
 		assertTrue(m2.size() == 0);
 	}
 
+	@Test
+	public void testSerializeCompact() throws IOException {
+		Random r = new Random(0);
+		HMapIIW m = new HMapIIW();
+		for (int i = 0; i < 1000; i++) {
+			m.put(r.nextInt(100000) - 50000, r.nextInt(100));
+		}
+		m.put(Integer.MIN_VALUE, -1);
+		m.put(Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+		byte[] legacy = m.serialize();
+		HMapIIW.setCompactEncodingFlag(true);
+		try {
+			byte[] compact = m.serialize();
+			assertTrue(compact.length * 2 < legacy.length);
+
+			// Both encodings are readable regardless of the flag.
+			for (byte[] bytes : new byte[][] { compact, legacy }) {
+				HMapIIW n = HMapIIW.create(bytes);
+				assertEquals(m.size(), n.size());
+				for (MapII.Entry e : m.entrySet()) {
+					assertEquals(e.getValue(), n.get(e.getKey()));
+				}
+			}
+
+			// Lazily decoded arrays come back in key order.
+			HMapIIW.setLazyDecodeFlag(true);
+			HMapIIW n = HMapIIW.create(compact);
+			assertFalse(n.isDecoded());
+			int[] keys = n.getKeys();
+			assertEquals(m.size(), keys.length);
+			for (int i = 1; i < keys.length; i++) {
+				assertTrue(keys[i - 1] < keys[i]);
+			}
+
+			// An undecoded map can be written out again.
+			assertArrayEquals(compact, n.serialize());
+
+			HMapIIW sum = new HMapIIW();
+			sum.lazyplus(n);
+			sum.lazyplus(n);
+			assertEquals(2 * m.get(17), sum.get(17));
+			assertEquals(-2, sum.get(Integer.MIN_VALUE));
+		} finally {
+			HMapIIW.setCompactEncodingFlag(false);
+			HMapIIW.setLazyDecodeFlag(false);
+		}
+	}
+
+	@Test
+	public void testSerializeCompactEmpty() throws IOException {
+		HMapIIW.setCompactEncodingFlag(true);
+		try {
+			byte[] bytes = new HMapIIW().serialize();
+			assertEquals(2, bytes.length);
+			assertEquals(0, HMapIIW.create(bytes).size());
+		} finally {
+			HMapIIW.setCompactEncodingFlag(false);
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIIWTest.class);
 	}
@@ -0,0 +1,194 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapII;
+
+public class HMapIIWViewTest {
+
+	@Test
+	public void testReadHMapIIW() throws IOException {
+		HMapIIW m = new HMapIIW();
+		m.put(100, 1);
+		m.put(-5, 2);
+		m.put(7, 3);
+		m.put(2000000, 4);
+
+		HMapIIWView v = HMapIIWView.create(m.serialize());
+
+		assertEquals(4, v.size());
+		assertEquals(-5, v.getKey(0));
+		assertEquals(7, v.getKey(1));
+		assertEquals(100, v.getKey(2));
+		assertEquals(2000000, v.getKey(3));
+
+		assertEquals(2, v.get(-5));
+		assertEquals(3, v.get(7));
+		assertEquals(1, v.get(100));
+		assertEquals(4, v.get(2000000));
+		assertEquals(0, v.get(8));
+		assertTrue(v.containsKey(7));
+		assertFalse(v.containsKey(8));
+	}
+
+	@Test
+	public void testWriteReadByHMapIIW() throws IOException {
+		HMapII m = new HMapII();
+		m.put(3, 30);
+		m.put(1, 10);
+		m.put(2, 20);
+
+		HMapIIWView v = new HMapIIWView();
+		v.set(m);
+		assertEquals("{1=10, 2=20, 3=30}", v.toString());
+
+		HMapIIW m2 = HMapIIW.create(v.serialize());
+		assertEquals(3, m2.size());
+		assertEquals(10, m2.get(1));
+		assertEquals(20, m2.get(2));
+		assertEquals(30, m2.get(3));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		HMapIIWView v = HMapIIWView.create(new HMapIIW().serialize());
+		assertTrue(v.isEmpty());
+		assertEquals(0, v.get(1));
+
+		HMapIIWView w = new HMapIIWView();
+		v.plus(w);
+		assertTrue(v.isEmpty());
+	}
+
+	@Test
+	public void testReadCompactEncoding() throws IOException {
+		HMapIIW m = new HMapIIW();
+		m.put(100, 1);
+		m.put(-5, 2);
+		m.put(7, -3);
+		m.put(Integer.MAX_VALUE, 4);
+		m.put(Integer.MIN_VALUE, 5);
+
+		byte[] bytes;
+		HMapIIW.setCompactEncodingFlag(true);
+		try {
+			bytes = m.serialize();
+		} finally {
+			HMapIIW.setCompactEncodingFlag(false);
+		}
+
+		HMapIIWView v = HMapIIWView.create(bytes);
+		assertEquals("{-2147483648=5, -5=2, 7=-3, 100=1, 2147483647=4}", v.toString());
+		assertEquals(-3, v.get(7));
+
+		// views write the original encoding, in key order
+		HMapIIW m2 = HMapIIW.create(v.serialize());
+		assertEquals(5, m2.size());
+		assertEquals(5, m2.get(Integer.MIN_VALUE));
+		assertEquals(4, m2.get(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testPlus() throws IOException {
+		HMapII m1 = new HMapII();
+		m1.put(1, 1);
+		m1.put(3, 3);
+		m1.put(5, 5);
+
+		HMapII m2 = new HMapII();
+		m2.put(2, 2);
+		m2.put(3, 10);
+		m2.put(6, 6);
+
+		HMapIIWView v1 = new HMapIIWView();
+		v1.set(m1);
+		HMapIIWView v2 = new HMapIIWView();
+		v2.set(m2);
+
+		v1.plus(v2);
+		assertEquals("{1=1, 2=2, 3=13, 5=5, 6=6}", v1.toString());
+
+		// Again, to exercise the reuse of the scratch buffer.
+		v1.plus(v2);
+		assertEquals("{1=1, 2=4, 3=23, 5=5, 6=12}", v1.toString());
+	}
+
+	@Test
+	public void testMergeMatchesHashMap() throws IOException {
+		Random r = new Random(0);
+		int n = 20;
+		HMapIIWView[] views = new HMapIIWView[n];
+		HMapII expected = new HMapII();
+
+		// Simulates a reducer, which receives the same object over and over.
+		HMapIIWView value = new HMapIIWView();
+		for (int i = 0; i < n; i++) {
+			HMapIIW m = new HMapIIW();
+			int entries = r.nextInt(200);
+			for (int j = 0; j < entries; j++) {
+				int k = r.nextInt(500) - 250;
+				m.increment(k, r.nextInt(10));
+			}
+			expected.plus(m);
+
+			value.readFields(new DataInputStream(new ByteArrayInputStream(m.serialize())));
+			views[i] = new HMapIIWView();
+			views[i].set(value);
+		}
+
+		HMapIIWView result = new HMapIIWView();
+		HMapIIWView.merge(views, n, result);
+
+		assertEquals(expected.size(), result.size());
+		for (int i = 0; i < result.size(); i++) {
+			if (i > 0) {
+				assertTrue(result.getKey(i - 1) < result.getKey(i));
+			}
+			assertEquals(expected.get(result.getKey(i)), result.getValue(i));
+		}
+
+		HMapII sum = new HMapII();
+		result.addTo(sum);
+		assertEquals(expected.size(), sum.size());
+		for (int i = 0; i < result.size(); i++) {
+			assertEquals(result.getValue(i), sum.get(result.getKey(i)));
+		}
+
+		HMapIIWView pairwise = new HMapIIWView();
+		for (int i = 0; i < n; i++) {
+			pairwise.plus(views[i]);
+		}
+		assertEquals(result.toString(), pairwise.toString());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HMapIIWViewTest.class);
+	}
+}
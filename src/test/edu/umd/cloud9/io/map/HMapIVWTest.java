@@ -83,6 +83,33 @@ public class HMapIVWTest {
 		assertTrue(m2.size() == 0);
 	}
 
+	@Test
+	public void testSerializeCompact() throws IOException {
+		HMapIVW<Text> m1 = new HMapIVW<Text>();
+		for (int i = 0; i < 100; i++) {
+			m1.put(i * 3, new Text("value" + i));
+		}
+
+		byte[] legacy = m1.serialize();
+		HMapIVW.setCompactEncodingFlag(true);
+		try {
+			byte[] compact = m1.serialize();
+			assertTrue(compact.length < legacy.length);
+
+			for (byte[] bytes : new byte[][] { compact, legacy }) {
+				HMapIVW<Text> m2 = HMapIVW.<Text> create(bytes);
+				assertEquals(100, m2.size());
+				for (int i = 0; i < 100; i++) {
+					assertEquals(new Text("value" + i), m2.get(i * 3));
+				}
+			}
+
+			assertEquals(0, HMapIVW.<Text> create(new HMapIVW<Text>().serialize()).size());
+		} finally {
+			HMapIVW.setCompactEncodingFlag(false);
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIVWTest.class);
 	}
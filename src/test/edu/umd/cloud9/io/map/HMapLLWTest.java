@@ -0,0 +1,128 @@
+/*
+ * Cloud9: 5L MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HMapLLWTest {
+	private static final long BIG = 1L << 40;
+
+	@After
+	public void resetFlags() {
+		HMapLLW.setLazyDecodeFlag(false);
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		HMapLLW m = new HMapLLW();
+
+		m.put(BIG + 2, 5L);
+		m.put(2, 22L);
+
+		assertEquals(2, m.size());
+		assertEquals(5L, m.get(BIG + 2));
+
+		m.remove(BIG + 2);
+		assertEquals(1, m.size());
+		assertEquals(22L, m.get(2));
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		HMapLLW m1 = new HMapLLW();
+
+		m1.put(BIG + 3, 5L);
+		m1.put(-BIG, 22L);
+
+		HMapLLW m2 = HMapLLW.create(m1.serialize());
+
+		assertEquals(2, m2.size());
+		assertEquals(5L, m2.get(BIG + 3));
+		assertEquals(22L, m2.get(-BIG));
+		assertFalse(m2.containsKey(3));
+	}
+
+	@Test
+	public void testSerializeLazy() throws IOException {
+		HMapLLW.setLazyDecodeFlag(true);
+		HMapLLW m1 = new HMapLLW();
+
+		m1.put(BIG + 3, 5L);
+		m1.put(BIG + 4, 22L);
+
+		HMapLLW m2 = HMapLLW.create(m1.serialize());
+
+		assertFalse(m2.isDecoded());
+		assertEquals(2, m2.size());
+
+		long[] keys = m2.getKeys();
+		long[] values = m2.getValues();
+		assertEquals(2, keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(m1.get(keys[i]), values[i]);
+		}
+
+		m2.decode();
+		assertTrue(m2.isDecoded());
+		assertEquals(2, m2.size());
+		assertEquals(5L, m2.get(BIG + 3));
+		assertEquals(22L, m2.get(BIG + 4));
+	}
+
+	@Test
+	public void testPlusLazy() throws IOException {
+		HMapLLW m1 = new HMapLLW();
+		m1.put(BIG, 5L);
+		m1.put(1, 22L);
+
+		HMapLLW.setLazyDecodeFlag(true);
+		HMapLLW m2 = HMapLLW.create(m1.serialize());
+		assertFalse(m2.isDecoded());
+
+		m1.plus(m2);
+		assertEquals(2, m1.size());
+		assertEquals(5L + 5L, m1.get(BIG));
+		assertEquals(22L + 22L, m1.get(1));
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		HMapLLW m1 = new HMapLLW();
+
+		// make sure this does nothing
+		m1.decode();
+
+		assertEquals(0, m1.size());
+
+		HMapLLW m2 = HMapLLW.create(m1.serialize());
+
+		assertEquals(0, m2.size());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HMapLLWTest.class);
+	}
+}
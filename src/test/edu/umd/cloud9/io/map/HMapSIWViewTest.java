@@ -0,0 +1,178 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapKI;
+
+public class HMapSIWViewTest {
+
+	@Test
+	public void testReadHMapSIW() throws IOException {
+		HMapSIW m = new HMapSIW();
+		m.put("there", 22);
+		m.put("hi", 5);
+		m.put("a", 1);
+		m.put("zebra", 7);
+
+		HMapSIWView v = HMapSIWView.create(m.serialize());
+
+		assertEquals(4, v.size());
+		assertEquals("a", v.getKey(0));
+		assertEquals("hi", v.getKey(1));
+		assertEquals("there", v.getKey(2));
+		assertEquals("zebra", v.getKey(3));
+
+		assertEquals(1, v.get("a"));
+		assertEquals(5, v.get("hi"));
+		assertEquals(22, v.get("there"));
+		assertEquals(7, v.get("zebra"));
+		assertEquals(0, v.get("h"));
+		assertTrue(v.containsKey("hi"));
+		assertFalse(v.containsKey("hii"));
+		assertFalse(v.containsKey(""));
+	}
+
+	@Test
+	public void testWriteReadByHMapSIW() throws IOException {
+		HMapKI<String> m = new HMapKI<String>();
+		m.put("c", 3);
+		m.put("a", 1);
+		m.put("b", 2);
+
+		HMapSIWView v = new HMapSIWView();
+		v.set(m);
+		assertEquals("{a=1, b=2, c=3}", v.toString());
+
+		HMapSIW m2 = HMapSIW.create(v.serialize());
+		assertEquals(3, m2.size());
+		assertEquals(1, m2.get("a"));
+		assertEquals(2, m2.get("b"));
+		assertEquals(3, m2.get("c"));
+	}
+
+	@Test
+	public void testNonAscii() throws IOException {
+		HMapSIW m = new HMapSIW();
+		m.put("\u00e9t\u00e9", 1);
+		m.put("\u4e2d\u6587", 2);
+		m.put("ete", 3);
+
+		HMapSIWView v = HMapSIWView.create(m.serialize());
+		assertEquals(1, v.get("\u00e9t\u00e9"));
+		assertEquals(2, v.get("\u4e2d\u6587"));
+		assertEquals(3, v.get("ete"));
+		assertEquals("ete", v.getKey(0));
+		assertEquals("\u4e2d\u6587", v.getKey(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullKey() throws IOException {
+		new HMapSIWView().get(null);
+	}
+
+	@Test
+	public void testPlus() throws IOException {
+		HMapKI<String> m1 = new HMapKI<String>();
+		m1.put("a", 1);
+		m1.put("c", 3);
+		m1.put("e", 5);
+
+		HMapKI<String> m2 = new HMapKI<String>();
+		m2.put("b", 2);
+		m2.put("c", 10);
+		m2.put("f", 6);
+
+		HMapSIWView v1 = new HMapSIWView();
+		v1.set(m1);
+		HMapSIWView v2 = new HMapSIWView();
+		v2.set(m2);
+
+		v1.plus(v2);
+		assertEquals("{a=1, b=2, c=13, e=5, f=6}", v1.toString());
+
+		// Again, to exercise the reuse of the scratch buffers.
+		v1.plus(v2);
+		assertEquals("{a=1, b=4, c=23, e=5, f=12}", v1.toString());
+		assertEquals(23, v1.get("c"));
+	}
+
+	@Test
+	public void testMergeMatchesHashMap() throws IOException {
+		Random r = new Random(0);
+		int n = 20;
+		HMapSIWView[] views = new HMapSIWView[n];
+		HMapKI<String> expected = new HMapKI<String>();
+
+		// Simulates a reducer, which receives the same object over and over.
+		HMapSIWView value = new HMapSIWView();
+		for (int i = 0; i < n; i++) {
+			HMapSIW m = new HMapSIW();
+			int entries = r.nextInt(200);
+			for (int j = 0; j < entries; j++) {
+				String k = "term" + r.nextInt(500);
+				m.put(k, m.get(k) + r.nextInt(10));
+			}
+			expected.plus(m);
+
+			value.readFields(new DataInputStream(new ByteArrayInputStream(m.serialize())));
+			views[i] = new HMapSIWView();
+			views[i].set(value);
+		}
+
+		HMapSIWView result = new HMapSIWView();
+		HMapSIWView.merge(views, n, result);
+
+		assertEquals(expected.size(), result.size());
+		for (int i = 0; i < result.size(); i++) {
+			if (i > 0) {
+				assertTrue(result.getKey(i - 1).compareTo(result.getKey(i)) < 0);
+			}
+			assertEquals(expected.get(result.getKey(i)), result.getValue(i));
+			assertEquals(result.getValue(i), result.get(result.getKey(i)));
+		}
+
+		HMapKI<String> sum = new HMapKI<String>();
+		result.addTo(sum);
+		assertEquals(expected.size(), sum.size());
+		for (int i = 0; i < result.size(); i++) {
+			assertEquals(result.getValue(i), sum.get(result.getKey(i)));
+		}
+
+		HMapSIWView pairwise = new HMapSIWView();
+		for (int i = 0; i < n; i++) {
+			pairwise.plus(views[i]);
+		}
+		assertEquals(result.toString(), pairwise.toString());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HMapSIWViewTest.class);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapIF;
+import edu.umd.cloud9.util.map.SparseVectorIF;
+
+public class SparseVectorIFWTest {
+
+	@Test
+	public void testSerialize1() throws IOException {
+		HMapIF m = new HMapIF();
+		m.put(3, 5.0f);
+		m.put(-4, 22.0f);
+
+		SparseVectorIFW v1 = new SparseVectorIFW(m);
+		byte[] bytes = v1.serialize();
+		assertEquals(4 + 2 * 8, bytes.length);
+
+		SparseVectorIFW v2 = SparseVectorIFW.create(bytes);
+		assertEquals(2, v2.size());
+		assertEquals(-4, v2.getKeys()[0]);
+		assertTrue(v2.get(3) == 5.0f);
+		assertTrue(v2.get(-4) == 22.0f);
+		assertEquals(v1, v2);
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		SparseVectorIFW v = SparseVectorIFW.create(new SparseVectorIFW().serialize());
+		assertEquals(0, v.size());
+	}
+
+	@Test
+	public void testSerializeRandom() throws IOException {
+		Random r = new Random(0);
+		HMapIF m = new HMapIF();
+		for (int i = 0; i < 10000; i++) {
+			m.put(r.nextInt(), r.nextFloat());
+		}
+		SparseVectorIF v = m.freeze();
+
+		// Several vectors in a row, reusing the same object for reading.
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		new SparseVectorIFW(v).write(dataOut);
+		new SparseVectorIFW().write(dataOut);
+		new SparseVectorIFW(v).write(dataOut);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray()));
+		SparseVectorIFW w = new SparseVectorIFW();
+		w.readFields(in);
+		assertEquals(v, w);
+		float[] values = w.getValues();
+		w.readFields(in);
+		assertEquals(0, w.size());
+		w.readFields(in);
+		assertEquals(v, w);
+
+		// Arrays handed out earlier are not overwritten by later reads.
+		assertEquals(v.getValues()[0], values[0], 0.0f);
+		assertEquals(v.dot(v), w.dot(v), 10e-3);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SparseVectorIFWTest.class);
+	}
+}
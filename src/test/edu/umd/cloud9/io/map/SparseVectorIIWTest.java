@@ -0,0 +1,96 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.SparseVectorII;
+
+public class SparseVectorIIWTest {
+
+	@Test
+	public void testSerialize1() throws IOException {
+		HMapII m = new HMapII();
+		m.put(3, 5);
+		m.put(-4, 22);
+
+		SparseVectorIIW v1 = new SparseVectorIIW(m);
+		byte[] bytes = v1.serialize();
+		assertEquals(4 + 2 * 8, bytes.length);
+
+		SparseVectorIIW v2 = SparseVectorIIW.create(bytes);
+		assertEquals(2, v2.size());
+		assertEquals(-4, v2.getKeys()[0]);
+		assertTrue(v2.get(3) == 5);
+		assertTrue(v2.get(-4) == 22);
+		assertEquals(v1, v2);
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		SparseVectorIIW v = SparseVectorIIW.create(new SparseVectorIIW().serialize());
+		assertEquals(0, v.size());
+	}
+
+	@Test
+	public void testSerializeRandom() throws IOException {
+		Random r = new Random(0);
+		HMapII m = new HMapII();
+		for (int i = 0; i < 10000; i++) {
+			m.put(r.nextInt(), r.nextInt());
+		}
+		SparseVectorII v = m.freeze();
+
+		// Several vectors in a row, reusing the same object for reading.
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		new SparseVectorIIW(v).write(dataOut);
+		new SparseVectorIIW().write(dataOut);
+		new SparseVectorIIW(v).write(dataOut);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray()));
+		SparseVectorIIW w = new SparseVectorIIW();
+		w.readFields(in);
+		assertEquals(v, w);
+		int[] values = w.getValues();
+		w.readFields(in);
+		assertEquals(0, w.size());
+		w.readFields(in);
+		assertEquals(v, w);
+
+		// Arrays handed out earlier are not overwritten by later reads.
+		assertEquals(v.getValues()[0], values[0]);
+		assertEquals(v.dot(v), w.dot(v));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SparseVectorIIWTest.class);
+	}
+}
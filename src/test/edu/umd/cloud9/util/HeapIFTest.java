@@ -0,0 +1,217 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class HeapIFTest {
+
+	@Test
+	public void testBasic() {
+		HeapIF heap = new HeapIF();
+		assertTrue(heap.isEmpty());
+
+		heap.insert(3, 0.5f);
+		heap.insert(1, 0.25f);
+		heap.insert(7, 0.75f);
+		heap.insert(100, 0.1f);
+
+		assertEquals(4, heap.size());
+		assertTrue(heap.contains(7));
+		assertFalse(heap.contains(2));
+		assertFalse(heap.contains(1000));
+		assertEquals(0.5f, heap.getPriority(3), 0.0f);
+
+		assertEquals(100, heap.peek());
+		assertEquals(0.1f, heap.peekPriority(), 0.0f);
+		assertEquals(100, heap.poll());
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(7, heap.poll());
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(7));
+
+		try {
+			heap.poll();
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+	}
+
+	@Test
+	public void testSort() {
+		Random r = new Random(0);
+		for (int d = 2; d <= 8; d++) {
+			for (boolean max : new boolean[] { false, true }) {
+				HeapIF heap = new HeapIF(d, max);
+				float[] priorities = new float[10000];
+				for (int i = 0; i < priorities.length; i++) {
+					priorities[i] = r.nextFloat();
+					heap.insert(i, priorities[i]);
+				}
+				Arrays.sort(priorities);
+
+				for (int i = 0; i < priorities.length; i++) {
+					float expected = priorities[max ? priorities.length - 1 - i : i];
+					assertEquals(expected, heap.peekPriority(), 0.0f);
+					int id = heap.poll();
+					assertFalse(heap.contains(id));
+				}
+				assertTrue(heap.isEmpty());
+			}
+		}
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		Random r = new Random(0);
+		for (boolean max : new boolean[] { false, true }) {
+			HeapIF heap = new HeapIF(4, max);
+			float[] priorities = new float[5000];
+			for (int i = 0; i < priorities.length; i++) {
+				priorities[i] = r.nextFloat() * 100;
+				heap.insert(i, priorities[i]);
+			}
+
+			// towards the top, as in a shortest-path search
+			for (int k = 0; k < 20000; k++) {
+				int id = r.nextInt(priorities.length);
+				float delta = r.nextFloat();
+				priorities[id] += max ? delta : -delta;
+				heap.decreaseKey(id, priorities[id]);
+				assertEquals(priorities[id], heap.getPriority(id), 0.0f);
+			}
+
+			checkOrder(heap, priorities, max);
+		}
+	}
+
+	@Test
+	public void testSetPriorityAndRemove() {
+		Random r = new Random(0);
+		HeapIF heap = new HeapIF(3, false);
+		float[] priorities = new float[3000];
+		boolean[] present = new boolean[priorities.length];
+		for (int k = 0; k < 30000; k++) {
+			int id = r.nextInt(priorities.length);
+			if (r.nextInt(4) == 0) {
+				assertEquals(present[id], heap.remove(id));
+				present[id] = false;
+			} else {
+				priorities[id] = r.nextFloat();
+				heap.setPriority(id, priorities[id]);
+				present[id] = true;
+			}
+		}
+
+		int n = 0;
+		for (int id = 0; id < present.length; id++) {
+			assertEquals(present[id], heap.contains(id));
+			if (present[id]) {
+				n++;
+			}
+		}
+		assertEquals(n, heap.size());
+
+		float last = Float.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			float p = heap.peekPriority();
+			int id = heap.poll();
+			assertTrue(present[id]);
+			assertEquals(priorities[id], p, 0.0f);
+			assertTrue(last <= p);
+			last = p;
+		}
+	}
+
+	@Test
+	public void testClear() {
+		HeapIF heap = new HeapIF();
+		for (int i = 0; i < 100; i++) {
+			heap.insert(i, i);
+		}
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(5));
+
+		// ids can go back in
+		heap.insert(5, 1.0f);
+		assertEquals(5, heap.poll());
+	}
+
+	@Test
+	public void testIllegalArguments() {
+		HeapIF heap = new HeapIF();
+		heap.insert(1, 0.5f);
+
+		try {
+			heap.insert(1, 0.25f);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		try {
+			heap.insert(-1, 0.25f);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		try {
+			heap.decreaseKey(1, 0.75f);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		try {
+			heap.decreaseKey(2, 0.25f);
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+
+		try {
+			new HeapIF(1, false);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private static void checkOrder(HeapIF heap, float[] priorities, boolean max) {
+		float last = max ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			float p = heap.peekPriority();
+			int id = heap.poll();
+			assertEquals(priorities[id], p, 0.0f);
+			assertTrue(max ? p <= last : p >= last);
+			last = p;
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HeapIFTest.class);
+	}
+}
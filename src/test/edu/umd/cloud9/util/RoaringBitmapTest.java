@@ -0,0 +1,280 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class RoaringBitmapTest {
+
+	@Test
+	public void testBasic() {
+		RoaringBitmap b = new RoaringBitmap();
+		assertTrue(b.isEmpty());
+		assertTrue(b.add(5));
+		assertTrue(b.add(1 << 20));
+		assertTrue(b.add(3));
+		assertFalse(b.add(5));
+
+		assertEquals(3, b.cardinality());
+		assertTrue(b.contains(3));
+		assertTrue(b.contains(5));
+		assertTrue(b.contains(1 << 20));
+		assertFalse(b.contains(4));
+		assertFalse(b.contains((1 << 20) + 5));
+		assertEquals("[3, 5, 1048576]", b.toString());
+
+		assertTrue(b.remove(5));
+		assertFalse(b.remove(5));
+		assertTrue(b.remove(1 << 20));
+		assertArrayEquals(new int[] { 3 }, b.toArray());
+
+		b.clear();
+		assertTrue(b.isEmpty());
+		assertEquals(0, b.cardinality());
+	}
+
+	@Test
+	public void testDensities() {
+		Random r = new Random(0);
+		// sparse chunks become arrays, dense chunks bitmaps
+		for (int density : new int[] { 1, 10, 1000, 30000, 65000 }) {
+			RoaringBitmap b = new RoaringBitmap();
+			TreeSet<Integer> set = new TreeSet<Integer>();
+			for (int chunk = 0; chunk < 4; chunk++) {
+				for (int i = 0; i < density; i++) {
+					int v = (chunk << 16) | r.nextInt(1 << 16);
+					assertEquals(set.add(v), b.add(v));
+				}
+			}
+			check(set, b);
+
+			// and back, by removing most of them
+			int k = 0;
+			for (Iterator<Integer> it = set.iterator(); it.hasNext();) {
+				int v = it.next();
+				if (k++ % 10 != 0) {
+					it.remove();
+					assertTrue(b.remove(v));
+				}
+			}
+			check(set, b);
+		}
+	}
+
+	@Test
+	public void testOperations() {
+		Random r = new Random(0);
+		for (int trial = 0; trial < 20; trial++) {
+			TreeSet<Integer> sa = new TreeSet<Integer>();
+			TreeSet<Integer> sb = new TreeSet<Integer>();
+			RoaringBitmap a = new RoaringBitmap();
+			RoaringBitmap b = new RoaringBitmap();
+
+			int range = 1 << (16 + r.nextInt(4));
+			int na = r.nextInt(100000);
+			int nb = r.nextInt(trial % 2 == 0 ? 100 : 100000);
+			for (int i = 0; i < na; i++) {
+				int v = r.nextInt(range);
+				sa.add(v);
+				a.add(v);
+			}
+			for (int i = 0; i < nb; i++) {
+				int v = r.nextInt(range);
+				sb.add(v);
+				b.add(v);
+			}
+			// some runs, and run containers on one side
+			for (int v = 70000; v < 90000; v++) {
+				sb.add(v);
+				b.add(v);
+			}
+			if (trial % 3 == 0) {
+				b.runOptimize();
+			}
+
+			TreeSet<Integer> and = new TreeSet<Integer>(sa);
+			and.retainAll(sb);
+			TreeSet<Integer> or = new TreeSet<Integer>(sa);
+			or.addAll(sb);
+			TreeSet<Integer> andNot = new TreeSet<Integer>(sa);
+			andNot.removeAll(sb);
+			TreeSet<Integer> notAnd = new TreeSet<Integer>(sb);
+			notAnd.removeAll(sa);
+
+			check(and, RoaringBitmap.and(a, b));
+			check(and, RoaringBitmap.and(b, a));
+			assertEquals(and.size(), RoaringBitmap.andCardinality(a, b));
+			check(or, RoaringBitmap.or(a, b));
+			check(or, RoaringBitmap.or(b, a));
+			check(andNot, RoaringBitmap.andNot(a, b));
+			check(notAnd, RoaringBitmap.andNot(b, a));
+
+			// the inputs are left alone
+			check(sa, a);
+			check(sb, b);
+		}
+	}
+
+	@Test
+	public void testRunOptimize() {
+		RoaringBitmap b = new RoaringBitmap();
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for (int v = 1000; v < 200000; v++) {
+			b.add(v);
+			set.add(v);
+		}
+		for (int v = 300000; v < 300100; v += 2) {
+			b.add(v);
+			set.add(v);
+		}
+
+		int before = b.serializedSize();
+		assertTrue(b.runOptimize());
+		assertTrue(b.serializedSize() < before / 100);
+		check(set, b);
+
+		// adding to and removing from runs
+		assertFalse(b.add(5000));
+		assertTrue(b.add(200000));
+		set.add(200000);
+		assertTrue(b.remove(70000));
+		set.remove(70000);
+		assertTrue(b.add(999));
+		set.add(999);
+		check(set, b);
+
+		// removing most values turns runs back into arrays
+		b.runOptimize();
+		for (int v = 1000; v < 199000; v++) {
+			b.remove(v);
+			set.remove(v);
+		}
+		b.runOptimize();
+		check(set, b);
+		assertFalse(b.runOptimize());
+	}
+
+	@Test
+	public void testUnsignedOrder() {
+		RoaringBitmap b = RoaringBitmap.bitmapOf(-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 7);
+		assertArrayEquals(new int[] { 0, 7, Integer.MAX_VALUE, Integer.MIN_VALUE, -1 }, b.toArray());
+		assertTrue(b.contains(-1));
+		assertEquals(5, b.cardinality());
+	}
+
+	@Test
+	public void testEquals() {
+		RoaringBitmap a = new RoaringBitmap();
+		for (int v = 0; v < 10000; v++) {
+			a.add(v);
+		}
+		RoaringBitmap b = a.clone();
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+
+		// same set, other containers
+		b.runOptimize();
+		assertEquals(a, b);
+		assertEquals(b, a);
+
+		b.remove(17);
+		assertFalse(a.equals(b));
+		assertTrue(a.contains(17));
+	}
+
+	@Test
+	public void testMap() throws IOException {
+		Random r = new Random(0);
+		RoaringBitmap b = new RoaringBitmap();
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for (int i = 0; i < 50000; i++) {
+			int v = r.nextInt(1 << 20);
+			b.add(v);
+			set.add(v);
+		}
+		for (int v = 1 << 21; v < (1 << 21) + 100000; v++) {
+			b.add(v);
+			set.add(v);
+		}
+		b.runOptimize();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeLong(42L);
+		b.write(out);
+		assertEquals(8 + b.serializedSize(), bytes.size());
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		buffer.position(8);
+		RoaringBitmap m = RoaringBitmap.map(buffer);
+		assertEquals(8, buffer.position());
+		assertEquals(set.size(), m.cardinality());
+		assertTrue(m.contains(set.first()));
+		check(set, m);
+
+		// modifying a mapped set decodes it
+		m = RoaringBitmap.map(buffer);
+		m.add(1 << 30);
+		set.add(1 << 30);
+		check(set, m);
+	}
+
+	// checks a bitmap against a set
+	private static void check(TreeSet<Integer> set, RoaringBitmap b) {
+		assertEquals(set.size(), b.cardinality());
+
+		int[] expected = new int[set.size()];
+		int i = 0;
+		for (int v : set) {
+			expected[i++] = v;
+		}
+		assertArrayEquals(expected, b.toArray());
+
+		RoaringBitmap.Cursor cursor = b.cursor();
+		for (int v : expected) {
+			assertTrue(cursor.hasNext());
+			assertEquals(v, cursor.next());
+		}
+		assertFalse(cursor.hasNext());
+
+		Random r = new Random(0);
+		for (int k = 0; k < 1000 && !set.isEmpty(); k++) {
+			int v = expected[r.nextInt(expected.length)];
+			assertTrue(b.contains(v));
+			assertEquals(set.contains(v + 1), b.contains(v + 1));
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(RoaringBitmapTest.class);
+	}
+}
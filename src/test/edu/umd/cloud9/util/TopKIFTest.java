@@ -0,0 +1,102 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.io.pair.PairOfFloatInt;
+
+public class TopKIFTest {
+
+	@Test
+	public void testBasic() {
+		TopKIF top = new TopKIF(3);
+		float[] scores = { 0.5f, 0.1f, 0.9f, 0.7f, 0.3f, 0.8f };
+		for (int i = 0; i < scores.length; i++) {
+			top.offer(i, scores[i]);
+		}
+
+		assertEquals(3, top.size());
+		assertTrue(top.accepts(10, 0.75f));
+		assertFalse(top.accepts(10, 0.6f));
+
+		int[] ids = new int[3];
+		float[] out = new float[3];
+		assertEquals(3, top.drain(ids, out));
+		assertEquals(2, ids[0]);
+		assertEquals(5, ids[1]);
+		assertEquals(3, ids[2]);
+		assertEquals(0.9f, out[0], 0.0f);
+		assertEquals(0.8f, out[1], 0.0f);
+		assertEquals(0.7f, out[2], 0.0f);
+		assertEquals(0, top.size());
+	}
+
+	@Test
+	public void testRandom() {
+		Random r = new Random(0);
+		for (int k : new int[] { 0, 1, 10, 1000 }) {
+			TopKIF top = new TopKIF(k);
+			List<PairOfFloatInt> all = new ArrayList<PairOfFloatInt>();
+			for (int i = 0; i < 10000; i++) {
+				int id = r.nextInt(100000);
+				// few distinct scores, so that ties are broken by id
+				float score = r.nextInt(50) / 10.0f;
+				top.offer(id, score);
+				all.add(new PairOfFloatInt(score, id));
+			}
+
+			Collections.sort(all, new Comparator<PairOfFloatInt>() {
+				public int compare(PairOfFloatInt p1, PairOfFloatInt p2) {
+					if (p1.getLeftElement() != p2.getLeftElement())
+						return p1.getLeftElement() > p2.getLeftElement() ? -1 : 1;
+					return p1.getRightElement() < p2.getRightElement() ? -1
+							: (p1.getRightElement() == p2.getRightElement() ? 0 : 1);
+				}
+			});
+
+			int[] ids = new int[k];
+			float[] scores = new float[k];
+			assertEquals(k, top.drain(ids, scores));
+			for (int i = 0; i < k; i++) {
+				assertEquals(all.get(i).getRightElement(), ids[i]);
+				assertEquals(all.get(i).getLeftElement(), scores[i], 0.0f);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalK() {
+		new TopKIF(-1);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TopKIFTest.class);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.io.pair.PairOfInts;
+
+public class TopKTest {
+
+	// descending value, ties broken by ascending key
+	private static final Comparator<PairOfInts> BY_VALUE = new Comparator<PairOfInts>() {
+		public int compare(PairOfInts e1, PairOfInts e2) {
+			if (e1.getRightElement() != e2.getRightElement())
+				return e1.getRightElement() > e2.getRightElement() ? -1 : 1;
+
+			if (e1.getLeftElement() == e2.getLeftElement())
+				return 0;
+
+			return e1.getLeftElement() < e2.getLeftElement() ? -1 : 1;
+		}
+	};
+
+	@Test
+	public void testBasic() {
+		TopK<Integer> top = new TopK<Integer>(3, Collections.<Integer> reverseOrder());
+
+		for (int i : new int[] { 5, 1, 9, 7, 3, 8 }) {
+			top.offer(i);
+		}
+
+		assertEquals(3, top.size());
+		List<Integer> list = top.toSortedList();
+		assertEquals(3, list.size());
+		assertEquals(9, (int) list.get(0));
+		assertEquals(8, (int) list.get(1));
+		assertEquals(7, (int) list.get(2));
+		assertEquals(0, top.size());
+	}
+
+	@Test
+	public void testAscending() {
+		TopK<Integer> top = new TopK<Integer>(2, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return i1.compareTo(i2);
+			}
+		});
+
+		for (int i : new int[] { 5, 1, 9, 7, 3, 8 }) {
+			top.offer(i);
+		}
+
+		Integer[] a = top.toSortedArray(new Integer[0]);
+		assertEquals(2, a.length);
+		assertEquals(1, (int) a[0]);
+		assertEquals(3, (int) a[1]);
+	}
+
+	@Test
+	public void testFewerThanK() {
+		TopK<Integer> top = new TopK<Integer>(10, Collections.<Integer> reverseOrder());
+		top.offer(1);
+		top.offer(2);
+
+		List<Integer> list = top.toSortedList();
+		assertEquals(2, list.size());
+		assertEquals(2, (int) list.get(0));
+		assertEquals(1, (int) list.get(1));
+	}
+
+	@Test
+	public void testZero() {
+		TopK<Integer> top = new TopK<Integer>(0, Collections.<Integer> reverseOrder());
+		Integer i = 1;
+
+		assertFalse(top.accepts(i));
+		assertSame(i, top.offer(i));
+		assertEquals(0, top.toSortedList().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalK() {
+		new TopK<Integer>(-1, Collections.<Integer> reverseOrder());
+	}
+
+	@Test
+	public void testOfferReturnsEvicted() {
+		TopK<PairOfInts> top = new TopK<PairOfInts>(1, BY_VALUE);
+		PairOfInts a = new PairOfInts(1, 5);
+		PairOfInts b = new PairOfInts(2, 3);
+		PairOfInts c = new PairOfInts(3, 7);
+
+		assertNull(top.offer(a));
+		assertFalse(top.accepts(b));
+		assertSame(b, top.offer(b));
+		assertTrue(top.accepts(c));
+		assertSame(a, top.offer(c));
+		assertSame(c, top.toSortedList().get(0));
+	}
+
+	@Test
+	public void testTies() {
+		TopK<PairOfInts> top = new TopK<PairOfInts>(3, BY_VALUE);
+		top.offer(new PairOfInts(4, 1));
+		top.offer(new PairOfInts(3, 2));
+		top.offer(new PairOfInts(2, 2));
+		top.offer(new PairOfInts(5, 2));
+		top.offer(new PairOfInts(1, 1));
+
+		List<PairOfInts> list = top.toSortedList();
+		assertEquals(new PairOfInts(2, 2), list.get(0));
+		assertEquals(new PairOfInts(3, 2), list.get(1));
+		assertEquals(new PairOfInts(5, 2), list.get(2));
+	}
+
+	@Test
+	public void testRandom() {
+		Random r = new Random(42);
+
+		for (int trial = 0; trial < 20; trial++) {
+			int n = r.nextInt(1000);
+			int k = r.nextInt(50);
+
+			List<PairOfInts> all = new ArrayList<PairOfInts>();
+			TopK<PairOfInts> top = new TopK<PairOfInts>(k, BY_VALUE);
+			for (int i = 0; i < n; i++) {
+				// few distinct values, so there are lots of ties
+				PairOfInts p = new PairOfInts(i, r.nextInt(20));
+				all.add(p);
+				top.offer(p);
+			}
+
+			Collections.sort(all, BY_VALUE);
+			assertEquals(all.subList(0, Math.min(k, n)), top.toSortedList());
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TopKTest.class);
+	}
+}
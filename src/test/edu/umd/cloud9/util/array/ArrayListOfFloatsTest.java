@@ -241,6 +241,33 @@ public class ArrayListOfFloatsTest {
 		assertEquals(12.0f, list.get(5), 10e-6);
 	}
 
+	@Test
+	public void testSort() {
+		Random r = new Random();
+		ArrayListOfFloats list = new ArrayListOfFloats();
+		ArrayListOfInts ids = new ArrayListOfInts();
+		for (int i = 0; i < 100000; i++) {
+			list.add(r.nextFloat());
+			ids.add(i);
+		}
+		ArrayListOfFloats original = list.clone();
+
+		list.sort(ids, 2);
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(original.get(ids.get(i)), list.get(i), 0.0f);
+			if (i > 0) {
+				assertTrue(list.get(i - 1) <= list.get(i));
+			}
+		}
+
+		list = original.clone();
+		list.add((float) 0);
+		list.sort();
+		for (int i = 1; i < list.size(); i++) {
+			assertTrue(list.get(i - 1) <= list.get(i));
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(ArrayListOfFloatsTest.class);
 	}
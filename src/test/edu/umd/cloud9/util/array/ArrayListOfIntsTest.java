@@ -265,6 +265,33 @@ public class ArrayListOfIntsTest {
 		assertEquals(12, list.get(5));
 	}
 
+	@Test
+	public void testSort() {
+		Random r = new Random();
+		ArrayListOfInts list = new ArrayListOfInts();
+		ArrayListOfInts ids = new ArrayListOfInts();
+		for (int i = 0; i < 100000; i++) {
+			list.add(r.nextInt());
+			ids.add(i);
+		}
+		ArrayListOfInts original = list.clone();
+
+		list.sort(ids, 2);
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(original.get(ids.get(i)), list.get(i));
+			if (i > 0) {
+				assertTrue(list.get(i - 1) <= list.get(i));
+			}
+		}
+
+		list = original.clone();
+		list.add(0);
+		list.sort();
+		for (int i = 1; i < list.size(); i++) {
+			assertTrue(list.get(i - 1) <= list.get(i));
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(ArrayListOfIntsTest.class);
 	}
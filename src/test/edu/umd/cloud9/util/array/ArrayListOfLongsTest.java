@@ -246,6 +246,33 @@ public class ArrayListOfLongsTest {
 		assertEquals(12L, list.get(5));
 	}
 
+	@Test
+	public void testSort() {
+		Random r = new Random();
+		ArrayListOfLongs list = new ArrayListOfLongs();
+		ArrayListOfInts ids = new ArrayListOfInts();
+		for (int i = 0; i < 100000; i++) {
+			list.add(r.nextLong());
+			ids.add(i);
+		}
+		ArrayListOfLongs original = list.clone();
+
+		list.sort(ids, 2);
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(original.get(ids.get(i)), list.get(i));
+			if (i > 0) {
+				assertTrue(list.get(i - 1) <= list.get(i));
+			}
+		}
+
+		list = original.clone();
+		list.add((long) 0);
+		list.sort();
+		for (int i = 1; i < list.size(); i++) {
+			assertTrue(list.get(i - 1) <= list.get(i));
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(ArrayListOfLongsTest.class);
 	}
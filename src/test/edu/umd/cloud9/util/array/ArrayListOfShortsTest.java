@@ -247,6 +247,22 @@ public class ArrayListOfShortsTest {
 		assertEquals(12, list.get(5));
 	}
 
+	@Test
+	public void testSort() {
+		ArrayListOfShorts list = new ArrayListOfShorts();
+		list.add((short) 3);
+		list.add((short) -1);
+		list.add((short) 2);
+		list.add((short) 3);
+
+		list.sort();
+		assertEquals(4, list.size());
+		assertEquals(-1, list.get(0));
+		assertEquals(2, list.get(1));
+		assertEquals(3, list.get(2));
+		assertEquals(3, list.get(3));
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(ArrayListOfShortsTest.class);
 	}
@@ -0,0 +1,220 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.array.CompressedArrayOfInts.Codec;
+
+public class CompressedArrayOfIntsTest {
+
+	private static final int[] SIZES = { 0, 1, 2, 127, 128, 129, 1000, 4096 };
+
+	// sorted ids with small gaps, and the occasional large one
+	private static int[] sortedIds(Random r, int n) {
+		int[] a = new int[n];
+		int v = r.nextInt(1000);
+		for (int i = 0; i < n; i++) {
+			v += r.nextInt(20) == 0 ? r.nextInt(1000000) : r.nextInt(4);
+			a[i] = v;
+		}
+		return a;
+	}
+
+	private static void assertRoundTrip(int[] values, boolean sorted, Codec codec) {
+		CompressedArrayOfInts a = new CompressedArrayOfInts(values, sorted, codec);
+
+		assertEquals(values.length, a.size());
+		assertEquals(values.length == 0, a.isEmpty());
+		assertEquals(sorted, a.isSorted());
+		assertEquals(codec, a.getCodec());
+		assertArrayEquals(values, a.toArray());
+
+		CompressedArrayOfInts.Cursor cursor = a.cursor();
+		for (int i = 0; i < values.length; i++) {
+			assertTrue(cursor.hasNext());
+			assertEquals(values[i], cursor.next());
+		}
+		assertFalse(cursor.hasNext());
+
+		for (int i = 0; i < values.length; i += 37) {
+			assertEquals(values[i], a.get(i));
+		}
+	}
+
+	@Test
+	public void testSorted() {
+		Random r = new Random(1);
+		for (Codec codec : Codec.values()) {
+			for (int n : SIZES) {
+				assertRoundTrip(sortedIds(r, n), true, codec);
+			}
+		}
+	}
+
+	@Test
+	public void testUnsorted() {
+		Random r = new Random(2);
+		for (Codec codec : Codec.values()) {
+			for (int n : SIZES) {
+				int[] a = new int[n];
+				for (int i = 0; i < n; i++) {
+					a[i] = r.nextInt(10) == 0 ? r.nextInt() : r.nextInt(300);
+				}
+				assertRoundTrip(a, false, codec);
+			}
+		}
+	}
+
+	@Test
+	public void testExtremes() {
+		int[] sorted = { Integer.MIN_VALUE, Integer.MIN_VALUE, -1, 0, 0, 1, Integer.MAX_VALUE };
+		int[] unsorted = { 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 1, 0, 255, 256 };
+		for (Codec codec : Codec.values()) {
+			assertRoundTrip(sorted, true, codec);
+			assertRoundTrip(sorted, false, codec);
+			assertRoundTrip(unsorted, false, codec);
+			assertRoundTrip(new int[300], true, codec);
+		}
+	}
+
+	@Test
+	public void testCompression() {
+		// dense ids: gaps of 1 to 3
+		Random r = new Random(3);
+		int[] a = new int[10000];
+		int v = 5000000;
+		for (int i = 0; i < a.length; i++) {
+			v += 1 + r.nextInt(3);
+			a[i] = v;
+		}
+
+		CompressedArrayOfInts vbyte = new CompressedArrayOfInts(a, true, Codec.VBYTE);
+		CompressedArrayOfInts pfor = new CompressedArrayOfInts(a, true, Codec.PFOR);
+
+		assertTrue(vbyte.getCompressedSize() <= a.length + 4);
+		assertTrue(pfor.getCompressedSize() < a.length / 3);
+
+		// same ids, unsorted: no gaps to code
+		CompressedArrayOfInts raw = new CompressedArrayOfInts(a, false, Codec.VBYTE);
+		assertTrue(raw.getCompressedSize() >= 3 * a.length);
+	}
+
+	@Test
+	public void testSkipTo() {
+		Random r = new Random(4);
+		for (Codec codec : Codec.values()) {
+			int[] values = sortedIds(r, 5000);
+			CompressedArrayOfInts a = new CompressedArrayOfInts(values, true, codec);
+
+			for (int trial = 0; trial < 100; trial++) {
+				CompressedArrayOfInts.Cursor cursor = a.cursor();
+				int pos = 0;
+				int target = values[0] - 10;
+				while (true) {
+					target += r.nextInt(r.nextBoolean() ? 50 : 50000);
+					while (pos < values.length && values[pos] < target) {
+						pos++;
+					}
+
+					if (pos == values.length) {
+						assertFalse(cursor.skipTo(target));
+						assertFalse(cursor.hasNext());
+						break;
+					}
+
+					assertTrue(cursor.skipTo(target));
+					assertEquals(values[pos], cursor.next());
+					pos++;
+
+					// the cursor doesn't move backwards
+					if (pos < values.length && r.nextInt(10) == 0) {
+						assertTrue(cursor.skipTo(values[0]));
+						assertEquals(values[pos], cursor.next());
+						pos++;
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSkipToDuplicates() {
+		int[] values = new int[1000];
+		Arrays.fill(values, 0, 500, 7);
+		Arrays.fill(values, 500, 1000, 9);
+
+		CompressedArrayOfInts.Cursor cursor = new CompressedArrayOfInts(values, true, Codec.PFOR)
+				.cursor();
+		assertTrue(cursor.skipTo(8));
+		assertEquals(9, cursor.next());
+		assertTrue(cursor.skipTo(9));
+		assertEquals(9, cursor.next());
+		assertFalse(cursor.skipTo(10));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSkipToUnsorted() {
+		new CompressedArrayOfInts(new int[] { 3, 1, 2 }, false, Codec.VBYTE).cursor().skipTo(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotSorted() {
+		new CompressedArrayOfInts(new int[] { 1, 3, 2 }, true, Codec.VBYTE);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNextPastEnd() {
+		CompressedArrayOfInts.Cursor cursor = new CompressedArrayOfInts(new int[] { 1 }, true,
+				Codec.VBYTE).cursor();
+		cursor.next();
+		cursor.next();
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testGetOutOfBounds() {
+		new CompressedArrayOfInts(new int[] { 1 }, true, Codec.VBYTE).get(1);
+	}
+
+	@Test
+	public void testArrayListOfInts() {
+		ArrayListOfInts list = new ArrayListOfInts();
+		for (int i = 0; i < 300; i++) {
+			list.add(i * 2);
+		}
+
+		CompressedArrayOfInts a = new CompressedArrayOfInts(list, true, Codec.PFOR);
+		assertEquals(300, a.size());
+		assertEquals(list.size(), a.toArrayListOfInts().size());
+		assertArrayEquals(Arrays.copyOf(list.getArray(), list.size()), a.toArray());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(CompressedArrayOfIntsTest.class);
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+public class MappedArrayOfDoublesTest {
+	// small segments, so that arrays span several of them
+	private static final int SHIFT = 6;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("doubles", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		int size = 1000;
+		Random r = new Random(0);
+		double[] values = new double[size];
+
+		MappedArrayOfDoubles a = MappedArrayOfDoubles.create(file, size, SHIFT);
+		assertEquals(size, a.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(0.0, a.get(i), 0.0);
+			values[i] = r.nextDouble();
+			a.set(i, values[i]);
+		}
+
+		for (int i = 0; i < size; i++) {
+			assertEquals(values[i], a.get(i), 0.0);
+		}
+
+		assertEquals(values[7] + 1.5, a.increment(7, 1.5), 0.0);
+		assertEquals(values[7] + 1.5, a.get(7), 0.0);
+		a.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		int size = 1000;
+		MappedArrayOfDoubles a = MappedArrayOfDoubles.create(file, size, SHIFT);
+		for (int i = 0; i < size; i++) {
+			a.set(i, i * 0.5);
+		}
+		a.flush();
+		a.close();
+
+		// the file doesn't depend on how it is segmented
+		MappedArrayOfDoubles b = MappedArrayOfDoubles.open(file, true);
+		assertEquals(size, b.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(i * 0.5, b.get(i), 0.0);
+		}
+
+		try {
+			b.set(0, 1.0);
+			fail();
+		} catch (ReadOnlyBufferException e) {
+		}
+		b.close();
+
+		MappedArrayOfDoubles c = MappedArrayOfDoubles.open(file, false, SHIFT + 1);
+		c.set(999, 1.0);
+		c.close();
+
+		MappedArrayOfDoubles d = MappedArrayOfDoubles.open(file);
+		assertEquals(1.0, d.get(999), 0.0);
+		assertEquals(499.0, d.get(998), 0.0);
+		d.close();
+	}
+
+	@Test
+	public void testBulk() throws IOException {
+		int size = 1000;
+		MappedArrayOfDoubles a = MappedArrayOfDoubles.allocate(size, SHIFT);
+
+		double[] src = new double[300];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = i + 1;
+		}
+		// across several segments, from the middle of one
+		a.set(100, src, 0, src.length);
+		for (int i = 0; i < size; i++) {
+			assertEquals(i >= 100 && i < 400 ? i - 99 : 0, a.get(i), 0.0);
+		}
+
+		double[] dst = new double[310];
+		a.get(95, dst, 5, 305);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0.0, dst[i], 0.0);
+		}
+		for (int i = 5; i < 310; i++) {
+			assertEquals(i < 10 ? 0 : i - 9, dst[i], 0.0);
+		}
+
+		ArrayListOfDoubles list = a.get(390, 20);
+		assertEquals(20, list.size());
+		assertEquals(291.0, list.get(0), 0.0);
+		assertEquals(0.0, list.get(19), 0.0);
+
+		a.set(980, list);
+		assertEquals(291.0, a.get(980), 0.0);
+		assertEquals(300.0, a.get(989), 0.0);
+
+		a.fill(2.0);
+		for (int i = 0; i < size; i++) {
+			assertEquals(2.0, a.get(i), 0.0);
+		}
+		a.close();
+	}
+
+	@Test
+	public void testOutOfBounds() throws IOException {
+		MappedArrayOfDoubles a = MappedArrayOfDoubles.allocate(100, SHIFT);
+
+		try {
+			a.get(100);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.set(-1, 0.0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.get(90, new double[20], 0, 20);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+		a.close();
+	}
+
+	@Test
+	public void testNotAnArray() throws IOException {
+		try {
+			MappedArrayOfDoubles.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testWrongType() throws IOException {
+		MappedArrayOfFloats.create(file, 10).close();
+		try {
+			MappedArrayOfDoubles.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(MappedArrayOfDoublesTest.class);
+	}
+}
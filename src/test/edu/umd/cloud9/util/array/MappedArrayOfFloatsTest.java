@@ -0,0 +1,202 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umd.cloud9.io.array.ArrayOfFloatsWritable;
+
+public class MappedArrayOfFloatsTest {
+	// small segments, so that arrays span several of them
+	private static final int SHIFT = 6;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("floats", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		int size = 1000;
+		Random r = new Random(0);
+		float[] floats = new float[size];
+
+		MappedArrayOfFloats a = MappedArrayOfFloats.create(file, size, SHIFT);
+		assertEquals(size, a.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(0.0f, a.get(i), 0.0f);
+			floats[i] = r.nextFloat();
+			a.set(i, floats[i]);
+		}
+
+		for (int i = 0; i < size; i++) {
+			assertEquals(floats[i], a.get(i), 0.0f);
+		}
+
+		assertEquals(floats[7] + 1.5f, a.increment(7, 1.5f), 0.0f);
+		assertEquals(floats[7] + 1.5f, a.get(7), 0.0f);
+		a.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		int size = 1000;
+		MappedArrayOfFloats a = MappedArrayOfFloats.create(file, size, SHIFT);
+		for (int i = 0; i < size; i++) {
+			a.set(i, i * 0.5f);
+		}
+		a.flush();
+		a.close();
+
+		// the file doesn't depend on how it is segmented
+		MappedArrayOfFloats b = MappedArrayOfFloats.open(file, true);
+		assertEquals(size, b.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(i * 0.5f, b.get(i), 0.0f);
+		}
+
+		try {
+			b.set(0, 1.0f);
+			fail();
+		} catch (ReadOnlyBufferException e) {
+		}
+		b.close();
+
+		MappedArrayOfFloats c = MappedArrayOfFloats.open(file, false, SHIFT + 1);
+		c.set(999, 1.0f);
+		c.close();
+
+		MappedArrayOfFloats d = MappedArrayOfFloats.open(file);
+		assertEquals(1.0f, d.get(999), 0.0f);
+		assertEquals(499.0f, d.get(998), 0.0f);
+		d.close();
+	}
+
+	@Test
+	public void testBulk() throws IOException {
+		int size = 1000;
+		MappedArrayOfFloats a = MappedArrayOfFloats.allocate(size, SHIFT);
+
+		float[] src = new float[300];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = i + 1;
+		}
+		// across several segments, from the middle of one
+		a.set(100, src, 0, src.length);
+		for (int i = 0; i < size; i++) {
+			assertEquals(i >= 100 && i < 400 ? i - 99 : 0, a.get(i), 0.0f);
+		}
+
+		float[] dst = new float[310];
+		a.get(95, dst, 5, 305);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0.0f, dst[i], 0.0f);
+		}
+		for (int i = 5; i < 310; i++) {
+			assertEquals(i < 10 ? 0 : i - 9, dst[i], 0.0f);
+		}
+
+		ArrayListOfFloats list = a.get(390, 20);
+		assertEquals(20, list.size());
+		assertEquals(291.0f, list.get(0), 0.0f);
+		assertEquals(0.0f, list.get(19), 0.0f);
+
+		a.set(980, list);
+		assertEquals(291.0f, a.get(980), 0.0f);
+		assertEquals(300.0f, a.get(989), 0.0f);
+
+		a.fill(2.0f);
+		for (int i = 0; i < size; i++) {
+			assertEquals(2.0f, a.get(i), 0.0f);
+		}
+		a.close();
+	}
+
+	@Test
+	public void testWritable() throws IOException {
+		MappedArrayOfFloats a = MappedArrayOfFloats.create(file, 200, SHIFT);
+
+		ArrayOfFloatsWritable w = new ArrayOfFloatsWritable(100);
+		for (int i = 0; i < 100; i++) {
+			w.set(i, i);
+		}
+		a.set(50, w);
+
+		ArrayOfFloatsWritable v = new ArrayOfFloatsWritable(150);
+		a.get(50, v);
+		for (int i = 0; i < 150; i++) {
+			assertEquals(i < 100 ? i : 0, v.get(i), 0.0f);
+		}
+		a.close();
+	}
+
+	@Test
+	public void testOutOfBounds() throws IOException {
+		MappedArrayOfFloats a = MappedArrayOfFloats.allocate(100, SHIFT);
+
+		try {
+			a.get(100);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.set(-1, 0.0f);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.get(90, new float[20], 0, 20);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+		a.close();
+	}
+
+	@Test
+	public void testNotAnArray() throws IOException {
+		try {
+			MappedArrayOfFloats.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(MappedArrayOfFloatsTest.class);
+	}
+}
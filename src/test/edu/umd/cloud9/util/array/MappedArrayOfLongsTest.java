@@ -0,0 +1,191 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+public class MappedArrayOfLongsTest {
+	// small segments, so that arrays span several of them
+	private static final int SHIFT = 6;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("longs", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		int size = 1000;
+		Random r = new Random(0);
+		long[] values = new long[size];
+
+		MappedArrayOfLongs a = MappedArrayOfLongs.create(file, size, SHIFT);
+		assertEquals(size, a.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(0L, a.get(i));
+			values[i] = r.nextLong();
+			a.set(i, values[i]);
+		}
+
+		for (int i = 0; i < size; i++) {
+			assertEquals(values[i], a.get(i));
+		}
+
+		assertEquals(values[7] + 15L, a.increment(7, 15L));
+		assertEquals(values[7] + 15L, a.get(7));
+		a.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		int size = 1000;
+		MappedArrayOfLongs a = MappedArrayOfLongs.create(file, size, SHIFT);
+		for (int i = 0; i < size; i++) {
+			a.set(i, i * 5L);
+		}
+		a.flush();
+		a.close();
+
+		// the file doesn't depend on how it is segmented
+		MappedArrayOfLongs b = MappedArrayOfLongs.open(file, true);
+		assertEquals(size, b.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(i * 5L, b.get(i));
+		}
+
+		try {
+			b.set(0, 1L);
+			fail();
+		} catch (ReadOnlyBufferException e) {
+		}
+		b.close();
+
+		MappedArrayOfLongs c = MappedArrayOfLongs.open(file, false, SHIFT + 1);
+		c.set(999, 1L);
+		c.close();
+
+		MappedArrayOfLongs d = MappedArrayOfLongs.open(file);
+		assertEquals(1L, d.get(999));
+		assertEquals(4990L, d.get(998));
+		d.close();
+	}
+
+	@Test
+	public void testBulk() throws IOException {
+		int size = 1000;
+		MappedArrayOfLongs a = MappedArrayOfLongs.allocate(size, SHIFT);
+
+		long[] src = new long[300];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = i + 1;
+		}
+		// across several segments, from the middle of one
+		a.set(100, src, 0, src.length);
+		for (int i = 0; i < size; i++) {
+			assertEquals(i >= 100 && i < 400 ? i - 99 : 0, a.get(i));
+		}
+
+		long[] dst = new long[310];
+		a.get(95, dst, 5, 305);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0L, dst[i]);
+		}
+		for (int i = 5; i < 310; i++) {
+			assertEquals(i < 10 ? 0 : i - 9, dst[i]);
+		}
+
+		ArrayListOfLongs list = a.get(390, 20);
+		assertEquals(20, list.size());
+		assertEquals(291L, list.get(0));
+		assertEquals(0L, list.get(19));
+
+		a.set(980, list);
+		assertEquals(291L, a.get(980));
+		assertEquals(300L, a.get(989));
+
+		a.fill(2L);
+		for (int i = 0; i < size; i++) {
+			assertEquals(2L, a.get(i));
+		}
+		a.close();
+	}
+
+	@Test
+	public void testOutOfBounds() throws IOException {
+		MappedArrayOfLongs a = MappedArrayOfLongs.allocate(100, SHIFT);
+
+		try {
+			a.get(100);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.set(-1, 0L);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			a.get(90, new long[20], 0, 20);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+		a.close();
+	}
+
+	@Test
+	public void testNotAnArray() throws IOException {
+		try {
+			MappedArrayOfLongs.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testWrongType() throws IOException {
+		MappedArrayOfFloats.create(file, 10).close();
+		try {
+			MappedArrayOfLongs.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(MappedArrayOfLongsTest.class);
+	}
+}
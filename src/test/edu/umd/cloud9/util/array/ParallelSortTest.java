@@ -0,0 +1,265 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class ParallelSortTest {
+	// below and above the size at which the radix sort takes over
+	private static final int[] SIZES = { 0, 1, 100, 70000, 300000 };
+
+	@Test
+	public void testInts() {
+		Random r = new Random(0);
+		for (int size : SIZES) {
+			for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+				int[] a = new int[size];
+				for (int i = 0; i < size; i++) {
+					a[i] = r.nextInt();
+				}
+				if (size > 2) {
+					a[0] = Integer.MIN_VALUE;
+					a[1] = Integer.MAX_VALUE;
+				}
+				int[] expected = a.clone();
+				Arrays.sort(expected);
+
+				ParallelSort.sort(a, 0, size, numThreads);
+				assertArrayEquals(expected, a);
+			}
+		}
+	}
+
+	@Test
+	public void testLongs() {
+		Random r = new Random(0);
+		for (int size : SIZES) {
+			for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+				long[] a = new long[size];
+				long[] b = new long[size];
+				for (int i = 0; i < size; i++) {
+					a[i] = r.nextLong();
+					// most passes are skipped, an odd number of them run
+					b[i] = r.nextInt(1 << 16) | (i % 2 == 0 ? 0 : 1L << 40);
+				}
+				long[] expectedA = a.clone();
+				Arrays.sort(expectedA);
+				long[] expectedB = b.clone();
+				Arrays.sort(expectedB);
+
+				ParallelSort.sort(a, 0, size, numThreads);
+				assertArrayEquals(expectedA, a);
+				ParallelSort.sort(b, 0, size, numThreads);
+				assertArrayEquals(expectedB, b);
+			}
+		}
+	}
+
+	@Test
+	public void testFloats() {
+		Random r = new Random(0);
+		float[] special = { -0.0f, 0.0f, Float.NaN, Float.NEGATIVE_INFINITY,
+				Float.POSITIVE_INFINITY, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE,
+				-Float.MAX_VALUE };
+		for (int size : SIZES) {
+			for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+				float[] a = new float[size];
+				for (int i = 0; i < size; i++) {
+					a[i] = (float) r.nextGaussian();
+				}
+				for (int i = 0; i < special.length && i < size; i++) {
+					a[r.nextInt(size)] = special[i];
+				}
+				float[] expected = a.clone();
+				Arrays.sort(expected);
+
+				ParallelSort.sort(a, 0, size, numThreads);
+				for (int i = 0; i < size; i++) {
+					assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(a[i]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDoubles() {
+		Random r = new Random(0);
+		double[] special = { -0.0, 0.0, Double.NaN, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE };
+		for (int size : SIZES) {
+			for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+				double[] a = new double[size];
+				for (int i = 0; i < size; i++) {
+					a[i] = r.nextGaussian();
+				}
+				for (int i = 0; i < special.length && i < size; i++) {
+					a[r.nextInt(size)] = special[i];
+				}
+				double[] expected = a.clone();
+				Arrays.sort(expected);
+
+				ParallelSort.sort(a, 0, size, numThreads);
+				for (int i = 0; i < size; i++) {
+					assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(a[i]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRange() {
+		Random r = new Random(0);
+		int size = 200000;
+		int[] a = new int[size];
+		for (int i = 0; i < size; i++) {
+			a[i] = r.nextInt();
+		}
+		int[] expected = a.clone();
+		Arrays.sort(expected, 1000, 150000);
+
+		ParallelSort.sort(a, 1000, 150000, 3);
+		assertArrayEquals(expected, a);
+
+		float[] f = new float[size];
+		for (int i = 0; i < size; i++) {
+			f[i] = r.nextFloat() - 0.5f;
+		}
+		float[] expectedF = f.clone();
+		Arrays.sort(expectedF, 1000, 150000);
+
+		ParallelSort.sort(f, 1000, 150000, 3);
+		assertTrue(Arrays.equals(expectedF, f));
+	}
+
+	@Test
+	public void testSortByKey() {
+		Random r = new Random(0);
+		for (int size : SIZES) {
+			for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+				// few distinct keys, so that stability matters
+				int[] ik = new int[size];
+				long[] lk = new long[size];
+				float[] fk = new float[size];
+				double[] dk = new double[size];
+				for (int i = 0; i < size; i++) {
+					ik[i] = r.nextInt(200) - 100;
+					lk[i] = ik[i] * (1L << 35);
+					fk[i] = ik[i] / 8.0f;
+					dk[i] = ik[i] / 8.0;
+				}
+
+				int[] ids = ids(size);
+				ParallelSort.sortByKey(ik, ids, 0, size, numThreads);
+				checkSortedByKey(ik, ids);
+
+				int[] keys = ids.clone();
+				ids = ids(size);
+				ParallelSort.sortByKey(lk, ids, 0, size, numThreads);
+				assertArrayEquals(keys, ids);
+
+				ids = ids(size);
+				ParallelSort.sortByKey(fk, ids, 0, size, numThreads);
+				assertArrayEquals(keys, ids);
+
+				ids = ids(size);
+				ParallelSort.sortByKey(dk, ids, 0, size, numThreads);
+				assertArrayEquals(keys, ids);
+			}
+		}
+	}
+
+	@Test
+	public void testSortByKeyRange() {
+		Random r = new Random(0);
+		int size = 100000;
+		float[] scores = new float[size];
+		for (int i = 0; i < size; i++) {
+			scores[i] = r.nextFloat();
+		}
+		float[] original = scores.clone();
+		int[] ids = ids(size);
+
+		ParallelSort.sortByKey(scores, ids, 10, 90000, 2);
+		for (int i = 0; i < size; i++) {
+			assertEquals(original[ids[i]], scores[i], 0.0f);
+			if (i < 10 || i >= 90000) {
+				assertEquals(i, ids[i]);
+			} else if (i > 10) {
+				assertTrue(scores[i - 1] <= scores[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testIllegalArguments() {
+		try {
+			ParallelSort.sort(new int[10], 0, 11, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			ParallelSort.sort(new long[10], 5, 4, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			ParallelSort.sortByKey(new int[10], new int[5], 0, 10, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		try {
+			ParallelSort.sort(new float[10], 0, 10, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private static int[] ids(int size) {
+		int[] ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+		return ids;
+	}
+
+	// keys in order, and ids in order for equal keys
+	private static void checkSortedByKey(int[] keys, int[] ids) {
+		for (int i = 1; i < keys.length; i++) {
+			assertTrue(keys[i - 1] <= keys[i]);
+			if (keys[i - 1] == keys[i]) {
+				assertTrue(ids[i - 1] < ids[i]);
+			}
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ParallelSortTest.class);
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.array;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class SortedIntSetsTest {
+
+	private static int[] randomSet(Random r, int n, int range) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		while (set.size() < n) {
+			set.add(r.nextInt(range) - range / 4);
+		}
+		return toArray(set);
+	}
+
+	private static int[] toArray(TreeSet<Integer> set) {
+		int[] a = new int[set.size()];
+		int i = 0;
+		for (int v : set) {
+			a[i++] = v;
+		}
+		return a;
+	}
+
+	private static TreeSet<Integer> toSet(int[] a) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for (int v : a) {
+			set.add(v);
+		}
+		return set;
+	}
+
+	@Test
+	public void testGallop() {
+		int[] a = { 1, 3, 3, 5, 8, 13, 21, 34, 55 };
+		for (int from = 0; from <= a.length; from++) {
+			for (int key = -1; key < 60; key++) {
+				int expected = from;
+				while (expected < a.length && a[expected] < key) {
+					expected++;
+				}
+				assertEquals(expected, SortedIntSets.gallop(a, from, a.length, key));
+			}
+		}
+		assertEquals(4, SortedIntSets.gallop(a, 0, 4, 100));
+	}
+
+	@Test
+	public void testRandom() {
+		Random r = new Random(1);
+		int[][] shapes = { { 0, 0 }, { 0, 10 }, { 1, 1 }, { 10, 10 }, { 100, 100 }, { 5, 1000 },
+				{ 1000, 5 }, { 50, 5000 }, { 3000, 3000 } };
+
+		for (int[] shape : shapes) {
+			for (int trial = 0; trial < 10; trial++) {
+				int range = 4 * (shape[0] + shape[1]) + 10;
+				int[] a = randomSet(r, shape[0], range);
+				int[] b = randomSet(r, shape[1], range);
+
+				TreeSet<Integer> and = toSet(a);
+				and.retainAll(toSet(b));
+				TreeSet<Integer> or = toSet(a);
+				or.addAll(toSet(b));
+				TreeSet<Integer> not = toSet(a);
+				not.removeAll(toSet(b));
+
+				int[] out = new int[a.length + b.length];
+				int n = SortedIntSets.intersect(a, a.length, b, b.length, out);
+				assertArrayEquals(toArray(and), Arrays.copyOf(out, n));
+				n = SortedIntSets.intersectMerge(a, 0, a.length, b, 0, b.length, out, 0);
+				assertArrayEquals(toArray(and), Arrays.copyOf(out, n));
+				n = SortedIntSets.intersectGallop(a, 0, a.length, b, 0, b.length, out, 0);
+				assertArrayEquals(toArray(and), Arrays.copyOf(out, n));
+				n = SortedIntSets.intersectGallop(b, 0, b.length, a, 0, a.length, out, 0);
+				assertArrayEquals(toArray(and), Arrays.copyOf(out, n));
+
+				n = SortedIntSets.union(a, a.length, b, b.length, out);
+				assertArrayEquals(toArray(or), Arrays.copyOf(out, n));
+
+				n = SortedIntSets.difference(a, a.length, b, b.length, out);
+				assertArrayEquals(toArray(not), Arrays.copyOf(out, n));
+			}
+		}
+	}
+
+	@Test
+	public void testRanges() {
+		int[] a = { 100, 1, 2, 3, 4, 5, 6, 100 };
+		int[] b = { -1, -1, 2, 4, 6, 8 };
+		int[] out = { 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9 };
+
+		assertEquals(3, SortedIntSets.intersect(a, 1, 7, b, 2, 6, out, 1));
+		assertArrayEquals(new int[] { 9, 2, 4, 6, 9 }, Arrays.copyOf(out, 5));
+
+		assertEquals(7, SortedIntSets.union(a, 1, 7, b, 2, 6, out, 2));
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 8 }, Arrays.copyOfRange(out, 2, 9));
+
+		assertEquals(3, SortedIntSets.difference(a, 1, 7, b, 2, 6, out, 0));
+		assertArrayEquals(new int[] { 1, 3, 5 }, Arrays.copyOf(out, 3));
+	}
+
+	@Test
+	public void testInPlace() {
+		Random r = new Random(2);
+		for (int[] shape : new int[][] { { 100, 120 }, { 3000, 20 }, { 20, 3000 } }) {
+			int[] a = randomSet(r, shape[0], 4000);
+			int[] b = randomSet(r, shape[1], 4000);
+
+			TreeSet<Integer> and = toSet(a);
+			and.retainAll(toSet(b));
+			int[] c = a.clone();
+			int n = SortedIntSets.intersect(c, c.length, b, b.length, c);
+			assertArrayEquals(toArray(and), Arrays.copyOf(c, n));
+
+			TreeSet<Integer> not = toSet(a);
+			not.removeAll(toSet(b));
+			c = a.clone();
+			n = SortedIntSets.difference(c, c.length, b, b.length, c);
+			assertArrayEquals(toArray(not), Arrays.copyOf(c, n));
+		}
+	}
+
+	@Test
+	public void testIntersectAll() {
+		Random r = new Random(3);
+		for (int k = 0; k <= 5; k++) {
+			int[][] sets = new int[k][];
+			int[] sizes = new int[k];
+			TreeSet<Integer> and = null;
+			int min = Integer.MAX_VALUE;
+			for (int i = 0; i < k; i++) {
+				// padded, to check that sizes are respected
+				int[] set = randomSet(r, 50 + r.nextInt(2000), 3000);
+				sets[i] = Arrays.copyOf(set, set.length + 10);
+				sizes[i] = set.length;
+				min = Math.min(min, set.length);
+
+				if (and == null) {
+					and = toSet(set);
+				} else {
+					and.retainAll(toSet(set));
+				}
+			}
+
+			int[] out = new int[k == 0 ? 0 : min];
+			int n = SortedIntSets.intersectAll(sets, sizes, out);
+			assertArrayEquals(k == 0 ? new int[0] : toArray(and), Arrays.copyOf(out, n));
+		}
+	}
+
+	@Test
+	public void testArrayListOfInts() {
+		ArrayListOfInts a = new ArrayListOfInts(new int[] { 1, 3, 5, 7, 9 });
+		ArrayListOfInts b = new ArrayListOfInts(new int[] { 3, 4, 5, 10 });
+		ArrayListOfInts out = new ArrayListOfInts(new int[] { 42, 42, 42, 42, 42, 42, 42, 42, 42, 42 });
+
+		SortedIntSets.intersect(a, b, out);
+		assertEquals(2, out.size());
+		assertEquals(3, out.get(0));
+		assertEquals(5, out.get(1));
+
+		SortedIntSets.union(a, b, out);
+		assertEquals(7, out.size());
+		assertEquals("[1, 3, 4, 5, 7, 9, 10]", out.toString());
+
+		SortedIntSets.difference(a, b, out);
+		assertEquals("[1, 7, 9]", out.toString());
+
+		// in place
+		SortedIntSets.intersect(a, b, a);
+		assertEquals("[3, 5]", a.toString());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SortedIntSetsTest.class);
+	}
+}
@@ -5,29 +5,54 @@ import java.util.Random;
 import edu.umd.cloud9.debug.MemoryUsageUtils;
 import edu.umd.cloud9.util.map.HMapII;
 import edu.umd.cloud9.util.map.MapII;
+import edu.umd.cloud9.util.map.OHMapII;
 
 public class Benchmark2HMapII {
 
+	private static final int size = 5000000;
+
 	public static void main(String[] args) {
-		int size = 5000000;
-		long startTime;
-		long duration;
 		Random r = new Random();
 		int[] ints = new int[size];
+		for (int i = 0; i < size; i++) {
+			ints[i] = r.nextInt(size);
+		}
+
+		System.out.println("Benchmarking HMapII...");
+		benchmark(new Factory() {
+			public MapII create() {
+				return new HMapII();
+			}
+		}, ints);
+
+		System.out.println("Benchmarking OHMapII...");
+		benchmark(new Factory() {
+			public MapII create() {
+				return new OHMapII();
+			}
+		}, ints);
+	}
 
+	private interface Factory {
+		MapII create();
+	}
+
+	private static void benchmark(Factory factory, int[] ints) {
+		long startTime;
+		long duration;
+
+		MemoryUsageUtils.gc();
 		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
 
-		System.out.println("Benchmarking HMapII...");
-		MapII map = new HMapII();
+		MapII map = factory.create();
 
 		startTime = System.currentTimeMillis();
 		for (int i = 0; i < size; i++) {
-			int k = r.nextInt(size);
-			map.put(i, k);
-			ints[i] = k;
+			map.put(i, ints[i]);
 		}
 		duration = System.currentTimeMillis() - startTime;
-		System.out.println(" Inserting " + size + " random entries: " + duration + " ms");
+		System.out.println(" Inserting " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
 
 		startTime = System.currentTimeMillis();
 		for (int i = 0; i < size; i++) {
@@ -37,14 +62,24 @@ public class Benchmark2HMapII {
 				throw new RuntimeException("Values don't match!");
 		}
 		duration = System.currentTimeMillis() - startTime;
-		System.out.println(" Accessing " + size + " random entries: " + duration + " ms");
+		System.out.println(" Accessing " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
 
+		MemoryUsageUtils.gc();
 		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
 
-		System.out.println("Used memory before: " + usedMemory1);
-		System.out.println("Used memory after: " + usedMemory2);
-		System.out.println("Total memory usage: " + (usedMemory2 - usedMemory1));
-		System.out.println("Memory usage per map entry: "
-				+ ((float) (usedMemory2 - usedMemory1) / size));
+		System.out.println(" Used memory before: " + usedMemory1);
+		System.out.println(" Used memory after: " + usedMemory2);
+		System.out.println(" Total memory usage: " + (usedMemory2 - usedMemory1));
+		System.out.println(" Memory usage per map entry: "
+				+ ((float) (usedMemory2 - usedMemory1) / size) + " bytes");
+
+		// Make sure the map is live until memory has been measured.
+		if (map.size() != size)
+			throw new RuntimeException("Sizes don't match!");
+	}
+
+	private static long opsPerSec(int ops, long ms) {
+		return ms == 0 ? 0 : (long) (ops * 1000.0 / ms);
 	}
 }
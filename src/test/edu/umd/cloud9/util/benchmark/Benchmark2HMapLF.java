@@ -0,0 +1,118 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Random;
+
+import edu.umd.cloud9.debug.MemoryUsageUtils;
+import edu.umd.cloud9.util.map.HMapKF;
+import edu.umd.cloud9.util.map.HMapLF;
+
+/**
+ * Compares {@link HMapLF} against boxing the same keys into an
+ * {@link HMapKF}&lt;Long&gt;. Keys are random 64-bit values, like URL
+ * fingerprints or packed (termid, docno) pairs.
+ */
+public class Benchmark2HMapLF {
+
+	private static final int size = 5000000;
+
+	public static void main(String[] args) {
+		Random r = new Random();
+		long[] keys = new long[size];
+		float[] floats = new float[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = r.nextLong();
+			floats[i] = r.nextFloat();
+		}
+
+		System.out.println("Benchmarking HMapLF...");
+		benchmarkHMapLF(keys, floats);
+
+		System.out.println("Benchmarking HMapKF<Long>...");
+		benchmarkHMapKF(keys, floats);
+	}
+
+	private static void benchmarkHMapLF(long[] keys, float[] floats) {
+		long startTime;
+		long duration;
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		HMapLF map = new HMapLF();
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			map.put(keys[i], floats[i]);
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Inserting " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			float v = map.get(keys[i]);
+
+			if (v != floats[i])
+				throw new RuntimeException("Values don't match!");
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Accessing " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		reportMemory(usedMemory1);
+
+		// Make sure the map is live until memory has been measured.
+		if (map.size() != size)
+			throw new RuntimeException("Sizes don't match!");
+	}
+
+	private static void benchmarkHMapKF(long[] keys, float[] floats) {
+		long startTime;
+		long duration;
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		HMapKF<Long> map = new HMapKF<Long>();
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			map.put(keys[i], floats[i]);
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Inserting " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			float v = map.get(keys[i]);
+
+			if (v != floats[i])
+				throw new RuntimeException("Values don't match!");
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Accessing " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		reportMemory(usedMemory1);
+
+		// Make sure the map is live until memory has been measured.
+		if (map.size() != size)
+			throw new RuntimeException("Sizes don't match!");
+	}
+
+	private static void reportMemory(long usedMemory1) {
+		MemoryUsageUtils.gc();
+		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
+
+		System.out.println(" Used memory before: " + usedMemory1);
+		System.out.println(" Used memory after: " + usedMemory2);
+		System.out.println(" Total memory usage: " + (usedMemory2 - usedMemory1));
+		System.out.println(" Memory usage per map entry: "
+				+ ((float) (usedMemory2 - usedMemory1) / size) + " bytes");
+	}
+
+	private static long opsPerSec(int ops, long ms) {
+		return ms == 0 ? 0 : (long) (ops * 1000.0 / ms);
+	}
+}
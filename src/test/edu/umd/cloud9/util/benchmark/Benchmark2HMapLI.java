@@ -0,0 +1,118 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Random;
+
+import edu.umd.cloud9.debug.MemoryUsageUtils;
+import edu.umd.cloud9.util.map.HMapKI;
+import edu.umd.cloud9.util.map.HMapLI;
+
+/**
+ * Compares {@link HMapLI} against boxing the same keys into an
+ * {@link HMapKI}&lt;Long&gt;. Keys are random 64-bit values, like URL
+ * fingerprints or packed (termid, docno) pairs.
+ */
+public class Benchmark2HMapLI {
+
+	private static final int size = 5000000;
+
+	public static void main(String[] args) {
+		Random r = new Random();
+		long[] keys = new long[size];
+		int[] ints = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = r.nextLong();
+			ints[i] = r.nextInt(size);
+		}
+
+		System.out.println("Benchmarking HMapLI...");
+		benchmarkHMapLI(keys, ints);
+
+		System.out.println("Benchmarking HMapKI<Long>...");
+		benchmarkHMapKI(keys, ints);
+	}
+
+	private static void benchmarkHMapLI(long[] keys, int[] ints) {
+		long startTime;
+		long duration;
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		HMapLI map = new HMapLI();
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			map.put(keys[i], ints[i]);
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Inserting " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			int v = map.get(keys[i]);
+
+			if (v != ints[i])
+				throw new RuntimeException("Values don't match!");
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Accessing " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		reportMemory(usedMemory1);
+
+		// Make sure the map is live until memory has been measured.
+		if (map.size() != size)
+			throw new RuntimeException("Sizes don't match!");
+	}
+
+	private static void benchmarkHMapKI(long[] keys, int[] ints) {
+		long startTime;
+		long duration;
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		HMapKI<Long> map = new HMapKI<Long>();
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			map.put(keys[i], ints[i]);
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Inserting " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < size; i++) {
+			int v = map.get(keys[i]);
+
+			if (v != ints[i])
+				throw new RuntimeException("Values don't match!");
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Accessing " + size + " random entries: " + duration + " ms ("
+				+ opsPerSec(size, duration) + " ops/sec)");
+
+		reportMemory(usedMemory1);
+
+		// Make sure the map is live until memory has been measured.
+		if (map.size() != size)
+			throw new RuntimeException("Sizes don't match!");
+	}
+
+	private static void reportMemory(long usedMemory1) {
+		MemoryUsageUtils.gc();
+		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
+
+		System.out.println(" Used memory before: " + usedMemory1);
+		System.out.println(" Used memory after: " + usedMemory2);
+		System.out.println(" Total memory usage: " + (usedMemory2 - usedMemory1));
+		System.out.println(" Memory usage per map entry: "
+				+ ((float) (usedMemory2 - usedMemory1) / size) + " bytes");
+	}
+
+	private static long opsPerSec(int ops, long ms) {
+		return ms == 0 ? 0 : (long) (ops * 1000.0 / ms);
+	}
+}
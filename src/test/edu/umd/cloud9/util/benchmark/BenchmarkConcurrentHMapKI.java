@@ -0,0 +1,238 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Random;
+
+import edu.umd.cloud9.debug.MemoryUsageUtils;
+import edu.umd.cloud9.util.map.ConcurrentHMapIF;
+import edu.umd.cloud9.util.map.ConcurrentHMapII;
+import edu.umd.cloud9.util.map.ConcurrentHMapKI;
+import edu.umd.cloud9.util.map.HMapIF;
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.HMapKI;
+
+/**
+ * Compares multi-threaded in-mapper combining with a shared
+ * {@link ConcurrentHMapKI}, {@link ConcurrentHMapII} or
+ * {@link ConcurrentHMapIF} against per-thread {@link HMapKI}s, {@link HMapII}s
+ * or {@link HMapIF}s that are merged at the end. The int-keyed maps count the
+ * ids of the same terms. Usage: [threads] [tokens per thread] [vocabulary size]
+ */
+public class BenchmarkConcurrentHMapKI {
+
+	// Counts the tokens of each thread, either into a shared map or into a map
+	// per thread.
+	private static interface Counter {
+		void count(int thread);
+
+		// merges the per-thread maps, if any, and returns the number of terms
+		int merge();
+	}
+
+	private static interface Factory {
+		Counter create();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime()
+				.availableProcessors();
+		int numTokens = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+		int vocabSize = args.length > 2 ? Integer.parseInt(args[2]) : 500000;
+
+		// Skewed draws from the vocabulary, so that a few terms are hot as in text.
+		String[] vocab = new String[vocabSize];
+		for (int i = 0; i < vocabSize; i++) {
+			vocab[i] = "term" + i;
+		}
+		final String[][] tokens = new String[numThreads][numTokens];
+		final int[][] ids = new int[numThreads][numTokens];
+		Random r = new Random(0);
+		for (int t = 0; t < numThreads; t++) {
+			for (int i = 0; i < numTokens; i++) {
+				double d = r.nextDouble();
+				ids[t][i] = (int) (d * d * d * vocabSize);
+				tokens[t][i] = vocab[ids[t][i]];
+			}
+		}
+
+		System.out.println(numThreads + " threads, " + numTokens + " tokens per thread");
+
+		for (int run = 0; run < 3; run++) {
+			System.out.println("Run " + run + ":");
+
+			System.out.println(" Shared ConcurrentHMapKI...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					final ConcurrentHMapKI<String> map = new ConcurrentHMapKI<String>(
+							tokens.length * 4);
+					return new Counter() {
+						public void count(int thread) {
+							String[] words = tokens[thread];
+							for (int i = 0; i < words.length; i++) {
+								map.increment(words[i]);
+							}
+						}
+
+						public int merge() {
+							return map.size();
+						}
+					};
+				}
+			});
+
+			System.out.println(" Per-thread HMapKI merged at the end...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					@SuppressWarnings("unchecked")
+					final HMapKI<String>[] maps = new HMapKI[tokens.length];
+					return new Counter() {
+						public void count(int thread) {
+							String[] words = tokens[thread];
+							HMapKI<String> map = new HMapKI<String>();
+							for (int i = 0; i < words.length; i++) {
+								map.increment(words[i]);
+							}
+							maps[thread] = map;
+						}
+
+						public int merge() {
+							for (int t = 1; t < maps.length; t++) {
+								maps[0].plus(maps[t]);
+								maps[t] = null;
+							}
+							return maps[0].size();
+						}
+					};
+				}
+			});
+
+			System.out.println(" Shared ConcurrentHMapII...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					final ConcurrentHMapII map = new ConcurrentHMapII(ids.length * 4);
+					return new Counter() {
+						public void count(int thread) {
+							int[] terms = ids[thread];
+							for (int i = 0; i < terms.length; i++) {
+								map.increment(terms[i]);
+							}
+						}
+
+						public int merge() {
+							return map.size();
+						}
+					};
+				}
+			});
+
+			System.out.println(" Per-thread HMapII merged at the end...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					final HMapII[] maps = new HMapII[ids.length];
+					return new Counter() {
+						public void count(int thread) {
+							int[] terms = ids[thread];
+							HMapII map = new HMapII();
+							for (int i = 0; i < terms.length; i++) {
+								map.increment(terms[i]);
+							}
+							maps[thread] = map;
+						}
+
+						public int merge() {
+							for (int t = 1; t < maps.length; t++) {
+								maps[0].plus(maps[t]);
+								maps[t] = null;
+							}
+							return maps[0].size();
+						}
+					};
+				}
+			});
+
+			System.out.println(" Shared ConcurrentHMapIF...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					final ConcurrentHMapIF map = new ConcurrentHMapIF(ids.length * 4);
+					return new Counter() {
+						public void count(int thread) {
+							int[] terms = ids[thread];
+							for (int i = 0; i < terms.length; i++) {
+								map.increment(terms[i]);
+							}
+						}
+
+						public int merge() {
+							return map.size();
+						}
+					};
+				}
+			});
+
+			System.out.println(" Per-thread HMapIF merged at the end...");
+			benchmark(numThreads, numTokens, new Factory() {
+				public Counter create() {
+					final HMapIF[] maps = new HMapIF[ids.length];
+					return new Counter() {
+						public void count(int thread) {
+							int[] terms = ids[thread];
+							HMapIF map = new HMapIF();
+							for (int i = 0; i < terms.length; i++) {
+								int key = terms[i];
+								map.put(key, map.containsKey(key) ? map.get(key) + 1.0f : 1.0f);
+							}
+							maps[thread] = map;
+						}
+
+						public int merge() {
+							for (int t = 1; t < maps.length; t++) {
+								maps[0].plus(maps[t]);
+								maps[t] = null;
+							}
+							return maps[0].size();
+						}
+					};
+				}
+			});
+		}
+	}
+
+	private static void benchmark(int numThreads, int numTokens, Factory factory)
+			throws InterruptedException {
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		final Counter counter = factory.create();
+
+		long startTime = System.currentTimeMillis();
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int n = t;
+			threads[t] = new Thread() {
+				public void run() {
+					counter.count(n);
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		long countDuration = System.currentTimeMillis() - startTime;
+
+		// Peak memory is reached here, with every thread's copy still alive.
+		MemoryUsageUtils.gc();
+		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
+
+		long mergeStart = System.currentTimeMillis();
+		int size = counter.merge();
+		long mergeDuration = System.currentTimeMillis() - mergeStart;
+		long duration = countDuration + mergeDuration;
+
+		long total = (long) numThreads * numTokens;
+		System.out.println("  Time taken: " + duration + " ms, of which merging " + mergeDuration
+				+ " ms (" + (duration == 0 ? 0 : (long) (total * 1000.0 / duration))
+				+ " increments/sec)");
+		System.out.println("  Peak memory for counts: " + (usedMemory2 - usedMemory1)
+				+ " bytes (" + size + " distinct terms)");
+	}
+}
@@ -1,10 +1,22 @@
 package edu.umd.cloud9.util.benchmark;
 
+import java.util.PriorityQueue;
 import java.util.Random;
 
+import edu.umd.cloud9.io.pair.PairOfFloatInt;
 import edu.umd.cloud9.util.FibonacciHeapInt;
+import edu.umd.cloud9.util.HeapIF;
+import edu.umd.cloud9.util.TopKIF;
 
+/**
+ * Benchmarks {@link FibonacciHeapInt} against {@link HeapIF} for inserts,
+ * removes and decrease-keys, and a {@link PriorityQueue} against
+ * {@link TopKIF} for top-k selection.
+ */
 public class BenchmarkFibonacciHeapInt {
+	private static final int N = 1000000;
+	private static final int K = 100;
+
 	public static void main(String[] args) {
 		FibonacciHeapInt heap = new FibonacciHeapInt();
 		Random r = new Random();
@@ -30,5 +42,113 @@ public class BenchmarkFibonacciHeapInt {
 		}
 		endTime = System.currentTimeMillis();
 		System.out.println("mins completed in " + (endTime - startTime) + " ms");
+
+		// HeapIF holds each id at most once, so the ids are distinct here
+		float[] priorities = new float[N];
+		for (int i = 0; i < N; i++) {
+			priorities[i] = r.nextFloat();
+		}
+
+		benchmarkFibonacciHeap(priorities, r);
+		for (int d : new int[] { 2, 4, 8 }) {
+			benchmarkHeapIF(priorities, d, r);
+		}
+
+		benchmarkPriorityQueue(priorities);
+		benchmarkTopKIF(priorities);
+	}
+
+	private static void benchmarkFibonacciHeap(float[] priorities, Random r) {
+		FibonacciHeapInt heap = new FibonacciHeapInt();
+		FibonacciHeapInt.Node[] nodes = new FibonacciHeapInt.Node[priorities.length];
+
+		long startTime = System.currentTimeMillis();
+		for (int i = 0; i < priorities.length; i++) {
+			nodes[i] = heap.insert(i, priorities[i]);
+		}
+		long insertTime = System.currentTimeMillis() - startTime;
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < priorities.length; i++) {
+			int id = r.nextInt(priorities.length);
+			heap.decreaseKey(nodes[id], nodes[id].getKey() * 0.5f);
+		}
+		long decreaseTime = System.currentTimeMillis() - startTime;
+
+		long sum = 0;
+		startTime = System.currentTimeMillis();
+		while (!heap.isEmpty()) {
+			sum += heap.removeMin().getDatum();
+		}
+		long removeTime = System.currentTimeMillis() - startTime;
+
+		System.out.println("FibonacciHeapInt: " + insertTime + " ms inserts, " + decreaseTime
+				+ " ms decrease-keys, " + removeTime + " ms mins (" + sum + ")");
+	}
+
+	private static void benchmarkHeapIF(float[] priorities, int d, Random r) {
+		HeapIF heap = new HeapIF(d, false);
+
+		long startTime = System.currentTimeMillis();
+		for (int i = 0; i < priorities.length; i++) {
+			heap.insert(i, priorities[i]);
+		}
+		long insertTime = System.currentTimeMillis() - startTime;
+
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < priorities.length; i++) {
+			int id = r.nextInt(priorities.length);
+			heap.decreaseKey(id, heap.getPriority(id) * 0.5f);
+		}
+		long decreaseTime = System.currentTimeMillis() - startTime;
+
+		long sum = 0;
+		startTime = System.currentTimeMillis();
+		while (!heap.isEmpty()) {
+			sum += heap.poll();
+		}
+		long removeTime = System.currentTimeMillis() - startTime;
+
+		System.out.println("HeapIF, d=" + d + ": " + insertTime + " ms inserts, " + decreaseTime
+				+ " ms decrease-keys, " + removeTime + " ms mins (" + sum + ")");
+	}
+
+	private static void benchmarkPriorityQueue(float[] scores) {
+		long startTime = System.currentTimeMillis();
+		PriorityQueue<PairOfFloatInt> q = new PriorityQueue<PairOfFloatInt>();
+		// as FindMaxPageRankNodes did: allocates only for a new top-k element
+		for (int i = 0; i < scores.length; i++) {
+			if (q.size() < K) {
+				q.add(new PairOfFloatInt(scores[i], i));
+			} else if (q.peek().getLeftElement() < scores[i]) {
+				q.poll();
+				q.add(new PairOfFloatInt(scores[i], i));
+			}
+		}
+		long sum = 0;
+		while (!q.isEmpty()) {
+			sum += q.poll().getRightElement();
+		}
+		long time = System.currentTimeMillis() - startTime;
+
+		System.out.println("PriorityQueue, top " + K + ": " + time + " ms (" + sum + ")");
+	}
+
+	private static void benchmarkTopKIF(float[] scores) {
+		long startTime = System.currentTimeMillis();
+		TopKIF top = new TopKIF(K);
+		for (int i = 0; i < scores.length; i++) {
+			top.offer(i, scores[i]);
+		}
+		int[] ids = new int[K];
+		float[] out = new float[K];
+		int n = top.drain(ids, out);
+		long sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += ids[i];
+		}
+		long time = System.currentTimeMillis() - startTime;
+
+		System.out.println("TopKIF, top " + K + ": " + time + " ms (" + sum + ")");
 	}
 }
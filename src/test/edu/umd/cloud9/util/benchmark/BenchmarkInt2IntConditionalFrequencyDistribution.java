@@ -0,0 +1,87 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Random;
+
+import edu.umd.cloud9.debug.MemoryUsageUtils;
+import edu.umd.cloud9.util.count.Int2IntConditionalFrequencyDistribution;
+import edu.umd.cloud9.util.count.OpenInt2IntConditionalFrequencyDistribution;
+import edu.umd.cloud9.util.count.PackedInt2IntConditionalFrequencyDistribution;
+
+/**
+ * Compares the memory footprint of
+ * {@link OpenInt2IntConditionalFrequencyDistribution}, which keeps a hash map
+ * per condition, against {@link PackedInt2IntConditionalFrequencyDistribution},
+ * which packs all counts into one table, on a sparse table resembling a
+ * translation table: many conditions, each with a handful of events.
+ */
+public class BenchmarkInt2IntConditionalFrequencyDistribution {
+
+	private static final int numConditions = 500000;
+	private static final int numEvents = 100000;
+	private static final int eventsPerCondition = 4;
+
+	private static interface Factory {
+		Int2IntConditionalFrequencyDistribution create();
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Benchmarking OpenInt2IntConditionalFrequencyDistribution...");
+		benchmark(new Factory() {
+			public Int2IntConditionalFrequencyDistribution create() {
+				return new OpenInt2IntConditionalFrequencyDistribution();
+			}
+		});
+
+		System.out.println("Benchmarking PackedInt2IntConditionalFrequencyDistribution...");
+		benchmark(new Factory() {
+			public Int2IntConditionalFrequencyDistribution create() {
+				return new PackedInt2IntConditionalFrequencyDistribution();
+			}
+		});
+	}
+
+	private static void benchmark(Factory factory) {
+		// same table every time
+		Random r = new Random(0);
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
+
+		Int2IntConditionalFrequencyDistribution cfd = factory.create();
+
+		long startTime = System.currentTimeMillis();
+		int pairs = 0;
+		for (int cond = 0; cond < numConditions; cond++) {
+			int n = 1 + r.nextInt(2 * eventsPerCondition - 1);
+			for (int i = 0; i < n; i++) {
+				cfd.increment(r.nextInt(numEvents), cond, 1 + r.nextInt(10));
+				pairs++;
+			}
+		}
+		long duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Inserting " + pairs + " pairs: " + duration + " ms");
+
+		MemoryUsageUtils.gc();
+		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
+
+		System.out.println(" Used memory before: " + usedMemory1);
+		System.out.println(" Used memory after: " + usedMemory2);
+		System.out.println(" Total memory usage: " + (usedMemory2 - usedMemory1));
+		System.out.println(" Memory usage per pair: "
+				+ ((float) (usedMemory2 - usedMemory1) / pairs) + " bytes");
+
+		// Make sure the distribution is live until memory has been measured.
+		System.out.println(" Sum of all frequencies: " + cfd.getSumOfAllFrequencies());
+
+		// Reading every conditional distribution; for the packed table, this
+		// includes building the index of pairs.
+		startTime = System.currentTimeMillis();
+		long sum = 0;
+		for (int cond = 0; cond < numConditions; cond++) {
+			sum += cfd.getConditionalDistribution(cond).getSumOfFrequencies();
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" Reading " + numConditions + " conditional distributions: "
+				+ duration + " ms (sum " + sum + ")");
+	}
+}
@@ -0,0 +1,87 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.umd.cloud9.util.count.OpenInt2IntFrequencyDistribution;
+import edu.umd.cloud9.util.count.OpenObject2IntFrequencyDistribution;
+
+/**
+ * Measures how merging per-thread frequency distributions scales with the
+ * number of threads: one shard at a time with
+ * {@link OpenInt2IntFrequencyDistribution#addAll}, versus
+ * {@link OpenInt2IntFrequencyDistribution#mergeAll} with 1, 2, 4, ... threads,
+ * up to the number of cores (or the number given as the first argument). The
+ * same is then done for {@link OpenObject2IntFrequencyDistribution}.
+ */
+public class BenchmarkMergeFrequencyDistributions {
+
+	private static final int numShards = 32;
+	private static final int numDraws = 500000;
+	private static final int numEvents = 2000000;
+
+	public static void main(String[] args) {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime()
+				.availableProcessors();
+
+		// same shards every time
+		Random r = new Random(0);
+
+		List<OpenInt2IntFrequencyDistribution> ints = new ArrayList<OpenInt2IntFrequencyDistribution>();
+		List<OpenObject2IntFrequencyDistribution<String>> strings = new ArrayList<OpenObject2IntFrequencyDistribution<String>>();
+		for (int i = 0; i < numShards; i++) {
+			OpenInt2IntFrequencyDistribution fd1 = new OpenInt2IntFrequencyDistribution();
+			OpenObject2IntFrequencyDistribution<String> fd2 = new OpenObject2IntFrequencyDistribution<String>();
+			for (int j = 0; j < numDraws; j++) {
+				// skewed, so that frequent events are shared by all shards
+				int e = (int) (numEvents * Math.pow(r.nextDouble(), 3));
+				fd1.increment(e);
+				fd2.increment("term" + e);
+			}
+			ints.add(fd1);
+			strings.add(fd2);
+		}
+
+		System.out.println("Merging " + numShards + " OpenInt2IntFrequencyDistributions...");
+		long startTime = System.currentTimeMillis();
+		OpenInt2IntFrequencyDistribution merged = new OpenInt2IntFrequencyDistribution();
+		for (OpenInt2IntFrequencyDistribution fd : ints) {
+			merged.addAll(fd);
+		}
+		long duration = System.currentTimeMillis() - startTime;
+		System.out.println(" addAll, one at a time: " + duration + " ms, "
+				+ merged.getNumberOfEvents() + " events");
+
+		for (int t = 1; t <= maxThreads; t = next(t, maxThreads)) {
+			startTime = System.currentTimeMillis();
+			merged = OpenInt2IntFrequencyDistribution.mergeAll(ints, t);
+			duration = System.currentTimeMillis() - startTime;
+			System.out.println(" mergeAll, " + t + " threads: " + duration + " ms, "
+					+ merged.getNumberOfEvents() + " events");
+		}
+
+		System.out.println("Merging " + numShards + " OpenObject2IntFrequencyDistributions...");
+		startTime = System.currentTimeMillis();
+		OpenObject2IntFrequencyDistribution<String> mergedStrings = new OpenObject2IntFrequencyDistribution<String>();
+		for (OpenObject2IntFrequencyDistribution<String> fd : strings) {
+			mergedStrings.addAll(fd);
+		}
+		duration = System.currentTimeMillis() - startTime;
+		System.out.println(" addAll, one at a time: " + duration + " ms, "
+				+ mergedStrings.getNumberOfEvents() + " events");
+
+		for (int t = 1; t <= maxThreads; t = next(t, maxThreads)) {
+			startTime = System.currentTimeMillis();
+			mergedStrings = OpenObject2IntFrequencyDistribution.mergeAll(strings, t);
+			duration = System.currentTimeMillis() - startTime;
+			System.out.println(" mergeAll, " + t + " threads: " + duration + " ms, "
+					+ mergedStrings.getNumberOfEvents() + " events");
+		}
+	}
+
+	// doubles the number of threads, but always ends with the maximum
+	private static int next(int t, int maxThreads) {
+		return t < maxThreads && 2 * t > maxThreads ? maxThreads : 2 * t;
+	}
+}
@@ -0,0 +1,105 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import edu.umd.cloud9.util.array.ParallelSort;
+
+/**
+ * Benchmark for {@link ParallelSort}: sorts random ints, longs and floats with
+ * {@link Arrays#sort(int[])} and with {@link ParallelSort} on one thread and on
+ * all available processors, and co-sorts int ids by float scores. Sizes in
+ * millions of elements may be given as arguments (default 1, 10 and 100); the
+ * largest ones need a heap of about sixteen bytes per element.
+ */
+public class BenchmarkParallelSort {
+
+	public static void main(String[] args) {
+		int[] sizes = { 1, 10, 100 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		System.out.println("threads: " + threads);
+		System.out.println("size (M)\ttype\tArrays.sort\tParallelSort (1)\tParallelSort (" + threads
+				+ ") (ms)");
+		for (int m : sizes) {
+			int n = m * 1000000;
+			Random r = new Random(0);
+
+			int[] ints = new int[n];
+			for (int i = 0; i < n; i++) {
+				ints[i] = r.nextInt();
+			}
+			int[] a = ints.clone();
+			long t0 = System.currentTimeMillis();
+			Arrays.sort(a);
+			long t1 = System.currentTimeMillis();
+			System.arraycopy(ints, 0, a, 0, n);
+			ParallelSort.sort(a, 0, n, 1);
+			long t2 = System.currentTimeMillis();
+			System.arraycopy(ints, 0, a, 0, n);
+			ParallelSort.sort(a, 0, n, threads);
+			long t3 = System.currentTimeMillis();
+			System.out.println(m + "\tint\t" + (t1 - t0) + "\t" + (t2 - t1) + "\t" + (t3 - t2));
+			ints = null;
+			a = null;
+
+			long[] longs = new long[n];
+			for (int i = 0; i < n; i++) {
+				longs[i] = r.nextLong();
+			}
+			long[] b = longs.clone();
+			t0 = System.currentTimeMillis();
+			Arrays.sort(b);
+			t1 = System.currentTimeMillis();
+			System.arraycopy(longs, 0, b, 0, n);
+			ParallelSort.sort(b, 0, n, 1);
+			t2 = System.currentTimeMillis();
+			System.arraycopy(longs, 0, b, 0, n);
+			ParallelSort.sort(b, 0, n, threads);
+			t3 = System.currentTimeMillis();
+			System.out.println(m + "\tlong\t" + (t1 - t0) + "\t" + (t2 - t1) + "\t" + (t3 - t2));
+			longs = null;
+			b = null;
+
+			float[] floats = new float[n];
+			for (int i = 0; i < n; i++) {
+				floats[i] = r.nextFloat();
+			}
+			float[] c = floats.clone();
+			t0 = System.currentTimeMillis();
+			Arrays.sort(c);
+			t1 = System.currentTimeMillis();
+			System.arraycopy(floats, 0, c, 0, n);
+			ParallelSort.sort(c, 0, n, 1);
+			t2 = System.currentTimeMillis();
+			System.arraycopy(floats, 0, c, 0, n);
+			ParallelSort.sort(c, 0, n, threads);
+			t3 = System.currentTimeMillis();
+			System.out.println(m + "\tfloat\t" + (t1 - t0) + "\t" + (t2 - t1) + "\t" + (t3 - t2));
+
+			// ids by score
+			int[] ids = new int[n];
+			for (int i = 0; i < n; i++) {
+				ids[i] = i;
+			}
+			System.arraycopy(floats, 0, c, 0, n);
+			t1 = System.currentTimeMillis();
+			ParallelSort.sortByKey(c, ids, 0, n, 1);
+			long single = System.currentTimeMillis() - t1;
+			for (int i = 0; i < n; i++) {
+				ids[i] = i;
+			}
+			System.arraycopy(floats, 0, c, 0, n);
+			t2 = System.currentTimeMillis();
+			ParallelSort.sortByKey(c, ids, 0, n, threads);
+			t3 = System.currentTimeMillis();
+			System.out.println(m + "\tfloat/id\t-\t" + single + "\t" + (t3 - t2));
+		}
+	}
+}
@@ -2,21 +2,35 @@ package edu.umd.cloud9.util.benchmark;
 
 import java.util.Random;
 
+import edu.umd.cloud9.debug.MemoryUsageUtils;
 import edu.umd.cloud9.util.map.HMapII;
 import edu.umd.cloud9.util.map.MapII;
+import edu.umd.cloud9.util.map.OHMapII;
 
 public class BenchmarkRandomWalk1HMapII {
 
+	private static final int size = 10000000;
+
 	private static int removals = 0;
 
 	public static void main(String[] args) {
-		int size = 10000000;
+		System.out.println("Benchmarking HMapII...");
+		benchmark(new HMapII());
+
+		System.out.println("Benchmarking OHMapII...");
+		benchmark(new OHMapII());
+	}
+
+	private static void benchmark(MapII map) {
 		long startTime;
 		long duration;
-		Random r = new Random();
+		// Same seed so that both maps see the same walk.
+		Random r = new Random(0);
+		removals = 0;
+
+		MemoryUsageUtils.gc();
+		long usedMemory1 = MemoryUsageUtils.getUsedMemory();
 
-		System.out.println("Benchmarking HMapKI<String>...");
-		MapII map = new HMapII();
 		startTime = System.currentTimeMillis();
 		for (int i = 0; i < size; i++) {
 			int k = r.nextInt(1000);
@@ -30,8 +44,15 @@ public class BenchmarkRandomWalk1HMapII {
 		}
 		duration = System.currentTimeMillis() - startTime;
 
-		System.out.println("removals: " + removals);
-		System.out.println("Time taken: " + duration + "ms");
+		MemoryUsageUtils.gc();
+		long usedMemory2 = MemoryUsageUtils.getUsedMemory();
+
+		System.out.println(" removals: " + removals);
+		System.out.println(" Time taken: " + duration + "ms ("
+				+ (duration == 0 ? 0 : (long) (size * 1000.0 / duration)) + " ops/sec)");
+		System.out.println(" Memory usage per map entry: "
+				+ ((float) (usedMemory2 - usedMemory1) / Math.max(map.size(), 1)) + " bytes ("
+				+ map.size() + " entries)");
 	}
 
 	private static void increment(MapII map, int key) {
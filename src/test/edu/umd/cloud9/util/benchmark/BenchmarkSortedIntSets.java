@@ -0,0 +1,119 @@
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import edu.umd.cloud9.util.array.SortedIntSets;
+
+/**
+ * Microbenchmark for {@link SortedIntSets}: intersects a set of a million ints
+ * with sets smaller by ratios from 1 to 4096, by linear merge, by galloping,
+ * and by the adaptive choice between the two, against {@link TreeSet}
+ * <code>retainAll</code>, as in BooleanRetrieval. Union is timed the same way.
+ * Times are per operation.
+ */
+public class BenchmarkSortedIntSets {
+
+	private static final int size = 1000000;
+	private static final int[] ratios = { 1, 4, 16, 64, 256, 1024, 4096 };
+
+	private static interface Op {
+		int run(int[] a, int[] b, int[] out);
+	}
+
+	public static void main(String[] args) {
+		Random r = new Random(0);
+		int[] large = randomSet(r, size, 1 << 24);
+		TreeSet<Integer> largeSet = toSet(large);
+		int[] out = new int[2 * size];
+
+		System.out.println("ratio\tmerge\tgallop\tadaptive\tunion\tTreeSet (ms)");
+		for (int ratio : ratios) {
+			int[] small = randomSet(r, size / ratio, 1 << 24);
+
+			double merge = time(small, large, out, new Op() {
+				public int run(int[] a, int[] b, int[] out) {
+					return SortedIntSets.intersectMerge(a, 0, a.length, b, 0, b.length, out, 0);
+				}
+			});
+			double gallop = time(small, large, out, new Op() {
+				public int run(int[] a, int[] b, int[] out) {
+					return SortedIntSets.intersectGallop(a, 0, a.length, b, 0, b.length, out, 0);
+				}
+			});
+			double adaptive = time(small, large, out, new Op() {
+				public int run(int[] a, int[] b, int[] out) {
+					return SortedIntSets.intersect(a, a.length, b, b.length, out);
+				}
+			});
+			double union = time(small, large, out, new Op() {
+				public int run(int[] a, int[] b, int[] out) {
+					return SortedIntSets.union(a, a.length, b, b.length, out);
+				}
+			});
+
+			// boxed baseline, on fewer repetitions
+			TreeSet<Integer> smallSet = toSet(small);
+			long start = System.nanoTime();
+			int reps = 3;
+			for (int i = 0; i < reps; i++) {
+				TreeSet<Integer> and = new TreeSet<Integer>(smallSet);
+				and.retainAll(largeSet);
+			}
+			double treeSet = (System.nanoTime() - start) / 1e6 / reps;
+
+			System.out.printf("%d\t%.3f\t%.3f\t%.3f\t\t%.3f\t%.3f\n", ratio, merge, gallop, adaptive,
+					union, treeSet);
+		}
+	}
+
+	// average time of an operation, in ms, after warming up
+	private static double time(int[] a, int[] b, int[] out, Op op) {
+		int sink = 0;
+		for (int i = 0; i < 5; i++) {
+			sink += op.run(a, b, out);
+		}
+
+		int reps = 20;
+		long start = System.nanoTime();
+		for (int i = 0; i < reps; i++) {
+			sink += op.run(a, b, out);
+		}
+		double ms = (System.nanoTime() - start) / 1e6 / reps;
+
+		// keep the results live
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return ms;
+	}
+
+	private static int[] randomSet(Random r, int n, int range) {
+		boolean[] seen = new boolean[range];
+		int[] a = new int[n];
+		int i = 0;
+		while (i < n) {
+			int v = r.nextInt(range);
+			if (!seen[v]) {
+				seen[v] = true;
+				i++;
+			}
+		}
+
+		i = 0;
+		for (int v = 0; v < range; v++) {
+			if (seen[v]) {
+				a[i++] = v;
+			}
+		}
+		return a;
+	}
+
+	private static TreeSet<Integer> toSet(int[] a) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for (int v : a) {
+			set.add(v);
+		}
+		return set;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+public class ExternalString2IntFrequencyDistributionTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("runs", "");
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	// fills a distribution with a tiny budget and an exact one with the same counts
+	private static void fill(Object2IntFrequencyDistribution<String> fd,
+			Object2IntFrequencyDistribution<String> exact, int n, int events, long seed) {
+		Random r = new Random(seed);
+		for (int i = 0; i < n; i++) {
+			String e = "e" + (int) (events * Math.pow(r.nextDouble(), 2));
+			int cnt = 1 + r.nextInt(3);
+			fd.increment(e, cnt);
+			exact.increment(e, cnt);
+		}
+	}
+
+	private static void assertSameEvents(Object2IntFrequencyDistribution<String> exact,
+			Object2IntFrequencyDistribution<String> fd) {
+		assertEquals(exact.getNumberOfEvents(), fd.getNumberOfEvents());
+		assertEquals(exact.getSumOfFrequencies(), fd.getSumOfFrequencies());
+		assertSameList(exact.getSortedEvents(), fd.getSortedEvents());
+	}
+
+	private static void assertSameList(List<PairOfObjectInt<String>> expected,
+			List<PairOfObjectInt<String>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getLeftElement(), actual.get(i).getLeftElement());
+			assertEquals(expected.get(i).getRightElement(), actual.get(i).getRightElement());
+		}
+	}
+
+	@Test
+	public void testInMemory() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				1000000, directory);
+
+		assertEquals(0, fd.get("a"));
+		fd.increment("a");
+		fd.increment("b");
+		fd.increment("c");
+		fd.increment("b");
+		fd.increment("c", 2);
+
+		assertEquals(3, fd.getNumberOfEvents());
+		assertEquals(6, fd.getSumOfFrequencies());
+		assertEquals(1, fd.get("a"));
+		assertEquals(2, fd.get("b"));
+		assertEquals(3, fd.get("c"));
+		assertEquals(0, fd.getNumberOfRuns());
+
+		fd.decrement("c");
+		fd.decrement("a");
+		assertFalse(fd.contains("a"));
+		assertEquals(2, fd.getNumberOfEvents());
+		assertEquals(4, fd.getSumOfFrequencies());
+
+		List<PairOfObjectInt<String>> list = fd.getSortedEvents();
+		assertEquals(2, list.size());
+		assertEquals("b", list.get(0).getLeftElement());
+		assertEquals("c", list.get(1).getLeftElement());
+	}
+
+	@Test
+	public void testSpill() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				20000, directory);
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		fill(fd, exact, 20000, 5000, 1);
+		assertTrue(fd.getNumberOfRuns() > 1);
+		assertSameEvents(exact, fd);
+
+		for (PairOfObjectInt<String> e : exact) {
+			assertEquals(e.getRightElement(), fd.get(e.getLeftElement()));
+		}
+		assertEquals(0, fd.get("nope"));
+		assertEquals(0, fd.get(""));
+		assertEquals(0, fd.get("zzz"));
+
+		// events come out of the iterator in sorted order
+		String last = null;
+		for (PairOfObjectInt<String> e : fd) {
+			assertTrue(last == null || last.compareTo(e.getLeftElement()) < 0);
+			last = e.getLeftElement();
+		}
+
+		assertSameList(exact.getFrequencySortedEvents(10), fd.getFrequencySortedEvents(10));
+		assertSameList(exact.getFrequencySortedEvents(), fd.getFrequencySortedEvents());
+		assertSameList(exact.getSortedEvents(5), fd.getSortedEvents(5));
+	}
+
+	@Test
+	public void testModifySpilled() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				5000, directory);
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		fill(fd, exact, 5000, 1000, 2);
+		assertTrue(fd.getNumberOfRuns() > 0);
+
+		List<PairOfObjectInt<String>> events = exact.getSortedEvents();
+		String e1 = events.get(0).getLeftElement();
+		String e2 = events.get(1).getLeftElement();
+		String e3 = events.get(events.size() - 1).getLeftElement();
+
+		assertEquals(exact.set(e1, 7), fd.set(e1, 7));
+		assertEquals(exact.remove(e2), fd.remove(e2));
+		exact.decrement(e3);
+		fd.decrement(e3);
+		fd.set("new", 4);
+		exact.set("new", 4);
+
+		assertEquals(7, fd.get(e1));
+		assertFalse(fd.contains(e2));
+		assertTrue(fd.contains("new"));
+		assertSameEvents(exact, fd);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testDecrementPastZero() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				100, directory);
+		fd.increment("a", 2);
+		fd.increment("b");
+		fd.increment("c");
+		assertTrue(fd.getNumberOfRuns() > 0);
+
+		fd.decrement("a", 3);
+	}
+
+	@Test
+	public void testCompaction() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				1000, directory);
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		fill(fd, exact, 10000, 3000, 3);
+		assertTrue(fd.getNumberOfRuns() < 64);
+		assertEquals(fd.getNumberOfRuns(), directory.listFiles().length);
+		assertSameEvents(exact, fd);
+	}
+
+	@Test
+	public void testClear() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				1000, directory);
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		fill(fd, exact, 1000, 500, 4);
+		assertTrue(directory.listFiles().length > 0);
+
+		// an abandoned iterator
+		Iterator<PairOfObjectInt<String>> iter = fd.iterator();
+		iter.next();
+
+		fd.clear();
+		assertEquals(0, directory.listFiles().length);
+		assertEquals(0, fd.getNumberOfEvents());
+		assertEquals(0, fd.getSumOfFrequencies());
+		assertEquals(0, fd.get("e1"));
+
+		fd.increment("a");
+		assertEquals(1, fd.get("a"));
+		assertEquals(1, fd.getNumberOfEvents());
+	}
+
+	@Test
+	public void testAddAll() {
+		ExternalString2IntFrequencyDistribution fd = new ExternalString2IntFrequencyDistribution(
+				2000, directory);
+		OpenObject2IntFrequencyDistribution<String> other = new OpenObject2IntFrequencyDistribution<String>();
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		fill(fd, exact, 2000, 500, 5);
+		fill(other, exact, 2000, 500, 6);
+		fd.addAll(other);
+
+		assertSameEvents(exact, fd);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ExternalString2IntFrequencyDistributionTest.class);
+	}
+}
@@ -18,8 +18,10 @@ package edu.umd.cloud9.util.count;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -30,6 +32,7 @@ import org.junit.Test;
 import edu.umd.cloud9.io.pair.PairOfInts;
 import edu.umd.cloud9.util.count.Int2IntFrequencyDistribution;
 import edu.umd.cloud9.util.count.OpenInt2IntFrequencyDistribution;
+import edu.umd.cloud9.util.map.IntIntProcedure;
 
 public class OpenInt2IntFrequencyDistributionTest {
 
@@ -267,6 +270,29 @@ public class OpenInt2IntFrequencyDistributionTest {
 		assertEquals(2, list.get(3).getRightElement());
 	}
 
+	@Test
+	public void testTopK() {
+		Int2IntFrequencyDistribution fd = new OpenInt2IntFrequencyDistribution();
+
+		fd.set(1, 1);
+		fd.set(4, 3);
+		fd.set(2, 4);
+		fd.set(5, 4);
+		fd.set(6, 9);
+		fd.set(3, 2);
+
+		final StringBuilder sb = new StringBuilder();
+		fd.topK(3, new IntIntProcedure() {
+			public void apply(int key, int value) {
+				sb.append(key).append(':').append(value).append(' ');
+			}
+		});
+
+		assertEquals("6:9 2:4 5:4 ", sb.toString());
+
+		assertEquals(6, fd.getFrequencySortedEvents(10).size());
+	}
+
 	@Test
 	public void testGetSortedEvents() {
 		Int2IntFrequencyDistribution fd = new OpenInt2IntFrequencyDistribution();
@@ -355,6 +381,65 @@ public class OpenInt2IntFrequencyDistributionTest {
 		assertEquals(9, e.getRightElement());
 	}
 
+	@Test
+	public void testAddAll() {
+		OpenInt2IntFrequencyDistribution fd1 = new OpenInt2IntFrequencyDistribution();
+		OpenInt2IntFrequencyDistribution fd2 = new OpenInt2IntFrequencyDistribution();
+
+		for (int i = 0; i < 10; i++) {
+			fd1.increment(i, i + 1);
+		}
+		for (int i = 5; i < 15; i++) {
+			fd2.increment(i);
+		}
+
+		fd1.addAll(fd2);
+		assertEquals(15, fd1.getNumberOfEvents());
+		assertEquals(65, fd1.getSumOfFrequencies());
+		for (int i = 0; i < 15; i++) {
+			int e = i;
+			assertEquals((i < 10 ? i + 1 : 0) + (i >= 5 ? 1 : 0), fd1.get(e));
+		}
+
+		// the argument is left alone
+		assertEquals(10, fd2.getNumberOfEvents());
+		assertEquals(10, fd2.getSumOfFrequencies());
+	}
+
+	@Test
+	public void testMergeAll() {
+		Random r = new Random(7);
+		List<OpenInt2IntFrequencyDistribution> fds = new ArrayList<OpenInt2IntFrequencyDistribution>();
+		OpenInt2IntFrequencyDistribution expected = new OpenInt2IntFrequencyDistribution();
+
+		for (int n = 0; n < 9; n++) {
+			OpenInt2IntFrequencyDistribution fd = new OpenInt2IntFrequencyDistribution();
+			for (int i = 0; i < 2000; i++) {
+				int e = r.nextInt(3000);
+				fd.increment(e);
+				expected.increment(e);
+			}
+			fds.add(fd);
+		}
+
+		for (int numThreads : new int[] { 1, 2, 3, 8 }) {
+			OpenInt2IntFrequencyDistribution merged = OpenInt2IntFrequencyDistribution.mergeAll(fds, numThreads);
+
+			assertEquals(expected.getNumberOfEvents(), merged.getNumberOfEvents());
+			assertEquals(expected.getSumOfFrequencies(), merged.getSumOfFrequencies());
+			for (PairOfInts p : expected) {
+				assertEquals(p.getRightElement(), merged.get(p.getLeftElement()));
+			}
+		}
+
+		assertEquals(0, OpenInt2IntFrequencyDistribution.mergeAll(new ArrayList<OpenInt2IntFrequencyDistribution>(), 4).getNumberOfEvents());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeAllIllegalThreads() {
+		OpenInt2IntFrequencyDistribution.mergeAll(new ArrayList<OpenInt2IntFrequencyDistribution>(), 0);
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(OpenInt2IntFrequencyDistributionTest.class);
 	}
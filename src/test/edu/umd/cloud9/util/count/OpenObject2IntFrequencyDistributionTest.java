@@ -18,8 +18,10 @@ package edu.umd.cloud9.util.count;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -355,6 +357,65 @@ public class OpenObject2IntFrequencyDistributionTest {
 		assertEquals(9, e.getRightElement());
 	}
 
+	@Test
+	public void testAddAll() {
+		OpenObject2IntFrequencyDistribution<String> fd1 = new OpenObject2IntFrequencyDistribution<String>();
+		OpenObject2IntFrequencyDistribution<String> fd2 = new OpenObject2IntFrequencyDistribution<String>();
+
+		for (int i = 0; i < 10; i++) {
+			fd1.increment("e" + i, i + 1);
+		}
+		for (int i = 5; i < 15; i++) {
+			fd2.increment("e" + i);
+		}
+
+		fd1.addAll(fd2);
+		assertEquals(15, fd1.getNumberOfEvents());
+		assertEquals(65, fd1.getSumOfFrequencies());
+		for (int i = 0; i < 15; i++) {
+			int e = i;
+			assertEquals((i < 10 ? i + 1 : 0) + (i >= 5 ? 1 : 0), fd1.get("e" + e));
+		}
+
+		// the argument is left alone
+		assertEquals(10, fd2.getNumberOfEvents());
+		assertEquals(10, fd2.getSumOfFrequencies());
+	}
+
+	@Test
+	public void testMergeAll() {
+		Random r = new Random(7);
+		List<OpenObject2IntFrequencyDistribution<String>> fds = new ArrayList<OpenObject2IntFrequencyDistribution<String>>();
+		OpenObject2IntFrequencyDistribution<String> expected = new OpenObject2IntFrequencyDistribution<String>();
+
+		for (int n = 0; n < 9; n++) {
+			OpenObject2IntFrequencyDistribution<String> fd = new OpenObject2IntFrequencyDistribution<String>();
+			for (int i = 0; i < 2000; i++) {
+				int e = r.nextInt(3000);
+				fd.increment("e" + e);
+				expected.increment("e" + e);
+			}
+			fds.add(fd);
+		}
+
+		for (int numThreads : new int[] { 1, 2, 3, 8 }) {
+			OpenObject2IntFrequencyDistribution<String> merged = OpenObject2IntFrequencyDistribution.mergeAll(fds, numThreads);
+
+			assertEquals(expected.getNumberOfEvents(), merged.getNumberOfEvents());
+			assertEquals(expected.getSumOfFrequencies(), merged.getSumOfFrequencies());
+			for (PairOfObjectInt<String> p : expected) {
+				assertEquals(p.getRightElement(), merged.get(p.getLeftElement()));
+			}
+		}
+
+		assertEquals(0, OpenObject2IntFrequencyDistribution.mergeAll(new ArrayList<OpenObject2IntFrequencyDistribution<String>>(), 4).getNumberOfEvents());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeAllIllegalThreads() {
+		OpenObject2IntFrequencyDistribution.mergeAll(new ArrayList<OpenObject2IntFrequencyDistribution<String>>(), 0);
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(OpenObject2IntFrequencyDistributionTest.class);
 	}
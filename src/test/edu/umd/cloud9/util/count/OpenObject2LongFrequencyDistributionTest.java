@@ -18,8 +18,10 @@ package edu.umd.cloud9.util.count;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -353,6 +355,65 @@ public class OpenObject2LongFrequencyDistributionTest {
 		assertEquals(9L, e.getRightElement());
 	}
 
+	@Test
+	public void testAddAll() {
+		OpenObject2LongFrequencyDistribution<String> fd1 = new OpenObject2LongFrequencyDistribution<String>();
+		OpenObject2LongFrequencyDistribution<String> fd2 = new OpenObject2LongFrequencyDistribution<String>();
+
+		for (int i = 0; i < 10; i++) {
+			fd1.increment("e" + i, i + 1);
+		}
+		for (int i = 5; i < 15; i++) {
+			fd2.increment("e" + i);
+		}
+
+		fd1.addAll(fd2);
+		assertEquals(15, fd1.getNumberOfEvents());
+		assertEquals(65L, fd1.getSumOfFrequencies());
+		for (int i = 0; i < 15; i++) {
+			int e = i;
+			assertEquals((i < 10 ? i + 1 : 0) + (i >= 5 ? 1 : 0), fd1.get("e" + e));
+		}
+
+		// the argument is left alone
+		assertEquals(10, fd2.getNumberOfEvents());
+		assertEquals(10L, fd2.getSumOfFrequencies());
+	}
+
+	@Test
+	public void testMergeAll() {
+		Random r = new Random(7);
+		List<OpenObject2LongFrequencyDistribution<String>> fds = new ArrayList<OpenObject2LongFrequencyDistribution<String>>();
+		OpenObject2LongFrequencyDistribution<String> expected = new OpenObject2LongFrequencyDistribution<String>();
+
+		for (int n = 0; n < 9; n++) {
+			OpenObject2LongFrequencyDistribution<String> fd = new OpenObject2LongFrequencyDistribution<String>();
+			for (int i = 0; i < 2000; i++) {
+				int e = r.nextInt(3000);
+				fd.increment("e" + e);
+				expected.increment("e" + e);
+			}
+			fds.add(fd);
+		}
+
+		for (int numThreads : new int[] { 1, 2, 3, 8 }) {
+			OpenObject2LongFrequencyDistribution<String> merged = OpenObject2LongFrequencyDistribution.mergeAll(fds, numThreads);
+
+			assertEquals(expected.getNumberOfEvents(), merged.getNumberOfEvents());
+			assertEquals(expected.getSumOfFrequencies(), merged.getSumOfFrequencies());
+			for (PairOfObjectLong<String> p : expected) {
+				assertEquals(p.getRightElement(), merged.get(p.getLeftElement()));
+			}
+		}
+
+		assertEquals(0, OpenObject2LongFrequencyDistribution.mergeAll(new ArrayList<OpenObject2LongFrequencyDistribution<String>>(), 4).getNumberOfEvents());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeAllIllegalThreads() {
+		OpenObject2LongFrequencyDistribution.mergeAll(new ArrayList<OpenObject2LongFrequencyDistribution<String>>(), 0);
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(OpenObject2LongFrequencyDistributionTest.class);
 	}
@@ -0,0 +1,235 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.count.PackedInt2IntConditionalFrequencyDistribution;
+
+import junit.framework.JUnit4TestAdapter;
+
+public class PackedInt2IntConditionalFrequencyDistributionTest {
+
+	@Test
+	public void test1() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+
+		cdf.set(1, 1, 2);
+		cdf.check();
+
+		assertEquals(2, cdf.get(1, 1));
+		assertEquals(2, cdf.getSumOfAllFrequencies());
+
+		cdf.set(2, 1, 3);
+		cdf.check();
+
+		assertEquals(2, cdf.get(1, 1));
+		assertEquals(3, cdf.get(2, 1));
+		assertEquals(5, cdf.getSumOfAllFrequencies());
+
+		cdf.set(3, 1, 10);
+		cdf.check();
+
+		assertEquals(2, cdf.get(1, 1));
+		assertEquals(3, cdf.get(2, 1));
+		assertEquals(10, cdf.get(3, 1));
+		assertEquals(15, cdf.getSumOfAllFrequencies());
+
+		cdf.set(10, 2, 1);
+		cdf.check();
+
+		assertEquals(2, cdf.get(1, 1));
+		assertEquals(3, cdf.get(2, 1));
+		assertEquals(10, cdf.get(3, 1));
+		assertEquals(1, cdf.get(10, 2));
+		assertEquals(16, cdf.getSumOfAllFrequencies());
+
+		cdf.set(1, 1, 5);
+		cdf.check();
+
+		assertEquals(5, cdf.get(1, 1));
+		assertEquals(3, cdf.get(2, 1));
+		assertEquals(10, cdf.get(3, 1));
+		assertEquals(1, cdf.get(10, 2));
+		assertEquals(19, cdf.getSumOfAllFrequencies());
+	}
+
+	@Test
+	public void test2() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+
+		cdf.set(1, 1, 2);
+		cdf.check();
+
+		assertEquals(2, cdf.get(1, 1));
+		assertEquals(2, cdf.getSumOfAllFrequencies());
+
+		cdf.increment(1, 1);
+		cdf.check();
+		assertEquals(3, cdf.get(1, 1));
+		assertEquals(3, cdf.getSumOfAllFrequencies());
+
+		cdf.increment(1, 1, 2);
+		cdf.check();
+		assertEquals(5, cdf.get(1, 1));
+		assertEquals(5, cdf.getSumOfAllFrequencies());
+
+		cdf.increment(2, 1);
+		cdf.check();
+		assertEquals(5, cdf.get(1, 1));
+		assertEquals(1, cdf.get(2, 1));
+		assertEquals(6, cdf.getSumOfAllFrequencies());
+
+		cdf.increment(1, 2, 10);
+		cdf.check();
+		assertEquals(5, cdf.get(1, 1));
+		assertEquals(1, cdf.get(2, 1));
+		assertEquals(10, cdf.get(1, 2));
+		assertEquals(16, cdf.getSumOfAllFrequencies());
+	}
+
+	@Test
+	public void test3() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+
+		cdf.set(1, 1, 2);
+		cdf.set(1, 2, 5);
+		cdf.set(1, 3, 6);
+		cdf.set(1, 4, 4);
+		cdf.set(2, 1, 3);
+		cdf.set(3, 1, 7);
+		cdf.check();
+
+		assertEquals(17, cdf.getMarginalCount(1));
+		assertEquals(27, cdf.getSumOfAllFrequencies());
+
+		cdf.increment(1, 1, 2);
+		cdf.increment(2, 1);
+
+		assertEquals(19, cdf.getMarginalCount(1));
+		assertEquals(4, cdf.getMarginalCount(2));
+		assertEquals(30, cdf.getSumOfAllFrequencies());
+	}
+
+	@Test
+	public void testConditionalDistribution() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+
+		cdf.set(1, 1, 2);
+		cdf.set(1, 2, 5);
+		cdf.set(2, 1, 3);
+		cdf.set(3, 1, 7);
+		cdf.set(-1, -1, 4);
+		cdf.check();
+
+		assertEquals(3, cdf.getNumberOfConditions());
+		assertEquals(5, cdf.getNumberOfPairs());
+
+		Int2IntFrequencyDistribution fd = cdf.getConditionalDistribution(1);
+		assertEquals(3, fd.getNumberOfEvents());
+		assertEquals(12, fd.getSumOfFrequencies());
+		assertEquals(2, fd.get(1));
+		assertEquals(3, fd.get(2));
+		assertEquals(7, fd.get(3));
+
+		fd = cdf.getConditionalDistribution(-1);
+		assertEquals(1, fd.getNumberOfEvents());
+		assertEquals(4, fd.get(-1));
+		assertEquals(4, cdf.get(-1, -1));
+
+		assertEquals(0, cdf.getConditionalDistribution(5).getNumberOfEvents());
+
+		// setting a count to zero removes the pair
+		cdf.set(1, 2, 0);
+		cdf.check();
+		assertEquals(2, cdf.getNumberOfConditions());
+		assertEquals(0, cdf.getConditionalDistribution(2).getNumberOfEvents());
+		assertEquals(2, cdf.getMarginalCount(1));
+		assertEquals(16, cdf.getSumOfAllFrequencies());
+	}
+
+	@Test
+	public void testConditionalDistributionAfterUpdates() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+
+		cdf.set(1, 1, 2);
+		cdf.set(2, 1, 3);
+		cdf.set(1, 2, 5);
+		assertEquals(2, cdf.getConditionalDistribution(1).getNumberOfEvents());
+
+		// changing existing counts
+		cdf.increment(1, 1, 4);
+		cdf.set(2, 1, 1);
+		Int2IntFrequencyDistribution fd = cdf.getConditionalDistribution(1);
+		assertEquals(2, fd.getNumberOfEvents());
+		assertEquals(6, fd.get(1));
+		assertEquals(1, fd.get(2));
+
+		// adding and removing pairs
+		cdf.increment(3, 1);
+		cdf.increment(2, 1, -1);
+		cdf.check();
+		fd = cdf.getConditionalDistribution(1);
+		assertEquals(2, fd.getNumberOfEvents());
+		assertEquals(6, fd.get(1));
+		assertEquals(0, fd.get(2));
+		assertEquals(1, fd.get(3));
+		assertEquals(1, cdf.getConditionalDistribution(2).getNumberOfEvents());
+		assertEquals(0, cdf.getMarginalCount(2));
+		assertEquals(12, cdf.getSumOfAllFrequencies());
+	}
+
+	@Test
+	public void testRandomUpdates() {
+		PackedInt2IntConditionalFrequencyDistribution cdf = new PackedInt2IntConditionalFrequencyDistribution();
+		OpenInt2IntConditionalFrequencyDistribution expected = new OpenInt2IntConditionalFrequencyDistribution();
+
+		Random r = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			int k = r.nextInt(200);
+			int cond = r.nextInt(50) - 25;
+			if (r.nextInt(4) == 0) {
+				cdf.set(k, cond, 0);
+				expected.set(k, cond, 0);
+			} else {
+				cdf.increment(k, cond);
+				expected.increment(k, cond);
+			}
+		}
+		cdf.check();
+
+		assertEquals(expected.getSumOfAllFrequencies(), cdf.getSumOfAllFrequencies());
+		for (int cond = -25; cond < 25; cond++) {
+			Int2IntFrequencyDistribution fd = cdf.getConditionalDistribution(cond);
+			for (int k = 0; k < 200; k++) {
+				assertEquals(expected.get(k, cond), cdf.get(k, cond));
+				assertEquals(expected.get(k, cond), fd.get(k));
+			}
+		}
+		for (int k = 0; k < 200; k++) {
+			assertEquals(expected.getMarginalCount(k), cdf.getMarginalCount(k));
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(PackedInt2IntConditionalFrequencyDistributionTest.class);
+	}
+}
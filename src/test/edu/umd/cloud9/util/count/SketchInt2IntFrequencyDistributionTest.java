@@ -0,0 +1,214 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.io.pair.PairOfInts;
+
+public class SketchInt2IntFrequencyDistributionTest {
+
+	// a skewed stream, with event i occurring roughly in proportion to 1/i
+	private static int[] zipf(Random r, int n, int events) {
+		double[] cdf = new double[events];
+		double sum = 0;
+		for (int i = 0; i < events; i++) {
+			sum += 1.0 / (i + 1);
+			cdf[i] = sum;
+		}
+
+		int[] stream = new int[n];
+		for (int i = 0; i < n; i++) {
+			double x = r.nextDouble() * sum;
+			int lo = 0, hi = events - 1;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cdf[mid] < x) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			stream[i] = lo;
+		}
+		return stream;
+	}
+
+	@Test
+	public void testSmall() {
+		Int2IntFrequencyDistribution fd = new SketchInt2IntFrequencyDistribution();
+
+		fd.increment(2);
+		fd.increment(1);
+		fd.increment(3, 5);
+		fd.increment(2);
+		fd.increment(-1, 2);
+
+		assertEquals(4, fd.getNumberOfEvents());
+		assertEquals(10, fd.getSumOfFrequencies());
+
+		assertEquals(1, fd.get(1));
+		assertEquals(2, fd.get(2));
+		assertEquals(5, fd.get(3));
+		assertEquals(2, fd.get(-1));
+		assertEquals(0, fd.get(4));
+		assertTrue(fd.contains(3));
+		assertFalse(fd.contains(4));
+
+		List<PairOfInts> list = fd.getFrequencySortedEvents();
+		assertEquals(4, list.size());
+		assertEquals(new PairOfInts(3, 5), list.get(0));
+		assertEquals(new PairOfInts(-1, 2), list.get(1));
+		assertEquals(new PairOfInts(2, 2), list.get(2));
+		assertEquals(new PairOfInts(1, 1), list.get(3));
+
+		list = fd.getFrequencySortedEvents(2);
+		assertEquals(2, list.size());
+		assertEquals(new PairOfInts(3, 5), list.get(0));
+
+		list = fd.getSortedEvents();
+		assertEquals(new PairOfInts(-1, 2), list.get(0));
+		assertEquals(new PairOfInts(3, 5), list.get(3));
+
+		int n = 0;
+		for (PairOfInts pair : fd) {
+			assertEquals(fd.get(pair.getLeftElement()), pair.getRightElement());
+			n++;
+		}
+		assertEquals(4, n);
+
+		fd.clear();
+		assertEquals(0, fd.getNumberOfEvents());
+		assertEquals(0, fd.getSumOfFrequencies());
+		assertEquals(0, fd.get(3));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDecrement() {
+		Int2IntFrequencyDistribution fd = new SketchInt2IntFrequencyDistribution();
+		fd.increment(1, 2);
+		fd.decrement(1);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSet() {
+		new SketchInt2IntFrequencyDistribution().set(1, 2);
+	}
+
+	@Test
+	public void testErrorBounds() {
+		double epsilon = 0.001;
+		int capacity = 100;
+		SketchInt2IntFrequencyDistribution fd = new SketchInt2IntFrequencyDistribution(epsilon,
+				0.01, capacity);
+		OpenInt2IntFrequencyDistribution exact = new OpenInt2IntFrequencyDistribution();
+
+		for (int i : zipf(new Random(1), 200000, 50000)) {
+			fd.increment(i);
+			exact.increment(i);
+		}
+
+		long sum = exact.getSumOfFrequencies();
+		assertEquals(sum, fd.getSumOfFrequencies());
+		assertEquals(capacity, fd.getNumberOfEvents());
+
+		int violations = 0;
+		for (PairOfInts e : exact) {
+			int est = fd.get(e.getLeftElement());
+			assertTrue(est >= e.getRightElement());
+			if (est > e.getRightElement() + epsilon * sum) {
+				violations++;
+			}
+		}
+		assertTrue(violations <= 0.01 * exact.getNumberOfEvents());
+
+		// events above N/m are heavy hitters, whose counts are within N/m
+		for (PairOfInts e : exact.getFrequencySortedEvents(capacity)) {
+			if (e.getRightElement() > sum / capacity) {
+				assertTrue(fd.getError(e.getLeftElement()) >= 0);
+			}
+		}
+		for (PairOfInts e : fd) {
+			int f = exact.get(e.getLeftElement());
+			assertTrue(e.getRightElement() >= f);
+			assertTrue(e.getRightElement() - f <= fd.getError(e.getLeftElement()));
+			assertTrue(fd.getError(e.getLeftElement()) <= sum / capacity);
+		}
+
+		// the most frequent events are found
+		List<PairOfInts> top = fd.getFrequencySortedEvents(3);
+		assertEquals(0, top.get(0).getLeftElement());
+		assertEquals(1, top.get(1).getLeftElement());
+		assertEquals(2, top.get(2).getLeftElement());
+	}
+
+	@Test
+	public void testMerge() {
+		int capacity = 50;
+		SketchInt2IntFrequencyDistribution fd1 = new SketchInt2IntFrequencyDistribution(0.001, 0.01,
+				capacity);
+		SketchInt2IntFrequencyDistribution fd2 = new SketchInt2IntFrequencyDistribution(0.001, 0.01,
+				capacity);
+		OpenInt2IntFrequencyDistribution exact = new OpenInt2IntFrequencyDistribution();
+
+		int[] stream = zipf(new Random(2), 100000, 20000);
+		for (int j = 0; j < stream.length; j++) {
+			// different halves of the stream see different parts of the tail
+			int i = j % 2 == 0 ? stream[j] : stream[j] + (stream[j] > 100 ? 20000 : 0);
+			(j % 2 == 0 ? fd1 : fd2).increment(i);
+			exact.increment(i);
+		}
+
+		fd1.merge(fd2);
+		long sum = exact.getSumOfFrequencies();
+		assertEquals(sum, fd1.getSumOfFrequencies());
+		assertEquals(capacity, fd1.getNumberOfEvents());
+
+		for (PairOfInts e : exact) {
+			assertTrue(fd1.get(e.getLeftElement()) >= e.getRightElement());
+		}
+		for (PairOfInts e : exact.getFrequencySortedEvents(capacity)) {
+			if (e.getRightElement() > sum / capacity) {
+				assertTrue(fd1.getError(e.getLeftElement()) >= 0);
+			}
+		}
+		for (PairOfInts e : fd1) {
+			int f = exact.get(e.getLeftElement());
+			assertTrue(e.getRightElement() >= f);
+			assertTrue(e.getRightElement() - f <= fd1.getError(e.getLeftElement()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentDimensions() {
+		new SketchInt2IntFrequencyDistribution(0.01, 0.01, 10)
+				.merge(new SketchInt2IntFrequencyDistribution(0.001, 0.01, 10));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SketchInt2IntFrequencyDistributionTest.class);
+	}
+}
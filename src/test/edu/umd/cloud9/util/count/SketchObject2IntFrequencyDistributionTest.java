@@ -0,0 +1,113 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.ObjectIntProcedure;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+public class SketchObject2IntFrequencyDistributionTest {
+
+	@Test
+	public void testSmall() {
+		Object2IntFrequencyDistribution<String> fd = new SketchObject2IntFrequencyDistribution<String>();
+
+		fd.increment("b");
+		fd.increment("a");
+		fd.increment("c", 5);
+		fd.increment("b");
+
+		assertEquals(3, fd.getNumberOfEvents());
+		assertEquals(8, fd.getSumOfFrequencies());
+		assertEquals(1, fd.get("a"));
+		assertEquals(2, fd.get("b"));
+		assertEquals(5, fd.get("c"));
+		assertEquals(0, fd.get("d"));
+
+		List<PairOfObjectInt<String>> list = fd.getFrequencySortedEvents();
+		assertEquals("c", list.get(0).getLeftElement());
+		assertEquals("b", list.get(1).getLeftElement());
+		assertEquals("a", list.get(2).getLeftElement());
+
+		list = fd.getSortedEvents(2);
+		assertEquals(2, list.size());
+		assertEquals("a", list.get(0).getLeftElement());
+		assertEquals("b", list.get(1).getLeftElement());
+
+		final StringBuilder sb = new StringBuilder();
+		fd.topK(2, new ObjectIntProcedure<String>() {
+			public void apply(String key, int value) {
+				sb.append(key).append(':').append(value).append(' ');
+			}
+		});
+		assertEquals("c:5 b:2 ", sb.toString());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemove() {
+		Object2IntFrequencyDistribution<String> fd = new SketchObject2IntFrequencyDistribution<String>();
+		fd.increment("a");
+		fd.remove("a");
+	}
+
+	@Test
+	public void testHeavyHittersAndMerge() {
+		int capacity = 20;
+		SketchObject2IntFrequencyDistribution<String> fd1 = new SketchObject2IntFrequencyDistribution<String>(
+				0.001, 0.01, capacity);
+		SketchObject2IntFrequencyDistribution<String> fd2 = new SketchObject2IntFrequencyDistribution<String>(
+				0.001, 0.01, capacity);
+		OpenObject2IntFrequencyDistribution<String> exact = new OpenObject2IntFrequencyDistribution<String>();
+
+		// a few frequent terms in a long tail of rare ones
+		Random r = new Random(3);
+		for (int i = 0; i < 50000; i++) {
+			String term = r.nextInt(4) == 0 ? "t" + r.nextInt(5) : "rare" + r.nextInt(20000);
+			(i % 2 == 0 ? fd1 : fd2).increment(term);
+			exact.increment(term);
+		}
+
+		fd1.merge(fd2);
+		long sum = exact.getSumOfFrequencies();
+		assertEquals(sum, fd1.getSumOfFrequencies());
+
+		for (PairOfObjectInt<String> e : exact) {
+			assertTrue(fd1.get(e.getLeftElement()) >= e.getRightElement());
+		}
+
+		List<PairOfObjectInt<String>> top = fd1.getFrequencySortedEvents(5);
+		for (PairOfObjectInt<String> e : top) {
+			assertTrue(e.getLeftElement().startsWith("t"));
+			int f = exact.get(e.getLeftElement());
+			assertTrue(e.getRightElement() >= f);
+			assertTrue(e.getRightElement() - f <= sum / capacity);
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SketchObject2IntFrequencyDistributionTest.class);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+public class CombiningBufferIITest {
+
+	// Sums the emitted values, and counts the emissions.
+	private static class SummingSink implements CombiningBufferII.Sink {
+		final HMapII sums = new HMapII();
+		int emitted = 0;
+
+		public void emit(int key, int value) {
+			sums.put(key, sums.containsKey(key) ? sums.get(key) + value : value);
+			emitted++;
+		}
+	}
+
+	private static class SumBuffer extends CombiningBufferII {
+		SumBuffer(int maxEntries, long maxBytes, Sink sink) {
+			super(maxEntries, maxBytes, sink);
+		}
+
+		SumBuffer(Configuration conf, Sink sink) {
+			super(conf, sink);
+		}
+
+		SumBuffer(Configuration conf, MapII map, int bytesPerEntry, Sink sink) {
+			super(conf, map, bytesPerEntry, sink);
+		}
+
+		protected int combine(int oldValue, int value) {
+			return oldValue + value;
+		}
+	}
+
+	@Test
+	public void testCombine() throws IOException {
+		SummingSink sink = new SummingSink();
+		CombiningBufferII buffer = new SumBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, sink);
+
+		assertFalse(buffer.add(1, 1));
+		assertFalse(buffer.add(2, 2));
+		assertTrue(buffer.add(1, 3));
+		assertEquals(2, buffer.size());
+		assertEquals(0, sink.emitted);
+
+		buffer.close();
+		assertEquals(0, buffer.size());
+		assertEquals(2, sink.emitted);
+		assertEquals(4, sink.sums.get(1));
+		assertEquals(2, sink.sums.get(2));
+		assertEquals(1, buffer.getFlushCount());
+		assertEquals(2, buffer.getFlushedEntries());
+	}
+
+	@Test
+	public void testEntryBudget() throws IOException {
+		SummingSink sink = new SummingSink();
+		CombiningBufferII buffer = new SumBuffer(10, Long.MAX_VALUE, sink);
+
+		for (int i = 0; i < 1000; i++) {
+			buffer.add(i % 37, 1);
+			assertTrue(buffer.size() < 10);
+		}
+		buffer.close();
+
+		assertTrue(buffer.getFlushCount() > 1);
+		assertEquals(sink.emitted, buffer.getFlushedEntries());
+		assertEquals(37, sink.sums.size());
+		int total = 0;
+		for (int i = 0; i < 37; i++) {
+			total += sink.sums.get(i);
+		}
+		assertEquals(1000, total);
+	}
+
+	@Test
+	public void testByteBudget() throws IOException {
+		SummingSink sink = new SummingSink();
+		CombiningBufferII buffer = new SumBuffer(Integer.MAX_VALUE,
+				5 * CombiningBuffer.HASH_ENTRY_BYTES, sink);
+
+		for (int i = 0; i < 12; i++) {
+			buffer.add(i, 1);
+			assertTrue(buffer.getEstimatedBytes() < buffer.getMaxBytes());
+		}
+		assertEquals(2, buffer.getFlushCount());
+		assertEquals(10 * CombiningBuffer.HASH_ENTRY_BYTES, buffer.getFlushedBytes());
+
+		buffer.close();
+		assertEquals(3, buffer.getFlushCount());
+		assertEquals(12, sink.emitted);
+	}
+
+	@Test
+	public void testOffHeapByteBudget() throws IOException {
+		Configuration conf = new Configuration();
+		conf.setLong(CombiningBuffer.MAX_BYTES_PROPERTY, 5 * CombiningBuffer.OFF_HEAP_ENTRY_BYTES);
+		SummingSink sink = new SummingSink();
+		CombiningBufferII buffer = new SumBuffer(conf, new OffHeapMapII(new File(System
+				.getProperty("java.io.tmpdir"))), CombiningBuffer.OFF_HEAP_ENTRY_BYTES, sink);
+
+		for (int i = 0; i < 12; i++) {
+			buffer.add(i, 1);
+			assertTrue(buffer.getEstimatedBytes() < buffer.getMaxBytes());
+		}
+		assertEquals(2, buffer.getFlushCount());
+		assertEquals(10 * CombiningBuffer.OFF_HEAP_ENTRY_BYTES, buffer.getFlushedBytes());
+
+		buffer.close();
+		assertEquals(3, buffer.getFlushCount());
+		assertEquals(12, sink.emitted);
+	}
+
+	@Test
+	public void testListener() throws IOException {
+		final long[] reported = new long[3];
+		CombiningBufferII buffer = new SumBuffer(3, Long.MAX_VALUE, new SummingSink());
+		buffer.setListener(new CombiningBuffer.Listener() {
+			public void flushed(int entries, long bytes) {
+				reported[0]++;
+				reported[1] += entries;
+				reported[2] += bytes;
+			}
+		});
+
+		for (int i = 0; i < 7; i++) {
+			buffer.add(i, 1);
+		}
+		buffer.close();
+
+		assertEquals(3, reported[0]);
+		assertEquals(7, reported[1]);
+		assertEquals(7 * CombiningBuffer.HASH_ENTRY_BYTES, reported[2]);
+	}
+
+	@Test
+	public void testConfiguration() throws IOException {
+		Configuration conf = new Configuration();
+		conf.setInt(CombiningBuffer.MAX_ENTRIES_PROPERTY, 4);
+		conf.setLong(CombiningBuffer.MAX_BYTES_PROPERTY, 1000);
+
+		Configuration copy = new Configuration();
+		CombiningBuffer.copyBudgets(conf, copy);
+
+		CombiningBufferII buffer = new SumBuffer(copy, new SummingSink());
+		assertEquals(4, buffer.getMaxEntries());
+		assertEquals(1000, buffer.getMaxBytes());
+
+		buffer = new SumBuffer(new Configuration(), new SummingSink());
+		assertEquals(Integer.MAX_VALUE, buffer.getMaxEntries());
+		assertEquals(Runtime.getRuntime().maxMemory() / 4, buffer.getMaxBytes());
+	}
+
+	@Test
+	public void testInterruptedSink() throws IOException {
+		CombiningBufferII buffer = new SumBuffer(10, Long.MAX_VALUE, new CombiningBufferII.Sink() {
+			public void emit(int key, int value) throws InterruptedException {
+				throw new InterruptedException();
+			}
+		});
+		buffer.add(1, 1);
+
+		try {
+			buffer.flush();
+			assertTrue(false);
+		} catch (InterruptedIOException e) {
+			assertTrue(Thread.interrupted());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalBudget() {
+		new SumBuffer(0, Long.MAX_VALUE, new SummingSink());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(CombiningBufferIITest.class);
+	}
+}
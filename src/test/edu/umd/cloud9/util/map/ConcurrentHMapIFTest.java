@@ -0,0 +1,190 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class ConcurrentHMapIFTest {
+
+	@Test
+	public void testRandomOperations() {
+		int size = 100000;
+		Random r = new Random(0);
+		HMapIF expected = new HMapIF();
+		ConcurrentHMapIF m = new ConcurrentHMapIF();
+
+		for (int i = 0; i < size; i++) {
+			int k = r.nextInt(size / 10);
+			float v = r.nextInt(100);
+			switch (r.nextInt(3)) {
+			case 0:
+				expected.put(k, v);
+				m.put(k, v);
+				break;
+			case 1:
+				expected.put(k, expected.containsKey(k) ? expected.get(k) + v : v);
+				m.increment(k, v);
+				break;
+			default:
+				if (expected.containsKey(k)) {
+					assertEquals(expected.remove(k), m.remove(k), 10e-6);
+				} else {
+					assertFalse(m.containsKey(k));
+				}
+			}
+		}
+
+		assertEquals(expected.size(), m.size());
+		for (MapIF.Entry e : expected.entrySet()) {
+			assertEquals(e.getValue(), m.get(e.getKey()), 10e-6);
+		}
+
+		HMapIF snapshot = m.snapshot();
+		assertEquals(expected.size(), snapshot.size());
+		for (MapIF.Entry e : snapshot.entrySet()) {
+			assertEquals(expected.get(e.getKey()), e.getValue(), 10e-6);
+		}
+	}
+
+	@Test
+	public void testBasic() {
+		ConcurrentHMapIF m = new ConcurrentHMapIF(1);
+		assertTrue(m.isEmpty());
+
+		m.put(1, 5.0f);
+		m.put(2, 22.0f);
+		assertEquals(6.0f, m.increment(1), 10e-6);
+		assertEquals(0.5f, m.increment(3, 0.5f), 10e-6);
+
+		assertEquals(3, m.size());
+		assertEquals(6.0f, m.get(1), 10e-6);
+		assertEquals(22.0f, m.get(2), 10e-6);
+		assertEquals(0.5f, m.get(3), 10e-6);
+		assertTrue(m.containsValue(22.0f));
+		assertFalse(m.containsValue(5.0f));
+
+		HMapIF n = new HMapIF();
+		n.put(2, 1.0f);
+		n.put(4, 4.0f);
+		m.plus(n);
+		assertEquals(23.0f, m.get(2), 10e-6);
+		assertEquals(4.0f, m.get(4), 10e-6);
+
+		m.clear();
+		assertEquals(0, m.size());
+		assertFalse(m.containsKey(1));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testGetMissing() {
+		ConcurrentHMapIF m = new ConcurrentHMapIF();
+		m.get(1);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testRemoveMissing() {
+		ConcurrentHMapIF m = new ConcurrentHMapIF();
+		m.remove(1);
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws InterruptedException {
+		final ConcurrentHMapIF m = new ConcurrentHMapIF(4);
+		final int numThreads = 8;
+		final int numIncrements = 100000;
+		final int numKeys = 1000;
+
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < numIncrements; i++) {
+						m.increment(i % numKeys);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < numThreads; t++) {
+			threads[t].join();
+		}
+
+		assertEquals(numKeys, m.size());
+		for (int k = 0; k < numKeys; k++) {
+			assertEquals(numThreads * numIncrements / numKeys, m.get(k), 10e-6);
+		}
+	}
+
+	@Test
+	public void testSnapshotIteration() throws InterruptedException {
+		final ConcurrentHMapIF m = new ConcurrentHMapIF();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i, i);
+		}
+
+		// Writers keep adding keys while the views and cursors are walked.
+		Thread writer = new Thread() {
+			public void run() {
+				for (int i = 1000; i < 200000; i++) {
+					m.put(i, i);
+				}
+			}
+		};
+		writer.start();
+
+		for (int n = 0; n < 20; n++) {
+			int count = 0;
+			MapIF.Cursor c = m.cursor();
+			while (c.advance()) {
+				assertEquals(c.key(), c.value(), 10e-6);
+				count++;
+			}
+			assertTrue(count >= 1000);
+
+			final int[] sum = new int[1];
+			m.forEach(new IntFloatProcedure() {
+				public void apply(int key, float value) {
+					assertEquals(key, value, 10e-6);
+					sum[0]++;
+				}
+			});
+			assertTrue(sum[0] >= count);
+		}
+		writer.join();
+
+		MapIF.Cursor c = m.cursor();
+		m.clear();
+		int count = 0;
+		while (c.advance()) {
+			count++;
+		}
+		assertEquals(200000, count);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ConcurrentHMapIFTest.class);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class ConcurrentHMapKITest {
+
+	@Test
+	public void testRandomOperations() {
+		int size = 100000;
+		Random r = new Random(0);
+		HMapKI<String> expected = new HMapKI<String>();
+		ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>();
+
+		for (int i = 0; i < size; i++) {
+			String k = "k" + r.nextInt(size / 10);
+			int v = r.nextInt();
+			switch (r.nextInt(3)) {
+			case 0:
+				assertEquals(expected.put(k, v), m.put(k, v));
+				break;
+			case 1:
+				expected.put(k, expected.get(k) + v);
+				m.increment(k, v);
+				break;
+			default:
+				if (expected.containsKey(k)) {
+					assertEquals(expected.remove(k), m.remove(k));
+				} else {
+					assertFalse(m.containsKey(k));
+				}
+			}
+		}
+
+		assertEquals(expected.size(), m.size());
+		for (MapKI.Entry<String> e : expected.entrySet()) {
+			assertEquals(e.getValue(), m.get(e.getKey()));
+		}
+
+		HMapKI<String> snapshot = m.snapshot();
+		assertEquals(expected.size(), snapshot.size());
+		for (MapKI.Entry<String> e : snapshot.entrySet()) {
+			assertEquals(expected.get(e.getKey()), e.getValue());
+		}
+	}
+
+	@Test
+	public void testBasic() {
+		ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>(1);
+		assertTrue(m.isEmpty());
+
+		m.put("a", 5);
+		m.put("b", 22);
+		assertEquals(6, m.increment("a"));
+		assertEquals(3, m.increment("c", 3));
+
+		assertEquals(3, m.size());
+		assertEquals(6, m.get("a"));
+		assertEquals(22, m.get("b"));
+		assertEquals(3, m.get("c"));
+		assertTrue(m.containsValue(22));
+		assertFalse(m.containsValue(5));
+
+		HMapKI<String> n = new HMapKI<String>();
+		n.put("b", 1);
+		n.put("d", 4);
+		m.plus(n);
+		assertEquals(23, m.get("b"));
+		assertEquals(4, m.get("d"));
+
+		m.clear();
+		assertEquals(0, m.size());
+		assertFalse(m.containsKey("a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullKey1() {
+		ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>();
+		m.put(null, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullKey2() {
+		ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>();
+		m.increment(null);
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws InterruptedException {
+		final ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>(4);
+		final int numThreads = 8;
+		final int numIncrements = 100000;
+		final int numKeys = 1000;
+		final String[] keys = new String[numKeys];
+		for (int k = 0; k < numKeys; k++) {
+			keys[k] = "k" + k;
+		}
+
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < numIncrements; i++) {
+						m.increment(keys[i % numKeys]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < numThreads; t++) {
+			threads[t].join();
+		}
+
+		assertEquals(numKeys, m.size());
+		for (int k = 0; k < numKeys; k++) {
+			assertEquals(numThreads * numIncrements / numKeys, m.get(keys[k]));
+		}
+	}
+
+	@Test
+	public void testSnapshotIteration() throws InterruptedException {
+		final ConcurrentHMapKI<String> m = new ConcurrentHMapKI<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put(Integer.toString(i), i);
+		}
+
+		// Writers keep adding keys while the views and cursors are walked.
+		Thread writer = new Thread() {
+			public void run() {
+				for (int i = 1000; i < 200000; i++) {
+					m.put(Integer.toString(i), i);
+				}
+			}
+		};
+		writer.start();
+
+		for (int n = 0; n < 20; n++) {
+			int count = 0;
+			MapKI.Cursor<String> c = m.cursor();
+			while (c.advance()) {
+				assertEquals(c.key(), Integer.toString(c.value()));
+				count++;
+			}
+			assertTrue(count >= 1000);
+
+			final int[] sum = new int[1];
+			m.forEach(new ObjectIntProcedure<String>() {
+				public void apply(String key, int value) {
+					assertEquals(key, Integer.toString(value));
+					sum[0]++;
+				}
+			});
+			assertTrue(sum[0] >= count);
+		}
+		writer.join();
+
+		MapKI.Cursor<String> c = m.cursor();
+		m.clear();
+		int count = 0;
+		while (c.advance()) {
+			count++;
+		}
+		assertEquals(200000, count);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ConcurrentHMapKITest.class);
+	}
+}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -252,6 +254,63 @@ public class HMapIFTest {
 		assertTrue(e == null);
 	}
 	
+	@Test
+	public void testForEach() {
+		final HMapIF m = new HMapIF();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (i + 1) * 0.5f);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntFloatProcedure() {
+			public void apply(int key, float value) {
+				assertEquals(m.get(key), value, 10e-6);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapIF m = new HMapIF();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (i + 1) * 0.5f);
+		}
+
+		int count = 0;
+		MapIF.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value(), 10e-6);
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapIF m = new HMapIF();
+		m.put(1 * 7, (1 + 1) * 0.5f);
+		m.put(2 * 7, (2 + 1) * 0.5f);
+
+		MapIF.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, (3 + 1) * 0.5f);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIFTest.class);
 	}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -27,6 +29,7 @@ import junit.framework.JUnit4TestAdapter;
 import org.junit.Test;
 
 import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.IntIntProcedure;
 import edu.umd.cloud9.util.map.MapII;
 import edu.umd.cloud9.util.map.MapII.Entry;
 
@@ -213,6 +216,32 @@ public class HMapIITest {
 		assertEquals(2, e[1].getValue());
 	}
 
+	@Test
+	public void testTopK() {
+		HMapII m = new HMapII();
+
+		m.put(1, 5);
+		m.put(2, 2);
+		m.put(3, 3);
+		m.put(4, 3);
+		m.put(5, 1);
+
+		final HMapII top = new HMapII();
+		final int[] order = new int[3];
+		m.topK(3, new IntIntProcedure() {
+			public void apply(int key, int value) {
+				order[top.size()] = key;
+				top.put(key, value);
+			}
+		});
+
+		assertEquals(3, top.size());
+		assertEquals(1, order[0]);
+		assertEquals(3, order[1]);
+		assertEquals(4, order[2]);
+		assertEquals(3, top.get(4));
+	}
+
 	@Test
 	public void testSortedEntries4() {
 		HMapII m = new HMapII();
@@ -250,6 +279,63 @@ public class HMapIITest {
 		assertEquals(2, m.get(3));
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapII m = new HMapII();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntIntProcedure() {
+			public void apply(int key, int value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapII m = new HMapII();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		int count = 0;
+		MapII.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapII m = new HMapII();
+		m.put(1 * 7, 1 + 1);
+		m.put(2 * 7, 2 + 1);
+
+		MapII.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, 3 + 1);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIITest.class);
 	}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -219,6 +221,63 @@ public class HMapILTest {
 		assertTrue(e == null);
 	}
 	
+	@Test
+	public void testForEach() {
+		final HMapIL m = new HMapIL();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i * 1000000000L);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntLongProcedure() {
+			public void apply(int key, long value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapIL m = new HMapIL();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i * 1000000000L);
+		}
+
+		int count = 0;
+		MapIL.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapIL m = new HMapIL();
+		m.put(1 * 7, 1 * 1000000000L);
+		m.put(2 * 7, 2 * 1000000000L);
+
+		MapIL.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, 3 * 1000000000L);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapILTest.class);
 	}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -219,6 +221,63 @@ public class HMapISTest {
 		assertTrue(e == null);
 	}
 	
+	@Test
+	public void testForEach() {
+		final HMapIS m = new HMapIS();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (short) (i + 1));
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntShortProcedure() {
+			public void apply(int key, short value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapIS m = new HMapIS();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (short) (i + 1));
+		}
+
+		int count = 0;
+		MapIS.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapIS m = new HMapIS();
+		m.put(1 * 7, (short) (1 + 1));
+		m.put(2 * 7, (short) (2 + 1));
+
+		MapIS.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, (short) (3 + 1));
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapISTest.class);
 	}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -180,6 +182,63 @@ public class HMapIVTest {
 		assertTrue(e == null);
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapIV<String> m = new HMapIV<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, "v" + i);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntObjectProcedure<String>() {
+			public void apply(int key, String value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapIV<String> m = new HMapIV<String>();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, "v" + i);
+		}
+
+		int count = 0;
+		MapIV.Cursor<String> c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapIV<String> m = new HMapIV<String>();
+		m.put(1 * 7, "v" + 1);
+		m.put(2 * 7, "v" + 2);
+
+		MapIV.Cursor<String> c = m.cursor();
+		c.advance();
+		m.put(3 * 7, "v" + 3);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapIVTest.class);
 	}
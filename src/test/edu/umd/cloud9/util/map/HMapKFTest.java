@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -264,6 +266,54 @@ public class HMapKFTest {
 		assertEquals(3.0f, e.getValue(), 10E-6);
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapKF<String> m = new HMapKF<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, (i + 1) * 0.5f);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new ObjectFloatProcedure<String>() {
+			public void apply(String key, float value) {
+				assertEquals(m.get(key), value, 10e-6);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapKF<String> m = new HMapKF<String>();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, (i + 1) * 0.5f);
+		}
+
+		int count = 0;
+		MapKF.Cursor<String> c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value(), 10e-6);
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapKF<String> m = new HMapKF<String>();
+		m.put("k" + 1, (1 + 1) * 0.5f);
+		m.put("k" + 2, (2 + 1) * 0.5f);
+
+		MapKF.Cursor<String> c = m.cursor();
+		c.advance();
+		m.put("k" + 3, (3 + 1) * 0.5f);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapKFTest.class);
 	}
@@ -17,9 +17,11 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -317,6 +319,54 @@ public class HMapKITest {
 		m.get(null);
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapKI<String> m = new HMapKI<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, i + 1);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new ObjectIntProcedure<String>() {
+			public void apply(String key, int value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapKI<String> m = new HMapKI<String>();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, i + 1);
+		}
+
+		int count = 0;
+		MapKI.Cursor<String> c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapKI<String> m = new HMapKI<String>();
+		m.put("k" + 1, 1 + 1);
+		m.put("k" + 2, 2 + 1);
+
+		MapKI.Cursor<String> c = m.cursor();
+		c.advance();
+		m.put("k" + 3, 3 + 1);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapKITest.class);
 	}
@@ -17,8 +17,10 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -105,6 +107,54 @@ public class HMapKLTest {
 
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapKL<String> m = new HMapKL<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, i * 1000000000L);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new ObjectLongProcedure<String>() {
+			public void apply(String key, long value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapKL<String> m = new HMapKL<String>();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, i * 1000000000L);
+		}
+
+		int count = 0;
+		MapKL.Cursor<String> c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapKL<String> m = new HMapKL<String>();
+		m.put("k" + 1, 1 * 1000000000L);
+		m.put("k" + 2, 2 * 1000000000L);
+
+		MapKL.Cursor<String> c = m.cursor();
+		c.advance();
+		m.put("k" + 3, 3 * 1000000000L);
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapKLTest.class);
 	}
@@ -17,8 +17,10 @@
 package edu.umd.cloud9.util.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ConcurrentModificationException;
 import java.util.Random;
 
 import junit.framework.JUnit4TestAdapter;
@@ -102,6 +104,54 @@ public class HMapKSTest {
 
 	}
 
+	@Test
+	public void testForEach() {
+		final HMapKS<String> m = new HMapKS<String>();
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, (short) (i + 1));
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new ObjectShortProcedure<String>() {
+			public void apply(String key, short value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapKS<String> m = new HMapKS<String>();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put("k" + i, (short) (i + 1));
+		}
+
+		int count = 0;
+		MapKS.Cursor<String> c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapKS<String> m = new HMapKS<String>();
+		m.put("k" + 1, (short) (1 + 1));
+		m.put("k" + 2, (short) (2 + 1));
+
+		MapKS.Cursor<String> c = m.cursor();
+		c.advance();
+		m.put("k" + 3, (short) (3 + 1));
+		c.advance();
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(HMapKSTest.class);
 	}
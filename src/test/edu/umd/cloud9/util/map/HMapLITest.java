@@ -0,0 +1,368 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapLI;
+import edu.umd.cloud9.util.map.MapLI;
+import edu.umd.cloud9.util.map.MapLI.Entry;
+
+public class HMapLITest {
+
+	@Test
+	public void testBasic1() {
+		int size = 100000;
+		Random r = new Random();
+		int[] ints = new int[size];
+
+		MapLI map = new HMapLI();
+		for (int i = 0; i < size; i++) {
+			int k = r.nextInt(size);
+			map.put(i, k);
+			ints[i] = k;
+		}
+
+		for (int i = 0; i < size; i++) {
+			int v = map.get(i);
+
+			assertEquals(ints[i], v);
+			assertTrue(map.containsKey(i));
+		}
+
+	}
+
+	@Test
+	public void testUpdate() {
+
+		int size = 100000;
+		Random r = new Random();
+		int[] ints = new int[size];
+
+		MapLI map = new HMapLI();
+		for (int i = 0; i < size; i++) {
+			int k = r.nextInt(size);
+			map.put(i, k);
+			ints[i] = k;
+		}
+
+		assertEquals(size, map.size());
+
+		for (int i = 0; i < size; i++) {
+			map.put(i, ints[i] + 1);
+		}
+
+		assertEquals(size, map.size());
+
+		for (int i = 0; i < size; i++) {
+			int v = map.get(i);
+
+			assertEquals(ints[i] + 1, v);
+			assertTrue(map.containsKey(i));
+		}
+
+	}
+	
+	@Test
+	public void testBasic() throws IOException {
+		HMapLI m = new HMapLI();
+
+		m.put(1, 5);
+		m.put(2, 22);
+
+		float value;
+
+		assertEquals(m.size(), 2);
+
+		value = m.get(1);
+		assertTrue(value == 5);
+
+		value = m.remove(1);
+		assertEquals(m.size(), 1);
+
+		value = m.get(2);
+		assertTrue(value == 22);
+	}
+
+	@Test
+	public void testPlus() throws IOException {
+		HMapLI m1 = new HMapLI();
+
+		m1.put(1, 5);
+		m1.put(2, 22);
+
+		HMapLI m2 = new HMapLI();
+
+		m2.put(1, 4);
+		m2.put(3, 5);
+
+		m1.plus(m2);
+
+		assertEquals(m1.size(), 3);
+		assertTrue(m1.get(1) == 9);
+		assertTrue(m1.get(2) == 22);
+		assertTrue(m1.get(3) == 5);
+	}
+
+	@Test
+	public void testDot() throws IOException {
+		HMapLI m1 = new HMapLI();
+
+		m1.put(1, 2);
+		m1.put(2, 1);
+		m1.put(3, 3);
+
+		HMapLI m2 = new HMapLI();
+
+		m2.put(1, 1);
+		m2.put(2, 4);
+		m2.put(4, 5);
+
+		int s = m1.dot(m2);
+
+		assertTrue(s == 6);
+	}
+
+	@Test
+	public void testSortedEntries1() {
+		HMapLI m = new HMapLI();
+
+		m.put(1, 5);
+		m.put(2, 2);
+		m.put(3, 3);
+		m.put(4, 3);
+		m.put(5, 1);
+
+		Entry[] e = m.getEntriesSortedByValue();
+		assertEquals(5, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5, e[0].getValue());
+
+		assertEquals(3, e[1].getKey());
+		assertEquals(3, e[1].getValue());
+
+		assertEquals(4, e[2].getKey());
+		assertEquals(3, e[2].getValue());
+
+		assertEquals(2, e[3].getKey());
+		assertEquals(2, e[3].getValue());
+
+		assertEquals(5, e[4].getKey());
+		assertEquals(1, e[4].getValue());
+	}
+
+	@Test
+	public void testSortedEntries2() {
+		HMapLI m = new HMapLI();
+
+		m.put(1, 5);
+		m.put(2, 2);
+		m.put(3, 3);
+		m.put(4, 3);
+		m.put(5, 1);
+
+		Entry[] e = m.getEntriesSortedByValue(2);
+
+		assertEquals(2, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5, e[0].getValue());
+
+		assertEquals(3, e[1].getKey());
+		assertEquals(3, e[1].getValue());
+	}
+
+	@Test
+	public void testSortedEntries3() {
+		HMapLI m = new HMapLI();
+
+		m.put(1, 5);
+		m.put(2, 2);
+
+		Entry[] e = m.getEntriesSortedByValue(5);
+
+		assertEquals(2, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5, e[0].getValue());
+
+		assertEquals(2, e[1].getKey());
+		assertEquals(2, e[1].getValue());
+	}
+
+	@Test
+	public void testSortedEntries4() {
+		HMapLI m = new HMapLI();
+
+		Entry[] e = m.getEntriesSortedByValue();
+		assertTrue(e == null);
+	}
+
+	@Test
+	public void testPut() {
+		HMapLI m = new HMapLI();
+		// When we put a value, we should get back the old value.
+
+		assertEquals(MapLI.DEFAULT_VALUE, m.put(1, 5));
+		assertEquals(5, m.put(1, 6));
+		assertEquals(6, m.put(1, 2));
+		assertEquals(2, m.get(1));
+	}
+
+	@Test
+	public void testIncrement() {
+		HMapLI m = new HMapLI();
+		// When we put a value, we should get back the old value.
+
+		assertEquals(0, m.get(1));
+		m.increment(1);
+
+		assertEquals(1, m.get(1));
+		m.increment(1, 5);
+		m.increment(2, 0);
+		m.increment(3, 2);
+
+		assertEquals(6, m.get(1));
+		assertEquals(0, m.get(2));
+		assertEquals(2, m.get(3));
+	}
+
+	@Test
+	public void testForEach() {
+		final HMapLI m = new HMapLI();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new LongIntProcedure() {
+			public void apply(long key, int value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new LongProcedure() {
+			public void apply(long key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		HMapLI m = new HMapLI();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		int count = 0;
+		MapLI.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		HMapLI m = new HMapLI();
+		m.put(1 * 7, 1 + 1);
+		m.put(2 * 7, 2 + 1);
+
+		MapLI.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, 3 + 1);
+		c.advance();
+	}
+
+	@Test
+	public void testLongKeys() {
+		HMapLI m = new HMapLI();
+
+		// Keys that agree in their low or high 32 bits must not collide.
+		m.put(0L, 5);
+		m.put(1L << 32, 7);
+		m.put(-1L, 5);
+		m.put(Long.MAX_VALUE, 7);
+		m.put(Long.MIN_VALUE, 5);
+
+		assertEquals(5, m.size());
+		assertEquals(5, m.get(0L));
+		assertEquals(7, m.get(1L << 32));
+		assertEquals(5, m.get(-1L));
+		assertEquals(7, m.get(Long.MAX_VALUE));
+		assertTrue(m.containsKey(Long.MIN_VALUE));
+		assertFalse(m.containsKey(1L));
+		assertFalse(m.containsKey((1L << 32) + 1));
+
+		m.remove(1L << 32);
+		assertEquals(4, m.size());
+		assertFalse(m.containsKey(1L << 32));
+		assertTrue(m.containsKey(0L));
+		assertTrue(m.keySet().contains(Long.MAX_VALUE));
+	}
+
+	@Test(timeout = 20000)
+	public void testPackedPairKeys() {
+		// keys packed from pairs of small ints used to collide: hi ^ lo < 1024
+		int n = 1000;
+		int buckets = 1 << 20;
+		boolean[] used = new boolean[buckets];
+		int distinct = 0;
+		HMapLI m = new HMapLI();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				long key = ((long) i << 32) | j;
+				int index = HMapLI.indexFor(HMapLI.hash(key), buckets);
+				if (!used[index]) {
+					used[index] = true;
+					distinct++;
+				}
+				m.put(key, i + j);
+			}
+		}
+
+		// about (1 - 1/e) of the buckets, for a random hash
+		assertTrue(distinct > buckets / 2);
+		assertEquals(n * n, m.size());
+		assertEquals(998 + 999, m.get((998L << 32) | 999), 0);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HMapLITest.class);
+	}
+}
\ No newline at end of file
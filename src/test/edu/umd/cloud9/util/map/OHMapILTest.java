@@ -0,0 +1,285 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.OHMapIL;
+import edu.umd.cloud9.util.map.MapIL;
+import edu.umd.cloud9.util.map.MapIL.Entry;
+
+public class OHMapILTest {
+
+	@Test
+	public void testBasic1() {
+		int size = 100000;
+		Random r = new Random();
+		long[] longs = new long[size];
+
+		MapIL map = new OHMapIL();
+		for (int i = 0; i < size; i++) {
+			int k = r.nextInt(size);
+			map.put(i, k * 2);
+			longs[i] = k * 2;
+		}
+
+		for (int i = 0; i < size; i++) {
+			long v = map.get(i);
+
+			assertEquals(longs[i], v);
+			assertTrue(map.containsKey(i));
+		}
+	}
+
+	@Test
+	public void testUpdate() {
+		int size = 100000;
+		Random r = new Random();
+		long[] longs = new long[size];
+
+		MapIL map = new OHMapIL();
+		for (int i = 0; i < size; i++) {
+			int k = r.nextInt(size);
+			map.put(i, k + 10L);
+			longs[i] = k + 10L;
+		}
+
+		assertEquals(size, map.size());
+
+		for (int i = 0; i < size; i++) {
+			map.put(i, longs[i] + 10L);
+		}
+
+		assertEquals(size, map.size());
+
+		for (int i = 0; i < size; i++) {
+			long v = map.get(i);
+
+			assertEquals(longs[i] + 10L, v);
+			assertTrue(map.containsKey(i));
+		}
+
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		OHMapIL m = new OHMapIL();
+
+		m.put(1, 5L);
+		m.put(2, 22L);
+
+		long value;
+
+		assertEquals(2, m.size());
+
+		value = m.get(1);
+		assertEquals(5L, value);
+
+		value = m.remove(1);
+		assertEquals(m.size(), 1);
+
+		value = m.get(2);
+		assertEquals(22L, value);
+	}
+
+	@Test
+	public void testPlus() throws IOException {
+		OHMapIL m1 = new OHMapIL();
+
+		m1.put(1, 5L);
+		m1.put(2, 22L);
+
+		OHMapIL m2 = new OHMapIL();
+
+		m2.put(1, 4L);
+		m2.put(3, 5L);
+
+		m1.plus(m2);
+
+		assertEquals(m1.size(), 3);
+		assertTrue(m1.get(1) == 9L);
+		assertTrue(m1.get(2) == 22L);
+		assertTrue(m1.get(3) == 5L);
+	}
+
+	@Test
+	public void testDot() throws IOException {
+		OHMapIL m1 = new OHMapIL();
+
+		m1.put(1, 2L);
+		m1.put(2, 1L);
+		m1.put(3, 3L);
+
+		OHMapIL m2 = new OHMapIL();
+
+		m2.put(1, 1L);
+		m2.put(2, 4L);
+		m2.put(4, 5L);
+
+		long s = m1.dot(m2);
+
+		assertEquals(6L, s);
+	}
+
+	@Test
+	public void testSortedEntries1() {
+		OHMapIL m = new OHMapIL();
+
+		m.put(1, 5L);
+		m.put(2, 2L);
+		m.put(3, 3L);
+		m.put(4, 3L);
+		m.put(5, 1L);
+
+		Entry[] e = m.getEntriesSortedByValue();
+		assertEquals(5, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5L, e[0].getValue());
+
+		assertEquals(3, e[1].getKey());
+		assertEquals(3L, e[1].getValue());
+
+		assertEquals(4, e[2].getKey());
+		assertEquals(3L, e[2].getValue());
+
+		assertEquals(2, e[3].getKey());
+		assertEquals(2L, e[3].getValue());
+
+		assertEquals(5, e[4].getKey());
+		assertEquals(1L, e[4].getValue());
+	}
+
+	@Test
+	public void testSortedEntries2() {
+		OHMapIL m = new OHMapIL();
+
+		m.put(1, 5L);
+		m.put(2, 2L);
+		m.put(3, 3L);
+		m.put(4, 3L);
+		m.put(5, 1L);
+
+		Entry[] e = m.getEntriesSortedByValue(2);
+
+		assertEquals(2, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5L, e[0].getValue());
+
+		assertEquals(3, e[1].getKey());
+		assertEquals(3L, e[1].getValue());
+	}
+	
+	@Test
+	public void testSortedEntries3() {
+		OHMapIL m = new OHMapIL();
+
+		m.put(1, 5L);
+		m.put(2, 2L);
+
+		Entry[] e = m.getEntriesSortedByValue(5);
+
+		assertEquals(2, e.length);
+
+		assertEquals(1, e[0].getKey());
+		assertEquals(5L, e[0].getValue());
+
+		assertEquals(2, e[1].getKey());
+		assertEquals(2L, e[1].getValue());
+	}
+	
+	@Test
+	public void testSortedEntries4() {
+		OHMapIL m = new OHMapIL();
+
+		Entry[] e = m.getEntriesSortedByValue();
+		assertTrue(e == null);
+	}
+	
+	@Test
+	public void testForEach() {
+		final OHMapIL m = new OHMapIL();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i * 1000000000L);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntLongProcedure() {
+			public void apply(int key, long value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+	}
+
+	@Test
+	public void testCursor() {
+		OHMapIL m = new OHMapIL();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i * 1000000000L);
+		}
+
+		int count = 0;
+		MapIL.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		OHMapIL m = new OHMapIL();
+		m.put(1 * 7, 1 * 1000000000L);
+		m.put(2 * 7, 2 * 1000000000L);
+
+		MapIL.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, 3 * 1000000000L);
+		c.advance();
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(OHMapILTest.class);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class OffHeapMapIFTest {
+
+	private static File tmpDir() {
+		return new File(System.getProperty("java.io.tmpdir"));
+	}
+
+	private void testRandomOperations(OffHeapMapIF m) throws IOException {
+		Random r = new Random(42);
+		HMapIF ref = new HMapIF();
+		float delta = 0.0f;
+
+		for (int i = 0; i < 100000; i++) {
+			int k = r.nextInt(20000) - 10000;
+			int op = r.nextInt(3);
+			if (op == 0) {
+				float v = r.nextFloat();
+				ref.put(k, v);
+				m.put(k, v);
+			} else if (op == 1) {
+				if (ref.containsKey(k)) {
+					assertEquals(ref.remove(k), m.remove(k), delta);
+				}
+				assertFalse(m.containsKey(k));
+			} else {
+				float v = ref.containsKey(k) ? ref.get(k) + 1.0f : 1.0f;
+				ref.put(k, v);
+				m.increment(k, 1.0f);
+			}
+			assertEquals(ref.size(), m.size());
+		}
+
+		for (MapIF.Entry e : ref.entrySet()) {
+			assertEquals(e.getValue(), m.get(e.getKey()), delta);
+		}
+
+		int cnt = 0;
+		for (MapIF.Entry e : m.entrySet()) {
+			assertEquals(ref.get(e.getKey()), e.getValue(), delta);
+			cnt++;
+		}
+		assertEquals(ref.size(), cnt);
+
+		m.close();
+	}
+
+	@Test
+	public void testDirectBuffers() throws IOException {
+		testRandomOperations(new OffHeapMapIF(null, 4, 0.75f));
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		testRandomOperations(new OffHeapMapIF(tmpDir(), 4, 0.75f));
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		OffHeapMapIF m = new OffHeapMapIF(tmpDir());
+
+		m.put(1, 5.0f);
+		m.put(2, 22.0f);
+
+		assertEquals(2, m.size());
+		assertEquals(5.0f, m.get(1), 0.0f);
+		assertFalse(m.containsKey(3));
+
+		assertEquals(5.0f, m.remove(1), 0.0f);
+		assertEquals(1, m.size());
+		assertEquals(22.0f, m.get(2), 0.0f);
+
+		m.clear();
+		assertTrue(m.isEmpty());
+		assertFalse(m.containsKey(2));
+
+		m.close();
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testMissingKey() throws IOException {
+		OffHeapMapIF m = new OffHeapMapIF();
+		try {
+			m.get(1);
+		} finally {
+			m.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws IOException {
+		OffHeapMapIF m = new OffHeapMapIF();
+		m.put(1, 5.0f);
+		m.close();
+		m.get(1);
+	}
+
+	@Test
+	public void testForEach() throws IOException {
+		final OffHeapMapIF m = new OffHeapMapIF();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (i + 1) * 0.5f);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntFloatProcedure() {
+			public void apply(int key, float value) {
+				assertEquals(m.get(key), value, 10e-6);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		m.close();
+	}
+
+	@Test
+	public void testCursor() throws IOException {
+		OffHeapMapIF m = new OffHeapMapIF();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, (i + 1) * 0.5f);
+		}
+
+		int count = 0;
+		MapIF.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value(), 10e-6);
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+		m.close();
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		OffHeapMapIF m = new OffHeapMapIF();
+		m.put(1 * 7, (1 + 1) * 0.5f);
+		m.put(2 * 7, (2 + 1) * 0.5f);
+
+		MapIF.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, (3 + 1) * 0.5f);
+		c.advance();
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(OffHeapMapIFTest.class);
+	}
+}
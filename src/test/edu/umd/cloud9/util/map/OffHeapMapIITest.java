@@ -0,0 +1,177 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class OffHeapMapIITest {
+
+	private static File tmpDir() {
+		return new File(System.getProperty("java.io.tmpdir"));
+	}
+
+	private void testRandomOperations(OffHeapMapII m) throws IOException {
+		Random r = new Random(42);
+		HMapII ref = new HMapII();
+
+		for (int i = 0; i < 100000; i++) {
+			int k = r.nextInt(20000) - 10000;
+			int op = r.nextInt(3);
+			if (op == 0) {
+				int v = r.nextInt();
+				assertEquals(ref.put(k, v), m.put(k, v));
+			} else if (op == 1) {
+				if (ref.containsKey(k)) {
+					assertEquals(ref.remove(k), m.remove(k));
+				}
+				assertFalse(m.containsKey(k));
+			} else {
+				ref.increment(k);
+				m.increment(k);
+			}
+			assertEquals(ref.size(), m.size());
+		}
+
+		for (MapII.Entry e : ref.entrySet()) {
+			assertEquals(e.getValue(), m.get(e.getKey()));
+		}
+
+		int cnt = 0;
+		for (MapII.Entry e : m.entrySet()) {
+			assertEquals(ref.get(e.getKey()), e.getValue());
+			cnt++;
+		}
+		assertEquals(ref.size(), cnt);
+
+		m.close();
+	}
+
+	@Test
+	public void testDirectBuffers() throws IOException {
+		testRandomOperations(new OffHeapMapII(null, 4, 0.75f));
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		testRandomOperations(new OffHeapMapII(tmpDir(), 4, 0.75f));
+	}
+
+	@Test
+	public void testBasic() throws IOException {
+		OffHeapMapII m = new OffHeapMapII(tmpDir());
+
+		m.put(1, 5);
+		m.put(2, 22);
+
+		assertEquals(2, m.size());
+		assertEquals(5, m.get(1));
+		assertEquals(MapII.DEFAULT_VALUE, m.get(3));
+
+		assertEquals(5, m.remove(1));
+		assertEquals(1, m.size());
+		assertEquals(22, m.get(2));
+
+		m.clear();
+		assertTrue(m.isEmpty());
+		assertFalse(m.containsKey(2));
+
+		m.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws IOException {
+		OffHeapMapII m = new OffHeapMapII();
+		m.put(1, 5);
+		m.close();
+		m.get(1);
+	}
+
+	@Test
+	public void testForEach() throws IOException {
+		final OffHeapMapII m = new OffHeapMapII();
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		final int[] count = new int[1];
+		m.forEach(new IntIntProcedure() {
+			public void apply(int key, int value) {
+				assertEquals(m.get(key), value);
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		count[0] = 0;
+		m.forEachKey(new IntProcedure() {
+			public void apply(int key) {
+				assertTrue(m.containsKey(key));
+				count[0]++;
+			}
+		});
+		assertEquals(1000, count[0]);
+
+		m.close();
+	}
+
+	@Test
+	public void testCursor() throws IOException {
+		OffHeapMapII m = new OffHeapMapII();
+		assertFalse(m.cursor().advance());
+
+		for (int i = 0; i < 1000; i++) {
+			m.put(i * 7, i + 1);
+		}
+
+		int count = 0;
+		MapII.Cursor c = m.cursor();
+		while (c.advance()) {
+			assertEquals(m.get(c.key()), c.value());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertFalse(c.advance());
+		m.close();
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testCursorConcurrentModification() {
+		OffHeapMapII m = new OffHeapMapII();
+		m.put(1 * 7, 1 + 1);
+		m.put(2 * 7, 2 + 1);
+
+		MapII.Cursor c = m.cursor();
+		c.advance();
+		m.put(3 * 7, 3 + 1);
+		c.advance();
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(OffHeapMapIITest.class);
+	}
+}
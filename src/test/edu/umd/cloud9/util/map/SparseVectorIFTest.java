@@ -0,0 +1,145 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class SparseVectorIFTest {
+
+	@Test
+	public void testFreeze() {
+		HMapIF m = new HMapIF();
+		m.put(5, 1.0f);
+		m.put(-3, 2.0f);
+		m.put(Integer.MAX_VALUE, -0.5f);
+		m.put(Integer.MIN_VALUE, 4.0f);
+		m.put(0, 3.0f);
+
+		SparseVectorIF v = m.freeze();
+		assertEquals(5, v.size());
+
+		int[] keys = v.getKeys();
+		float[] values = v.getValues();
+		assertEquals(Integer.MIN_VALUE, keys[0]);
+		assertEquals(-3, keys[1]);
+		assertEquals(0, keys[2]);
+		assertEquals(5, keys[3]);
+		assertEquals(Integer.MAX_VALUE, keys[4]);
+		assertEquals(4.0f, values[0], 10e-6);
+		assertEquals(2.0f, values[1], 10e-6);
+		assertEquals(3.0f, values[2], 10e-6);
+		assertEquals(1.0f, values[3], 10e-6);
+		assertEquals(-0.5f, values[4], 10e-6);
+
+		assertTrue(v.containsKey(-3));
+		assertFalse(v.containsKey(4));
+		assertEquals(-0.5f, v.get(Integer.MAX_VALUE), 10e-6);
+		assertEquals(m.toString().length(), v.toString().length());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testMissingKey() {
+		HMapIF m = new HMapIF();
+		m.put(1, 1.0f);
+		m.freeze().get(2);
+	}
+
+	@Test
+	public void testEmpty() {
+		SparseVectorIF v = new HMapIF().freeze();
+		HMapIF m = new HMapIF();
+		m.put(1, 1.0f);
+
+		assertEquals(0, v.size());
+		assertEquals(0.0f, v.dot(m.freeze()), 10e-6);
+		assertEquals(0.0f, v.cosine(m.freeze()), 10e-6);
+		assertEquals(0.0f, v.l2Norm(), 10e-6);
+		assertEquals(m.freeze(), v.plus(m.freeze()));
+	}
+
+	@Test
+	public void testAgainstHMapIF() {
+		Random r = new Random(0);
+		for (int trial = 0; trial < 100; trial++) {
+			HMapIF m1 = new HMapIF();
+			HMapIF m2 = new HMapIF();
+			for (int i = 0; i < 200; i++) {
+				m1.put(r.nextInt(500) - 250, r.nextInt(20) - 10);
+				m2.put(r.nextInt(500) - 250, r.nextInt(20) - 10);
+			}
+
+			SparseVectorIF v1 = m1.freeze();
+			SparseVectorIF v2 = m2.freeze();
+
+			assertEquals(m1.dot(m2), v1.dot(v2), 10e-3);
+			assertEquals(m1.length(), v1.l2Norm(), 10e-3);
+
+			float l1 = 0.0f;
+			for (MapIF.Entry e : m1.entrySet()) {
+				l1 += Math.abs(e.getValue());
+			}
+			assertEquals(l1, v1.l1Norm(), 10e-3);
+			assertEquals(m1.dot(m2) / (m1.length() * m2.length()), v1.cosine(v2), 10e-5);
+
+			HMapIF sum = new HMapIF(m1);
+			sum.plus(m2);
+			SparseVectorIF v = v1.plus(v2);
+			assertEquals(sum.size(), v.size());
+			for (MapIF.Entry e : sum.entrySet()) {
+				assertEquals(e.getValue(), v.get(e.getKey()), 10e-6);
+			}
+			assertEquals(v, sum.freeze());
+
+			HMapIF thawed = v.toMap();
+			assertEquals(sum.size(), thawed.size());
+			for (MapIF.Entry e : sum.entrySet()) {
+				assertEquals(e.getValue(), thawed.get(e.getKey()), 10e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testForEach() {
+		HMapIF m = new HMapIF();
+		for (int i = 0; i < 100; i++) {
+			m.put(i * 3, i);
+		}
+
+		final int[] last = new int[] { -1 };
+		m.freeze().forEach(new IntFloatProcedure() {
+			public void apply(int key, float value) {
+				assertTrue(key > last[0]);
+				assertEquals(key / 3, value, 10e-6);
+				last[0] = key;
+			}
+		});
+		assertEquals(99 * 3, last[0]);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SparseVectorIFTest.class);
+	}
+}
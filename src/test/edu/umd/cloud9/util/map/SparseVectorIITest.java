@@ -0,0 +1,149 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class SparseVectorIITest {
+
+	@Test
+	public void testFreeze() {
+		HMapII m = new HMapII();
+		m.put(5, 1);
+		m.put(-3, 2);
+		m.put(Integer.MAX_VALUE, -5);
+		m.put(Integer.MIN_VALUE, Integer.MIN_VALUE);
+		m.put(0, 3);
+
+		SparseVectorII v = m.freeze();
+		assertEquals(5, v.size());
+
+		int[] keys = v.getKeys();
+		int[] values = v.getValues();
+		assertEquals(Integer.MIN_VALUE, keys[0]);
+		assertEquals(-3, keys[1]);
+		assertEquals(0, keys[2]);
+		assertEquals(5, keys[3]);
+		assertEquals(Integer.MAX_VALUE, keys[4]);
+		assertEquals(Integer.MIN_VALUE, values[0]);
+		assertEquals(2, values[1]);
+		assertEquals(3, values[2]);
+		assertEquals(1, values[3]);
+		assertEquals(-5, values[4]);
+
+		assertTrue(v.containsKey(-3));
+		assertFalse(v.containsKey(4));
+		assertEquals(-5, v.get(Integer.MAX_VALUE));
+		assertEquals(m.toString().length(), v.toString().length());
+	}
+
+	@Test
+	public void testMissingKey() {
+		HMapII m = new HMapII();
+		m.put(1, 1);
+		assertEquals(MapII.DEFAULT_VALUE, m.freeze().get(2));
+	}
+
+	@Test
+	public void testEmpty() {
+		SparseVectorII v = new HMapII().freeze();
+		HMapII m = new HMapII();
+		m.put(1, 1);
+
+		assertEquals(0, v.size());
+		assertEquals(0, v.dot(m.freeze()));
+		assertEquals(0.0f, v.cosine(m.freeze()), 10e-6);
+		assertEquals(0.0f, v.l2Norm(), 10e-6);
+		assertEquals(m.freeze(), v.plus(m.freeze()));
+	}
+
+	@Test
+	public void testAgainstHMapII() {
+		Random r = new Random(0);
+		for (int trial = 0; trial < 100; trial++) {
+			HMapII m1 = new HMapII();
+			HMapII m2 = new HMapII();
+			for (int i = 0; i < 200; i++) {
+				m1.put(r.nextInt(500) - 250, r.nextInt(20) - 10);
+				m2.put(r.nextInt(500) - 250, r.nextInt(20) - 10);
+			}
+
+			SparseVectorII v1 = m1.freeze();
+			SparseVectorII v2 = m2.freeze();
+
+			long l1 = 0;
+			double l2 = 0.0, l2Other = 0.0;
+			for (MapII.Entry e : m1.entrySet()) {
+				l1 += Math.abs(e.getValue());
+				l2 += e.getValue() * e.getValue();
+			}
+			for (MapII.Entry e : m2.entrySet()) {
+				l2Other += e.getValue() * e.getValue();
+			}
+
+			assertEquals(m1.dot(m2), v1.dot(v2));
+			assertEquals(l1, v1.l1Norm());
+			assertEquals(Math.sqrt(l2), v1.l2Norm(), 10e-3);
+			assertEquals(m1.dot(m2) / Math.sqrt(l2 * l2Other), v1.cosine(v2), 10e-5);
+
+			HMapII sum = new HMapII(m1);
+			sum.plus(m2);
+			SparseVectorII v = v1.plus(v2);
+			assertEquals(sum.size(), v.size());
+			for (MapII.Entry e : sum.entrySet()) {
+				assertEquals(e.getValue(), v.get(e.getKey()));
+			}
+			assertEquals(v, sum.freeze());
+
+			HMapII thawed = v.toMap();
+			assertEquals(sum.size(), thawed.size());
+			for (MapII.Entry e : sum.entrySet()) {
+				assertEquals(e.getValue(), thawed.get(e.getKey()));
+			}
+		}
+	}
+
+	@Test
+	public void testForEach() {
+		HMapII m = new HMapII();
+		for (int i = 0; i < 100; i++) {
+			m.put(i * 3, i);
+		}
+
+		final int[] last = new int[] { -1 };
+		m.freeze().forEach(new IntIntProcedure() {
+			public void apply(int key, int value) {
+				assertTrue(key > last[0]);
+				assertEquals(key / 3, value);
+				last[0] = key;
+			}
+		});
+		assertEquals(99 * 3, last[0]);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SparseVectorIITest.class);
+	}
+}